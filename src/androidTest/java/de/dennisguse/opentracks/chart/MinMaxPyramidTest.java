@@ -0,0 +1,171 @@
+package de.dennisguse.opentracks.chart;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(AndroidJUnit4.class)
+public class MinMaxPyramidTest {
+
+    private static List<double[]> collect(MinMaxPyramid subject, int level, double fromX, double toX) {
+        List<double[]> points = new ArrayList<>();
+        subject.forEach(level, fromX, toX, (x, y) -> points.add(new double[]{x, y}));
+        return points;
+    }
+
+    @Test
+    public void level0_containsAllPoints() {
+        // given
+        MinMaxPyramid subject = new MinMaxPyramid();
+        for (int i = 0; i < 10; i++) {
+            subject.add(i, i * 2);
+        }
+
+        // when
+        List<double[]> points = collect(subject, 0, 0, 9);
+
+        // then
+        assertEquals(10, points.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, points.get(i)[0], 0.01);
+            assertEquals(i * 2, points.get(i)[1], 0.01);
+        }
+    }
+
+    @Test
+    public void coarseLevel_keepsPeaks() {
+        // given
+        MinMaxPyramid subject = new MinMaxPyramid();
+        for (int i = 0; i < 100_000; i++) {
+            double y = i == 54_321 ? 1000 : (i == 12_345 ? -1000 : 0);
+            subject.add(i, y);
+        }
+
+        // when
+        int level = subject.getLevel(100_000 / 500.0);
+        List<double[]> points = collect(subject, level, 0, 100_000);
+
+        // then
+        assertTrue(level > 0);
+        // at most two buckets per pixel column with four points each
+        assertTrue(points.size() <= 2 * 4 * 500 + 8);
+
+        double min = Double.MAX_VALUE;
+        double max = -Double.MAX_VALUE;
+        double previousX = -1;
+        for (double[] point : points) {
+            assertTrue(point[0] > previousX);
+            previousX = point[0];
+            min = Math.min(min, point[1]);
+            max = Math.max(max, point[1]);
+        }
+        assertEquals(-1000, min, 0.01);
+        assertEquals(1000, max, 0.01);
+    }
+
+    @Test
+    public void forEach_skipsNaN() {
+        // given
+        MinMaxPyramid subject = new MinMaxPyramid();
+        for (int i = 0; i < 64; i++) {
+            subject.add(i, i < 32 ? Double.NaN : i);
+        }
+
+        // when
+        List<double[]> level0 = collect(subject, 0, 0, 64);
+        List<double[]> level3 = collect(subject, 3, 0, 64);
+
+        // then
+        assertEquals(32, level0.size());
+        for (double[] point : level3) {
+            assertTrue(point[0] >= 32);
+        }
+    }
+
+    @Test
+    public void forEach_onlyVisibleRange() {
+        // given
+        MinMaxPyramid subject = new MinMaxPyramid();
+        for (int i = 0; i < 1000; i++) {
+            subject.add(i, i);
+        }
+
+        // when
+        List<double[]> points = collect(subject, 0, 100, 199);
+
+        // then: includes one point before and after the range
+        assertEquals(102, points.size());
+        assertEquals(99, points.get(0)[0], 0.01);
+        assertEquals(200, points.get(points.size() - 1)[0], 0.01);
+    }
+
+    @Test
+    public void forEachBucket_appendCompleteBuckets() {
+        // given
+        MinMaxPyramid subject = new MinMaxPyramid();
+        int level = 3;
+        List<double[]> appended = new ArrayList<>();
+        int bucketCount = 0;
+
+        // when: like recording, only complete buckets are added
+        for (int i = 0; i < 1000; i++) {
+            subject.add(i, Math.sin(i / 10.0));
+            if (subject.getLevelCount() > level) {
+                int completeBucketCount = subject.getCompleteBucketCount(level);
+                subject.forEachBucket(level, bucketCount, completeBucketCount, (x, y) -> appended.add(new double[]{x, y}));
+                bucketCount = completeBucketCount;
+            }
+        }
+        subject.forEachBucket(level, bucketCount, bucketCount + 1, (x, y) -> appended.add(new double[]{x, y}));
+
+        // then
+        List<double[]> all = collect(subject, level, 0, 1000);
+        assertEquals(all.size(), appended.size());
+        for (int i = 0; i < all.size(); i++) {
+            assertEquals(all.get(i)[0], appended.get(i)[0], 0.001);
+            assertEquals(all.get(i)[1], appended.get(i)[1], 0.001);
+        }
+    }
+
+    @Test
+    public void getLevel() {
+        // given
+        MinMaxPyramid subject = new MinMaxPyramid();
+        for (int i = 0; i < 1024; i++) {
+            subject.add(i, i);
+        }
+
+        // then
+        assertEquals(11, subject.getLevelCount());
+        assertEquals(0, subject.getLevel(0.5));
+        assertEquals(0, subject.getLevel(1.9));
+        assertEquals(1, subject.getLevel(2));
+        assertEquals(3, subject.getLevel(10));
+        assertEquals(10, subject.getLevel(100_000));
+    }
+
+    @Test
+    public void clear() {
+        // given
+        MinMaxPyramid subject = new MinMaxPyramid();
+        for (int i = 0; i < 100; i++) {
+            subject.add(i, i);
+        }
+
+        // when
+        subject.clear();
+        subject.add(0, 1);
+
+        // then
+        assertEquals(1, subject.size());
+        assertEquals(1, subject.getLevelCount());
+        assertEquals(1, collect(subject, 0, 0, 1).size());
+    }
+}
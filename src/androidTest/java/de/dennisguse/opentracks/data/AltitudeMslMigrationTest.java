@@ -0,0 +1,113 @@
+package de.dennisguse.opentracks.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.dennisguse.opentracks.content.data.TestDataUtil;
+import de.dennisguse.opentracks.data.models.Altitude;
+import de.dennisguse.opentracks.data.models.Track;
+import de.dennisguse.opentracks.data.models.TrackPoint;
+
+@RunWith(AndroidJUnit4.class)
+public class AltitudeMslMigrationTest {
+
+    private static final double GEOID_OFFSET = -40;
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+
+    private ContentProviderUtils contentProviderUtils;
+
+    @Before
+    public void setUp() {
+        contentProviderUtils = new ContentProviderUtils(context);
+        contentProviderUtils.deleteAllTracks(context);
+    }
+
+    private static void convert(List<TrackPoint> trackPoints) {
+        for (TrackPoint trackPoint : trackPoints) {
+            trackPoint.setAltitude(Altitude.EGM2008.of(trackPoint.getAltitude().toM() + GEOID_OFFSET));
+        }
+    }
+
+    private List<TrackPoint> getTrackPointsAltitudeMsl(Track.Id trackId) {
+        List<TrackPoint> trackPoints = new ArrayList<>();
+        try (TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointLocationIteratorAltitudeMsl(trackId, null)) {
+            while (trackPointIterator.hasNext()) {
+                trackPoints.add(trackPointIterator.next());
+            }
+        }
+        return trackPoints;
+    }
+
+    @Test
+    public void run_storesAltitudeMslInChunks() {
+        // given
+        Track.Id trackId = new Track.Id(1);
+        TestDataUtil.createTrackAndInsert(contentProviderUtils, trackId, 5);
+        List<Integer> chunkSizes = new ArrayList<>();
+
+        // when
+        int updated = AltitudeMslMigration.run(contentProviderUtils, trackPoints -> {
+            chunkSizes.add(trackPoints.size());
+            convert(trackPoints);
+        }, 2);
+
+        // then
+        assertEquals(5, updated);
+        assertEquals(List.of(2, 2, 1), chunkSizes);
+        assertTrue(contentProviderUtils.getTrackPointsWithoutAltitudeMsl(null, 10).isEmpty());
+
+        List<TrackPoint> trackPoints = getTrackPointsAltitudeMsl(trackId);
+        assertEquals(5, trackPoints.size());
+        for (int i = 0; i < trackPoints.size(); i++) {
+            assertTrue(trackPoints.get(i).getAltitude() instanceof Altitude.EGM2008);
+            assertEquals(i * TestDataUtil.ALTITUDE_INTERVAL + GEOID_OFFSET, trackPoints.get(i).getAltitude().toM(), 0.01);
+        }
+    }
+
+    @Test
+    public void run_ignoresTrackPointsWithoutAltitude() {
+        // given
+        Track.Id trackId = new Track.Id(1);
+        TrackPoint withoutAltitude = TestDataUtil.createTrackPoint(1);
+        withoutAltitude.setAltitude(null);
+        TestDataUtil.insertTrackWithLocations(contentProviderUtils, TestDataUtil.createTrack(trackId), List.of(TestDataUtil.createTrackPoint(0), withoutAltitude));
+
+        // when
+        int updated = AltitudeMslMigration.run(contentProviderUtils, AltitudeMslMigrationTest::convert, 10);
+
+        // then
+        assertEquals(1, updated);
+        List<TrackPoint> trackPoints = getTrackPointsAltitudeMsl(trackId);
+        assertTrue(trackPoints.get(0).getAltitude() instanceof Altitude.EGM2008);
+        assertFalse(trackPoints.get(1).hasAltitude());
+    }
+
+    @Test
+    public void run_stopsIfConversionIsNotAvailable() {
+        // given
+        Track.Id trackId = new Track.Id(1);
+        TestDataUtil.createTrackAndInsert(contentProviderUtils, trackId, 5);
+
+        // when
+        int updated = AltitudeMslMigration.run(contentProviderUtils, trackPoints -> {
+        }, 2);
+
+        // then
+        assertEquals(0, updated);
+        assertEquals(5, contentProviderUtils.getTrackPointsWithoutAltitudeMsl(null, 10).size());
+    }
+}
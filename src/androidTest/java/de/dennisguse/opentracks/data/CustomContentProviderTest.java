@@ -30,6 +30,7 @@ import org.junit.Test;
 
 import de.dennisguse.opentracks.data.tables.MarkerColumns;
 import de.dennisguse.opentracks.data.tables.TrackPointsColumns;
+import de.dennisguse.opentracks.data.tables.TrackRollupsColumns;
 import de.dennisguse.opentracks.data.tables.TracksColumns;
 
 /**
@@ -69,5 +70,7 @@ public class CustomContentProviderTest {
 
         assertEquals(MarkerColumns.CONTENT_TYPE, customContentProvider.getType(MarkerColumns.CONTENT_URI));
         assertEquals(MarkerColumns.CONTENT_ITEMTYPE, customContentProvider.getType(ContentUris.appendId(MarkerColumns.CONTENT_URI.buildUpon(), 1).build()));
+
+        assertEquals(TrackRollupsColumns.CONTENT_TYPE, customContentProvider.getType(TrackRollupsColumns.CONTENT_URI));
     }
 }
\ No newline at end of file
@@ -42,6 +42,7 @@ import java.io.File;
 import java.io.IOException;
 import java.time.Duration;
 import java.time.Instant;
+import java.time.ZoneOffset;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
@@ -58,12 +59,15 @@ import de.dennisguse.opentracks.data.models.Marker;
 import de.dennisguse.opentracks.data.models.Position;
 import de.dennisguse.opentracks.data.models.Speed;
 import de.dennisguse.opentracks.data.models.Track;
+import de.dennisguse.opentracks.data.models.TrackListItem;
 import de.dennisguse.opentracks.data.models.TrackPoint;
 import de.dennisguse.opentracks.data.tables.MarkerColumns;
 import de.dennisguse.opentracks.data.tables.TrackPointsColumns;
 import de.dennisguse.opentracks.data.tables.TracksColumns;
 import de.dennisguse.opentracks.stats.SensorStatistics;
 import de.dennisguse.opentracks.stats.TrackStatistics;
+import de.dennisguse.opentracks.stats.TrackStatisticsUpdater;
+import de.dennisguse.opentracks.ui.aggregatedStatistics.AggregatedStatistics;
 import de.dennisguse.opentracks.util.FileUtils;
 
 /**
@@ -351,6 +355,198 @@ public class CustomContentProviderUtilsTest {
         assertEquals(trackId, allTracks.get(allTracks.size() - 1).getId());
     }
 
+    /**
+     * Tests the method {@link ContentProviderUtils#getTrackListItems(TrackListItem, int)}
+     */
+    @Test
+    public void testGetTrackListItems_pages() {
+        // given
+        Instant startTime = Instant.parse("2020-01-01T00:00:00Z");
+        Instant[] startTimes = {startTime, startTime, startTime.plusSeconds(1), startTime.plusSeconds(2), null, null};
+        for (int i = 0; i < startTimes.length; i++) {
+            Track track = TestDataUtil.createTrack(new Track.Id(i + 1));
+            track.getTrackStatistics().setStartTime(startTimes[i]);
+            contentProviderUtils.insertTrack(track);
+        }
+
+        // when
+        List<Long> trackIds = new ArrayList<>();
+        TrackListItem lastItem = null;
+        List<TrackListItem> page;
+        do {
+            page = contentProviderUtils.getTrackListItems(lastItem, 2);
+            page.forEach(item -> trackIds.add(item.id().id()));
+            lastItem = page.isEmpty() ? null : page.get(page.size() - 1);
+        } while (page.size() == 2);
+
+        // then
+        assertEquals(List.of(4L, 3L, 2L, 1L, 6L, 5L), trackIds);
+    }
+
+    /**
+     * Tests the method {@link ContentProviderUtils#getTrackListItems(List)}
+     */
+    @Test
+    public void testGetTrackListItems_byIds() {
+        // given
+        for (long id = 1; id <= 3; id++) {
+            contentProviderUtils.insertTrack(TestDataUtil.createTrack(new Track.Id(id)));
+        }
+
+        // when
+        List<TrackListItem> items = contentProviderUtils.getTrackListItems(List.of(new Track.Id(3), new Track.Id(4), new Track.Id(1)));
+
+        // then
+        assertEquals(List.of(3L, 1L), items.stream().map(item -> item.id().id()).collect(Collectors.toList()));
+        assertEquals("Test: 3", items.get(0).name());
+    }
+
+    /**
+     * Tests the method {@link ContentProviderUtils#searchTracks(String)}
+     */
+    @Test
+    public void testSearchTracks() {
+        // given
+        String[][] tracks = {
+                {"Evening ride", "Running late", "cycling"},
+                {"Morning run", "along the river", "running"},
+                {"Walk", null, "walking"},
+        };
+        for (int i = 0; i < tracks.length; i++) {
+            Track track = TestDataUtil.createTrack(new Track.Id(i + 1));
+            track.setName(tracks[i][0]);
+            track.setDescription(tracks[i][1]);
+            track.setActivityTypeLocalized(tracks[i][2]);
+            contentProviderUtils.insertTrack(track);
+        }
+
+        // when / then
+        // Matches in the name rank higher than in the description
+        assertEquals(List.of(new Track.Id(2), new Track.Id(1)), contentProviderUtils.searchTracks("run"));
+        assertEquals(List.of(new Track.Id(2), new Track.Id(1)), contentProviderUtils.searchTracks("RUNNING"));
+        // All words must match (as prefix)
+        assertEquals(List.of(new Track.Id(2)), contentProviderUtils.searchTracks("mor ri"));
+        assertEquals(List.of(), contentProviderUtils.searchTracks("morning walk"));
+        // Operators are not interpreted
+        assertEquals(List.of(new Track.Id(3)), contentProviderUtils.searchTracks("-walk*"));
+        assertEquals(List.of(), contentProviderUtils.searchTracks("!"));
+    }
+
+    /**
+     * Tests the method {@link ContentProviderUtils#getTrackRollups(TrackSelection)}: same as aggregating the tracks.
+     */
+    @Test
+    public void testGetTrackRollups() {
+        // given: tracks every 11 hours (within about two months)
+        Instant start = Instant.parse("2024-01-20T10:00:00Z");
+        String[] activityTypes = {"running", "cycling", "walking"};
+        for (int i = 0; i < 150; i++) {
+            Track track = TestDataUtil.createTrack(new Track.Id(i + 1));
+            track.setActivityTypeLocalized(activityTypes[i % activityTypes.length]);
+            TrackStatistics trackStatistics = track.getTrackStatistics();
+            trackStatistics.setStartTime(start.plus(Duration.ofHours(11L * i)));
+            trackStatistics.setStopTime(trackStatistics.getStartTime().plus(Duration.ofHours(1)));
+            trackStatistics.setTotalDistance(Distance.of(1000 + i));
+            trackStatistics.setTotalTime(Duration.ofHours(1));
+            contentProviderUtils.insertTrack(track);
+        }
+
+        List<TrackSelection> selections = List.of(
+                new TrackSelection(),
+                new TrackSelection().addActivityType("running"),
+                new TrackSelection().addDateRange(Instant.parse("2024-01-25T08:00:00Z"), Instant.parse("2024-03-13T20:00:00Z")),
+                new TrackSelection().addDateRange(Instant.parse("2024-02-05T00:00:00Z"), Instant.parse("2024-02-05T12:00:00Z")),
+                new TrackSelection().addTrackId(new Track.Id(1)).addTrackId(new Track.Id(2))
+        );
+        for (TrackSelection selection : selections) {
+            // when
+            AggregatedStatistics expected = new AggregatedStatistics(contentProviderUtils.getTracks(selection));
+            AggregatedStatistics actual = AggregatedStatistics.fromRollups(contentProviderUtils.getTrackRollups(selection));
+
+            // then
+            assertEquals(expected.getCount(), actual.getCount());
+            for (int i = 0; i < expected.getCount(); i++) {
+                AggregatedStatistics.AggregatedStatistic expectedItem = expected.getItem(i);
+                AggregatedStatistics.AggregatedStatistic actualItem = actual.getItem(i);
+                assertEquals(expectedItem.getActivityTypeLocalized(), actualItem.getActivityTypeLocalized());
+                assertEquals(expectedItem.getCountTracks(), actualItem.getCountTracks());
+                assertEquals(expectedItem.getTrackStatistics().getTotalDistance().toM(), actualItem.getTrackStatistics().getTotalDistance().toM(), 0.01);
+                assertEquals(expectedItem.getTrackStatistics().getTotalTime(), actualItem.getTrackStatistics().getTotalTime());
+                assertEquals(expectedItem.getTrackStatistics().getStartTime(), actualItem.getTrackStatistics().getStartTime());
+                assertEquals(expectedItem.getTrackStatistics().getStopTime(), actualItem.getTrackStatistics().getStopTime());
+            }
+        }
+    }
+
+    /**
+     * Tests the method {@link ContentProviderUtils#getTrackRollups(TrackSelection)} while a track is recorded (not contained in the rollups).
+     */
+    @Test
+    public void testGetTrackRollups_recordingTrack() {
+        // given
+        Instant start = Instant.parse("2024-01-20T10:00:00Z");
+        for (int i = 0; i < 3; i++) {
+            Track track = TestDataUtil.createTrack(new Track.Id(i + 1));
+            track.setActivityTypeLocalized("running");
+            track.getTrackStatistics().setStartTime(start.plus(Duration.ofHours(i)));
+            track.getTrackStatistics().setTotalDistance(Distance.of(1000));
+            contentProviderUtils.insertTrack(track);
+        }
+        Track.Id recordingTrackId = new Track.Id(2);
+        contentProviderUtils.setRecordingTrack(recordingTrackId);
+
+        TrackStatistics recordingStatistics = contentProviderUtils.getTrack(recordingTrackId).getTrackStatistics();
+        recordingStatistics.setTotalDistance(Distance.of(5000));
+
+        List<TrackSelection> selections = List.of(
+                new TrackSelection(),
+                new TrackSelection().addDateRange(Instant.parse("2024-01-01T00:00:00Z"), Instant.parse("2024-02-29T23:59:59.999Z"))
+        );
+
+        // when
+        contentProviderUtils.updateTrackStatistics(recordingTrackId, recordingStatistics);
+
+        // then
+        for (TrackSelection selection : selections) {
+            AggregatedStatistics actual = AggregatedStatistics.fromRollups(contentProviderUtils.getTrackRollups(selection));
+            assertEquals(3, actual.get("running").getCountTracks());
+            assertEquals(7000, actual.get("running").getTrackStatistics().getTotalDistance().toM(), 0.01);
+        }
+
+        // when
+        contentProviderUtils.clearRecordingTrack();
+
+        // then: contained in the rollups
+        for (TrackSelection selection : selections) {
+            AggregatedStatistics actual = AggregatedStatistics.fromRollups(contentProviderUtils.getTrackRollups(selection));
+            assertEquals(3, actual.get("running").getCountTracks());
+            assertEquals(7000, actual.get("running").getTrackStatistics().getTotalDistance().toM(), 0.01);
+        }
+    }
+
+    /**
+     * Tests the method {@link ContentProviderUtils#searchMarkers(Track.Id, String)}
+     */
+    @Test
+    public void testSearchMarkers() {
+        // given
+        Track.Id trackId = new Track.Id(System.currentTimeMillis());
+        TestDataUtil.createTrackAndInsert(contentProviderUtils, trackId, 10);
+        TrackPoint trackPoint = contentProviderUtils.getLastValidTrackPoint(trackId);
+
+        String[] names = {"Bridge", "Café", "Old bridge"};
+        for (String name : names) {
+            Marker marker = new Marker(trackId, trackPoint);
+            marker.setName(name);
+            contentProviderUtils.insertMarker(marker);
+        }
+
+        // when / then
+        assertEquals(List.of("Old bridge", "Bridge"), contentProviderUtils.searchMarkers(null, "bri").stream().map(Marker::getName).collect(Collectors.toList()));
+        assertEquals(List.of("Café"), contentProviderUtils.searchMarkers(null, "cafe").stream().map(Marker::getName).collect(Collectors.toList()));
+        assertEquals(3, contentProviderUtils.searchMarkers(trackId, null).size());
+    }
+
     /**
      * Tests the method {@link ContentProviderUtils#getTrack(Track.Id)}
      */
@@ -398,6 +594,30 @@ public class CustomContentProviderUtilsTest {
         assertEquals(nameNew, contentProviderUtils.getTrack(trackId).getName());
     }
 
+    @Test
+    public void testInsertImportingTrack_hiddenUntilUpdated() {
+        // given
+        Track track = new Track(ZoneOffset.UTC);
+
+        // when
+        Track.Id trackId = contentProviderUtils.insertImportingTrack(track);
+        contentProviderUtils.insertTrackPoint(TestDataUtil.createTrackPoint(0), trackId);
+
+        // then
+        assertNull(contentProviderUtils.getTrack(trackId));
+        assertTrue(contentProviderUtils.getTracks().isEmpty());
+        assertEquals(1, TestDataUtil.getTrackPoints(contentProviderUtils, trackId).size());
+
+        // when
+        track.setId(trackId);
+        track.setName("imported");
+        contentProviderUtils.updateImportedTrack(track);
+
+        // then
+        assertEquals("imported", contentProviderUtils.getTrack(trackId).getName());
+        assertEquals(1, contentProviderUtils.getTracks().size());
+    }
+
     /**
      * Tests the method {@link ContentProviderUtils#createContentValues(Marker)}.
      */
@@ -868,6 +1088,134 @@ public class CustomContentProviderUtilsTest {
         assertFalse(trackPointIterator.hasNext());
     }
 
+    @Test
+    public void testGetTrackPointLocationIterator_pages() {
+        // given
+        Track.Id trackId = new Track.Id(System.currentTimeMillis());
+        Pair<Track, List<TrackPoint>> track = TestDataUtil.createTrack(trackId, 10);
+        contentProviderUtils.insertTrack(track.first);
+
+        List<TrackPoint.Id> trackpointIds = track.second.stream()
+                .map(it -> ContentUris.parseId(contentProviderUtils.insertTrackPoint(it, track.first.getId())))
+                .map(TrackPoint.Id::new).collect(Collectors.toList());
+
+        // when
+        try (TrackPointIterator trackPointIterator = new TrackPointIterator(contentProviderUtils, trackId, trackpointIds.get(1), false, 3)) {
+            // then
+            assertEquals(9, trackPointIterator.getCount());
+            for (int i = 1; i < trackpointIds.size(); i++) {
+                assertTrue(trackPointIterator.hasNext());
+                TrackPoint trackPoint = trackPointIterator.next();
+                assertEquals(trackpointIds.get(i), trackPoint.getId());
+
+                checkLocation(i, trackPoint.getLocation());
+            }
+            assertFalse(trackPointIterator.hasNext());
+        }
+    }
+
+    @Test
+    public void testGetTrackPointStatisticsIterator_readsOnlyStatisticsColumns() {
+        // given
+        Track.Id trackId = new Track.Id(System.currentTimeMillis());
+        Pair<Track, List<TrackPoint>> track = TestDataUtil.createTrack(trackId, 10);
+        contentProviderUtils.insertTrack(track.first);
+        contentProviderUtils.bulkInsertTrackPoint(track.second, trackId);
+
+        TrackStatisticsUpdater expected = new TrackStatisticsUpdater();
+        TrackStatisticsUpdater actual = new TrackStatisticsUpdater();
+
+        // when
+        try (TrackPointIterator all = contentProviderUtils.getTrackPointLocationIterator(trackId, null);
+             TrackPointIterator statistics = contentProviderUtils.getTrackPointStatisticsIterator(trackId, null)) {
+            for (int i = 0; i < track.second.size(); i++) {
+                TrackPoint allTrackPoint = all.next();
+                TrackPoint trackPoint = statistics.next();
+
+                // then
+                assertEquals(allTrackPoint.getId(), trackPoint.getId());
+                assertEquals(allTrackPoint.getType(), trackPoint.getType());
+                assertEquals(allTrackPoint.getTime(), trackPoint.getTime());
+                assertEquals(allTrackPoint.getLatitude(), trackPoint.getLatitude());
+                assertEquals(allTrackPoint.getHeartRate(), trackPoint.getHeartRate());
+                assertTrue(allTrackPoint.hasHorizontalAccuracy());
+                assertFalse(trackPoint.hasHorizontalAccuracy());
+                assertTrue(allTrackPoint.hasCadence());
+                assertFalse(trackPoint.hasCadence());
+
+                expected.addTrackPoint(allTrackPoint);
+                actual.addTrackPoint(trackPoint);
+            }
+            assertFalse(statistics.hasNext());
+        }
+        assertEquals(expected.getTrackStatistics(), actual.getTrackStatistics());
+    }
+
+    @Test
+    public void testGetTrackPointColumns_sameAsTrackPointIterator() {
+        // given
+        Track.Id trackId = new Track.Id(System.currentTimeMillis());
+        Pair<Track, List<TrackPoint>> track = TestDataUtil.createTrack(trackId, 10);
+        track.second.get(3).setHeartRate((HeartRate) null);
+        track.second.get(4).setAltitudeGain(null);
+        track.second.get(5).setSensorDistance(null);
+        contentProviderUtils.insertTrack(track.first);
+
+        List<TrackPoint.Id> trackpointIds = track.second.stream()
+                .map(it -> ContentUris.parseId(contentProviderUtils.insertTrackPoint(it, track.first.getId())))
+                .map(TrackPoint.Id::new).collect(Collectors.toList());
+
+        // when
+        TrackPointColumnarCursor columns = contentProviderUtils.getTrackPointColumns(trackId, trackpointIds.get(2), 5, false);
+
+        // then
+        assertEquals(5, columns.getCount());
+        try (TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointLocationIterator(trackId, trackpointIds.get(2))) {
+            for (int i = 2; i < 7; i++) {
+                assertTrue(columns.moveToNext());
+                TrackPoint expected = trackPointIterator.next();
+                assertEquals(expected.getId().id(), columns.getId());
+                assertEquals(expected.getType(), columns.getType());
+                assertEquals(expected.getTime().toEpochMilli(), columns.getTimeMillis());
+
+                assertEquals(expected.hasLocation(), columns.hasLocation());
+                assertEquals(expected.getLatitude(), columns.getLatitude(), 0);
+                assertEquals(expected.getLongitude(), columns.getLongitude(), 0);
+                assertEquals(expected.hasHorizontalAccuracy(), columns.hasHorizontalAccuracy());
+                if (expected.hasHorizontalAccuracy()) {
+                    assertEquals(expected.getHorizontalAccuracy().toM(), columns.getHorizontalAccuracyM(), 0.01);
+                }
+                assertEquals(expected.hasVerticalAccuracy(), columns.hasVerticalAccuracy());
+
+                assertEquals(expected.hasAltitude(), columns.hasAltitude());
+                assertFalse(columns.isAltitudeEgm2008());
+                assertEquals(expected.getAltitude().toM(), columns.getAltitudeM(), 0);
+                assertEquals(expected.getSpeed().toMPS(), columns.getSpeedMPS(), 0);
+
+                assertEquals(expected.hasSensorDistance(), columns.hasSensorDistance());
+                if (expected.hasSensorDistance()) {
+                    assertEquals(expected.getSensorDistance().toM(), columns.getSensorDistanceM(), 0);
+                }
+                assertEquals(expected.hasHeartRate(), columns.hasHeartRate());
+                if (expected.hasHeartRate()) {
+                    assertEquals(expected.getHeartRate().getBPM(), columns.getHeartRateBPM(), 0);
+                }
+                assertEquals(expected.getCadence().getRPM(), columns.getCadenceRPM(), 0);
+                assertEquals(expected.getPower().getW(), columns.getPowerW(), 0);
+
+                assertEquals(expected.hasAltitudeGain(), columns.hasAltitudeGain());
+                if (expected.hasAltitudeGain()) {
+                    assertEquals(expected.getAltitudeGain(), columns.getAltitudeGainM(), 0);
+                }
+                assertEquals(expected.hasAltitudeLoss(), columns.hasAltitudeLoss());
+                if (expected.hasAltitudeLoss()) {
+                    assertEquals(expected.getAltitudeLoss(), columns.getAltitudeLossM(), 0);
+                }
+            }
+        }
+        assertFalse(columns.moveToNext());
+    }
+
     /**
      * Checks the value of a location.
      *
@@ -967,6 +1315,31 @@ public class CustomContentProviderUtilsTest {
         assertEquals(sensorStatistics.avgPower().getW(), stats.avgPower, 0f);
     }
 
+    @Test
+    public void testGetSensorStats_cacheInvalidatedByNewTrackPoint() {
+        // given
+        Instant start = Instant.now();
+        TestSensorDataUtil sensorDataUtil = new TestSensorDataUtil();
+        sensorDataUtil.add(start, 100f, 90f, 300f, TrackPoint.Type.SEGMENT_START_AUTOMATIC);
+        sensorDataUtil.add(start.plus(1, ChronoUnit.SECONDS), 100f, 90f, 300f, TrackPoint.Type.TRACKPOINT);
+        sensorDataUtil.add(start.plus(2, ChronoUnit.SECONDS), 150f, 90f, 300f, TrackPoint.Type.TRACKPOINT);
+        List<TrackPoint> trackPoints = sensorDataUtil.getTrackPointList();
+
+        Track.Id trackId = new Track.Id(start.toEpochMilli());
+        Track track = TestDataUtil.createTrack(trackId);
+        TestDataUtil.insertTrackWithLocations(contentProviderUtils, track, trackPoints.subList(0, 2));
+        SensorStatistics cached = contentProviderUtils.getSensorStats(trackId);
+
+        // when
+        contentProviderUtils.insertTrackPoint(trackPoints.get(2), trackId);
+        SensorStatistics sensorStatistics = contentProviderUtils.getSensorStats(trackId);
+
+        // then
+        assertEquals(100f, cached.maxHeartRate().getBPM(), 0f);
+        assertEquals(150f, sensorStatistics.maxHeartRate().getBPM(), 0f);
+        assertEquals(sensorDataUtil.computeStats().avgHr, sensorStatistics.avgHeartRate().getBPM(), 0f);
+    }
+
     @Test
     public void testGetSensorStats_onlyHr() {
         // given
@@ -6,6 +6,7 @@ import static org.junit.Assert.fail;
 
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteConstraintException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
@@ -24,9 +25,16 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import de.dennisguse.opentracks.data.tables.ImportingTracksColumns;
 import de.dennisguse.opentracks.data.tables.MarkerColumns;
+import de.dennisguse.opentracks.data.tables.MarkersFtsColumns;
+import de.dennisguse.opentracks.data.tables.RecordingTracksColumns;
 import de.dennisguse.opentracks.data.tables.TrackPointsColumns;
+import de.dennisguse.opentracks.data.tables.TrackRevisionsColumns;
+import de.dennisguse.opentracks.data.tables.TrackRollupsColumns;
+import de.dennisguse.opentracks.data.tables.TrackSensorStatsColumns;
 import de.dennisguse.opentracks.data.tables.TracksColumns;
+import de.dennisguse.opentracks.data.tables.TracksFtsColumns;
 
 @RunWith(AndroidJUnit4.class)
 public class CustomSQLiteOpenHelperTest {
@@ -86,12 +94,45 @@ public class CustomSQLiteOpenHelperTest {
     public void onCreate() {
         try (SQLiteDatabase db = new CustomSQLiteOpenHelper(context, DATABASE_NAME).getWritableDatabase()) {
             assertTrue(hasSqlCreate(db, TracksColumns.CREATE_TABLE));
+            assertTrue(hasSqlCreate(db, TracksColumns.CREATE_TABLE_INDEX_STARTTIME));
+            for (String createTrigger : TracksColumns.CREATE_TRIGGERS) {
+                assertTrue(hasSqlCreate(db, createTrigger));
+            }
 
             assertTrue(hasSqlCreate(db, TrackPointsColumns.CREATE_TABLE));
             assertTrue(hasSqlCreate(db, TrackPointsColumns.CREATE_TABLE_INDEX));
+            assertTrue(hasSqlCreate(db, TrackPointsColumns.CREATE_TABLE_INDEX_ALTITUDE_MSL_MISSING));
+            assertTrue(hasSqlCreate(db, TrackPointsColumns.CREATE_TABLE_INDEX_TRACKID_TIME));
+            assertTrue(hasSqlCreate(db, TrackPointsColumns.CREATE_TABLE_INDEX_TRACKID_TYPE));
 
             assertTrue(hasSqlCreate(db, MarkerColumns.CREATE_TABLE));
             assertTrue(hasSqlCreate(db, MarkerColumns.CREATE_TABLE_INDEX));
+
+            assertTrue(hasSqlCreate(db, TrackSensorStatsColumns.CREATE_TABLE));
+            assertTrue(hasSqlCreate(db, TrackSensorStatsColumns.CREATE_TRIGGER_UPDATE));
+            assertTrue(hasSqlCreate(db, TrackSensorStatsColumns.CREATE_TRIGGER_DELETE));
+
+            assertTrue(hasSqlCreate(db, TrackRevisionsColumns.CREATE_TABLE));
+            for (String createTrigger : TrackRevisionsColumns.CREATE_TRIGGERS) {
+                assertTrue(hasSqlCreate(db, createTrigger));
+            }
+
+            assertTrue(hasSqlCreate(db, TracksFtsColumns.CREATE_TABLE));
+            for (String createTrigger : TracksFtsColumns.CREATE_TRIGGERS) {
+                assertTrue(hasSqlCreate(db, createTrigger));
+            }
+            assertTrue(hasSqlCreate(db, MarkersFtsColumns.CREATE_TABLE));
+            for (String createTrigger : MarkersFtsColumns.CREATE_TRIGGERS) {
+                assertTrue(hasSqlCreate(db, createTrigger));
+            }
+
+            assertTrue(hasSqlCreate(db, RecordingTracksColumns.CREATE_TABLE));
+
+            assertTrue(hasSqlCreate(db, TrackRollupsColumns.CREATE_TABLE));
+            assertTrue(hasSqlCreate(db, TrackRollupsColumns.CREATE_TABLE_INDEX));
+            for (String createTrigger : TrackRollupsColumns.CREATE_TRIGGERS) {
+                assertTrue(hasSqlCreate(db, createTrigger));
+            }
         } catch (Exception e) {
             fail("Database could not be created: " + e);
         }
@@ -104,35 +145,51 @@ public class CustomSQLiteOpenHelperTest {
         // Open database with SQL upgrade
         Map<String, String> tableByUpgrade;
         Map<String, String> indicesByUpgrade;
+        Map<String, String> triggersByUpgrade;
         try (SQLiteDatabase dbUpgraded = new CustomSQLiteOpenHelper(context, DATABASE_NAME).getReadableDatabase()) {
             tableByUpgrade = getSQL(dbUpgraded, "table");
             indicesByUpgrade = getSQL(dbUpgraded, "index");
+            triggersByUpgrade = getSQL(dbUpgraded, "trigger");
         }
         context.deleteDatabase(DATABASE_NAME);
 
         // Open database via creation script
         Map<String, String> tablesByCreate;
         Map<String, String> indicesByCreate;
+        Map<String, String> triggersByCreate;
         try (SQLiteDatabase dbCreated = new CustomSQLiteOpenHelper(context, DATABASE_NAME).getReadableDatabase()) {
             tablesByCreate = getSQL(dbCreated, "table");
             indicesByCreate = getSQL(dbCreated, "index");
+            triggersByCreate = getSQL(dbCreated, "trigger");
         }
 
 
         // then - verify table structure
-        int tableCount = 3 + 2; //Three with data tables + two SQLite
+        int tableCount = 5 + 2 + 2 * 5 + 1 + 1 + 1; //Five with data tables + two SQLite + two full-text search (each with four shadow tables) + rollups + importing tracks + recording tracks
         assertEquals(tableCount, tableByUpgrade.size());
         assertEquals(tableByUpgrade.size(), tablesByCreate.size());
 
         assertEquals(tablesByCreate.get(TracksColumns.TABLE_NAME), tableByUpgrade.get(TracksColumns.TABLE_NAME));
         assertEquals(tablesByCreate.get(TrackPointsColumns.TABLE_NAME), tableByUpgrade.get(TrackPointsColumns.TABLE_NAME));
         assertEquals(tablesByCreate.get(MarkerColumns.TABLE_NAME), tableByUpgrade.get(MarkerColumns.TABLE_NAME));
+        assertEquals(tablesByCreate.get(TrackSensorStatsColumns.TABLE_NAME), tableByUpgrade.get(TrackSensorStatsColumns.TABLE_NAME));
+        assertEquals(tablesByCreate.get(TrackRevisionsColumns.TABLE_NAME), tableByUpgrade.get(TrackRevisionsColumns.TABLE_NAME));
+        assertEquals(tablesByCreate.get(TracksFtsColumns.TABLE_NAME), tableByUpgrade.get(TracksFtsColumns.TABLE_NAME));
+        assertEquals(tablesByCreate.get(MarkersFtsColumns.TABLE_NAME), tableByUpgrade.get(MarkersFtsColumns.TABLE_NAME));
+        assertEquals(tablesByCreate.get(TrackRollupsColumns.TABLE_NAME), tableByUpgrade.get(TrackRollupsColumns.TABLE_NAME));
+        assertEquals(tablesByCreate.get(ImportingTracksColumns.TABLE_NAME), tableByUpgrade.get(ImportingTracksColumns.TABLE_NAME));
+        assertEquals(tablesByCreate.get(RecordingTracksColumns.TABLE_NAME), tableByUpgrade.get(RecordingTracksColumns.TABLE_NAME));
 
         // then - verify custom indices
-        assertEquals(3, indicesByCreate.size());
+        assertEquals(10, indicesByCreate.size()); // Incl. one of each full-text search index
         assertEquals(indicesByUpgrade.get(TracksColumns.TABLE_NAME), indicesByCreate.get(TracksColumns.TABLE_NAME));
         assertEquals(indicesByUpgrade.get(TrackPointsColumns.TABLE_NAME), indicesByCreate.get(TrackPointsColumns.TABLE_NAME));
         assertEquals(indicesByUpgrade.get(MarkerColumns.TABLE_NAME), indicesByCreate.get(MarkerColumns.TABLE_NAME));
+        assertEquals(indicesByUpgrade.get(TrackRollupsColumns.TABLE_NAME), indicesByCreate.get(TrackRollupsColumns.TABLE_NAME));
+
+        // then - verify triggers
+        assertEquals(26, triggersByCreate.size());
+        assertEquals(triggersByCreate, triggersByUpgrade);
     }
 
     @Test
@@ -143,9 +200,11 @@ public class CustomSQLiteOpenHelperTest {
         // Downgrade schema to version 23 (base version)
         Map<String, String> tablesByDowngrade;
         Map<String, String> indicesByDowngrade;
+        Map<String, String> triggersByDowngrade;
         try (SQLiteDatabase db = new CustomSQLiteOpenHelper(context, DATABASE_NAME, 23).getReadableDatabase()) {
             tablesByDowngrade = getSQL(db, "table");
             indicesByDowngrade = getSQL(db, "index");
+            triggersByDowngrade = getSQL(db, "trigger");
         }
 
         // then - verify table structure
@@ -155,6 +214,7 @@ public class CustomSQLiteOpenHelperTest {
 
         // then - verify custom indices
         assertEquals(0, indicesByDowngrade.size());
+        assertEquals(0, triggersByDowngrade.size());
     }
 
     @Test
@@ -168,6 +228,172 @@ public class CustomSQLiteOpenHelperTest {
         }
     }
 
+    @Test
+    public void track_revisions_triggers() {
+        try (SQLiteDatabase db = new CustomSQLiteOpenHelper(context, DATABASE_NAME).getWritableDatabase()) {
+            db.setForeignKeyConstraintsEnabled(true);
+            db.execSQL("INSERT INTO tracks (_id) VALUES (1)");
+            db.execSQL("INSERT INTO tracks (_id) VALUES (2)");
+            assertEquals(0, getRevision(db, 1));
+
+            // Inserted TrackPoints do not change the revision
+            db.execSQL("INSERT INTO trackpoints (_id, trackid, type) VALUES (1, 1, 0)");
+            db.execSQL("INSERT INTO trackpoints (_id, trackid, type) VALUES (2, 1, 0)");
+            assertEquals(0, getRevision(db, 1));
+
+            db.execSQL("UPDATE tracks SET name = 'name' WHERE _id = 1");
+            assertEquals(1, getRevision(db, 1));
+
+            db.execSQL("UPDATE trackpoints SET speed = 1 WHERE _id = 1");
+            assertEquals(2, getRevision(db, 1));
+
+            // Not exported; does not change the revision
+            db.execSQL("UPDATE trackpoints SET altitude_msl = 1 WHERE _id = 1");
+            assertEquals(2, getRevision(db, 1));
+
+            db.execSQL("DELETE FROM trackpoints WHERE _id = 2");
+            assertEquals(3, getRevision(db, 1));
+
+            db.execSQL("INSERT INTO markers (_id, trackid) VALUES (1, 1)");
+            db.execSQL("UPDATE markers SET name = 'name' WHERE _id = 1");
+            db.execSQL("DELETE FROM markers WHERE _id = 1");
+            assertEquals(6, getRevision(db, 1));
+
+            // Other track is not affected
+            assertEquals(0, getRevision(db, 2));
+
+            db.execSQL("DELETE FROM tracks WHERE _id = 1");
+            assertEquals(1, DatabaseUtils.queryNumEntries(db, TrackRevisionsColumns.TABLE_NAME));
+        }
+    }
+
+    @Test
+    public void tracks_marker_count_triggers() {
+        try (SQLiteDatabase db = new CustomSQLiteOpenHelper(context, DATABASE_NAME).getWritableDatabase()) {
+            db.setForeignKeyConstraintsEnabled(true);
+            db.execSQL("INSERT INTO tracks (_id) VALUES (1)");
+            db.execSQL("INSERT INTO tracks (_id) VALUES (2)");
+            assertEquals(0, getMarkerCount(db, 1));
+
+            db.execSQL("INSERT INTO markers (_id, trackid) VALUES (1, 1)");
+            db.execSQL("INSERT INTO markers (_id, trackid) VALUES (2, 1)");
+            db.execSQL("INSERT INTO markers (_id, trackid) VALUES (3, 2)");
+            assertEquals(2, getMarkerCount(db, 1));
+            assertEquals(1, getMarkerCount(db, 2));
+
+            db.execSQL("UPDATE markers SET trackid = 2 WHERE _id = 1");
+            assertEquals(1, getMarkerCount(db, 1));
+            assertEquals(2, getMarkerCount(db, 2));
+
+            // Markers follow the track
+            db.execSQL("UPDATE tracks SET _id = 3 WHERE _id = 2");
+            assertEquals(2, getMarkerCount(db, 3));
+
+            db.execSQL("DELETE FROM markers WHERE _id = 3");
+            assertEquals(1, getMarkerCount(db, 3));
+
+            // Incremented once per change of markers (not again for the changed marker count)
+            assertEquals(3, getRevision(db, 1));
+        }
+    }
+
+    @Test
+    public void fts_triggers() {
+        try (SQLiteDatabase db = new CustomSQLiteOpenHelper(context, DATABASE_NAME).getWritableDatabase()) {
+            db.setForeignKeyConstraintsEnabled(true);
+            db.execSQL("INSERT INTO tracks (_id, name, description, category) VALUES (1, 'Morning run', 'along the river', 'running')");
+            db.execSQL("INSERT INTO tracks (_id, name) VALUES (2, 'Evening ride')");
+            db.execSQL("INSERT INTO markers (_id, trackid, name) VALUES (1, 2, 'Bridge')");
+            assertEquals(List.of(1L), matchTracks(db, "\"run*\""));
+            assertEquals(List.of(1L, 2L), matchTracks(db, "\"ri*\""));
+            assertEquals(List.of(1L), matchMarkers(db, "\"bridge*\""));
+
+            db.execSQL("UPDATE tracks SET name = 'Afternoon walk' WHERE _id = 1");
+            assertEquals(List.of(), matchTracks(db, "\"morning*\""));
+            assertEquals(List.of(1L), matchTracks(db, "\"walk*\""));
+
+            // Not indexed columns do not change the index
+            db.execSQL("UPDATE tracks SET totaldistance = 1 WHERE _id = 1");
+            assertEquals(List.of(1L), matchTracks(db, "\"walk*\""));
+
+            db.execSQL("UPDATE tracks SET _id = 3 WHERE _id = 1");
+            assertEquals(List.of(3L), matchTracks(db, "\"walk*\""));
+
+            // Deleting the track deletes its markers
+            db.execSQL("DELETE FROM tracks WHERE _id = 2");
+            assertEquals(List.of(), matchTracks(db, "\"ride*\""));
+            assertEquals(List.of(), matchMarkers(db, "\"bridge*\""));
+
+            db.execSQL("INSERT INTO tracks_fts(tracks_fts) VALUES('integrity-check')");
+            db.execSQL("INSERT INTO markers_fts(markers_fts) VALUES('integrity-check')");
+        }
+    }
+
+    @Test
+    public void track_rollups_triggers() {
+        // 2024-01-01 is a Monday
+        long monday = 1704067200000L;
+        long day = 24 * 60 * 60 * 1000L;
+        try (SQLiteDatabase db = new CustomSQLiteOpenHelper(context, DATABASE_NAME).getWritableDatabase()) {
+            db.execSQL("INSERT INTO tracks (_id, category, starttime, stoptime, totaldistance, maxspeed) VALUES (1, 'running', ?, ?, 1000, 3)", new Object[]{monday + 1000, monday + 2000});
+            db.execSQL("INSERT INTO tracks (_id, category, starttime, stoptime, totaldistance, maxspeed) VALUES (2, 'running', ?, ?, 2000, 4)", new Object[]{monday + 6 * day, monday + 6 * day + 1000});
+            db.execSQL("INSERT INTO tracks (_id, category, starttime, stoptime, totaldistance, maxspeed) VALUES (3, 'running', ?, ?, 500, 5)", new Object[]{monday + 7 * day, monday + 7 * day + 1000});
+            db.execSQL("INSERT INTO tracks (_id) VALUES (4)"); // Without start time: no rollup
+            assertEquals(1, getRollupTrackCount(db, TrackRollupsColumns.PERIOD_DAY, monday, "running"));
+            assertEquals(2, getRollupTrackCount(db, TrackRollupsColumns.PERIOD_WEEK, monday, "running"));
+            assertEquals(1, getRollupTrackCount(db, TrackRollupsColumns.PERIOD_WEEK, monday + 7 * day, "running"));
+            assertEquals(3, getRollupTrackCount(db, TrackRollupsColumns.PERIOD_MONTH, monday, "running"));
+            assertEquals(3500, DatabaseUtils.longForQuery(db, "SELECT totaldistance FROM track_rollups WHERE period = 2", null));
+            assertEquals(3 + 2 + 1, DatabaseUtils.queryNumEntries(db, TrackRollupsColumns.TABLE_NAME));
+
+            // Maxima are recomputed
+            db.execSQL("UPDATE tracks SET maxspeed = 1 WHERE _id = 3");
+            assertEquals(4, DatabaseUtils.longForQuery(db, "SELECT maxspeed FROM track_rollups WHERE period = 2", null));
+
+            // Moved to another rollup
+            db.execSQL("UPDATE tracks SET category = 'walking' WHERE _id = 2");
+            assertEquals(1, getRollupTrackCount(db, TrackRollupsColumns.PERIOD_WEEK, monday, "running"));
+            assertEquals(1, getRollupTrackCount(db, TrackRollupsColumns.PERIOD_WEEK, monday, "walking"));
+            assertEquals(2, getRollupTrackCount(db, TrackRollupsColumns.PERIOD_MONTH, monday, "running"));
+
+            db.execSQL("DELETE FROM tracks WHERE _id = 2");
+            assertEquals(0, getRollupTrackCount(db, TrackRollupsColumns.PERIOD_MONTH, monday, "walking"));
+
+            db.execSQL("DELETE FROM tracks");
+            assertEquals(0, DatabaseUtils.queryNumEntries(db, TrackRollupsColumns.TABLE_NAME));
+        }
+    }
+
+    private static long getRollupTrackCount(SQLiteDatabase db, int period, long periodStart, String activityType) {
+        return DatabaseUtils.longForQuery(db, "SELECT IFNULL(SUM(track_count), 0) FROM track_rollups WHERE period = ? AND period_start = ? AND category = ?", new String[]{String.valueOf(period), String.valueOf(periodStart), activityType});
+    }
+
+    private static List<Long> matchTracks(SQLiteDatabase db, String matchQuery) {
+        return match(db, TracksFtsColumns.TABLE_NAME, matchQuery);
+    }
+
+    private static List<Long> matchMarkers(SQLiteDatabase db, String matchQuery) {
+        return match(db, MarkersFtsColumns.TABLE_NAME, matchQuery);
+    }
+
+    private static List<Long> match(SQLiteDatabase db, String ftsTable, String matchQuery) {
+        List<Long> ids = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery("SELECT docid FROM " + ftsTable + " WHERE " + ftsTable + " MATCH ? ORDER BY docid", new String[]{matchQuery})) {
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getLong(0));
+            }
+        }
+        return ids;
+    }
+
+    private static long getMarkerCount(SQLiteDatabase db, long trackId) {
+        return DatabaseUtils.longForQuery(db, "SELECT marker_count FROM tracks WHERE _id = ?", new String[]{String.valueOf(trackId)});
+    }
+
+    private static long getRevision(SQLiteDatabase db, long trackId) {
+        return DatabaseUtils.longForQuery(db, "SELECT revision FROM track_revisions WHERE trackid = ?", new String[]{String.valueOf(trackId)});
+    }
+
     @Test
     public void upgrade_data_to_30() {
         // given: a track in version 29
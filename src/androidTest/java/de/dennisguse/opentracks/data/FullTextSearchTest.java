@@ -0,0 +1,59 @@
+package de.dennisguse.opentracks.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+@RunWith(AndroidJUnit4.class)
+public class FullTextSearchTest {
+
+    private static final double[] WEIGHTS = {4, 1};
+
+    @Test
+    public void toMatchQuery() {
+        assertEquals("\"morning*\" \"run*\"", FullTextSearch.toMatchQuery("Morning run"));
+        assertEquals("\"café*\" \"42*\"", FullTextSearch.toMatchQuery("  Café, 42!"));
+        assertEquals("\"a*\" \"or*\" \"b*\"", FullTextSearch.toMatchQuery("\"a\" OR -b*"));
+
+        assertNull(FullTextSearch.toMatchQuery(""));
+        assertNull(FullTextSearch.toMatchQuery(" *-\" "));
+    }
+
+    @Test
+    public void rank() {
+        // 10 rows; phrase in column 0: 1 hit (in 2 rows); column 1: no hit (in 5 rows)
+        double nameOnly = FullTextSearch.rank(matchinfo(1, 2, 10, 1, 2, 2, 0, 5, 5), WEIGHTS);
+        // Same, but hit in column 1
+        double descriptionOnly = FullTextSearch.rank(matchinfo(1, 2, 10, 0, 2, 2, 1, 5, 5), WEIGHTS);
+        double both = FullTextSearch.rank(matchinfo(1, 2, 10, 1, 2, 2, 1, 5, 5), WEIGHTS);
+
+        assertTrue(descriptionOnly > 0);
+        assertTrue(nameOnly > descriptionOnly);
+        assertEquals(nameOnly + descriptionOnly, both, 1e-9);
+
+        // More hits rank higher, but saturate
+        double twoHits = FullTextSearch.rank(matchinfo(1, 2, 10, 2, 3, 2, 0, 5, 5), WEIGHTS);
+        assertTrue(twoHits > nameOnly);
+        assertTrue(twoHits < 2 * nameOnly);
+
+        // Rare words rank higher
+        double commonWord = FullTextSearch.rank(matchinfo(1, 2, 10, 1, 9, 9, 0, 5, 5), WEIGHTS);
+        assertTrue(commonWord < nameOnly);
+    }
+
+    private static byte[] matchinfo(int... values) {
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * Integer.BYTES).order(ByteOrder.nativeOrder());
+        for (int value : values) {
+            buffer.putInt(value);
+        }
+        return buffer.array();
+    }
+}
@@ -0,0 +1,94 @@
+package de.dennisguse.opentracks.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.time.Duration;
+
+import de.dennisguse.opentracks.data.models.TrackPoint;
+import de.dennisguse.opentracks.data.tables.TrackSensorStatsColumns;
+
+/**
+ * Compares {@link CustomContentProvider#SENSOR_STATS_QUERY} (window function) with {@link CustomContentProvider#SENSOR_STATS_QUERY_LEGACY} (correlated subquery) on a synthetic track.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SensorStatsQueryBenchmarkTest {
+
+    private static final String TAG = SensorStatsQueryBenchmarkTest.class.getSimpleName();
+
+    private static final String DATABASE_NAME = "sensorstats.db";
+
+    private static final int NUM_TRACKPOINTS = 200_000;
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+
+    private SQLiteDatabase db;
+
+    @Before
+    public void setUp() {
+        context.deleteDatabase(DATABASE_NAME);
+        db = new CustomSQLiteOpenHelper(context, DATABASE_NAME).getWritableDatabase();
+
+        // Every 1000th TrackPoint is a manual pause; sensor data is missing sometimes.
+        db.beginTransaction();
+        db.execSQL("INSERT INTO tracks (_id, name) VALUES (1, 'benchmark')");
+        db.execSQL("WITH RECURSIVE seq(n) AS (SELECT 0 UNION ALL SELECT n + 1 FROM seq WHERE n < " + (NUM_TRACKPOINTS - 1) + ") "
+                + "INSERT INTO trackpoints (trackid, time, sensor_heartrate, sensor_cadence, sensor_power, type) "
+                + "SELECT 1, n * 1000 + n % 7 * 100, CASE WHEN n % 13 = 0 THEN NULL ELSE 100 + n % 60 END, 80 + n % 20, 200 + n % 100, "
+                + "CASE WHEN n % 1000 = 999 THEN " + TrackPoint.Type.SEGMENT_START_MANUAL.type_db + " ELSE " + TrackPoint.Type.TRACKPOINT.type_db + " END FROM seq");
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    private double[] query(String sql, String... args) {
+        try (Cursor cursor = db.rawQuery(sql, args)) {
+            assertTrue(cursor.moveToFirst());
+            double[] result = new double[TrackSensorStatsColumns.STATISTICS.length];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = cursor.getDouble(cursor.getColumnIndexOrThrow(TrackSensorStatsColumns.STATISTICS[i]));
+            }
+            return result;
+        }
+    }
+
+    @Test
+    public void windowFunction_vs_correlatedSubquery() {
+        assumeTrue(CustomContentProvider.hasWindowFunctions(db));
+
+        // when
+        long start = System.nanoTime();
+        double[] legacy = query(CustomContentProvider.SENSOR_STATS_QUERY_LEGACY, "1", "1");
+        Duration legacyDuration = Duration.ofNanos(System.nanoTime() - start);
+
+        start = System.nanoTime();
+        double[] window = query(CustomContentProvider.SENSOR_STATS_QUERY, "1");
+        Duration windowDuration = Duration.ofNanos(System.nanoTime() - start);
+
+        Log.i(TAG, NUM_TRACKPOINTS + " TrackPoints: correlated subquery " + legacyDuration.toMillis() + "ms; window function " + windowDuration.toMillis() + "ms.");
+
+        // then
+        for (int i = 0; i < legacy.length; i++) {
+            assertEquals(TrackSensorStatsColumns.STATISTICS[i], legacy[i], window[i], 0.0001);
+        }
+    }
+}
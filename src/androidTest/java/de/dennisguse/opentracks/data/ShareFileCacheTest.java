@@ -0,0 +1,192 @@
+package de.dennisguse.opentracks.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(AndroidJUnit4.class)
+public class ShareFileCacheTest {
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+
+    private File directory;
+
+    @Before
+    public void setUp() {
+        directory = new File(context.getCacheDir(), ShareFileCacheTest.class.getSimpleName());
+        directory.mkdirs();
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void getOrCreate_writesOnlyOnce() throws IOException {
+        ShareFileCache cache = new ShareFileCache(directory, 1000);
+        AtomicInteger writes = new AtomicInteger();
+        ShareFileCache.Writer writer = outputStream -> {
+            writes.incrementAndGet();
+            outputStream.write(new byte[100]);
+        };
+
+        // when
+        File file1 = cache.getOrCreate("GPX/1:0:10;", writer);
+        File file2 = cache.getOrCreate("GPX/1:0:10;", writer);
+
+        // then
+        assertEquals(1, writes.get());
+        assertEquals(file1, file2);
+        assertEquals(100, file1.length());
+
+        // Different revision
+        File file3 = cache.getOrCreate("GPX/1:1:10;", writer);
+        assertEquals(2, writes.get());
+        assertFalse(file1.equals(file3));
+    }
+
+    @Test
+    public void getOrCreate_evictsLeastRecentlyUsed() throws IOException {
+        ShareFileCache cache = new ShareFileCache(directory, 250);
+        ShareFileCache.Writer writer = outputStream -> outputStream.write(new byte[100]);
+
+        File file1 = cache.getOrCreate("1", writer);
+        File file2 = cache.getOrCreate("2", writer);
+        file1.setLastModified(System.currentTimeMillis() - 10_000);
+        file2.setLastModified(System.currentTimeMillis() - 20_000);
+
+        // when
+        File file3 = cache.getOrCreate("3", writer);
+
+        // then
+        assertTrue(file1.exists());
+        assertFalse(file2.exists());
+        assertTrue(file3.exists());
+        assertEquals(200, cache.getSize());
+    }
+
+    @Test
+    public void getOrCreate_keepsFileLargerThanMaximum() throws IOException {
+        ShareFileCache cache = new ShareFileCache(directory, 50);
+
+        // when
+        File file = cache.getOrCreate("1", outputStream -> outputStream.write(new byte[100]));
+
+        // then
+        assertTrue(file.exists());
+        assertEquals(100, cache.getSize());
+    }
+
+    @Test
+    public void getOrCreate_failureIsNotCached() throws IOException {
+        ShareFileCache cache = new ShareFileCache(directory, 1000);
+
+        // when
+        try {
+            cache.getOrCreate("1", outputStream -> {
+                outputStream.write(new byte[100]);
+                throw new IOException("failed");
+            });
+            fail();
+        } catch (IOException e) {
+            assertEquals("failed", e.getMessage());
+        }
+
+        // then
+        assertEquals(0, directory.listFiles().length);
+        assertEquals(10, cache.getOrCreate("1", outputStream -> outputStream.write(new byte[10])).length());
+    }
+
+    @Test
+    public void getOrCreate_otherKeyDoesNotWaitForWriter() throws Exception {
+        ShareFileCache cache = new ShareFileCache(directory, 1000);
+        File cached = cache.getOrCreate("cached", outputStream -> outputStream.write(new byte[10]));
+
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread slowWriter = new Thread(() -> {
+            try {
+                cache.getOrCreate("slow", outputStream -> {
+                    writing.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new InterruptedIOException();
+                    }
+                    outputStream.write(new byte[10]);
+                });
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        slowWriter.start();
+        assertTrue(writing.await(10, TimeUnit.SECONDS));
+
+        // when
+        File hit = cache.getOrCreate("cached", outputStream -> fail());
+        File other = cache.getOrCreate("other", outputStream -> outputStream.write(new byte[10]));
+
+        // then
+        assertEquals(cached, hit);
+        assertTrue(other.exists());
+
+        release.countDown();
+        slowWriter.join();
+    }
+
+    @Test
+    public void getOrCreate_concurrentSameKey_writesOnlyOnce() throws Exception {
+        ShareFileCache cache = new ShareFileCache(directory, 1000);
+        AtomicInteger writes = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ShareFileCache.Writer writer = outputStream -> {
+            writes.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException();
+            }
+            outputStream.write(new byte[100]);
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            // when
+            List<Future<File>> files = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                files.add(executor.submit(() -> cache.getOrCreate("1", writer)));
+            }
+            Thread.sleep(100);
+            release.countDown();
+
+            // then
+            for (Future<File> file : files) {
+                assertEquals(100, file.get(10, TimeUnit.SECONDS).length());
+            }
+            assertEquals(1, writes.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package de.dennisguse.opentracks.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.ContentUris;
+import android.content.Context;
+import android.util.Pair;
+
+import androidx.annotation.NonNull;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import de.dennisguse.opentracks.content.data.TestDataUtil;
+import de.dennisguse.opentracks.data.models.Track;
+import de.dennisguse.opentracks.data.models.TrackPoint;
+import de.dennisguse.opentracks.stats.TrackStatisticsCheckpoint;
+import de.dennisguse.opentracks.stats.TrackStatisticsUpdater;
+import de.dennisguse.opentracks.stats.TrackStatisticsView;
+
+@RunWith(AndroidJUnit4.class)
+public class TrackDataHubTest {
+
+    private static final int NUM_TRACKPOINTS = 1000;
+    private static final int NUM_TRACKPOINTS_CHECKPOINT = 990;
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+    private final ContentProviderUtils contentProviderUtils = new ContentProviderUtils(context);
+
+    private final Track.Id trackId = new Track.Id(System.currentTimeMillis());
+
+    private TrackDataHub trackDataHub;
+
+    @Before
+    public void setUp() {
+        trackDataHub = new TrackDataHub(context, contentProviderUtils, 5000);
+    }
+
+    @After
+    public void tearDown() {
+        trackDataHub.stop();
+        contentProviderUtils.deleteTrack(context, trackId);
+    }
+
+    @Test
+    public void loadTrack_statisticsOnly_readsTrackPointsAfterCheckpoint() throws InterruptedException {
+        // given
+        Pair<Track, List<TrackPoint>> track = TestDataUtil.createTrack(trackId, NUM_TRACKPOINTS);
+        contentProviderUtils.insertTrack(track.first);
+        List<TrackPoint.Id> trackPointIds = track.second.stream()
+                .map(it -> new TrackPoint.Id(ContentUris.parseId(contentProviderUtils.insertTrackPoint(it, trackId))))
+                .collect(Collectors.toList());
+
+        TrackStatisticsUpdater beforeCheckpoint = new TrackStatisticsUpdater();
+        track.second.subList(0, NUM_TRACKPOINTS_CHECKPOINT).forEach(beforeCheckpoint::addTrackPoint);
+        TrackStatisticsCheckpoint checkpoint = new TrackStatisticsCheckpoint(trackPointIds.get(NUM_TRACKPOINTS_CHECKPOINT - 1), beforeCheckpoint.toCheckpoint());
+        contentProviderUtils.updateTrackStatistics(trackId, beforeCheckpoint.getTrackStatistics(), checkpoint);
+
+        TrackStatisticsUpdater expected = new TrackStatisticsUpdater();
+        track.second.forEach(expected::addTrackPoint);
+
+        StatisticsListener listener = new StatisticsListener();
+
+        // when
+        trackDataHub.start();
+        trackDataHub.loadTrack(trackId);
+        trackDataHub.registerTrackDataListener(listener);
+
+        // then
+        assertTrue(listener.done.await(10, TimeUnit.SECONDS));
+        assertEquals(trackPointIds.subList(NUM_TRACKPOINTS_CHECKPOINT, NUM_TRACKPOINTS), listener.trackPointIds);
+        assertEquals(expected.getTrackStatistics().getTotalDistance().toM(), listener.totalDistance_m, 0.01);
+    }
+
+    private static class StatisticsListener implements TrackDataHub.Listener {
+
+        private final CountDownLatch done = new CountDownLatch(1);
+        private final List<TrackPoint.Id> trackPointIds = new ArrayList<>();
+        private double totalDistance_m;
+
+        @Override
+        public void onTrackUpdated(@NonNull Track track) {
+        }
+
+        @Override
+        public void clearTrackPoints() {
+            trackPointIds.clear();
+        }
+
+        @Override
+        public boolean requiresAllTrackPoints() {
+            return false;
+        }
+
+        @Override
+        public void onSampledInTrackPoint(@NonNull TrackPoint trackPoint, @NonNull TrackStatisticsView trackStatistics) {
+            onTrackPoint(trackPoint, trackStatistics);
+        }
+
+        @Override
+        public void onSampledOutTrackPoint(@NonNull TrackPoint trackPoint, @NonNull TrackStatisticsView trackStatistics) {
+            onTrackPoint(trackPoint, trackStatistics);
+        }
+
+        private void onTrackPoint(TrackPoint trackPoint, TrackStatisticsView trackStatistics) {
+            trackPointIds.add(trackPoint.getId());
+            totalDistance_m = trackStatistics.getTotalDistance().toM();
+        }
+
+        @Override
+        public void onNewTrackPointsDone() {
+            done.countDown();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package de.dennisguse.opentracks.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.ContentObserver;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.HandlerThread;
+
+import androidx.annotation.NonNull;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import de.dennisguse.opentracks.content.data.TestDataUtil;
+import de.dennisguse.opentracks.data.models.Track;
+import de.dennisguse.opentracks.data.models.TrackPoint;
+import de.dennisguse.opentracks.data.tables.TrackPointsColumns;
+
+@RunWith(AndroidJUnit4.class)
+public class TrackPointsChangeTest {
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+    private final ContentResolver contentResolver = context.getContentResolver();
+    private ContentProviderUtils contentProviderUtils;
+
+    private HandlerThread handlerThread;
+    private Handler handler;
+
+    @Before
+    public void setUp() {
+        contentProviderUtils = new ContentProviderUtils(context);
+        contentProviderUtils.deleteAllTracks(context);
+
+        handlerThread = new HandlerThread(TrackPointsChangeTest.class.getSimpleName());
+        handlerThread.start();
+        handler = new Handler(handlerThread.getLooper());
+    }
+
+    @After
+    public void tearDown() {
+        handlerThread.quit();
+    }
+
+    @Test
+    public void uri_roundTrip() {
+        TrackPointsChange change = new TrackPointsChange(new Track.Id(5), new TrackPoint.Id(100), new TrackPoint.Id(109));
+
+        assertEquals(change, TrackPointsChange.fromUri(change.toUri()));
+        assertEquals(TrackPointsChange.getUri(new Track.Id(5)).getPath(), change.toUri().getPath());
+    }
+
+    @Test
+    public void fromUri_notInserted() {
+        assertNull(TrackPointsChange.fromUri(null));
+        assertNull(TrackPointsChange.fromUri(TrackPointsColumns.CONTENT_URI_BY_ID));
+        assertNull(TrackPointsChange.fromUri(TrackPointsChange.getUri(new Track.Id(5))));
+        assertNull(TrackPointsChange.fromUri(Uri.withAppendedPath(TrackPointsColumns.CONTENT_URI_BY_TRACKID, "5,6")));
+    }
+
+    @Test
+    public void fromUris_combined() {
+        Track.Id trackId = new Track.Id(5);
+        List<Uri> uris = List.of(
+                new TrackPointsChange(trackId, new TrackPoint.Id(100), new TrackPoint.Id(109)).toUri(),
+                new TrackPointsChange(trackId, new TrackPoint.Id(110), new TrackPoint.Id(119)).toUri()
+        );
+
+        assertEquals(new TrackPointsChange(trackId, new TrackPoint.Id(100), new TrackPoint.Id(119)), TrackPointsChange.fromUris(uris));
+    }
+
+    @Test
+    public void fromUris_otherTrackOrTableChange() {
+        Uri track5 = new TrackPointsChange(new Track.Id(5), new TrackPoint.Id(100), new TrackPoint.Id(109)).toUri();
+        Uri track6 = new TrackPointsChange(new Track.Id(6), new TrackPoint.Id(110), new TrackPoint.Id(119)).toUri();
+
+        assertNull(TrackPointsChange.fromUris(List.of(track5, track6)));
+        assertNull(TrackPointsChange.fromUris(List.of(track5, TrackPointsColumns.CONTENT_URI_BY_ID)));
+    }
+
+    @Test
+    public void bulkInsert_notifiesOnlyObserversOfTrack() throws InterruptedException {
+        // given
+        Track.Id trackId = new Track.Id(1);
+        Track.Id otherTrackId = new Track.Id(2);
+        contentProviderUtils.insertTrack(TestDataUtil.createTrack(trackId));
+        contentProviderUtils.insertTrack(TestDataUtil.createTrack(otherTrackId));
+
+        BlockingQueue<Uri> notified = new LinkedBlockingQueue<>();
+        BlockingQueue<Uri> otherNotified = new LinkedBlockingQueue<>();
+        ContentObserver observer = new RecordingObserver(handler, notified);
+        ContentObserver otherObserver = new RecordingObserver(handler, otherNotified);
+        contentResolver.registerContentObserver(TrackPointsChange.getUri(trackId), false, observer);
+        contentResolver.registerContentObserver(TrackPointsChange.getUri(otherTrackId), false, otherObserver);
+
+        try {
+            // when
+            contentProviderUtils.bulkInsertTrackPoint(List.of(TestDataUtil.createTrackPoint(0), TestDataUtil.createTrackPoint(1), TestDataUtil.createTrackPoint(2)), trackId);
+
+            // then
+            TrackPointsChange change = TrackPointsChange.fromUri(notified.poll(5, TimeUnit.SECONDS));
+            assertEquals(trackId, change.trackId());
+            assertEquals(contentProviderUtils.getLastTrackPointId(trackId), change.last());
+            assertEquals(2, change.last().id() - change.first().id());
+
+            assertNull(otherNotified.poll(500, TimeUnit.MILLISECONDS));
+        } finally {
+            contentResolver.unregisterContentObserver(observer);
+            contentResolver.unregisterContentObserver(otherObserver);
+        }
+    }
+
+    @Test
+    public void debouncedContentObserver_combinesNotifications() throws InterruptedException {
+        // given
+        Track.Id trackId = new Track.Id(1);
+        contentProviderUtils.insertTrack(TestDataUtil.createTrack(trackId));
+
+        BlockingQueue<List<Uri>> delivered = new LinkedBlockingQueue<>();
+        DebouncedContentObserver observer = new DebouncedContentObserver(handler, Duration.ofMillis(500)) {
+            @Override
+            protected void onDebouncedChange(@NonNull List<Uri> uris) {
+                delivered.add(uris);
+            }
+        };
+        contentResolver.registerContentObserver(TrackPointsChange.getUri(trackId), false, observer);
+
+        try {
+            // when
+            for (int i = 0; i < 3; i++) {
+                contentProviderUtils.insertTrackPoint(TestDataUtil.createTrackPoint(i), trackId);
+            }
+
+            // then
+            List<Uri> uris = delivered.poll(5, TimeUnit.SECONDS);
+            assertEquals(3, uris.size());
+            TrackPointsChange change = TrackPointsChange.fromUris(uris);
+            assertEquals(contentProviderUtils.getLastTrackPointId(trackId), change.last());
+            assertTrue(delivered.isEmpty());
+        } finally {
+            contentResolver.unregisterContentObserver(observer);
+            observer.cancel();
+        }
+    }
+
+    private static class RecordingObserver extends ContentObserver {
+
+        private final BlockingQueue<Uri> uris;
+
+        RecordingObserver(Handler handler, BlockingQueue<Uri> uris) {
+            super(handler);
+            this.uris = uris;
+        }
+
+        @Override
+        public void onChange(boolean selfChange, Uri uri) {
+            uris.add(uri);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package de.dennisguse.opentracks.data;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import de.dennisguse.opentracks.data.models.Position;
+import de.dennisguse.opentracks.data.models.Track;
+import de.dennisguse.opentracks.data.models.TrackPoint;
+import de.dennisguse.opentracks.data.tables.TrackPointsColumns;
+
+/**
+ * Verifies via EXPLAIN QUERY PLAN that the queries on TrackPoints (built by {@link ContentProviderUtils} and {@link CustomContentProvider}) do not scan the whole table.
+ * Uses a synthetic database with several million TrackPoints (and ANALYZE statistics).
+ */
+@RunWith(AndroidJUnit4.class)
+public class TrackPointsQueryPlanTest {
+
+    private static final String TAG = TrackPointsQueryPlanTest.class.getSimpleName();
+
+    private static final String DATABASE_NAME = "queryplan.db";
+
+    private static final int NUM_TRACKS = 200;
+    private static final int NUM_TRACKPOINTS = 2_000_000;
+
+    // Table names and aliases of TrackPoints in the queries.
+    private static final Set<String> TRACKPOINTS_TABLES = Set.of(TrackPointsColumns.TABLE_NAME, "t", "t1");
+
+    private static final Track.Id TRACK_ID = new Track.Id(100);
+    private static final TrackPoint.Id START_TRACKPOINT_ID = new TrackPoint.Id(1000);
+
+    private static SQLiteDatabase db;
+
+    @BeforeClass
+    public static void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(DATABASE_NAME);
+        db = new CustomSQLiteOpenHelper(context, DATABASE_NAME).getWritableDatabase();
+
+        long start = System.currentTimeMillis();
+        db.beginTransaction();
+        db.execSQL("WITH RECURSIVE seq(n) AS (SELECT 1 UNION ALL SELECT n + 1 FROM seq WHERE n < " + NUM_TRACKS + ") "
+                + "INSERT INTO tracks (_id, name) SELECT n, 'track' || n FROM seq");
+        db.execSQL("WITH RECURSIVE seq(n) AS (SELECT 0 UNION ALL SELECT n + 1 FROM seq WHERE n < " + (NUM_TRACKPOINTS - 1) + ") "
+                + "INSERT INTO trackpoints (trackid, longitude, latitude, time, elevation, speed, sensor_heartrate, type) "
+                + "SELECT n % " + NUM_TRACKS + " + 1, n, n, n * 1000, n % 1000, 1.0, 100 + n % 50, CASE WHEN n < " + NUM_TRACKS + " THEN " + TrackPoint.Type.SEGMENT_START_MANUAL.type_db + " ELSE " + TrackPoint.Type.TRACKPOINT.type_db + " END FROM seq");
+        db.setTransactionSuccessful();
+        db.endTransaction();
+        db.execSQL("ANALYZE");
+        Log.i(TAG, "Created " + NUM_TRACKPOINTS + " TrackPoints in " + (System.currentTimeMillis() - start) + "ms.");
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        db.close();
+        ApplicationProvider.getApplicationContext().deleteDatabase(DATABASE_NAME);
+    }
+
+    /**
+     * @return the details of the query plan.
+     */
+    private static List<String> explain(String sql, String... args) {
+        List<String> details = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + sql, args)) {
+            int detailIndex = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                details.add(cursor.getString(detailIndex));
+            }
+        }
+        return details;
+    }
+
+    private static void assertNoFullScan(String sql, String... args) {
+        List<String> details = explain(sql, args);
+        assertFalse(details.isEmpty());
+        for (String detail : details) {
+            // Format: "SCAN trackpoints" or "SCAN TABLE trackpoints AS t" (older SQLite)
+            String[] words = detail.split(" ");
+            if (!"SCAN".equals(words[0]) || words.length < 2) {
+                continue;
+            }
+            String table = "TABLE".equals(words[1]) && words.length > 2 ? words[2] : words[1];
+            if ("AS".equals(words[words.length - 2])) {
+                table = words[words.length - 1];
+            }
+            if (TRACKPOINTS_TABLES.contains(table)) {
+                fail("Full scan of trackpoints: " + detail + "\n" + sql + "\n" + details);
+            }
+        }
+    }
+
+    private static void assertUsesIndex(String index, String sql, String... args) {
+        List<String> details = explain(sql, args);
+        for (String detail : details) {
+            if (detail.contains(index)) {
+                return;
+            }
+        }
+        fail("Index " + index + " not used: " + sql + "\n" + details);
+    }
+
+    /**
+     * @return the SQL the {@link CustomContentProvider} executes for the query of {@link ContentProviderUtils}.
+     */
+    private static String sql(String[] projection, ContentProviderUtils.TrackPointsQuery query) {
+        return new CustomContentProvider().buildQuery(TrackPointsColumns.CONTENT_URI_BY_ID, projection, query.selection(), query.sortOrder());
+    }
+
+    private static void assertNoFullScan(String[] projection, ContentProviderUtils.TrackPointsQuery query) {
+        assertNoFullScan(sql(projection, query), query.selectionArgs());
+    }
+
+    @Test
+    public void getLastTrackPointId() {
+        assertNoFullScan(new String[]{TrackPointsColumns._ID}, ContentProviderUtils.TrackPointsQuery.lastTrackPointId(TRACK_ID));
+    }
+
+    @Test
+    public void getTrackPointId() {
+        ContentProviderUtils.TrackPointsQuery query = ContentProviderUtils.TrackPointsQuery.trackPointId(TRACK_ID, Position.of(Instant.ofEpochMilli(99000)));
+        assertNoFullScan(new String[]{TrackPointsColumns._ID}, query);
+        assertUsesIndex("trackpoints_trackid_time_index", sql(new String[]{TrackPointsColumns._ID}, query), query.selectionArgs());
+    }
+
+    @Test
+    public void getLastValidTrackPoint() {
+        ContentProviderUtils.TrackPointsQuery query = ContentProviderUtils.TrackPointsQuery.lastValidTrackPoint(TRACK_ID);
+        assertNoFullScan(null, query);
+        assertUsesIndex("trackpoints_trackid_type_index", sql(null, query), query.selectionArgs());
+    }
+
+    @Test
+    public void getTrackPointCursor() {
+        assertNoFullScan(null, ContentProviderUtils.TrackPointsQuery.trackPoints(TRACK_ID, null));
+        assertNoFullScan(null, ContentProviderUtils.TrackPointsQuery.trackPoints(TRACK_ID, START_TRACKPOINT_ID));
+    }
+
+    @Test
+    public void getTrackPointPageCursor() {
+        assertNoFullScan(null, ContentProviderUtils.TrackPointsQuery.trackPointPage(TRACK_ID, START_TRACKPOINT_ID, 1024));
+    }
+
+    @Test
+    public void getTrackPointCount() {
+        assertNoFullScan(new String[]{"COUNT(*)"}, ContentProviderUtils.TrackPointsQuery.trackPointCount(TRACK_ID, START_TRACKPOINT_ID));
+    }
+
+    @Test
+    public void getTrackPointsWithoutAltitudeMsl() {
+        assertNoFullScan(null, ContentProviderUtils.TrackPointsQuery.withoutAltitudeMsl(START_TRACKPOINT_ID, 500));
+    }
+
+    @Test
+    public void sensorStats() {
+        if (CustomContentProvider.hasWindowFunctions(db)) {
+            assertNoFullScan(CustomContentProvider.SENSOR_STATS_QUERY, "100");
+        }
+        assertNoFullScan(CustomContentProvider.SENSOR_STATS_QUERY_LEGACY, "100", "100");
+    }
+}
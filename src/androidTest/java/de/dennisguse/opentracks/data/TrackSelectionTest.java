@@ -9,6 +9,9 @@ import org.junit.runner.RunWith;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
 
 import de.dennisguse.opentracks.data.models.Track;
 
@@ -203,4 +206,73 @@ public class TrackSelectionTest extends TestCase {
         assertEquals(selection.selectionArgs()[2], Long.toString(instant.toEpochMilli()));
         assertEquals(selection.selectionArgs()[3], Long.toString(instant.toEpochMilli() + oneDay));
     }
+
+    @Test
+    public void testFilterBuildRollupSelection_noDateRange() {
+        // given
+        TrackSelection filter = new TrackSelection().addActivityType("running");
+
+        // when
+        SelectionData rollupSelection = filter.buildRollupSelection();
+        SelectionData remainderSelection = filter.buildRollupRemainderSelection();
+
+        // Then
+        assertEquals("(period = ?) AND category IN (?)", rollupSelection.selection());
+        assertEquals(2, rollupSelection.selectionArgs().length);
+        assertEquals("2", rollupSelection.selectionArgs()[0]);
+        assertEquals("running", rollupSelection.selectionArgs()[1]);
+
+        assertEquals("(starttime IS NULL OR tracks._id IN (SELECT trackid FROM recording_tracks)) AND category IN (?)", remainderSelection.selection());
+        assertEquals(1, remainderSelection.selectionArgs().length);
+    }
+
+    @Test
+    public void testFilterBuildRollupSelection_dateRange() {
+        // given: from 2024-01-30T12:00Z to 2024-03-12T06:00Z
+        Instant from = Instant.parse("2024-01-30T12:00:00Z");
+        Instant to = Instant.parse("2024-03-12T06:00:00Z");
+        TrackSelection filter = new TrackSelection().addDateRange(from, to);
+
+        // when
+        SelectionData rollupSelection = filter.buildRollupSelection();
+        SelectionData remainderSelection = filter.buildRollupRemainderSelection();
+
+        // Then: one day; February; days until Monday, 2024-03-04; one week; one day
+        String range = "(period = ? AND period_start >= ? AND period_start < ?)";
+        assertEquals("(" + String.join(" OR ", range, range, range, range, range) + ")", rollupSelection.selection());
+        assertEquals(List.of(
+                "0", epochMillis("2024-01-31"), epochMillis("2024-02-01"),
+                "2", epochMillis("2024-02-01"), epochMillis("2024-03-01"),
+                "0", epochMillis("2024-03-01"), epochMillis("2024-03-04"),
+                "1", epochMillis("2024-03-04"), epochMillis("2024-03-11"),
+                "0", epochMillis("2024-03-11"), epochMillis("2024-03-12")
+        ), List.of(rollupSelection.selectionArgs()));
+
+        assertEquals("(starttime >= ? AND starttime < ? OR starttime BETWEEN ? AND ? OR tracks._id IN (SELECT trackid FROM recording_tracks) AND starttime BETWEEN ? AND ?)", remainderSelection.selection());
+        assertEquals(List.of(
+                Long.toString(from.toEpochMilli()), epochMillis("2024-01-31"), epochMillis("2024-03-12"), Long.toString(to.toEpochMilli()),
+                Long.toString(from.toEpochMilli()), Long.toString(to.toEpochMilli())
+        ), List.of(remainderSelection.selectionArgs()));
+    }
+
+    @Test
+    public void testFilterBuildRollupSelection_noRollups() {
+        // given
+        Instant instant = Instant.parse("2024-01-30T12:00:00Z");
+        TrackSelection filterShort = new TrackSelection().addDateRange(instant, instant.plus(Duration.ofHours(23)));
+        TrackSelection filterTrackIds = new TrackSelection().addTrackId(new Track.Id(1));
+
+        // Then
+        assertNull(filterShort.buildRollupSelection());
+        assertEquals(filterShort.buildSelection().selection(), filterShort.buildRollupRemainderSelection().selection());
+        assertEquals(List.of(filterShort.buildSelection().selectionArgs()), List.of(filterShort.buildRollupRemainderSelection().selectionArgs()));
+
+        assertNull(filterTrackIds.buildRollupSelection());
+        assertEquals(filterTrackIds.buildSelection().selection(), filterTrackIds.buildRollupRemainderSelection().selection());
+        assertEquals(List.of(filterTrackIds.buildSelection().selectionArgs()), List.of(filterTrackIds.buildRollupRemainderSelection().selectionArgs()));
+    }
+
+    private static String epochMillis(String date) {
+        return Long.toString(LocalDate.parse(date).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli());
+    }
 }
@@ -0,0 +1,106 @@
+package de.dennisguse.opentracks.io.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+
+import de.dennisguse.opentracks.util.StringUtils;
+
+@RunWith(AndroidJUnit4.class)
+public class TimestampCodecTest {
+
+    private static final int[] FRACTION_UNITS = {1_000_000_000, 100_000_000, 1_000_000, 1_000, 1};
+
+    /**
+     * Timestamps like in a track: mostly one offset and consecutive times (incl. day changes); sometimes a jump.
+     */
+    @Test
+    public void format_parse_roundTrip() {
+        Random random = new Random(1);
+        TimestampCodec formatter = new TimestampCodec();
+        TimestampCodec parser = new TimestampCodec();
+
+        Instant time = Instant.parse("1999-12-31T22:00:00Z");
+        ZoneOffset zoneOffset = ZoneOffset.UTC;
+        for (int i = 0; i < 200_000; i++) {
+            if (random.nextInt(1000) == 0) {
+                time = Instant.ofEpochSecond(random.nextLong() % 4_000_000_000L);
+                zoneOffset = ZoneOffset.ofTotalSeconds((random.nextInt(18 * 4 * 2 + 1) - 18 * 4) * 15 * 60);
+            }
+            int unit = FRACTION_UNITS[random.nextInt(FRACTION_UNITS.length)];
+            time = Instant.ofEpochSecond(time.getEpochSecond() + random.nextInt(10), (long) random.nextInt(1_000_000_000 / unit) * unit);
+
+            // when
+            String formatted = formatter.format(time, zoneOffset).toString();
+            Instant parsed = parser.parse(formatted);
+
+            // then
+            assertEquals(time.atOffset(zoneOffset).format(DateTimeFormatter.ISO_OFFSET_DATE_TIME), formatted);
+            assertEquals(formatted, time, parsed);
+            assertEquals(formatted, zoneOffset, parser.getOffset());
+        }
+    }
+
+    @Test
+    public void parse_sameAsStringUtils() {
+        TimestampCodec timestampCodec = new TimestampCodec();
+        String[] values = {
+                "2020-01-01T12:00:00Z",
+                "2020-01-01T12:00:00.123+01:00",
+                "2020-01-01T23:59:59.123456789-05:30",
+                "2020-01-01T12:00:00.5Z",
+                "2020-01-01T12:00:00-00:00",
+                "2020-01-01T12:00:00",
+                "2020-01-01T12:00:00.352",
+                "2020-01-01T12:00:00+01:00[Europe/Berlin]",
+                "2020-01-01T12:00Z",
+                "+12020-01-01T12:00:00Z",
+        };
+        for (String value : values) {
+            OffsetDateTime expected = StringUtils.parseTime(value);
+
+            assertEquals(value, expected.toInstant(), timestampCodec.parse(value));
+            assertEquals(value, expected.getOffset(), timestampCodec.getOffset());
+        }
+    }
+
+    @Test
+    public void parse_invalid() {
+        TimestampCodec timestampCodec = new TimestampCodec();
+        timestampCodec.parse("2020-01-01T12:00:00Z");
+
+        String[] values = {
+                "",
+                "2020-02-30T12:00:00Z",
+                "2020-01-01T24:00:00Z",
+                "2020-01-01T12:60:00Z",
+                "2020-01-01T12:00:60Z",
+                "2020-01-01T12:00:00+19:00",
+                "2020-01-01T12:00:00.1234567890Z",
+                "2020-01-01 12:00:00Z",
+        };
+        for (String value : values) {
+            assertThrows(value, DateTimeException.class, () -> timestampCodec.parse(value));
+        }
+    }
+
+    @Test
+    public void format_extremeYears() {
+        TimestampCodec timestampCodec = new TimestampCodec();
+        Instant[] times = {Instant.parse("0000-01-01T00:00:00Z"), Instant.parse("-0001-12-31T23:59:59Z"), Instant.parse("+10000-01-01T00:00:00.5Z")};
+        for (Instant time : times) {
+            assertEquals(StringUtils.formatDateTimeIso8601(time, ZoneOffset.UTC), timestampCodec.format(time, ZoneOffset.UTC).toString());
+        }
+    }
+}
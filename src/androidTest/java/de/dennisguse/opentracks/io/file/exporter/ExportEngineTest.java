@@ -0,0 +1,109 @@
+package de.dennisguse.opentracks.io.file.exporter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.dennisguse.opentracks.data.models.Track;
+import de.dennisguse.opentracks.io.file.TrackFileFormat;
+
+@RunWith(AndroidJUnit4.class)
+public class ExportEngineTest {
+
+    private final List<ExportTask> succeeded = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+
+    private final ExportEngine.Listener listener = new ExportEngine.Listener() {
+        @Override
+        public void onExportSuccess(@NonNull ExportTask exportTask) {
+            succeeded.add(exportTask);
+        }
+
+        @Override
+        public void onExportError(@NonNull ExportTask exportTask, String errorMessage) {
+            errors.add(errorMessage);
+        }
+    };
+
+    private static List<ExportTask> createExportTasks(int count) {
+        List<ExportTask> exportTasks = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            exportTasks.add(new ExportTask(null, TrackFileFormat.GPX, List.of(new Track.Id(i))));
+        }
+        return exportTasks;
+    }
+
+    @Test
+    public void run_exportsInParallel() throws InterruptedException {
+        // given
+        List<ExportTask> exportTasks = createExportTasks(6);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        ExportEngine exportEngine = new ExportEngine(exportTask -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(100);
+            running.decrementAndGet();
+            if (exportTask.getTrackIds().get(0).id() == 6) {
+                throw new RuntimeException("failed");
+            }
+            return 1000;
+        }, 3);
+
+        // when
+        exportEngine.run(exportTasks, listener);
+
+        // then
+        assertEquals(List.of("failed"), errors);
+        assertEquals(5, succeeded.size());
+        assertTrue(succeeded.containsAll(exportTasks.subList(0, 5)));
+        assertEquals(3, maxRunning.get());
+
+        assertEquals(6, exportEngine.getTotalCount());
+        assertEquals(6, exportEngine.getDoneCount());
+        assertEquals(5000, exportEngine.getBytesWritten());
+        assertTrue(exportEngine.getBytesPerSecond() > 0);
+    }
+
+    @Test
+    public void cancel_interruptsRunningAndSkipsPending() throws InterruptedException {
+        // given
+        CountDownLatch started = new CountDownLatch(2);
+        ExportEngine exportEngine = new ExportEngine(exportTask -> {
+            started.countDown();
+            Thread.sleep(60_000);
+            return 0;
+        }, 2);
+
+        Thread thread = new Thread(() -> {
+            try {
+                exportEngine.run(createExportTasks(10), listener);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        thread.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // when
+        exportEngine.cancel();
+        thread.join(5000);
+
+        // then
+        assertTrue(exportEngine.isCancelled());
+        assertEquals(0, succeeded.size());
+        assertEquals("Running exports are reported as errors", 2, errors.size());
+        assertEquals(2, exportEngine.getDoneCount());
+    }
+}
@@ -0,0 +1,113 @@
+package de.dennisguse.opentracks.io.file.exporter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.NumberFormat;
+import java.util.Locale;
+import java.util.Random;
+
+@RunWith(AndroidJUnit4.class)
+public class ExportWriterTest {
+
+    private final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+    private String write(double value, int maxFractionDigits) {
+        outputStream.reset();
+        ExportWriter exportWriter = new ExportWriter(outputStream);
+        exportWriter.write(value, maxFractionDigits);
+        exportWriter.flush();
+        return outputStream.toString();
+    }
+
+    @Test
+    public void write_fixedPrecision() {
+        assertEquals("0", write(0, 1));
+        assertEquals("3", write(3.0, 2));
+        assertEquals("1.2", write(1.25, 1));
+        assertEquals("1.4", write(1.35, 1));
+        assertEquals("0.05", write(0.05, 2));
+        assertEquals("-12.345678", write(-12.3456784, 6));
+        assertEquals("-0", write(-0.04, 1));
+        assertEquals("100", write(99.96, 1));
+        assertEquals("10000000000000000", write(1e16, 2));
+    }
+
+    @Test
+    public void write_fixedPrecision_sameAsNumberFormat() {
+        Random random = new Random(42);
+        for (int maxFractionDigits : new int[]{0, 1, 2, 3, 6}) {
+            NumberFormat numberFormat = NumberFormat.getInstance(Locale.US);
+            numberFormat.setMaximumFractionDigits(maxFractionDigits);
+            numberFormat.setGroupingUsed(false);
+
+            for (int i = 0; i < 10_000; i++) {
+                double value = (random.nextDouble() - 0.5) * 360;
+                assertEquals(numberFormat.format(value), write(value, maxFractionDigits));
+            }
+        }
+    }
+
+    @Test
+    public void write_double_sameAsToString() {
+        for (double value : new double[]{0, -0.0, 1, 13.123456789012345, -123.45, 1e-7, 1e21}) {
+            outputStream.reset();
+            ExportWriter exportWriter = new ExportWriter(outputStream);
+            exportWriter.write(value);
+            exportWriter.flush();
+
+            assertEquals(Double.toString(value), outputStream.toString());
+        }
+    }
+
+    @Test
+    public void write_utf8() {
+        String value = "aä€🚴<>";
+        ExportWriter exportWriter = new ExportWriter(outputStream, 4);
+
+        // when
+        exportWriter.write(value).write(Long.MIN_VALUE).write(-42).newLine();
+        exportWriter.writeLine(ExportWriter.encode(value));
+        exportWriter.flush();
+
+        // then
+        String expected = value + Long.MIN_VALUE + "-42\n" + value + "\n";
+        assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), outputStream.toByteArray());
+        assertEquals(outputStream.size(), exportWriter.getBytesWritten());
+        assertFalse(exportWriter.checkError());
+    }
+
+    @Test
+    public void write_error() {
+        OutputStream failing = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException();
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                throw new IOException();
+            }
+        };
+        ExportWriter exportWriter = new ExportWriter(failing);
+
+        // when
+        exportWriter.writeLine("content");
+        exportWriter.flush();
+
+        // then
+        assertTrue(exportWriter.checkError());
+    }
+}
@@ -0,0 +1,97 @@
+package de.dennisguse.opentracks.io.file.exporter;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(AndroidJUnit4.class)
+public class SpillingIntArrayTest {
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+
+    private File directory;
+
+    @Before
+    public void setUp() {
+        directory = new File(context.getCacheDir(), SpillingIntArrayTest.class.getSimpleName());
+        directory.mkdirs();
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void forEach_inMemory() throws IOException {
+        try (SpillingIntArray array = new SpillingIntArray(directory, 16)) {
+            // when
+            for (int i = 0; i < 10; i++) {
+                array.add(i);
+            }
+
+            // then
+            assertEquals(10, array.size());
+            assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), values(array));
+            assertEquals(0, directory.listFiles().length);
+        }
+    }
+
+    @Test
+    public void forEach_spilled() throws IOException {
+        try (SpillingIntArray array = new SpillingIntArray(directory, 16)) {
+            // when
+            for (int i = 0; i < 1000; i++) {
+                array.add(i - 500);
+            }
+
+            // then
+            assertEquals(1, directory.listFiles().length);
+            List<Integer> values = values(array);
+            assertEquals(1000, values.size());
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(i - 500, (int) values.get(i));
+            }
+
+            // Appending after reading
+            array.add(Float.floatToRawIntBits(Float.NaN));
+            assertEquals(1001, values(array).size());
+        }
+    }
+
+    @Test
+    public void clear_deletesFile() throws IOException {
+        SpillingIntArray array = new SpillingIntArray(directory, 16);
+        for (int i = 0; i < 100; i++) {
+            array.add(i);
+        }
+
+        // when
+        array.clear();
+
+        // then
+        assertEquals(0, array.size());
+        assertEquals(0, directory.listFiles().length);
+
+        // Reusable after clear
+        array.add(42);
+        assertEquals(List.of(42), values(array));
+        array.close();
+    }
+
+    private static List<Integer> values(SpillingIntArray array) throws IOException {
+        List<Integer> values = new ArrayList<>();
+        array.forEach(values::add);
+        return values;
+    }
+}
@@ -0,0 +1,91 @@
+package de.dennisguse.opentracks.io.file.exporter;
+
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.util.Log;
+import android.util.Pair;
+
+import androidx.annotation.NonNull;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.OutputStream;
+import java.util.List;
+
+import de.dennisguse.opentracks.content.data.TestDataUtil;
+import de.dennisguse.opentracks.data.ContentProviderUtils;
+import de.dennisguse.opentracks.data.models.ActivityType;
+import de.dennisguse.opentracks.data.models.Track;
+import de.dennisguse.opentracks.data.models.TrackPoint;
+import de.dennisguse.opentracks.io.file.TrackFileFormat;
+
+/**
+ * Measures the export throughput (MB/s and TrackPoints/s) of a synthetic track per {@link TrackFileFormat}.
+ * Includes reading the TrackPoints from the database.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TrackExporterBenchmarkTest {
+
+    private static final String TAG = TrackExporterBenchmarkTest.class.getSimpleName();
+
+    private static final int NUM_TRACKPOINTS = 20_000;
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+    private final ContentProviderUtils contentProviderUtils = new ContentProviderUtils(context);
+
+    private Track track;
+
+    @Before
+    public void setUp() {
+        contentProviderUtils.deleteAllTracks(context);
+        Pair<Track, List<TrackPoint>> trackData = TestDataUtil.createTrack(new Track.Id(1), NUM_TRACKPOINTS);
+        track = trackData.first;
+        track.setActivityType(ActivityType.CYCLING);
+        TestDataUtil.insertTrackWithLocations(contentProviderUtils, track, trackData.second);
+    }
+
+    @After
+    public void tearDown() {
+        contentProviderUtils.deleteAllTracks(context);
+    }
+
+    @Test
+    public void export() {
+        for (TrackFileFormat trackFileFormat : List.of(TrackFileFormat.KML_WITH_TRACKDETAIL_AND_SENSORDATA, TrackFileFormat.GPX, TrackFileFormat.CSV)) {
+            TrackExporter trackExporter = trackFileFormat.createTrackExporter(context, contentProviderUtils);
+
+            // Warm up
+            assertTrue(trackExporter.writeTrack(List.of(track), new CountingOutputStream()));
+
+            CountingOutputStream outputStream = new CountingOutputStream();
+            long start = System.nanoTime();
+            assertTrue(trackExporter.writeTrack(List.of(track), outputStream));
+            double seconds = (System.nanoTime() - start) / 1_000_000_000d;
+
+            Log.i(TAG, trackFileFormat.getExtension() + ": " + outputStream.count + " bytes in " + Math.round(seconds * 1000) + "ms; "
+                    + String.format("%.1f", outputStream.count / 1_000_000d / seconds) + " MB/s; "
+                    + Math.round(NUM_TRACKPOINTS / seconds) + " TrackPoints/s.");
+        }
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+
+        private long count = 0;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(@NonNull byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package de.dennisguse.opentracks.io.file.importer;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.ContentUris;
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
+import de.dennisguse.opentracks.data.ContentProviderUtils;
+import de.dennisguse.opentracks.data.models.Distance;
+import de.dennisguse.opentracks.data.models.Track;
+import de.dennisguse.opentracks.data.tables.TrackPointsColumns;
+
+/**
+ * Measures importing a synthetic GPX file with 1M TrackPoints (duration, TrackPoints/s, and heap usage) with {@link XmlPullTokenizer} and with SAX2.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class GPXImportBenchmarkTest {
+
+    private static final String TAG = GPXImportBenchmarkTest.class.getSimpleName();
+
+    private static final int NUM_TRACKPOINTS = 1_000_000;
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+    private final ContentProviderUtils contentProviderUtils = new ContentProviderUtils(context);
+
+    private File file;
+    private List<Track.Id> trackIds = List.of();
+
+    @Before
+    public void setUp() throws IOException {
+        file = new File(context.getCacheDir(), TAG + ".gpx");
+        Instant start = Instant.parse("2020-01-01T00:00:00Z");
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            writer.write("<gpx version=\"1.1\" creator=\"benchmark\" xmlns=\"http://www.topografix.com/GPX/1/1\">\n");
+            writer.write("<trk><name>benchmark</name><trkseg>\n");
+            for (int i = 0; i < NUM_TRACKPOINTS; i++) {
+                writer.write("<trkpt lat=\"" + (47 + i / 1_000_000d) + "\" lon=\"" + (8 + i / 1_000_000d) + "\"><ele>" + (400 + i % 100) + "</ele><time>" + start.plusSeconds(i) + "</time></trkpt>\n");
+            }
+            writer.write("</trkseg></trk>\n</gpx>\n");
+        }
+    }
+
+    @After
+    public void tearDown() {
+        contentProviderUtils.deleteTracks(context, trackIds);
+        file.delete();
+    }
+
+    @Test
+    public void importFile() throws IOException {
+        importFile(true);
+    }
+
+    /**
+     * For comparison: SAX2 instead of {@link XmlPullTokenizer}.
+     */
+    @Test
+    public void importFile_sax() throws IOException {
+        importFile(false);
+    }
+
+    private void importFile(boolean useTokenizer) throws IOException {
+        TrackImporter trackImporter = new TrackImporter(context, contentProviderUtils, Distance.of(200), false);
+        Runtime runtime = Runtime.getRuntime();
+        runtime.gc();
+        long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+
+        // when
+        long start = System.nanoTime();
+        trackIds = new XMLImporter(new GPXTrackImporter(context, trackImporter), useTokenizer).importFile(new FileInputStream(file));
+        double seconds = (System.nanoTime() - start) / 1_000_000_000d;
+
+        // then
+        long heapAfter = runtime.totalMemory() - runtime.freeMemory();
+        Log.i(TAG, (useTokenizer ? "Tokenizer: " : "SAX: ") + NUM_TRACKPOINTS + " TrackPoints (" + file.length() + " bytes) in " + Math.round(seconds * 1000) + "ms; "
+                + Math.round(NUM_TRACKPOINTS / seconds) + " TrackPoints/s; heap " + heapBefore / 1024 + " KiB before, " + heapAfter / 1024 + " KiB after.");
+
+        assertEquals(1, trackIds.size());
+        try (Cursor cursor = context.getContentResolver().query(ContentUris.withAppendedId(TrackPointsColumns.CONTENT_URI_BY_TRACKID, trackIds.get(0).id()), new String[]{"COUNT(*)"}, null, null, null)) {
+            cursor.moveToFirst();
+            assertEquals(NUM_TRACKPOINTS, cursor.getInt(0));
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package de.dennisguse.opentracks.io.file.importer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import de.dennisguse.opentracks.content.data.TestDataUtil;
+import de.dennisguse.opentracks.data.ContentProviderUtils;
+import de.dennisguse.opentracks.data.models.Distance;
+import de.dennisguse.opentracks.data.models.Track;
+
+@RunWith(AndroidJUnit4.class)
+public class ImportWriterTest {
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+    private final ContentProviderUtils contentProviderUtils = new ContentProviderUtils(context);
+
+    private final List<Track.Id> trackIds = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        contentProviderUtils.deleteTracks(context, trackIds);
+    }
+
+    @Test
+    public void start_importsConcurrently() throws Exception {
+        // given
+        int fileCount = 4;
+        int count = TrackImporter.CHUNK_SIZE * (ImportWriter.MAX_PENDING_TASKS + 2);
+        UUID rolledBackUuid = UUID.randomUUID();
+        int trackCount = contentProviderUtils.getTracks().size();
+
+        ExecutorService executor = Executors.newFixedThreadPool(fileCount);
+        List<Future<List<Track.Id>>> futures = new ArrayList<>();
+
+        // when
+        try (ImportWriter importWriter = ImportWriter.start(contentProviderUtils)) {
+            for (int file = 0; file < fileCount; file++) {
+                boolean rollback = file == 1;
+                futures.add(executor.submit(() -> {
+                    TrackImporter trackImporter = new TrackImporter(context, contentProviderUtils, importWriter, Distance.of(200), true);
+                    trackImporter.newTrack();
+                    for (int i = 0; i < count; i++) {
+                        trackImporter.addTrackPoint(TestDataUtil.createTrackPoint(i));
+                    }
+                    trackImporter.setTrack(context, "name", (rollback ? rolledBackUuid : UUID.randomUUID()).toString(), null, null, null, ZoneOffset.UTC);
+                    if (rollback) {
+                        trackImporter.cleanImport();
+                    } else {
+                        trackImporter.finish();
+                    }
+                    return trackImporter.getTrackIds();
+                }));
+            }
+            for (Future<List<Track.Id>> future : futures) {
+                trackIds.addAll(future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // then
+        assertEquals(fileCount - 1, trackIds.size());
+        for (Track.Id trackId : trackIds) {
+            assertEquals(count, TestDataUtil.getTrackPoints(contentProviderUtils, trackId).size());
+        }
+        assertNull(contentProviderUtils.getTrack(rolledBackUuid));
+        assertEquals(trackCount + fileCount - 1, contentProviderUtils.getTracks().size());
+    }
+
+    @Test
+    public void commit_doesNotWaitForOtherSessions() {
+        // given
+        List<Integer> executed = new ArrayList<>();
+        try (ImportWriter importWriter = ImportWriter.start(contentProviderUtils)) {
+            ImportWriter.Session slowSession = importWriter.openSession();
+            slowSession.write(() -> executed.add(1));
+            ImportWriter.Session session = importWriter.openSession();
+            session.write(() -> executed.add(2));
+
+            // when
+            session.commit();
+
+            // then
+            assertEquals(List.of(1, 2), executed);
+
+            slowSession.rollback();
+        }
+    }
+
+    @Test
+    public void checkReimport_knownUuid() {
+        // given
+        TrackImporter trackImporter = new TrackImporter(context, contentProviderUtils, Distance.of(200), true);
+        UUID uuid = UUID.randomUUID();
+        trackImporter.newTrack();
+        trackImporter.addTrackPoint(TestDataUtil.createTrackPoint(0));
+        trackImporter.setTrack(context, "name", uuid.toString(), null, null, null, ZoneOffset.UTC);
+        trackImporter.finish();
+        trackIds.addAll(trackImporter.getTrackIds());
+
+        // when
+        try (ImportWriter importWriter = ImportWriter.start(contentProviderUtils)) {
+            TrackImporter reimporter = new TrackImporter(context, contentProviderUtils, importWriter, Distance.of(200), true);
+            reimporter.newTrack();
+            reimporter.checkReimport(uuid.toString());
+            fail();
+        } catch (ImportAlreadyExistsException e) {
+            // then: expected
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package de.dennisguse.opentracks.io.file.importer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Locale;
+import java.util.Random;
+
+import de.dennisguse.opentracks.io.file.TimestampCodec;
+
+@RunWith(AndroidJUnit4.class)
+public class TextValueTest {
+
+    private final TextValue textValue = new TextValue();
+
+    private TextValue of(String value) {
+        textValue.set(value);
+        return textValue;
+    }
+
+    @Test
+    public void parseDouble_sameAsJdk() {
+        Random random = new Random(1);
+        for (int i = 0; i < 100_000; i++) {
+            String value = switch (i % 3) {
+                case 0 -> String.format(Locale.US, "%." + random.nextInt(12) + "f", (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(8)));
+                case 1 -> Double.toString(random.nextDouble() * 1000);
+                default -> random.nextInt(100_000_000) + "." + Math.abs(random.nextLong());
+            };
+            assertEquals(value, Double.parseDouble(value), of(value).parseDouble(), 0);
+            assertEquals(value, Float.parseFloat(value), of(value).parseFloat(), 0);
+        }
+    }
+
+    @Test
+    public void parseDouble_specialValues() {
+        String[] values = {" 47.5\n", "+.5", "1.", "-0", "1e5", "NaN", "-Infinity", "0x1p3", "1f"};
+        for (String value : values) {
+            assertEquals(value, Double.parseDouble(value), of(value).parseDouble(), 0);
+            assertEquals(value, Float.parseFloat(value), of(value).parseFloat(), 0);
+        }
+
+        String[] invalidValues = {"", ".", "-", "1.2.3", "1 2"};
+        for (String value : invalidValues) {
+            assertThrows(value, NumberFormatException.class, () -> of(value).parseDouble());
+            assertThrows(value, NumberFormatException.class, () -> of(value).parseFloat());
+        }
+    }
+
+    @Test
+    public void parse_trimmed() {
+        TimestampCodec timestampCodec = new TimestampCodec();
+
+        assertEquals(Instant.parse("2020-01-01T11:00:00.123Z"), of(" 2020-01-01T12:00:00.123+01:00\n").parse(timestampCodec::parse));
+        assertEquals(ZoneOffset.ofHours(1), timestampCodec.getOffset());
+    }
+
+    @Test
+    public void split() {
+        TextValue first = new TextValue();
+        TextValue second = new TextValue();
+        TextValue third = new TextValue();
+
+        assertEquals(3, of(" 8.2,47.1,400 ").split(',', first, second, third));
+        assertEquals("8.2", first.toString());
+        assertEquals("47.1", second.toString());
+        assertEquals("400", third.toString());
+
+        assertEquals(2, of("8.2 47.1 ").split(' ', first, second, third));
+        assertEquals("8.2", first.toString());
+        assertEquals("47.1", second.toString());
+        assertFalse(third.isPresent());
+
+        assertEquals(1, of("8.2").split(' ', first, second, third));
+    }
+
+    @Test
+    public void isPresent() {
+        assertFalse(new TextValue().isPresent());
+        assertFalse(of(null).isPresent());
+        assertTrue(of("").isPresent());
+        assertTrue(of(" ").isEmpty());
+    }
+}
@@ -0,0 +1,128 @@
+package de.dennisguse.opentracks.io.file.importer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+import de.dennisguse.opentracks.content.data.TestDataUtil;
+import de.dennisguse.opentracks.data.ContentProviderUtils;
+import de.dennisguse.opentracks.data.models.Distance;
+import de.dennisguse.opentracks.data.models.Track;
+import de.dennisguse.opentracks.data.models.TrackPoint;
+
+@RunWith(AndroidJUnit4.class)
+public class TrackImporterTest {
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+    private final ContentProviderUtils contentProviderUtils = new ContentProviderUtils(context);
+
+    private final TrackImporter trackImporter = new TrackImporter(context, contentProviderUtils, Distance.of(200), true);
+
+    @After
+    public void tearDown() {
+        contentProviderUtils.deleteTracks(context, trackImporter.getTrackIds());
+    }
+
+    @Test
+    public void finish_storesTrackPointsInChunks() {
+        // given
+        int count = TrackImporter.CHUNK_SIZE * 2 + 10;
+        trackImporter.newTrack();
+        for (int i = 0; i < count; i++) {
+            trackImporter.addTrackPoint(TestDataUtil.createTrackPoint(i));
+        }
+        trackImporter.setTrack(context, "name", UUID.randomUUID().toString(), null, null, null, ZoneOffset.UTC);
+
+        // when
+        trackImporter.finish();
+
+        // then
+        Track.Id trackId = trackImporter.getTrackIds().get(0);
+        List<TrackPoint> trackPoints = TestDataUtil.getTrackPoints(contentProviderUtils, trackId);
+        assertEquals(count, trackPoints.size());
+
+        Track track = contentProviderUtils.getTrack(trackId);
+        assertEquals("name", track.getName());
+        assertEquals(Instant.ofEpochSecond(0), track.getTrackStatistics().getStartTime());
+        assertEquals(Instant.ofEpochSecond(count - 1), track.getTrackStatistics().getStopTime());
+    }
+
+    @Test
+    public void finish_sortsTrackPointsAcrossChunks() {
+        // given: decreasing time
+        int count = TrackImporter.CHUNK_SIZE + 10;
+        trackImporter.newTrack();
+        for (int i = count - 1; i >= 0; i--) {
+            trackImporter.addTrackPoint(TestDataUtil.createTrackPoint(i));
+        }
+        trackImporter.setTrack(context, "name", UUID.randomUUID().toString(), null, null, null, ZoneOffset.UTC);
+
+        // when
+        trackImporter.finish();
+
+        // then
+        Track.Id trackId = trackImporter.getTrackIds().get(0);
+        List<TrackPoint> trackPoints = TestDataUtil.getTrackPoints(contentProviderUtils, trackId);
+        assertEquals(count, trackPoints.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(Instant.ofEpochSecond(i), trackPoints.get(i).getTime());
+        }
+        assertEquals(Instant.ofEpochSecond(0), contentProviderUtils.getTrack(trackId).getTrackStatistics().getStartTime());
+    }
+
+    @Test
+    public void cleanImport_rollsBack() {
+        // given
+        UUID uuid = UUID.randomUUID();
+        int trackCount = contentProviderUtils.getTracks().size();
+        trackImporter.newTrack();
+        for (int i = 0; i < TrackImporter.CHUNK_SIZE + 10; i++) {
+            trackImporter.addTrackPoint(TestDataUtil.createTrackPoint(i));
+        }
+        trackImporter.setTrack(context, "name", uuid.toString(), null, null, null, ZoneOffset.UTC);
+        trackImporter.newTrack();
+
+        // when
+        trackImporter.cleanImport();
+
+        // then
+        assertTrue(trackImporter.getTrackIds().isEmpty());
+        assertNull(contentProviderUtils.getTrack(uuid));
+        assertEquals(trackCount, contentProviderUtils.getTracks().size());
+    }
+
+    @Test
+    public void cleanImport_deletesFinishedTracks() {
+        // given
+        UUID uuid = UUID.randomUUID();
+        int trackCount = contentProviderUtils.getTracks().size();
+        trackImporter.newTrack();
+        for (int i = 0; i < 10; i++) {
+            trackImporter.addTrackPoint(TestDataUtil.createTrackPoint(i));
+        }
+        trackImporter.setTrack(context, "name", uuid.toString(), null, null, null, ZoneOffset.UTC);
+        trackImporter.finish();
+
+        // when
+        trackImporter.cleanImport();
+
+        // then
+        assertTrue(trackImporter.getTrackIds().isEmpty());
+        assertNull(contentProviderUtils.getTrack(uuid));
+        assertEquals(trackCount, contentProviderUtils.getTracks().size());
+    }
+}
@@ -0,0 +1,139 @@
+package de.dennisguse.opentracks.io.file.importer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import javax.xml.parsers.SAXParserFactory;
+
+@RunWith(AndroidJUnit4.class)
+public class XmlPullTokenizerTest {
+
+    /**
+     * Records the events in a comparable form; adjacent text is merged as SAX2 may split it.
+     */
+    private static class RecordingHandler extends DefaultHandler {
+        private final StringBuilder events = new StringBuilder();
+        private final StringBuilder text = new StringBuilder();
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            flushText();
+            events.append('<').append(qName);
+            for (int i = 0; i < attributes.getLength(); i++) {
+                events.append(' ').append(attributes.getQName(i)).append("=[").append(attributes.getValue(i)).append(']');
+            }
+            events.append('>');
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            flushText();
+            events.append("</").append(qName).append('>');
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            text.append(ch, start, length);
+        }
+
+        private void flushText() {
+            if (text.length() > 0) {
+                events.append('[').append(text).append(']');
+                text.setLength(0);
+            }
+        }
+    }
+
+    private static String parseWithTokenizer(String xml) throws Exception {
+        RecordingHandler handler = new RecordingHandler();
+        new XmlPullTokenizer(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8))).parse(handler);
+        return handler.events.toString();
+    }
+
+    private static String parseWithSax(String xml) throws Exception {
+        RecordingHandler handler = new RecordingHandler();
+        SAXParserFactory.newInstance().newSAXParser().parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), handler);
+        return handler.events.toString();
+    }
+
+    private static boolean isSupported(byte[] bytes) throws Exception {
+        return XmlPullTokenizer.isSupported(new BufferedInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    @Test
+    public void parse_sameAsSax() throws Exception {
+        String[] documents = {
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<!-- comment -->\n<gpx version=\"1.1\" creator='test'>\r\n"
+                        + "<trk><name>A &amp; B &lt;&gt; &quot;&apos;</name><desc><![CDATA[<b>bold</b>]]> text</desc>\n"
+                        + "<trkseg><trkpt lat=\"47.1\" lon=\"8.2\"><ele>400.5</ele><time>2020-01-01T00:00:00Z</time></trkpt><?pi data?><!-- x --></trkseg>\n"
+                        + "<trkpt lat=\" 1\t2\n\" lon=\"&#65;&#x42;\"/></trk></gpx>\n<!-- trailing -->\n",
+                "﻿<kml><gx:coord>8.2 47.1 400</gx:coord><name>äöü 😀</name></kml>",
+                "<a>]]<![CDATA[>]]></a>",
+        };
+
+        for (String document : documents) {
+            assertEquals(parseWithSax(document), parseWithTokenizer(document));
+        }
+    }
+
+    @Test
+    public void parse_malformed() {
+        String[] documents = {
+                "<a><b></a>",
+                "<a>&unknown;</a>",
+                "<a>",
+                "<a></a><b/>",
+                "<a x='1' x='2'/>",
+                "<a>&#xZZ;</a>",
+                "text<a/>",
+                "<!DOCTYPE a><a/>",
+        };
+
+        for (String document : documents) {
+            assertThrows(document, SAXParseException.class, () -> parseWithTokenizer(document));
+        }
+    }
+
+    @Test
+    public void parse_errorLocation() {
+        SAXParseException e = assertThrows(SAXParseException.class, () -> parseWithTokenizer("<a>\n<b>\r\n</a>"));
+        assertEquals(3, e.getLineNumber());
+    }
+
+    @Test
+    public void isSupported() throws Exception {
+        assertTrue(isSupported("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<!-- comment --><gpx/>".getBytes(StandardCharsets.UTF_8)));
+        assertTrue(isSupported("<?xml version='1.0'?><?pi?><gpx/>".getBytes(StandardCharsets.UTF_8)));
+        assertTrue(isSupported("﻿<gpx/>".getBytes(StandardCharsets.UTF_8)));
+
+        assertFalse(isSupported("<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?><gpx/>".getBytes(StandardCharsets.ISO_8859_1)));
+        assertFalse(isSupported("<gpx/>".getBytes(StandardCharsets.UTF_16)));
+        assertFalse(isSupported("<gpx/>".getBytes(StandardCharsets.UTF_16LE)));
+        assertFalse(isSupported("<!DOCTYPE gpx [<!ENTITY e \"x\">]><gpx>&e;</gpx>".getBytes(StandardCharsets.UTF_8)));
+        assertFalse(isSupported(("<!--" + "x".repeat(XmlPullTokenizer.PROLOG_LIMIT) + "--><gpx/>").getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void isSupported_doesNotConsume() throws Exception {
+        byte[] bytes = "<?xml version=\"1.0\"?><gpx/>".getBytes(StandardCharsets.UTF_8);
+        BufferedInputStream inputStream = new BufferedInputStream(new ByteArrayInputStream(bytes));
+
+        XmlPullTokenizer.isSupported(inputStream);
+
+        assertEquals(bytes.length, inputStream.available());
+    }
+}
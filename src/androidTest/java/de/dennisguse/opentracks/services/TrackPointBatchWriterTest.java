@@ -0,0 +1,117 @@
+package de.dennisguse.opentracks.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteException;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+import de.dennisguse.opentracks.content.data.TestDataUtil;
+import de.dennisguse.opentracks.data.ContentProviderUtils;
+import de.dennisguse.opentracks.data.models.Track;
+import de.dennisguse.opentracks.data.models.TrackPoint;
+
+@RunWith(AndroidJUnit4.class)
+public class TrackPointBatchWriterTest {
+
+    private static final Track.Id TRACK_ID = new Track.Id(1);
+    private static final Track.Id NEXT_TRACK_ID = new Track.Id(2);
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+
+    private final FailingContentProviderUtils contentProviderUtils = new FailingContentProviderUtils(context);
+
+    private TrackPointBatchWriter trackPointBatchWriter;
+
+    @Before
+    public void setUp() {
+        contentProviderUtils.deleteAllTracks(context);
+        contentProviderUtils.insertTrack(TestDataUtil.createTrack(TRACK_ID));
+        contentProviderUtils.insertTrack(TestDataUtil.createTrack(NEXT_TRACK_ID));
+
+        trackPointBatchWriter = new TrackPointBatchWriter(contentProviderUtils, new Handler(Looper.getMainLooper()), () -> null, new TrackPointBatchWriter.TrackUpdateListener() {
+            @Override
+            public void beforeTrackUpdate(@NonNull Track.Id trackId) {
+            }
+
+            @Override
+            public void onTrackUpdateFailed(@NonNull Track.Id trackId) {
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        contentProviderUtils.deleteAllTracks(context);
+    }
+
+    @Test
+    public void add_otherTrackAfterFailedFlush_keepsTrackPoints() {
+        // given
+        trackPointBatchWriter.add(TRACK_ID, TestDataUtil.createTrackPoint(0));
+        trackPointBatchWriter.add(TRACK_ID, TestDataUtil.createTrackPoint(1));
+        contentProviderUtils.failingInserts = 2;
+        trackPointBatchWriter.flush();
+
+        // when: the retry at the track change fails as well
+        trackPointBatchWriter.add(NEXT_TRACK_ID, TestDataUtil.createTrackPoint(2));
+
+        // then
+        assertFalse(trackPointBatchWriter.isEmpty());
+        assertTrue(TestDataUtil.getTrackPoints(contentProviderUtils, TRACK_ID).isEmpty());
+
+        // when
+        trackPointBatchWriter.flush();
+
+        // then
+        assertTrue(trackPointBatchWriter.isEmpty());
+        assertEquals(2, TestDataUtil.getTrackPoints(contentProviderUtils, TRACK_ID).size());
+        assertEquals(1, TestDataUtil.getTrackPoints(contentProviderUtils, NEXT_TRACK_ID).size());
+    }
+
+    @Test
+    public void add_otherTrackAfterFailedFlush_retriesImmediately() {
+        // given
+        trackPointBatchWriter.add(TRACK_ID, TestDataUtil.createTrackPoint(0));
+        contentProviderUtils.failingInserts = 1;
+        trackPointBatchWriter.flush();
+
+        // when
+        trackPointBatchWriter.add(NEXT_TRACK_ID, TestDataUtil.createTrackPoint(1));
+
+        // then
+        assertEquals(1, TestDataUtil.getTrackPoints(contentProviderUtils, TRACK_ID).size());
+    }
+
+    private static class FailingContentProviderUtils extends ContentProviderUtils {
+
+        private int failingInserts = 0;
+
+        FailingContentProviderUtils(Context context) {
+            super(context);
+        }
+
+        @Override
+        public TrackPoint.Id insertTrackPoints(@NonNull List<TrackPoint> trackPoints, @NonNull Track.Id trackId) {
+            if (failingInserts > 0) {
+                failingInserts--;
+                throw new SQLiteException("database is locked");
+            }
+            return super.insertTrackPoints(trackPoints, trackId);
+        }
+    }
+}
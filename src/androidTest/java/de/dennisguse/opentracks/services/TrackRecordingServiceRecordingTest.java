@@ -2,10 +2,12 @@ package de.dennisguse.opentracks.services;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import android.content.Context;
 import android.content.Intent;
 import android.os.Looper;
+import android.util.Pair;
 
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
@@ -44,6 +46,7 @@ import de.dennisguse.opentracks.sensors.sensorData.AggregatorBarometer;
 import de.dennisguse.opentracks.sensors.sensorData.AggregatorHeartRate;
 import de.dennisguse.opentracks.sensors.sensorData.AggregatorRunning;
 import de.dennisguse.opentracks.sensors.sensorData.Raw;
+import de.dennisguse.opentracks.sensors.sensorData.SensorDataSet;
 import de.dennisguse.opentracks.services.handlers.TrackPointCreator;
 import de.dennisguse.opentracks.settings.PreferencesUtils;
 import de.dennisguse.opentracks.stats.TrackStatistics;
@@ -90,6 +93,8 @@ public class TrackRecordingServiceRecordingTest {
         PreferencesUtils.setString(R.string.idle_duration_key, R.string.idle_duration_default);
 
         service = startService();
+        // Store every TrackPoint immediately, so the database can be checked after every TrackPoint.
+        service.getTrackRecordingManager().setMaxBatchSize(1);
     }
 
     @MediumTest
@@ -284,6 +289,29 @@ public class TrackRecordingServiceRecordingTest {
         ), TestDataUtil.getTrackPoints(contentProviderUtils, trackId));
     }
 
+    @MediumTest
+    @Test
+    public void recording_getDataForUI_containsBufferedTrackPoints() {
+        // given
+        TrackPointCreator trackPointCreator = service.getTrackPointCreator();
+        String startTime = "2020-02-02T02:02:02Z";
+        trackPointCreator.setClock(startTime);
+        Track.Id trackId = service.startNewTrack();
+        service.getTrackRecordingManager().setMaxBatchSize(10);
+
+        // when
+        TrackRecordingServiceTestUtils.sendGPSLocation(trackPointCreator, "2020-02-02T02:02:03Z", 45.0, 35.0, 1, 15);
+        TrackRecordingServiceTestUtils.sendGPSLocation(trackPointCreator, "2020-02-02T02:02:04Z", 45.001, 35.0, 1, 15);
+        Pair<Track, Pair<TrackPoint, SensorDataSet>> data = service.getTrackRecordingManager().getDataForUI();
+
+        // then
+        Track storedTrack = contentProviderUtils.getTrack(trackId);
+        assertEquals(trackId, data.first.getId());
+        assertEquals(storedTrack.getName(), data.first.getName());
+        assertEquals(0, storedTrack.getTrackStatistics().getTotalDistance().toM(), 0.01);
+        assertTrue(data.first.getTrackStatistics().getTotalDistance().toM() > 100);
+    }
+
     @MediumTest
     @Test
     public void testRecording_blesensor_only_no_distance() {
@@ -405,6 +433,49 @@ public class TrackRecordingServiceRecordingTest {
         ), TestDataUtil.getTrackPoints(contentProviderUtils, trackId));
     }
 
+    @MediumTest
+    @Test
+    public void testRecording_gpsOnly_batched() {
+        // given
+        service.getTrackRecordingManager().setMaxBatchSize(3);
+
+        String startTime = "2020-02-02T02:02:02Z";
+        TrackPointCreator trackPointCreator = service.getTrackPointCreator();
+        trackPointCreator.setClock(startTime);
+        Track.Id trackId = service.startNewTrack();
+        mockAltitudeChange(trackPointCreator, 0);
+
+        // when
+        String gps1 = "2020-02-02T02:02:03Z";
+        TrackRecordingServiceTestUtils.sendGPSLocation(trackPointCreator, gps1, 45.0, 35.0, 1, 15);
+        String gps2 = "2020-02-02T02:02:06Z";
+        TrackRecordingServiceTestUtils.sendGPSLocation(trackPointCreator, gps2, 45.0001, 35.0, 1, 15);
+
+        // then: buffered
+        assertEquals(1, TestDataUtil.getTrackPoints(contentProviderUtils, trackId).size());
+        assertEquals(new TrackStatistics(startTime, startTime, 0, 0, 0, 0, null, null)
+                , contentProviderUtils.getTrack(trackId).getTrackStatistics());
+
+        // when
+        String gps3 = "2020-02-02T02:02:08Z";
+        TrackRecordingServiceTestUtils.sendGPSLocation(trackPointCreator, gps3, 45.0002, 35.0, 1, 15);
+
+        // then: batch is full
+        assertEquals(4, TestDataUtil.getTrackPoints(contentProviderUtils, trackId).size());
+        assertEquals(new TrackStatistics(startTime, gps3, 22.226356506347656, 6, 6, 15, 0f, 0f)
+                , contentProviderUtils.getTrack(trackId).getTrackStatistics());
+
+        // when
+        String stopTime = "2020-02-02T02:02:12Z";
+        trackPointCreator.setClock(stopTime);
+        service.endCurrentTrack();
+
+        // then
+        assertEquals(5, TestDataUtil.getTrackPoints(contentProviderUtils, trackId).size());
+        assertEquals(new TrackStatistics(startTime, stopTime, 22.226356506347656, 10, 10, 15, 0f, 0f)
+                , contentProviderUtils.getTrack(trackId).getTrackStatistics());
+    }
+
     @MediumTest
     @Test
     public void testRecording_gpsOnly_recordingDistance_below() {
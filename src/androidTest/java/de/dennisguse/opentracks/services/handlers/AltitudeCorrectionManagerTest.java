@@ -0,0 +1,52 @@
+package de.dennisguse.opentracks.services.handlers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+public class AltitudeCorrectionManagerTest {
+
+    private static final double CELL_SIZE = 1.0 / AltitudeCorrectionManager.GRID_CELLS_PER_DEGREE;
+
+    @Test
+    public void toGridCell_sameCell() {
+        assertEquals(AltitudeCorrectionManager.toGridCell(48.25, 11.5), AltitudeCorrectionManager.toGridCell(48.25 + CELL_SIZE / 2, 11.5 + CELL_SIZE / 2));
+    }
+
+    @Test
+    public void toGridCell_cellBoundaries() {
+        // Lower boundary belongs to the cell; upper boundary belongs to the next cell.
+        assertEquals(AltitudeCorrectionManager.toGridCell(48.25, 11.5), AltitudeCorrectionManager.toGridCell(48.255, 11.505));
+        assertNotEquals(AltitudeCorrectionManager.toGridCell(48.25, 11.5), AltitudeCorrectionManager.toGridCell(48.25 - CELL_SIZE / 2, 11.5));
+        assertNotEquals(AltitudeCorrectionManager.toGridCell(48.25, 11.5), AltitudeCorrectionManager.toGridCell(48.25, 11.5 - CELL_SIZE / 2));
+    }
+
+    @Test
+    public void toGridCell_negativeCoordinates() {
+        // Rounded down, i.e., -0.005 is not in the same cell as 0.005.
+        assertNotEquals(AltitudeCorrectionManager.toGridCell(-0.005, 0), AltitudeCorrectionManager.toGridCell(0.005, 0));
+        assertNotEquals(AltitudeCorrectionManager.toGridCell(0, -0.005), AltitudeCorrectionManager.toGridCell(0, 0.005));
+        assertEquals(AltitudeCorrectionManager.toGridCell(-33.75, -70.5), AltitudeCorrectionManager.toGridCell(-33.75 + CELL_SIZE / 2, -70.5 + CELL_SIZE / 2));
+
+        // Latitude and longitude do not overlap.
+        assertNotEquals(AltitudeCorrectionManager.toGridCell(-1, 1), AltitudeCorrectionManager.toGridCell(1, -1));
+        assertNotEquals(AltitudeCorrectionManager.toGridCell(0, -0.005), AltitudeCorrectionManager.toGridCell(-0.005, 0));
+    }
+
+    @Test
+    public void toGridCell_poles() {
+        assertNotEquals(AltitudeCorrectionManager.toGridCell(90, 0), AltitudeCorrectionManager.toGridCell(-90, 0));
+    }
+
+    @Test
+    public void toGridCell_antimeridian() {
+        assertEquals(AltitudeCorrectionManager.toGridCell(10, 180), AltitudeCorrectionManager.toGridCell(10, -180));
+        assertEquals(AltitudeCorrectionManager.toGridCell(10, -180), AltitudeCorrectionManager.toGridCell(10, -180 + CELL_SIZE / 2));
+        assertNotEquals(AltitudeCorrectionManager.toGridCell(10, 180), AltitudeCorrectionManager.toGridCell(10, 180 - CELL_SIZE / 2));
+    }
+}
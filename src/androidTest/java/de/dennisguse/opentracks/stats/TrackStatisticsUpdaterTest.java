@@ -354,6 +354,56 @@ public class TrackStatisticsUpdaterTest {
         assertEquals(55.287, copy.getTrackStatistics().getTotalDistance().toM(), 0.01);
     }
 
+    @Test
+    public void checkpoint_TestingTrack() {
+        // given
+        TestDataUtil.TrackData data = TestDataUtil.createTestingTrack(new Track.Id(1));
+        List<TrackPoint> trackPoints = data.trackPoints();
+
+        TrackStatisticsUpdater expected = new TrackStatisticsUpdater();
+        trackPoints.forEach(expected::addTrackPoint);
+
+        for (int split = 0; split <= trackPoints.size(); split++) {
+            TrackStatisticsUpdater beforeCheckpoint = new TrackStatisticsUpdater();
+            trackPoints.subList(0, split).forEach(beforeCheckpoint::addTrackPoint);
+
+            // when
+            TrackStatisticsUpdater subject = TrackStatisticsUpdater.fromCheckpoint(beforeCheckpoint.toCheckpoint());
+            trackPoints.subList(split, trackPoints.size()).forEach(subject::addTrackPoint);
+
+            // then
+            assertEquals("split at " + split, expected.getTrackStatistics(), subject.getTrackStatistics());
+        }
+    }
+
+    @Test
+    public void copy_TestingTrack() {
+        // given
+        TestDataUtil.TrackData data = TestDataUtil.createTestingTrack(new Track.Id(1));
+        List<TrackPoint> trackPoints = data.trackPoints();
+
+        TrackStatisticsUpdater expected = new TrackStatisticsUpdater();
+        trackPoints.forEach(expected::addTrackPoint);
+
+        for (int split = 0; split <= trackPoints.size(); split++) {
+            TrackStatisticsUpdater beforeCopy = new TrackStatisticsUpdater();
+            trackPoints.subList(0, split).forEach(beforeCopy::addTrackPoint);
+
+            // when
+            TrackStatisticsUpdater subject = new TrackStatisticsUpdater(beforeCopy);
+            trackPoints.subList(split, trackPoints.size()).forEach(subject::addTrackPoint);
+
+            // then
+            assertEquals("split at " + split, expected.getTrackStatistics(), subject.getTrackStatistics());
+        }
+    }
+
+    @Test
+    public void checkpoint_invalid() {
+        assertNull(TrackStatisticsUpdater.fromCheckpoint(new byte[0]));
+        assertNull(TrackStatisticsUpdater.fromCheckpoint(new byte[]{42}));
+    }
+
     public TrackPoint createTrackPoint(double latitude, double longitude, Altitude altitude, Instant time) {
         return new TrackPoint(TrackPoint.Type.TRACKPOINT,
                 new Position(
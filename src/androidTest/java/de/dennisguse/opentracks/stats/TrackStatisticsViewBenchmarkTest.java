@@ -0,0 +1,94 @@
+package de.dennisguse.opentracks.stats;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import de.dennisguse.opentracks.content.data.TestDataUtil;
+import de.dennisguse.opentracks.data.models.TrackPoint;
+
+/**
+ * Compares per-point statistics access via {@link TrackStatisticsUpdater#getTrackStatistics()} (copy per call) and {@link TrackStatisticsView} (like TrackDataHub with several listeners).
+ */
+@RunWith(AndroidJUnit4.class)
+public class TrackStatisticsViewBenchmarkTest {
+
+    private static final String TAG = TrackStatisticsViewBenchmarkTest.class.getSimpleName();
+
+    private static final int NUM_TRACKPOINTS = 100_000;
+    private static final int TRACKPOINTS_PER_SEGMENT = 10_000;
+    private static final int NUM_LISTENERS = 2;
+
+    @Test
+    public void perPointStatistics() {
+        // given
+        List<TrackPoint> trackPoints = new ArrayList<>(NUM_TRACKPOINTS);
+        for (int i = 0; i < NUM_TRACKPOINTS; i++) {
+            trackPoints.add(TestDataUtil.createTrackPoint(i, i % TRACKPOINTS_PER_SEGMENT == 0 ? TrackPoint.Type.SEGMENT_START_MANUAL : TrackPoint.Type.TRACKPOINT));
+        }
+
+        // when: copy per call
+        TrackStatisticsUpdater copying = new TrackStatisticsUpdater();
+        double copyingDistance = 0;
+        long start = System.nanoTime();
+        for (TrackPoint trackPoint : trackPoints) {
+            copying.addTrackPoint(trackPoint);
+            for (int listener = 0; listener < NUM_LISTENERS; listener++) {
+                copyingDistance += copying.getTrackStatistics().getTotalDistance().toM();
+            }
+        }
+        Duration copyingDuration = Duration.ofNanos(System.nanoTime() - start);
+
+        // when: view
+        TrackStatisticsUpdater viewing = new TrackStatisticsUpdater();
+        TrackStatisticsView view = viewing.getTrackStatisticsView();
+        double viewingDistance = 0;
+        start = System.nanoTime();
+        for (TrackPoint trackPoint : trackPoints) {
+            viewing.addTrackPoint(trackPoint);
+            for (int listener = 0; listener < NUM_LISTENERS; listener++) {
+                viewingDistance += view.getTotalDistance().toM();
+            }
+        }
+        Duration viewingDuration = Duration.ofNanos(System.nanoTime() - start);
+
+        Log.i(TAG, "getTrackStatistics(): " + copyingDuration.toMillis() + "ms; TrackStatisticsView: " + viewingDuration.toMillis() + "ms.");
+
+        // then
+        assertEquals(copyingDistance, viewingDistance, 0.01);
+        assertEquals(copying.getTrackStatistics(), view.getTrackStatistics());
+    }
+
+    @Test
+    public void getTrackStatistics_onlyRebuiltAfterChange() {
+        // given
+        TrackStatisticsUpdater subject = new TrackStatisticsUpdater();
+        TrackStatisticsView view = subject.getTrackStatisticsView();
+        subject.addTrackPoint(TestDataUtil.createTrackPoint(0, TrackPoint.Type.SEGMENT_START_MANUAL));
+
+        // when
+        TrackStatistics first = view.getTrackStatistics();
+        TrackStatistics second = view.getTrackStatistics();
+        subject.addTrackPoint(TestDataUtil.createTrackPoint(1));
+        TrackStatistics third = view.getTrackStatistics();
+
+        // then
+        assertSame(first, second);
+        assertNotSame(second, third);
+        assertSame(third, view.getTrackStatistics());
+        assertEquals(subject.getTrackStatistics(), third);
+        assertNotEquals(first, third);
+    }
+}
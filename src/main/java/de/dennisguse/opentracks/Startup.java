@@ -10,6 +10,7 @@ import com.google.android.material.color.DynamicColors;
 
 import java.lang.reflect.Method;
 
+import de.dennisguse.opentracks.data.AltitudeMslMigration;
 import de.dennisguse.opentracks.settings.PreferencesUtils;
 import de.dennisguse.opentracks.util.ExceptionHandler;
 
@@ -39,6 +40,10 @@ public class Startup extends Application {
         if (PreferencesUtils.shouldUseDynamicColors()) {
             DynamicColors.applyToActivitiesIfAvailable(this);
         }
+
+        if (!isCrashReportingProcess()) {
+            AltitudeMslMigration.start(this);
+        }
     }
 
     @Override
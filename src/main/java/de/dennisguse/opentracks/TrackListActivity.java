@@ -19,7 +19,6 @@ package de.dennisguse.opentracks;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences.OnSharedPreferenceChangeListener;
-import android.database.Cursor;
 import android.graphics.drawable.AnimatedVectorDrawable;
 import android.location.LocationManager;
 import android.os.Bundle;
@@ -30,11 +29,14 @@ import android.view.MenuItem;
 import android.view.View;
 import android.widget.Toast;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.content.res.AppCompatResources;
 import androidx.core.content.ContextCompat;
 import androidx.lifecycle.Observer; // Import AndroidX Lifecycle Observer
+import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.button.MaterialButton;
 
@@ -43,7 +45,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Objects;
 
-import de.dennisguse.opentracks.data.ContentProviderUtils;
 import de.dennisguse.opentracks.data.models.Track;
 import de.dennisguse.opentracks.databinding.TrackListBinding;
 import de.dennisguse.opentracks.detectors.VEHICLE_STATE; // Import VEHICLE_STATE
@@ -59,6 +60,7 @@ import de.dennisguse.opentracks.settings.SettingsActivity;
 import de.dennisguse.opentracks.settings.UnitSystem;
 import de.dennisguse.opentracks.share.ShareUtils;
 import de.dennisguse.opentracks.ui.TrackListAdapter;
+import de.dennisguse.opentracks.ui.TrackListModel;
 import de.dennisguse.opentracks.ui.aggregatedStatistics.AggregatedStatisticsActivity;
 import de.dennisguse.opentracks.ui.aggregatedStatistics.ConfirmDeleteDialogFragment;
 import de.dennisguse.opentracks.ui.markers.MarkerListActivity;
@@ -79,6 +81,7 @@ public class TrackListActivity extends AbstractTrackDeleteActivity implements Co
     // The following are set in onCreate
     private TrackRecordingServiceConnection recordingStatusConnection;
     private TrackListAdapter adapter;
+    private TrackListModel viewModel;
 
     private TrackListBinding viewBinding;
 
@@ -192,6 +195,22 @@ public class TrackListActivity extends AbstractTrackDeleteActivity implements Co
         adapter = new TrackListAdapter(this, viewBinding.rvTrackList, recordingStatus, unitSystem);
         viewBinding.rvTrackList.setLayoutManager(layoutManager);
         viewBinding.rvTrackList.setAdapter(adapter);
+        viewBinding.rvTrackList.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                // Load the next page before its end is reached.
+                if (layoutManager.findLastVisibleItemPosition() >= adapter.getItemCount() - TrackListModel.PAGE_SIZE / 2) {
+                    viewModel.loadNextPage();
+                }
+            }
+        });
+
+        viewModel = new ViewModelProvider(this).get(TrackListModel.class);
+        viewModel.getTracks().observe(this, tracks -> {
+            if (adapter != null) {
+                adapter.submitList(tracks);
+            }
+        });
 
         viewBinding.trackListFabAction.setOnClickListener((view) -> {
             if (recordingStatus.isRecording()) {
@@ -270,7 +289,10 @@ public class TrackListActivity extends AbstractTrackDeleteActivity implements Co
         // Update UI
         this.invalidateOptionsMenu();
         // loadData() is called here, which is good for when returning to the activity.
-        // The change in onRecordingStatusChanged will handle immediate updates if already resumed.
+        // While resumed, changes of tracks (e.g., while recording) are loaded by the viewModel.
+        if (viewModel != null) {
+            viewModel.onResume();
+        }
         loadData();
 
         // Float button state is updated via onRecordingStatusChanged -> setFloatButton
@@ -278,6 +300,15 @@ public class TrackListActivity extends AbstractTrackDeleteActivity implements Co
         setFloatButton();
     }
 
+    @Override
+    protected void onPause() {
+        super.onPause();
+
+        if (viewModel != null) {
+            viewModel.onPause();
+        }
+    }
+
     @Override
     protected void onStop() {
         super.onStop();
@@ -368,20 +399,10 @@ public class TrackListActivity extends AbstractTrackDeleteActivity implements Co
         }
 
 
-        Cursor tracks = null;
-        try {
-            ContentProviderUtils contentProviderUtils = new ContentProviderUtils(this);
-            tracks = contentProviderUtils.searchTracks(searchQuery); // This re-queries the database
-        } catch (Exception e) {
-            Log.e(TAG, "Error loading track data from ContentProviderUtils", e);
-            // Optionally, show a message to the user
-        }
-
-
-        if (adapter != null) {
-            adapter.swapData(tracks); // This should update the RecyclerView
+        if (viewModel != null) {
+            viewModel.load(searchQuery); // Loaded in the background; the adapter is updated via getTracks()
         } else {
-            Log.w(TAG, "Adapter is null in loadData. Cannot swap data.");
+            Log.w(TAG, "ViewModel is null in loadData. Cannot load track data.");
         }
     }
 
@@ -505,7 +526,7 @@ public class TrackListActivity extends AbstractTrackDeleteActivity implements Co
         // If recording has just started (transitioned from not recording to recording)
         if (recordingStatus.isRecording() && !TwasRecording) {
             Log.i(TAG, "Recording has just started. Reloading track list data.");
-            loadData(); // This will re-query and call adapter.swapData()
+            loadData(); // This will re-query and call adapter.submitList()
         }
         // Also consider reloading if recording just stopped, to reflect any final track updates.
         // However, typically onResume handles list refresh when returning to this screen.
@@ -40,6 +40,7 @@ import de.dennisguse.opentracks.settings.PreferencesUtils;
 import de.dennisguse.opentracks.settings.UnitSystem;
 import de.dennisguse.opentracks.stats.TrackStatistics;
 import de.dennisguse.opentracks.stats.TrackStatisticsUpdater;
+import de.dennisguse.opentracks.stats.TrackStatisticsView;
 
 /**
  * A fragment to display track chart to the user.
@@ -202,7 +203,13 @@ public class ChartFragment extends Fragment implements TrackDataHub.Listener {
         }
     }
 
-    public void onSampledInTrackPoint(@NonNull TrackPoint trackPoint, @NonNull TrackStatistics trackStatistics) {
+    @Override
+    public boolean requiresAllTrackPoints() {
+        // The chart shows the whole track.
+        return true;
+    }
+
+    public void onSampledInTrackPoint(@NonNull TrackPoint trackPoint, @NonNull TrackStatisticsView trackStatistics) {
         if (isResumed()) {
             ChartPoint point = ChartPoint.create(trackStatistics, trackPoint, trackPoint.getSpeed(), chartByDistance, viewBinding.chartView.getUnitSystem());
             pendingPoints.add(point);
@@ -0,0 +1,131 @@
+package de.dennisguse.opentracks.chart;
+
+import android.graphics.Matrix;
+import android.graphics.Path;
+
+/**
+ * The path of one {@link ChartValueSeries} in screen coordinates.
+ * <p>
+ * Contains the points of the completed buckets of a {@link MinMaxPyramid} level; these are only appended (e.g., while recording).
+ * The points of the last incomplete bucket (tail) may still change and are therefore kept separately.
+ * <p>
+ * The x coordinates are relative to the maxX the path was created for; if maxX grows, the path is scaled on drawing instead of being re-created.
+ */
+class ChartPath {
+
+    // M4: at most first, min, max, and last point of one bucket.
+    private static final int MAX_TAIL_POINTS = 4;
+
+    private final Path line = new Path();
+    private final Path drawPath = new Path();
+    private final Matrix matrix = new Matrix();
+
+    private final float[] tail = new float[2 * MAX_TAIL_POINTS];
+    private int tailSize;
+
+    private boolean hasPoints;
+    private float lastX;
+
+    private int level;
+    private int bucketCount;
+    private double maxX = 1.0;
+    private float originX;
+    private float yCorner;
+
+    /**
+     * Removes all points.
+     *
+     * @param level   the level of the {@link MinMaxPyramid} used for this path
+     * @param maxX    the maxX used to compute the x coordinates
+     * @param originX the x coordinate of value 0
+     * @param yCorner the lower y coordinate of the graph area
+     */
+    void reset(int level, double maxX, float originX, float yCorner) {
+        line.rewind();
+        tailSize = 0;
+        hasPoints = false;
+        bucketCount = 0;
+        this.level = level;
+        this.maxX = maxX;
+        this.originX = originX;
+        this.yCorner = yCorner;
+    }
+
+    int getLevel() {
+        return level;
+    }
+
+    double getMaxX() {
+        return maxX;
+    }
+
+    /**
+     * @return number of buckets of the {@link MinMaxPyramid} level that were already added.
+     */
+    int getBucketCount() {
+        return bucketCount;
+    }
+
+    void setBucketCount(int bucketCount) {
+        this.bucketCount = bucketCount;
+    }
+
+    void add(float x, float y) {
+        // start from lower left corner
+        if (!hasPoints) {
+            line.moveTo(x, yCorner);
+            hasPoints = true;
+        }
+        line.lineTo(x, y);
+        lastX = x;
+    }
+
+    void clearTail() {
+        tailSize = 0;
+    }
+
+    void addTail(float x, float y) {
+        if (tailSize == MAX_TAIL_POINTS) {
+            return;
+        }
+        tail[2 * tailSize] = x;
+        tail[2 * tailSize + 1] = y;
+        tailSize++;
+    }
+
+    /**
+     * Returns the closed path to be drawn.
+     * The returned instance is re-used.
+     *
+     * @param currentMaxX the maxX of the chart
+     */
+    Path get(double currentMaxX) {
+        drawPath.set(line);
+
+        boolean started = hasPoints;
+        float finalX = lastX;
+        for (int i = 0; i < tailSize; i++) {
+            float x = tail[2 * i];
+            if (!started) {
+                drawPath.moveTo(x, yCorner);
+                started = true;
+            }
+            drawPath.lineTo(x, tail[2 * i + 1]);
+            finalX = x;
+        }
+
+        // last point: move to lower right
+        if (started) {
+            drawPath.lineTo(finalX, yCorner);
+        }
+
+        // back to lower left corner
+        drawPath.close();
+
+        if (currentMaxX != maxX && currentMaxX > 0) {
+            matrix.setScale((float) (maxX / currentMaxX), 1, originX, 0);
+            drawPath.transform(matrix);
+        }
+        return drawPath;
+    }
+}
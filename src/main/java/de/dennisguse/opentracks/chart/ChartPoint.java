@@ -2,11 +2,14 @@ package de.dennisguse.opentracks.chart;
 
 import androidx.annotation.NonNull;
 
+import java.time.Duration;
+
 import de.dennisguse.opentracks.data.models.Distance;
 import de.dennisguse.opentracks.data.models.Speed;
 import de.dennisguse.opentracks.data.models.TrackPoint;
 import de.dennisguse.opentracks.settings.UnitSystem;
 import de.dennisguse.opentracks.stats.TrackStatistics;
+import de.dennisguse.opentracks.stats.TrackStatisticsView;
 
 public record ChartPoint(
         //X-axis
@@ -23,10 +26,18 @@ public record ChartPoint(
 
 
     public static ChartPoint create(@NonNull TrackStatistics trackStatistics, @NonNull TrackPoint trackPoint, Speed smoothedSpeed, boolean chartByDistance, UnitSystem unitSystem) {
+        return create(trackStatistics.getTotalDistance(), trackStatistics.getTotalTime(), trackPoint, smoothedSpeed, chartByDistance, unitSystem);
+    }
+
+    public static ChartPoint create(@NonNull TrackStatisticsView trackStatistics, @NonNull TrackPoint trackPoint, Speed smoothedSpeed, boolean chartByDistance, UnitSystem unitSystem) {
+        return create(trackStatistics.getTotalDistance(), trackStatistics.getTotalTime(), trackPoint, smoothedSpeed, chartByDistance, unitSystem);
+    }
+
+    private static ChartPoint create(@NonNull Distance totalDistance, @NonNull Duration totalTime, @NonNull TrackPoint trackPoint, Speed smoothedSpeed, boolean chartByDistance, UnitSystem unitSystem) {
         return new ChartPoint(
                 chartByDistance
-                        ? trackStatistics.getTotalDistance().toKM_Miles(unitSystem)
-                        : trackStatistics.getTotalTime().toMillis(),
+                        ? totalDistance.toKM_Miles(unitSystem)
+                        : totalTime.toMillis(),
                 trackPoint.hasAltitude()
                         ? Distance.of(trackPoint.getAltitude().toM()).toM_FT(unitSystem)
                         : null,
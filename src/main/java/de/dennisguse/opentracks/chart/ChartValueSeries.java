@@ -52,7 +52,8 @@ abstract class ChartValueSeries {
     private final Paint markerPaint;
     private final ExtremityMonitor extremityMonitor = new ExtremityMonitor();
     private final NumberFormat numberFormat = NumberFormat.getIntegerInstance();
-    private final Path path = new Path();
+    private final ChartPath path = new ChartPath();
+    private final MinMaxPyramid pyramid = new MinMaxPyramid();
 
     private int interval = 1;
     private int minMarkerValue = 0;
@@ -120,10 +121,25 @@ abstract class ChartValueSeries {
      */
     void update(ChartPoint chartPoint) {
         if (isChartPointValid(chartPoint)) {
-            extremityMonitor.update(extractDataFromChartPoint(chartPoint));
+            double value = extractDataFromChartPoint(chartPoint);
+            extremityMonitor.update(value);
+            pyramid.add(chartPoint.timeOrDistance(), value);
+        } else {
+            pyramid.add(chartPoint.timeOrDistance(), Double.NaN);
         }
     }
 
+    /**
+     * Removes all {@link ChartPoint}s (keeps the y axis dimension).
+     */
+    void clearChartPoints() {
+        pyramid.clear();
+    }
+
+    MinMaxPyramid getPyramid() {
+        return pyramid;
+    }
+
     abstract Double extractDataFromChartPoint(@NonNull ChartPoint chartPoint);
 
     boolean isChartPointValid(@NonNull ChartPoint chartPoint) {
@@ -132,21 +148,27 @@ abstract class ChartValueSeries {
 
     protected abstract boolean drawIfChartPointHasNoData();
 
-    Path getPath() {
+    ChartPath getPath() {
         return path;
     }
 
-    void drawPath(Canvas canvas, boolean shouldFillPathArea) {
+    void drawPath(Canvas canvas, boolean shouldFillPathArea, double maxX) {
+        Path drawPath = path.get(maxX);
         if (shouldFillPathArea) {
-            canvas.drawPath(path, fillPaint);
+            canvas.drawPath(drawPath, fillPaint);
         }
-        canvas.drawPath(path, strokePaint);
+        canvas.drawPath(drawPath, strokePaint);
     }
 
     /**
      * Updates the y axis dimension.
+     *
+     * @return true if the y axis changed.
      */
-    void updateDimension() {
+    boolean updateDimension() {
+        int oldInterval = interval;
+        int oldMinMarkerValue = minMarkerValue;
+
         double min = hasData() ? extremityMonitor.getMin() : 0.0;
         double max = hasData() ? extremityMonitor.getMax() : 1.0;
         min = Math.max(min, absoluteMin);
@@ -154,6 +176,7 @@ abstract class ChartValueSeries {
         interval = getInterval(min, max);
         minMarkerValue = getMinMarkerValue(min, interval);
         maxMarkerValue = minMarkerValue + interval * ChartView.Y_AXIS_INTERVALS;
+        return interval != oldInterval || minMarkerValue != oldMinMarkerValue;
     }
 
     /**
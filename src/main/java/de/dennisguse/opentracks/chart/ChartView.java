@@ -23,7 +23,6 @@ import android.graphics.DashPathEffect;
 import android.graphics.Paint;
 import android.graphics.Paint.Align;
 import android.graphics.Paint.Style;
-import android.graphics.Path;
 import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
 import android.util.AttributeSet;
@@ -91,7 +90,9 @@ public class ChartView extends View {
     private final ChartValueSeries paceSeries;
     private final ChartValueSeries heartRateSeries;
 
-    private final LinkedList<ChartPoint> chartPoints = new LinkedList<>();
+    private final Object chartPointsLock = new Object();
+    private ChartPoint lastChartPoint = null;
+    private final PathBuilder pathBuilder = new PathBuilder();
     private final List<Marker> markers = new LinkedList<>();
     private final ExtremityMonitor xExtremityMonitor = new ExtremityMonitor();
     private final int backgroundColor;
@@ -437,16 +438,20 @@ public class ChartView extends View {
     }
 
     public void addChartPoints(List<ChartPoint> dataPoints) {
-        synchronized (chartPoints) {
-            chartPoints.addAll(dataPoints);
+        synchronized (chartPointsLock) {
             for (ChartPoint dataPoint : dataPoints) {
                 xExtremityMonitor.update(dataPoint.timeOrDistance());
                 for (ChartValueSeries i : seriesList) {
                     i.update(dataPoint);
                 }
+                lastChartPoint = dataPoint;
+            }
+            boolean rescaled = updateDimensions();
+            if (rescaled || zoomLevel != MIN_ZOOM_LEVEL || getScrollX() != 0) {
+                updateSeries();
+            } else {
+                appendSeries();
             }
-            updateDimensions();
-            updateSeries();
         }
     }
 
@@ -454,8 +459,11 @@ public class ChartView extends View {
      * Clears all data.
      */
     public void reset() {
-        synchronized (chartPoints) {
-            chartPoints.clear();
+        synchronized (chartPointsLock) {
+            lastChartPoint = null;
+            for (ChartValueSeries series : seriesList) {
+                series.clearChartPoints();
+            }
             xExtremityMonitor.reset();
             zoomLevel = 1;
             updateDimensions();
@@ -572,6 +580,17 @@ public class ChartView extends View {
         }
     }
 
+    /**
+     * The paths only contain the visible part of the chart; so these need to be updated.
+     */
+    @Override
+    protected void onScrollChanged(int l, int t, int oldl, int oldt) {
+        super.onScrollChanged(l, t, oldl, oldt);
+        if (l != oldl) {
+            updateSeries();
+        }
+    }
+
     @Override
     public boolean onTouchEvent(MotionEvent event) {
         boolean isZoom = detectorZoom.onTouchEvent(event);
@@ -591,7 +610,7 @@ public class ChartView extends View {
 
     @Override
     protected void onDraw(Canvas canvas) {
-        synchronized (chartPoints) {
+        synchronized (chartPointsLock) {
             canvas.save();
 
             canvas.drawColor(backgroundColor);
@@ -635,7 +654,7 @@ public class ChartView extends View {
     private void drawDataSeries(Canvas canvas) {
         for (ChartValueSeries chartValueSeries : seriesList) {
             if (chartValueSeries.isEnabled() && chartValueSeries.hasData()) {
-                chartValueSeries.drawPath(canvas, titleDimensions.titlePositions.size() < 3 );
+                chartValueSeries.drawPath(canvas, titleDimensions.titlePositions.size() < 3, maxX);
             }
         }
     }
@@ -871,10 +890,10 @@ public class ChartView extends View {
     }
 
     private void drawPointer(Canvas canvas) {
-        if (chartPoints.isEmpty()) {
+        if (lastChartPoint == null) {
             return;
         }
-        ChartPoint last = chartPoints.getLast();
+        ChartPoint last = lastChartPoint;
 
         ChartValueSeries firstChartValueSeries = null;
         for (ChartValueSeries chartValueSeries : seriesList) {
@@ -883,7 +902,7 @@ public class ChartView extends View {
                 break;
             }
         }
-        if (firstChartValueSeries != null && chartPoints.size() > 0) {
+        if (firstChartValueSeries != null) {
             int dx = getX(maxX) - pointer.getIntrinsicWidth() / 2;
             double value = firstChartValueSeries.extractDataFromChartPoint(last);
             int dy = getY(firstChartValueSeries, value) - pointer.getIntrinsicHeight();
@@ -896,48 +915,98 @@ public class ChartView extends View {
      * The path needs to be updated any time after the data or the dimensions change.
      */
     private void updateSeries() {
-        synchronized (chartPoints) {
+        synchronized (chartPointsLock) {
             seriesList.stream().forEach(this::updateSerie);
         }
     }
 
+    /**
+     * Only the visible part is added to the path; from the level of {@link MinMaxPyramid} with about one bucket per pixel column.
+     */
     private void updateSerie(ChartValueSeries series) {
-        final int yCorner = topBorder + effectiveHeight;
-        final Path path = series.getPath();
+        final ChartPath path = series.getPath();
+        final MinMaxPyramid pyramid = series.getPyramid();
 
-        boolean drawFirstPoint = false;
-        path.rewind();
+        int level = getLevel(pyramid);
+        path.reset(level, maxX, leftBorder, topBorder + effectiveHeight);
+        if (pyramid.size() == 0 || effectiveWidth == 0) {
+            return;
+        }
 
-        Integer finalX = null;
+        int fromBucket = pyramid.getFromBucket(level, getValue(getScrollX() + leftBorder));
+        int toBucket = pyramid.getToBucket(level, getValue(getScrollX() + leftBorder + effectiveWidth));
+        int completeBucket = Math.min(toBucket, pyramid.getCompleteBucketCount(level));
 
-        for (ChartPoint point : chartPoints) {
-            if (!series.isChartPointValid(point)) {
-                continue;
-            }
+        pathBuilder.reset(series, false);
+        pyramid.forEachBucket(level, fromBucket, completeBucket, pathBuilder);
+        path.setBucketCount(completeBucket);
 
-            double value = series.extractDataFromChartPoint(point);
-            int x = getX(point.timeOrDistance());
-            int y = getY(series, value);
+        pathBuilder.reset(series, true);
+        pyramid.forEachBucket(level, Math.max(fromBucket, completeBucket), toBucket, pathBuilder);
+    }
 
-            // start from lower left corner
-            if (!drawFirstPoint) {
-                path.moveTo(x, yCorner);
-                drawFirstPoint = true;
-            }
+    /**
+     * Only adds the new points to the paths (e.g., while recording).
+     * Requires that the whole chart is visible and that the axes did not change (except maxX).
+     */
+    private void appendSeries() {
+        synchronized (chartPointsLock) {
+            for (ChartValueSeries series : seriesList) {
+                final ChartPath path = series.getPath();
+                final MinMaxPyramid pyramid = series.getPyramid();
+
+                int level = getLevel(pyramid);
+                if (level != path.getLevel() || path.getMaxX() <= 0) {
+                    updateSerie(series);
+                    continue;
+                }
 
-            // draw graph
-            path.lineTo(x, y);
+                int completeBucket = pyramid.getCompleteBucketCount(level);
+                pathBuilder.reset(series, false);
+                pyramid.forEachBucket(level, path.getBucketCount(), completeBucket, pathBuilder);
+                path.setBucketCount(completeBucket);
 
-            finalX = x;
+                path.clearTail();
+                pathBuilder.reset(series, true);
+                pyramid.forEachBucket(level, completeBucket, completeBucket + 1, pathBuilder);
+            }
         }
+    }
 
-        // last point: move to lower right
-        if (finalX != null) {
-            path.lineTo(finalX, yCorner);
+    private int getLevel(MinMaxPyramid pyramid) {
+        if (effectiveWidth == 0) {
+            return 0;
         }
+        return pyramid.getLevel((double) pyramid.size() / (effectiveWidth * zoomLevel));
+    }
 
-        // back to lower left corner
-        path.close();
+    /**
+     * Adds the points of a {@link ChartValueSeries} to its {@link ChartPath} (without allocating per point).
+     * The x coordinates are computed for the maxX of the {@link ChartPath}.
+     */
+    private class PathBuilder implements MinMaxPyramid.PointConsumer {
+        private ChartValueSeries series;
+        private ChartPath path;
+        private double xScale;
+        private boolean tail;
+
+        void reset(ChartValueSeries series, boolean tail) {
+            this.series = series;
+            this.path = series.getPath();
+            this.xScale = path.getMaxX() > 0 ? effectiveWidth * zoomLevel / path.getMaxX() : 0;
+            this.tail = tail;
+        }
+
+        @Override
+        public void accept(double timeOrDistance, double value) {
+            float x = (float) (leftBorder + timeOrDistance * xScale);
+            int y = getY(series, value);
+            if (tail) {
+                path.addTail(x, y);
+            } else {
+                path.add(x, y);
+            }
+        }
     }
 
     /// expected number of Y-axis markers on the first line if the Y-axis markers are split to two lines
@@ -946,11 +1015,20 @@ public class ChartView extends View {
     }
     /**
      * Updates the chart dimensions.
+     *
+     * @return true if the y axes or the borders changed (i.e., paths must be re-created); a changed maxX is not considered.
      */
-    private void updateDimensions() {
+    private boolean updateDimensions() {
+        int oldLeftBorder = leftBorder;
+        int oldTopBorder = topBorder;
+        int oldEffectiveWidth = effectiveWidth;
+        int oldEffectiveHeight = effectiveHeight;
+        int oldYAxisOffset = yAxisOffset;
+
         maxX = xExtremityMonitor.hasData() ? xExtremityMonitor.getMax() : 1.0;
+        boolean yAxisChanged = false;
         for (ChartValueSeries chartValueSeries : seriesList) {
-            chartValueSeries.updateDimension();
+            yAxisChanged |= chartValueSeries.updateDimension();
         }
         float density = getResources().getDisplayMetrics().density;
         spacer = (int) (density * SPACER);
@@ -986,6 +1064,9 @@ public class ChartView extends View {
         leftBorder = (int) (density * BORDER + allMarkerLength);
         rightBorder = (int) (density * BORDER + spacer);
         updateEffectiveDimensions();
+
+        return yAxisChanged || leftBorder != oldLeftBorder || topBorder != oldTopBorder
+                || effectiveWidth != oldEffectiveWidth || effectiveHeight != oldEffectiveHeight || yAxisOffset != oldYAxisOffset;
     }
 
     /**
@@ -1024,6 +1105,18 @@ public class ChartView extends View {
         return leftBorder + (int) (percentage * effectiveWidth * zoomLevel);
     }
 
+    /**
+     * Gets the value for a x position (inverse of {@link #getX(double)}).
+     *
+     * @param x the x position
+     */
+    private double getValue(int x) {
+        if (effectiveWidth == 0) {
+            return 0;
+        }
+        return (double) (x - leftBorder) / (effectiveWidth * zoomLevel) * maxX;
+    }
+
     /**
      * Gets the y position for a value in a chart value series
      *
@@ -1053,7 +1146,7 @@ public class ChartView extends View {
      * Returns true if the index is allowed when the chartData is empty.
      */
     private boolean allowIfEmpty(ChartValueSeries chartValueSeries) {
-        if (!chartPoints.isEmpty()) {
+        if (lastChartPoint != null) {
             return false;
         }
 
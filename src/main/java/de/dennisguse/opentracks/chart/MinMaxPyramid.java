@@ -0,0 +1,210 @@
+package de.dennisguse.opentracks.chart;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Multi-resolution (level of detail) index over the values of one {@link ChartValueSeries}.
+ * <p>
+ * Level 0 contains every point; a bucket of level k contains 2^k consecutive points and keeps its first, minimum, maximum, and last point (M4 aggregation).
+ * Drawing the buckets of a level with about one bucket per pixel column preserves peaks, but only needs work proportional to the visible pixel columns.
+ * <p>
+ * Points must be added in order of x (i.e., time or distance); points without value are stored as NaN and skipped.
+ * Not thread-safe.
+ */
+class MinMaxPyramid {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private static final int NONE = -1;
+
+    interface PointConsumer {
+        void accept(double x, double y);
+    }
+
+    private double[] xs = new double[INITIAL_CAPACITY];
+    private double[] ys = new double[INITIAL_CAPACITY];
+    private int size;
+
+    // levels.get(k - 1) is level k.
+    private final List<Level> levels = new ArrayList<>();
+
+    private final int[] bucketIndexes = new int[4];
+
+    void add(double x, double y) {
+        if (size == xs.length) {
+            xs = Arrays.copyOf(xs, size * 2);
+            ys = Arrays.copyOf(ys, size * 2);
+        }
+        int i = size;
+        xs[i] = x;
+        ys[i] = y;
+        size++;
+
+        for (int k = 1; k <= levels.size(); k++) {
+            levels.get(k - 1).add(i >> k, i);
+        }
+
+        // Add a new level as soon as the highest level has two buckets.
+        if (size > (1 << levels.size())) {
+            Level level = new Level();
+            int k = levels.size() + 1;
+            for (int j = 0; j < size; j++) {
+                level.add(j >> k, j);
+            }
+            levels.add(level);
+        }
+    }
+
+    void clear() {
+        size = 0;
+        levels.clear();
+    }
+
+    int size() {
+        return size;
+    }
+
+    @VisibleForTesting
+    int getLevelCount() {
+        return levels.size() + 1;
+    }
+
+    /**
+     * @return the coarsest level whose buckets contain at most pointsPerBucket points.
+     */
+    int getLevel(double pointsPerBucket) {
+        int level = 0;
+        while (level < levels.size() && (1 << (level + 1)) <= pointsPerBucket) {
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * @return the number of buckets of the level that contain all their points (i.e., will not change anymore).
+     */
+    int getCompleteBucketCount(int level) {
+        return size >> level;
+    }
+
+    /**
+     * @return the first bucket of the level to provide the points for [x, ...]; includes the point before x.
+     */
+    int getFromBucket(int level, double x) {
+        return Math.max(0, lowerBound(x) - 1) >> level;
+    }
+
+    /**
+     * @return the bucket after the last bucket of the level to provide the points for [..., x]; includes the point after x.
+     */
+    int getToBucket(int level, double x) {
+        if (size == 0) {
+            return 0;
+        }
+        return (Math.min(size - 1, lowerBound(x) + 1) >> level) + 1;
+    }
+
+    /**
+     * Provides the points of all buckets (of the level) that overlap [fromX, toX] in order of x.
+     * Includes the bucket before and after this range, so that a path continues to the edges.
+     */
+    void forEach(int level, double fromX, double toX, PointConsumer consumer) {
+        forEachBucket(level, getFromBucket(level, fromX), getToBucket(level, toX), consumer);
+    }
+
+    /**
+     * Provides the points of the buckets [fromBucket, toBucket) of the level in order of x.
+     */
+    void forEachBucket(int level, int fromBucket, int toBucket, PointConsumer consumer) {
+        if (level == 0) {
+            for (int i = fromBucket; i < Math.min(toBucket, size); i++) {
+                if (!Double.isNaN(ys[i])) {
+                    consumer.accept(xs[i], ys[i]);
+                }
+            }
+            return;
+        }
+
+        Level l = levels.get(level - 1);
+        for (int bucket = fromBucket; bucket < Math.min(toBucket, l.bucketCount); bucket++) {
+            if (l.first[bucket] == NONE) {
+                continue;
+            }
+            bucketIndexes[0] = l.first[bucket];
+            bucketIndexes[1] = l.min[bucket];
+            bucketIndexes[2] = l.max[bucket];
+            bucketIndexes[3] = l.last[bucket];
+            Arrays.sort(bucketIndexes);
+
+            int previous = NONE;
+            for (int i : bucketIndexes) {
+                if (i != previous) {
+                    consumer.accept(xs[i], ys[i]);
+                    previous = i;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return index of the first point with x >= value (or size).
+     */
+    private int lowerBound(double value) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (xs[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private class Level {
+        private int[] first = new int[INITIAL_CAPACITY];
+        private int[] last = new int[INITIAL_CAPACITY];
+        private int[] min = new int[INITIAL_CAPACITY];
+        private int[] max = new int[INITIAL_CAPACITY];
+        private int bucketCount;
+
+        void add(int bucket, int i) {
+            if (bucket == bucketCount) {
+                if (bucketCount == first.length) {
+                    first = Arrays.copyOf(first, bucketCount * 2);
+                    last = Arrays.copyOf(last, bucketCount * 2);
+                    min = Arrays.copyOf(min, bucketCount * 2);
+                    max = Arrays.copyOf(max, bucketCount * 2);
+                }
+                first[bucket] = NONE;
+                last[bucket] = NONE;
+                min[bucket] = NONE;
+                max[bucket] = NONE;
+                bucketCount++;
+            }
+
+            double y = ys[i];
+            if (Double.isNaN(y)) {
+                return;
+            }
+            if (first[bucket] == NONE) {
+                first[bucket] = i;
+                min[bucket] = i;
+                max[bucket] = i;
+            }
+            last[bucket] = i;
+            if (y < ys[min[bucket]]) {
+                min[bucket] = i;
+            }
+            if (y > ys[max[bucket]]) {
+                max[bucket] = i;
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package de.dennisguse.opentracks.data;
+
+import android.content.Context;
+import android.os.Process;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import de.dennisguse.opentracks.data.models.TrackPoint;
+import de.dennisguse.opentracks.data.tables.TrackPointsColumns;
+import de.dennisguse.opentracks.services.handlers.AltitudeCorrectionManager;
+
+/**
+ * Computes the EGM2008 altitude for stored TrackPoints in background and stores it in {@link TrackPointsColumns#ALTITUDE_MSL}.
+ * Afterwards, reading a track does not require the (expensive) altitude conversion anymore.
+ * <p>
+ * TrackPoints are processed in chunks ordered by id; each chunk is stored in one transaction without notifying observers (the altitude does not change, it is only stored converted).
+ * Started on app start, after a recording ended, and after an import; TrackPoints that cannot be converted are retried on next start.
+ */
+public class AltitudeMslMigration {
+
+    private static final String TAG = AltitudeMslMigration.class.getSimpleName();
+
+    private static final int CHUNK_SIZE = 500;
+
+    private static final AtomicBoolean RUNNING = new AtomicBoolean(false);
+    // Requested while running; so, TrackPoints stored meanwhile are processed as well.
+    private static final AtomicBoolean REQUESTED = new AtomicBoolean(false);
+
+    private AltitudeMslMigration() {
+    }
+
+    /**
+     * Starts the migration in a background thread; if already running, it is run once more afterwards.
+     */
+    public static void start(@NonNull Context context) {
+        REQUESTED.set(true);
+        if (!RUNNING.compareAndSet(false, true)) {
+            Log.d(TAG, "Already running; running again afterwards.");
+            return;
+        }
+
+        Context applicationContext = context.getApplicationContext();
+        new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            do {
+                try {
+                    while (REQUESTED.getAndSet(false)) {
+                        run(applicationContext);
+                    }
+                } finally {
+                    RUNNING.set(false);
+                }
+                // start() may have been called after the last check, but before RUNNING was reset.
+            } while (REQUESTED.get() && RUNNING.compareAndSet(false, true));
+        }, TAG).start();
+    }
+
+    private static void run(Context context) {
+        AltitudeCorrectionManager altitudeCorrectionManager = new AltitudeCorrectionManager();
+        int totalUpdated = run(new ContentProviderUtils(context), trackPoints -> altitudeCorrectionManager.correctAltitudes(context, trackPoints), CHUNK_SIZE);
+        Log.i(TAG, "Stored altitude_msl for " + totalUpdated + " TrackPoints.");
+    }
+
+    /**
+     * @param altitudeConverter converts the altitude of the TrackPoints to EGM2008 (if possible).
+     * @return number of updated TrackPoints.
+     */
+    @VisibleForTesting
+    static int run(ContentProviderUtils contentProviderUtils, Consumer<List<TrackPoint>> altitudeConverter, int chunkSize) {
+        TrackPoint.Id lastTrackPointId = null;
+        int totalUpdated = 0;
+        while (true) {
+            List<TrackPoint> trackPoints = contentProviderUtils.getTrackPointsWithoutAltitudeMsl(lastTrackPointId, chunkSize);
+            if (trackPoints.isEmpty()) {
+                break;
+            }
+            lastTrackPointId = trackPoints.get(trackPoints.size() - 1).getId();
+
+            altitudeConverter.accept(trackPoints);
+            int updated = contentProviderUtils.updateAltitudeMsl(trackPoints);
+            if (updated == 0) {
+                Log.w(TAG, "Altitude conversion not available; stopping.");
+                break;
+            }
+            totalUpdated += updated;
+        }
+        return totalUpdated;
+    }
+}
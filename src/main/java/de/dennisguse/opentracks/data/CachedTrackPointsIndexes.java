@@ -6,6 +6,7 @@ import de.dennisguse.opentracks.data.tables.TrackPointsColumns;
 
 /**
  * A cache of track points indexes.
+ * Except for id, type, and time, columns may be missing in the projection (index -1); their values are not set.
  */
 class CachedTrackPointsIndexes {
     final int idIndex;
@@ -24,23 +25,33 @@ class CachedTrackPointsIndexes {
     final int sensorPowerIndex;
     final int altitudeGainIndex;
     final int altitudeLossIndex;
+    // -1 if the altitude (WGS84) should be used.
+    final int altitudeMslIndex;
 
     CachedTrackPointsIndexes(Cursor cursor) {
+        this(cursor, false);
+    }
+
+    /**
+     * @param altitudeMsl use the stored EGM2008 altitude if available.
+     */
+    CachedTrackPointsIndexes(Cursor cursor, boolean altitudeMsl) {
         idIndex = cursor.getColumnIndex(TrackPointsColumns._ID);
         typeIndex = cursor.getColumnIndex(TrackPointsColumns.TYPE);
-        longitudeIndex = cursor.getColumnIndexOrThrow(TrackPointsColumns.LONGITUDE);
-        latitudeIndex = cursor.getColumnIndexOrThrow(TrackPointsColumns.LATITUDE);
+        longitudeIndex = cursor.getColumnIndex(TrackPointsColumns.LONGITUDE);
+        latitudeIndex = cursor.getColumnIndex(TrackPointsColumns.LATITUDE);
         timeIndex = cursor.getColumnIndexOrThrow(TrackPointsColumns.TIME);
-        altitudeIndex = cursor.getColumnIndexOrThrow(TrackPointsColumns.ALTITUDE);
-        accuracyIndex = cursor.getColumnIndexOrThrow(TrackPointsColumns.HORIZONTAL_ACCURACY);
-        accuracyVerticalIndex = cursor.getColumnIndexOrThrow(TrackPointsColumns.VERTICAL_ACCURACY);
-        speedIndex = cursor.getColumnIndexOrThrow(TrackPointsColumns.SPEED);
-        bearingIndex = cursor.getColumnIndexOrThrow(TrackPointsColumns.BEARING);
-        sensorHeartRateIndex = cursor.getColumnIndexOrThrow(TrackPointsColumns.SENSOR_HEARTRATE);
-        sensorCadenceIndex = cursor.getColumnIndexOrThrow(TrackPointsColumns.SENSOR_CADENCE);
-        sensorDistanceIndex = cursor.getColumnIndexOrThrow(TrackPointsColumns.SENSOR_DISTANCE);
-        sensorPowerIndex = cursor.getColumnIndexOrThrow(TrackPointsColumns.SENSOR_POWER);
-        altitudeGainIndex = cursor.getColumnIndexOrThrow(TrackPointsColumns.ALTITUDE_GAIN);
-        altitudeLossIndex = cursor.getColumnIndexOrThrow(TrackPointsColumns.ALTITUDE_LOSS);
+        altitudeIndex = cursor.getColumnIndex(TrackPointsColumns.ALTITUDE);
+        accuracyIndex = cursor.getColumnIndex(TrackPointsColumns.HORIZONTAL_ACCURACY);
+        accuracyVerticalIndex = cursor.getColumnIndex(TrackPointsColumns.VERTICAL_ACCURACY);
+        speedIndex = cursor.getColumnIndex(TrackPointsColumns.SPEED);
+        bearingIndex = cursor.getColumnIndex(TrackPointsColumns.BEARING);
+        sensorHeartRateIndex = cursor.getColumnIndex(TrackPointsColumns.SENSOR_HEARTRATE);
+        sensorCadenceIndex = cursor.getColumnIndex(TrackPointsColumns.SENSOR_CADENCE);
+        sensorDistanceIndex = cursor.getColumnIndex(TrackPointsColumns.SENSOR_DISTANCE);
+        sensorPowerIndex = cursor.getColumnIndex(TrackPointsColumns.SENSOR_POWER);
+        altitudeGainIndex = cursor.getColumnIndex(TrackPointsColumns.ALTITUDE_GAIN);
+        altitudeLossIndex = cursor.getColumnIndex(TrackPointsColumns.ALTITUDE_LOSS);
+        altitudeMslIndex = altitudeMsl ? cursor.getColumnIndexOrThrow(TrackPointsColumns.ALTITUDE_MSL) : -1;
     }
 }
@@ -16,13 +16,19 @@
 
 package de.dennisguse.opentracks.data;
 
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentResolver;
 import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.Context;
+import android.content.OperationApplicationException;
 import android.database.Cursor;
+import android.database.sqlite.SQLiteException;
 import android.net.Uri;
+import android.os.RemoteException;
 import android.text.TextUtils;
+import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -34,8 +40,12 @@ import java.time.Instant;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import de.dennisguse.opentracks.BuildConfig;
@@ -49,12 +59,20 @@ import de.dennisguse.opentracks.data.models.Position;
 import de.dennisguse.opentracks.data.models.Power;
 import de.dennisguse.opentracks.data.models.Speed;
 import de.dennisguse.opentracks.data.models.Track;
+import de.dennisguse.opentracks.data.models.TrackListItem;
 import de.dennisguse.opentracks.data.models.TrackPoint;
+import de.dennisguse.opentracks.data.models.TrackRollup;
+import de.dennisguse.opentracks.data.tables.ImportingTracksColumns;
 import de.dennisguse.opentracks.data.tables.MarkerColumns;
+import de.dennisguse.opentracks.data.tables.MarkersFtsColumns;
+import de.dennisguse.opentracks.data.tables.RecordingTracksColumns;
 import de.dennisguse.opentracks.data.tables.TrackPointsColumns;
+import de.dennisguse.opentracks.data.tables.TrackRollupsColumns;
 import de.dennisguse.opentracks.data.tables.TracksColumns;
+import de.dennisguse.opentracks.data.tables.TracksFtsColumns;
 import de.dennisguse.opentracks.stats.SensorStatistics;
 import de.dennisguse.opentracks.stats.TrackStatistics;
+import de.dennisguse.opentracks.stats.TrackStatisticsCheckpoint;
 import de.dennisguse.opentracks.ui.markers.MarkerUtils;
 import de.dennisguse.opentracks.util.FileUtils;
 
@@ -76,6 +94,10 @@ public class ContentProviderUtils {
 
     private static final String ID_SEPARATOR = ",";
 
+    // Updates via this URI do not notify observers (see CustomContentProvider#update()).
+    static final String QUERY_PARAMETER_NOTIFY = "notify";
+    private static final Uri UPDATE_URI_WITHOUT_NOTIFICATION = TrackPointsColumns.CONTENT_URI_BY_ID.buildUpon().appendQueryParameter(QUERY_PARAMETER_NOTIFY, Boolean.FALSE.toString()).build();
+
     private final ContentResolver contentResolver;
 
     public interface ContentProviderSelectionInterface {
@@ -229,34 +251,215 @@ public class ContentProviderUtils {
         return tracks;
     }
 
-    public Cursor searchTracks(String searchQuery) {
-        // Needed, because MARKER_COUNT is a virtual column and has to be explicitly requested.
-        // Used only be TrackListAdapter
-        final String[] PROJECTION = new String[]{
-                TracksColumns._ID,
-                TracksColumns.NAME,
-                TracksColumns.DESCRIPTION, //TODO Needed?
-                TracksColumns.ACTIVITY_TYPE,
-                TracksColumns.ACTIVITY_TYPE_LOCALIZED,
-                TracksColumns.STARTTIME,
-                TracksColumns.STARTTIME_OFFSET,
-                TracksColumns.TOTALDISTANCE,
-                TracksColumns.TOTALTIME,
-                TracksColumns.MARKER_COUNT,
-        };
+    /**
+     * Loads the statistics of the selected tracks combined per activity type and period from the rollups (see {@link TrackRollupsColumns}).
+     * Tracks not contained in the rollups used (i.e., at the boundaries of the date range) are returned one by one.
+     * The result may contain multiple rollups per activity type.
+     */
+    public List<TrackRollup> getTrackRollups(@NonNull TrackSelection selection) {
+        ArrayList<TrackRollup> rollups = new ArrayList<>();
+
+        SelectionData rollupSelectionData = selection.buildRollupSelection();
+        if (rollupSelectionData != null) {
+            try (Cursor cursor = contentResolver.query(TrackRollupsColumns.CONTENT_URI, null, rollupSelectionData.selection(), rollupSelectionData.selectionArgs(), null)) {
+                if (cursor != null && cursor.moveToFirst()) {
+                    rollups.ensureCapacity(cursor.getCount());
+                    do {
+                        rollups.add(createTrackRollup(cursor));
+                    } while (cursor.moveToNext());
+                }
+            }
+        }
 
+        SelectionData remainderSelectionData = selection.buildRollupRemainderSelection();
+        try (Cursor cursor = getTrackCursor(remainderSelectionData.selection(), remainderSelectionData.selectionArgs(), TracksColumns._ID)) {
+            if (cursor != null && cursor.moveToFirst()) {
+                rollups.ensureCapacity(rollups.size() + cursor.getCount());
+                do {
+                    Track track = createTrack(cursor);
+                    rollups.add(new TrackRollup(track.getActivityTypeLocalized(), 1, track.getTrackStatistics()));
+                } while (cursor.moveToNext());
+            }
+        }
+
+        return rollups;
+    }
+
+    private static TrackRollup createTrackRollup(Cursor cursor) {
+        int activityTypeLocalizedIndex = cursor.getColumnIndexOrThrow(TrackRollupsColumns.ACTIVITY_TYPE_LOCALIZED);
+        int trackCountIndex = cursor.getColumnIndexOrThrow(TrackRollupsColumns.TRACK_COUNT);
+        int startTimeIndex = cursor.getColumnIndexOrThrow(TrackRollupsColumns.STARTTIME);
+        int stopTimeIndex = cursor.getColumnIndexOrThrow(TrackRollupsColumns.STOPTIME);
+        int totalDistanceIndex = cursor.getColumnIndexOrThrow(TrackRollupsColumns.TOTALDISTANCE);
+        int totalTimeIndex = cursor.getColumnIndexOrThrow(TrackRollupsColumns.TOTALTIME);
+        int movingTimeIndex = cursor.getColumnIndexOrThrow(TrackRollupsColumns.MOVINGTIME);
+        int maxSpeedIndex = cursor.getColumnIndexOrThrow(TrackRollupsColumns.MAXSPEED);
+        int minAltitudeIndex = cursor.getColumnIndexOrThrow(TrackRollupsColumns.MIN_ALTITUDE);
+        int maxAltitudeIndex = cursor.getColumnIndexOrThrow(TrackRollupsColumns.MAX_ALTITUDE);
+        int altitudeGainIndex = cursor.getColumnIndexOrThrow(TrackRollupsColumns.ALTITUDE_GAIN);
+        int altitudeLossIndex = cursor.getColumnIndexOrThrow(TrackRollupsColumns.ALTITUDE_LOSS);
+
+        // Same as createTrack(), but sums are not rounded to float.
+        TrackStatistics trackStatistics = new TrackStatistics();
+        if (!cursor.isNull(startTimeIndex)) {
+            trackStatistics.setStartTime(Instant.ofEpochMilli(cursor.getLong(startTimeIndex)));
+        }
+        if (!cursor.isNull(stopTimeIndex)) {
+            trackStatistics.setStopTime(Instant.ofEpochMilli(cursor.getLong(stopTimeIndex)));
+        }
+        if (!cursor.isNull(totalDistanceIndex)) {
+            trackStatistics.setTotalDistance(Distance.of(cursor.getDouble(totalDistanceIndex)));
+        }
+        if (!cursor.isNull(totalTimeIndex)) {
+            trackStatistics.setTotalTime(Duration.ofMillis(cursor.getLong(totalTimeIndex)));
+        }
+        if (!cursor.isNull(movingTimeIndex)) {
+            trackStatistics.setMovingTime(Duration.ofMillis(cursor.getLong(movingTimeIndex)));
+        }
+        if (!cursor.isNull(maxSpeedIndex)) {
+            trackStatistics.setMaxSpeed(Speed.of(cursor.getFloat(maxSpeedIndex)));
+        }
+        if (!cursor.isNull(minAltitudeIndex)) {
+            trackStatistics.setMinAltitude(cursor.getFloat(minAltitudeIndex));
+        }
+        if (!cursor.isNull(maxAltitudeIndex)) {
+            trackStatistics.setMaxAltitude(cursor.getFloat(maxAltitudeIndex));
+        }
+        if (!cursor.isNull(altitudeGainIndex)) {
+            trackStatistics.setTotalAltitudeGain((float) cursor.getDouble(altitudeGainIndex));
+        }
+        if (!cursor.isNull(altitudeLossIndex)) {
+            trackStatistics.setTotalAltitudeLoss((float) cursor.getDouble(altitudeLossIndex));
+        }
+
+        // Like a track without activity type.
+        String activityTypeLocalized = cursor.isNull(activityTypeLocalizedIndex) ? "" : cursor.getString(activityTypeLocalizedIndex);
+        return new TrackRollup(activityTypeLocalized, cursor.getInt(trackCountIndex), trackStatistics);
+    }
+
+    private static final String[] TRACK_LIST_ITEM_PROJECTION = new String[]{
+            TracksColumns._ID,
+            TracksColumns.NAME,
+            TracksColumns.DESCRIPTION,
+            TracksColumns.ACTIVITY_TYPE,
+            TracksColumns.ACTIVITY_TYPE_LOCALIZED,
+            TracksColumns.STARTTIME,
+            TracksColumns.STARTTIME_OFFSET,
+            TracksColumns.TOTALDISTANCE,
+            TracksColumns.TOTALTIME,
+            TracksColumns.MARKER_COUNT,
+    };
+
+    /**
+     * Loads one page of the track list (newest first).
+     * Pages are delimited by the last item of the previous page (keyset): inserted or deleted tracks do not shift the following pages.
+     *
+     * @param afterItem    the last item of the previous page; null for the first page
+     * @param maxItemCount the maximal number of items to load
+     */
+    public List<TrackListItem> getTrackListItems(@Nullable TrackListItem afterItem, int maxItemCount) {
         String selection = null;
         String[] selectionArgs = null;
-        final String sortOrder = TracksColumns.STARTTIME + " DESC";
+        if (afterItem != null) {
+            // Tracks without start time are last.
+            String trackId = Long.toString(afterItem.id().id());
+            if (afterItem.startTime() != null) {
+                String startTime = Long.toString(afterItem.startTime().toEpochMilli());
+                selection = TracksColumns.STARTTIME + " < ? OR " + TracksColumns.STARTTIME + " IS NULL OR (" + TracksColumns.STARTTIME + " = ? AND " + TracksColumns._ID + " < ?)";
+                selectionArgs = new String[]{startTime, startTime, trackId};
+            } else {
+                selection = TracksColumns.STARTTIME + " IS NULL AND " + TracksColumns._ID + " < ?";
+                selectionArgs = new String[]{trackId};
+            }
+        }
+
+        String sortOrder = TracksColumns.STARTTIME + " DESC, " + TracksColumns._ID + " DESC LIMIT " + maxItemCount;
+        try (Cursor cursor = contentResolver.query(TracksColumns.CONTENT_URI, TRACK_LIST_ITEM_PROJECTION, selection, selectionArgs, sortOrder)) {
+            return createTrackListItems(cursor);
+        }
+    }
+
+    /**
+     * Loads the track list items of the given tracks (e.g., a page of search results).
+     *
+     * @return the items in the order of trackIds; deleted tracks are skipped.
+     */
+    public List<TrackListItem> getTrackListItems(@NonNull List<Track.Id> trackIds) {
+        if (trackIds.isEmpty()) {
+            return Collections.emptyList();
+        }
 
-        if (searchQuery != null) {
-            selection = TracksColumns.NAME + " LIKE ? OR " +
-                    TracksColumns.DESCRIPTION + " LIKE ? OR " +
-                    TracksColumns.ACTIVITY_TYPE_LOCALIZED + " LIKE ?";
-            selectionArgs = new String[]{"%" + searchQuery + "%", "%" + searchQuery + "%", "%" + searchQuery + "%"};
+        String selection = TracksColumns._ID + " IN (" + TextUtils.join(ID_SEPARATOR, trackIds.stream().map(trackId -> Long.toString(trackId.id())).toArray()) + ")";
+        Map<Track.Id, TrackListItem> itemsById = new HashMap<>();
+        try (Cursor cursor = contentResolver.query(TracksColumns.CONTENT_URI, TRACK_LIST_ITEM_PROJECTION, selection, null, null)) {
+            createTrackListItems(cursor).forEach(item -> itemsById.put(item.id(), item));
         }
 
-        return contentResolver.query(TracksColumns.CONTENT_URI, PROJECTION, selection, selectionArgs, sortOrder);
+        List<TrackListItem> items = new ArrayList<>(itemsById.size());
+        for (Track.Id trackId : trackIds) {
+            TrackListItem item = itemsById.get(trackId);
+            if (item != null) {
+                items.add(item);
+            }
+        }
+        return items;
+    }
+
+    private static List<TrackListItem> createTrackListItems(@Nullable Cursor cursor) {
+        ArrayList<TrackListItem> items = new ArrayList<>();
+        if (cursor == null) {
+            return items;
+        }
+
+        final int idIndex = cursor.getColumnIndexOrThrow(TracksColumns._ID);
+        final int nameIndex = cursor.getColumnIndexOrThrow(TracksColumns.NAME);
+        final int descriptionIndex = cursor.getColumnIndexOrThrow(TracksColumns.DESCRIPTION);
+        final int activityTypeIndex = cursor.getColumnIndexOrThrow(TracksColumns.ACTIVITY_TYPE);
+        final int activityTypeLocalizedIndex = cursor.getColumnIndexOrThrow(TracksColumns.ACTIVITY_TYPE_LOCALIZED);
+        final int startTimeIndex = cursor.getColumnIndexOrThrow(TracksColumns.STARTTIME);
+        final int startTimeOffsetIndex = cursor.getColumnIndexOrThrow(TracksColumns.STARTTIME_OFFSET);
+        final int totalDistanceIndex = cursor.getColumnIndexOrThrow(TracksColumns.TOTALDISTANCE);
+        final int totalTimeIndex = cursor.getColumnIndexOrThrow(TracksColumns.TOTALTIME);
+        final int markerCountIndex = cursor.getColumnIndexOrThrow(TracksColumns.MARKER_COUNT);
+
+        items.ensureCapacity(cursor.getCount());
+        while (cursor.moveToNext()) {
+            items.add(new TrackListItem(
+                    new Track.Id(cursor.getLong(idIndex)),
+                    cursor.getString(nameIndex),
+                    cursor.getString(descriptionIndex),
+                    ActivityType.findBy(cursor.getString(activityTypeIndex)),
+                    cursor.getString(activityTypeLocalizedIndex),
+                    cursor.isNull(startTimeIndex) ? null : Instant.ofEpochMilli(cursor.getLong(startTimeIndex)),
+                    ZoneOffset.ofTotalSeconds(cursor.getInt(startTimeOffsetIndex)),
+                    Distance.of(cursor.getFloat(totalDistanceIndex)),
+                    Duration.ofMillis(cursor.getLong(totalTimeIndex)),
+                    cursor.getInt(markerCountIndex)));
+        }
+        return items;
+    }
+
+    /**
+     * Searches tracks by name, description, and activity type using the full-text search index (every word as prefix).
+     *
+     * @return the ids of all matching tracks; best match first, equally good matches newest first.
+     */
+    public List<Track.Id> searchTracks(@NonNull String searchQuery) {
+        String matchQuery = FullTextSearch.toMatchQuery(searchQuery);
+        if (matchQuery == null) {
+            return Collections.emptyList();
+        }
+
+        Uri uri = TracksColumns.CONTENT_URI_SEARCH.buildUpon().appendQueryParameter(FullTextSearch.QUERY_PARAMETER, matchQuery).build();
+        String[] projection = {TracksColumns._ID, FullTextSearch.MATCHINFO};
+        String sortOrder = TracksColumns.STARTTIME + " DESC, " + TracksColumns._ID + " DESC";
+        try (Cursor cursor = contentResolver.query(uri, projection, null, null, sortOrder)) {
+            if (cursor == null) {
+                return Collections.emptyList();
+            }
+            int idIndex = cursor.getColumnIndexOrThrow(TracksColumns._ID);
+            return FullTextSearch.readRanked(cursor, TracksFtsColumns.COLUMN_WEIGHTS, c -> new Track.Id(c.getLong(idIndex)));
+        }
     }
 
     public Track getTrack(@NonNull Track.Id trackId) {
@@ -278,6 +481,23 @@ public class ContentProviderUtils {
         return null;
     }
 
+    /**
+     * @return the UUIDs of all tracks; allows to check many UUIDs without querying each.
+     */
+    public Set<UUID> getTrackUuids() {
+        Set<UUID> uuids = new HashSet<>();
+        try (Cursor cursor = contentResolver.query(TracksColumns.CONTENT_URI, new String[]{TracksColumns.UUID}, null, null, null)) {
+            if (cursor != null) {
+                while (cursor.moveToNext()) {
+                    if (!cursor.isNull(0)) {
+                        uuids.add(UUIDUtils.fromBytes(cursor.getBlob(0)));
+                    }
+                }
+            }
+        }
+        return uuids;
+    }
+
     /**
      * Gets a track cursor.
      * The caller owns the returned cursor and is responsible for closing it.
@@ -305,11 +525,83 @@ public class ContentProviderUtils {
     /**
      * Updates a track.
      * NOTE: This doesn't update any trackPoints.
+     * Notifies observers of this track (and of the tracks table incl. descendants).
      *
      * @param track the track
      */
     public void updateTrack(Track track) {
-        contentResolver.update(TracksColumns.CONTENT_URI, createContentValues(track), TracksColumns._ID + "=?", new String[]{Long.toString(track.getId().id())});
+        contentResolver.update(ContentUris.withAppendedId(TracksColumns.CONTENT_URI, track.getId().id()), createContentValues(track), null, null);
+    }
+
+    /**
+     * Inserts a track that is imported: it is not returned by queries of the tracks until {@link #updateImportedTrack(Track)}.
+     * If the import does not finish (e.g., the process is killed), the track is deleted on the next start.
+     *
+     * @throws SQLiteException if the track could not be inserted.
+     */
+    public Track.Id insertImportingTrack(@NonNull Track track) {
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>(2);
+        operations.add(ContentProviderOperation.newInsert(TracksColumns.CONTENT_URI)
+                .withValues(createContentValues(track))
+                .build());
+        operations.add(ContentProviderOperation.newInsert(ImportingTracksColumns.CONTENT_URI)
+                .withValueBackReference(ImportingTracksColumns.TRACKID, 0)
+                .build());
+
+        ContentProviderResult[] results;
+        try {
+            results = contentResolver.applyBatch(AUTHORITY_PACKAGE, operations);
+        } catch (OperationApplicationException | RemoteException e) {
+            throw new SQLiteException("Could not insert track.", e);
+        }
+        return new Track.Id(ContentUris.parseId(results[0].uri));
+    }
+
+    /**
+     * Updates a track inserted by {@link #insertImportingTrack(Track)} and makes it visible (both at once).
+     *
+     * @throws SQLiteException if the track could not be updated.
+     */
+    public void updateImportedTrack(@NonNull Track track) {
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>(2);
+        operations.add(ContentProviderOperation.newUpdate(ContentUris.withAppendedId(TracksColumns.CONTENT_URI, track.getId().id()))
+                .withValues(createContentValues(track))
+                .build());
+        operations.add(ContentProviderOperation.newDelete(ImportingTracksColumns.CONTENT_URI)
+                .withSelection(ImportingTracksColumns.TRACKID + "=?", new String[]{Long.toString(track.getId().id())})
+                .build());
+
+        try {
+            contentResolver.applyBatch(AUTHORITY_PACKAGE, operations);
+        } catch (OperationApplicationException | RemoteException e) {
+            throw new SQLiteException("Could not update track.", e);
+        }
+    }
+
+    /**
+     * Marks the track as recorded (see {@link RecordingTracksColumns}); replaces a previous one (e.g., if its recording did not end).
+     *
+     * @throws SQLiteException if the track could not be marked.
+     */
+    public void setRecordingTrack(@NonNull Track.Id trackId) {
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>(2);
+        operations.add(ContentProviderOperation.newDelete(RecordingTracksColumns.CONTENT_URI).build());
+        operations.add(ContentProviderOperation.newInsert(RecordingTracksColumns.CONTENT_URI)
+                .withValue(RecordingTracksColumns.TRACKID, trackId.id())
+                .build());
+
+        try {
+            contentResolver.applyBatch(AUTHORITY_PACKAGE, operations);
+        } catch (OperationApplicationException | RemoteException e) {
+            throw new SQLiteException("Could not mark track as recorded.", e);
+        }
+    }
+
+    /**
+     * Ends the recording of the track marked by {@link #setRecordingTrack(Track.Id)}; so, it is added to the track rollups.
+     */
+    public void clearRecordingTrack() {
+        contentResolver.delete(RecordingTracksColumns.CONTENT_URI, null, null);
     }
 
     private ContentValues createContentValues(Track track) {
@@ -346,7 +638,36 @@ public class ContentProviderUtils {
     }
 
     public void updateTrackStatistics(@NonNull Track.Id trackId, @NonNull TrackStatistics trackStatistics) {
-        contentResolver.update(TracksColumns.CONTENT_URI, createContentValues(trackStatistics), TracksColumns._ID + "=?", new String[]{Long.toString(trackId.id())});
+        contentResolver.update(ContentUris.withAppendedId(TracksColumns.CONTENT_URI, trackId.id()), createContentValues(trackStatistics), null, null);
+    }
+
+    /**
+     * Like {@link #updateTrackStatistics(Track.Id, TrackStatistics)}, but also stores the checkpoint (in the same update).
+     *
+     * @param checkpoint `null` to keep the stored checkpoint
+     */
+    public void updateTrackStatistics(@NonNull Track.Id trackId, @NonNull TrackStatistics trackStatistics, @Nullable TrackStatisticsCheckpoint checkpoint) {
+        ContentValues values = createContentValues(trackStatistics);
+        if (checkpoint != null) {
+            values.put(TracksColumns.STATISTICS_CHECKPOINT, checkpoint.data());
+            values.put(TracksColumns.STATISTICS_CHECKPOINT_TRACKPOINTID, checkpoint.trackPointId().id());
+        }
+        contentResolver.update(ContentUris.withAppendedId(TracksColumns.CONTENT_URI, trackId.id()), values, null, null);
+    }
+
+    @Nullable
+    public TrackStatisticsCheckpoint getTrackStatisticsCheckpoint(@NonNull Track.Id trackId) {
+        String[] projection = {TracksColumns.STATISTICS_CHECKPOINT, TracksColumns.STATISTICS_CHECKPOINT_TRACKPOINTID};
+        try (Cursor cursor = contentResolver.query(TracksColumns.CONTENT_URI, projection, TracksColumns._ID + "=?", new String[]{Long.toString(trackId.id())}, null)) {
+            if (cursor != null && cursor.moveToFirst()) {
+                int dataIndex = cursor.getColumnIndexOrThrow(TracksColumns.STATISTICS_CHECKPOINT);
+                int trackPointIdIndex = cursor.getColumnIndexOrThrow(TracksColumns.STATISTICS_CHECKPOINT_TRACKPOINTID);
+                if (!cursor.isNull(dataIndex) && !cursor.isNull(trackPointIdIndex)) {
+                    return new TrackStatisticsCheckpoint(new TrackPoint.Id(cursor.getLong(trackPointIdIndex)), cursor.getBlob(dataIndex));
+                }
+            }
+        }
+        return null;
     }
 
     private ContentValues createContentValues(TrackStatistics trackStatistics) {
@@ -593,26 +914,35 @@ public class ContentProviderUtils {
         return contentResolver.query(MarkerColumns.CONTENT_URI, projection, selection, selectionArgs, sortOrder);
     }
 
+    /**
+     * @param trackId if not null, only markers of this track (ignored if searching)
+     * @param query   if not null, markers whose name, description, or category match (using the full-text search index; every word as prefix); best match first
+     */
     public List<Marker> searchMarkers(Track.Id trackId, String query) {
-        String selection = null;
-        String[] selectionArgs = null;
-        String sortOrder = null;
+        if (query != null && !query.isBlank()) {
+            String matchQuery = FullTextSearch.toMatchQuery(query);
+            if (matchQuery == null) {
+                return Collections.emptyList();
+            }
 
-        if (query == null) {
-            if (trackId != null) {
-                selection = MarkerColumns.TRACKID + " = ?";
-                selectionArgs = new String[]{Long.toString(trackId.id())};
+            Uri uri = MarkerColumns.CONTENT_URI_SEARCH.buildUpon().appendQueryParameter(FullTextSearch.QUERY_PARAMETER, matchQuery).build();
+            try (Cursor cursor = contentResolver.query(uri, null, null, null, MarkerColumns.DEFAULT_SORT_ORDER + " DESC")) {
+                if (cursor == null) {
+                    return Collections.emptyList();
+                }
+                return FullTextSearch.readRanked(cursor, MarkersFtsColumns.COLUMN_WEIGHTS, this::createMarker);
             }
-        } else {
-            selection = MarkerColumns.NAME + " LIKE ? OR " +
-                    MarkerColumns.DESCRIPTION + " LIKE ? OR " +
-                    MarkerColumns.CATEGORY + " LIKE ?";
-            selectionArgs = new String[]{"%" + query + "%", "%" + query + "%", "%" + query + "%"};
-            sortOrder = MarkerColumns.DEFAULT_SORT_ORDER + " DESC";
+        }
+
+        String selection = null;
+        String[] selectionArgs = null;
+        if (trackId != null) {
+            selection = MarkerColumns.TRACKID + " = ?";
+            selectionArgs = new String[]{Long.toString(trackId.id())};
         }
 
         ArrayList<Marker> markers = new ArrayList<>();
-        try (Cursor cursor = getMarkerCursor(null, selection, selectionArgs, sortOrder, -1)) {
+        try (Cursor cursor = getMarkerCursor(null, selection, selectionArgs, null, -1)) {
             if (cursor.moveToFirst()) {
                 do {
                     markers.add(createMarker(cursor));
@@ -634,39 +964,52 @@ public class ContentProviderUtils {
                 TrackPoint.Type.getById(cursor.getInt(indexes.typeIndex)),
                 new Position(
                         Instant.ofEpochMilli(cursor.getLong(indexes.timeIndex)),
-                        !cursor.isNull(indexes.latitudeIndex) ? ((double) cursor.getInt(indexes.latitudeIndex)) / 1E6 : null,
-                        !cursor.isNull(indexes.longitudeIndex) ? ((double) cursor.getInt(indexes.longitudeIndex)) / 1E6 : null,
-                        !cursor.isNull(indexes.accuracyIndex) ? Distance.of(cursor.getFloat(indexes.accuracyIndex)) : null,
-                        !cursor.isNull(indexes.altitudeIndex) ? Altitude.WGS84.of(cursor.getFloat(indexes.altitudeIndex)) : null,
-                        !cursor.isNull(indexes.accuracyVerticalIndex) ? Distance.of(cursor.getFloat(indexes.accuracyVerticalIndex)) : null,
-                        !cursor.isNull(indexes.bearingIndex) ? cursor.getFloat(indexes.bearingIndex) : null,
-                        !cursor.isNull(indexes.speedIndex) ? Speed.of(cursor.getFloat(indexes.speedIndex)) : null
+                        !isNull(cursor, indexes.latitudeIndex) ? ((double) cursor.getInt(indexes.latitudeIndex)) / 1E6 : null,
+                        !isNull(cursor, indexes.longitudeIndex) ? ((double) cursor.getInt(indexes.longitudeIndex)) / 1E6 : null,
+                        !isNull(cursor, indexes.accuracyIndex) ? Distance.of(cursor.getFloat(indexes.accuracyIndex)) : null,
+                        getAltitude(cursor, indexes),
+                        !isNull(cursor, indexes.accuracyVerticalIndex) ? Distance.of(cursor.getFloat(indexes.accuracyVerticalIndex)) : null,
+                        !isNull(cursor, indexes.bearingIndex) ? cursor.getFloat(indexes.bearingIndex) : null,
+                        !isNull(cursor, indexes.speedIndex) ? Speed.of(cursor.getFloat(indexes.speedIndex)) : null
                 ));
 
-        if (!cursor.isNull(indexes.sensorHeartRateIndex)) {
+        if (!isNull(cursor, indexes.sensorHeartRateIndex)) {
             trackPoint.setHeartRate(cursor.getFloat(indexes.sensorHeartRateIndex));
         }
-        if (!cursor.isNull(indexes.sensorCadenceIndex)) {
+        if (!isNull(cursor, indexes.sensorCadenceIndex)) {
             trackPoint.setCadence(cursor.getFloat(indexes.sensorCadenceIndex));
         }
-        if (!cursor.isNull(indexes.sensorDistanceIndex)) {
+        if (!isNull(cursor, indexes.sensorDistanceIndex)) {
             trackPoint.setSensorDistance(Distance.of(cursor.getFloat(indexes.sensorDistanceIndex)));
         }
-        if (!cursor.isNull(indexes.sensorPowerIndex)) {
+        if (!isNull(cursor, indexes.sensorPowerIndex)) {
             trackPoint.setPower(cursor.getFloat(indexes.sensorPowerIndex));
         }
 
-        if (!cursor.isNull(indexes.altitudeGainIndex)) {
+        if (!isNull(cursor, indexes.altitudeGainIndex)) {
             trackPoint.setAltitudeGain(cursor.getFloat(indexes.altitudeGainIndex));
         }
-        if (!cursor.isNull(indexes.altitudeLossIndex)) {
+        if (!isNull(cursor, indexes.altitudeLossIndex)) {
             trackPoint.setAltitudeLoss(cursor.getFloat(indexes.altitudeLossIndex));
         }
 
         return trackPoint;
     }
 
-    //TODO Only used for file import; might be better to replace it.
+    private static Altitude getAltitude(Cursor cursor, CachedTrackPointsIndexes indexes) {
+        if (!isNull(cursor, indexes.altitudeMslIndex)) {
+            return Altitude.EGM2008.of(cursor.getFloat(indexes.altitudeMslIndex));
+        }
+        return !isNull(cursor, indexes.altitudeIndex) ? Altitude.WGS84.of(cursor.getFloat(indexes.altitudeIndex)) : null;
+    }
+
+    /**
+     * @return true if the value is null or the column is not in the projection.
+     */
+    private static boolean isNull(Cursor cursor, int index) {
+        return index == -1 || cursor.isNull(index);
+    }
+
     //TODO Rename to bulkInsert
     public int bulkInsertTrackPoint(List<TrackPoint> trackPoints, Track.Id trackId) {
         ContentValues[] values = new ContentValues[trackPoints.size()];
@@ -676,6 +1019,35 @@ public class ContentProviderUtils {
         return contentResolver.bulkInsert(TrackPointsColumns.CONTENT_URI_BY_ID, values);
     }
 
+    /**
+     * Inserts the TrackPoints in one transaction; observers of the track are notified once.
+     * In contrast to {@link #bulkInsertTrackPoint(List, Track.Id)}, provides the id of the inserted TrackPoints.
+     *
+     * @return the id of the last inserted TrackPoint; `null` if trackPoints is empty.
+     * @throws SQLiteException if the TrackPoints could not be inserted.
+     */
+    @Nullable
+    public TrackPoint.Id insertTrackPoints(@NonNull List<TrackPoint> trackPoints, @NonNull Track.Id trackId) {
+        if (trackPoints.isEmpty()) {
+            return null;
+        }
+
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>(trackPoints.size());
+        for (TrackPoint trackPoint : trackPoints) {
+            operations.add(ContentProviderOperation.newInsert(TrackPointsColumns.CONTENT_URI_BY_ID)
+                    .withValues(createContentValues(trackPoint, trackId))
+                    .build());
+        }
+
+        ContentProviderResult[] results;
+        try {
+            results = contentResolver.applyBatch(AUTHORITY_PACKAGE, operations);
+        } catch (OperationApplicationException | RemoteException e) {
+            throw new SQLiteException("Could not insert TrackPoints.", e);
+        }
+        return new TrackPoint.Id(ContentUris.parseId(results[results.length - 1].uri));
+    }
+
     //TODO Set trackId in this method.
     public int bulkInsertMarkers(List<Marker> markers, Track.Id trackId) {
         ContentValues[] values = new ContentValues[markers.size()];
@@ -693,9 +1065,7 @@ public class ContentProviderUtils {
      */
     @Deprecated
     public TrackPoint.Id getLastTrackPointId(@NonNull Track.Id trackId) {
-        String selection = TrackPointsColumns._ID + "=(SELECT MAX(" + TrackPointsColumns._ID + ") from " + TrackPointsColumns.TABLE_NAME + " WHERE " + TrackPointsColumns.TRACKID + "=?)";
-        String[] selectionArgs = new String[]{Long.toString(trackId.id())};
-        try (Cursor cursor = getTrackPointCursor(new String[]{TrackPointsColumns._ID}, selection, selectionArgs, TrackPointsColumns._ID)) {
+        try (Cursor cursor = getTrackPointCursor(new String[]{TrackPointsColumns._ID}, TrackPointsQuery.lastTrackPointId(trackId))) {
             if (cursor != null && cursor.moveToFirst()) {
                 return new TrackPoint.Id(cursor.getLong(cursor.getColumnIndexOrThrow(TrackPointsColumns._ID)));
             }
@@ -708,9 +1078,7 @@ public class ContentProviderUtils {
      */
     @Deprecated
     public TrackPoint.Id getTrackPointId(Track.Id trackId, Position position) {
-        String selection = TrackPointsColumns._ID + "=(SELECT MAX(" + TrackPointsColumns._ID + ") FROM " + TrackPointsColumns.TABLE_NAME + " WHERE " + TrackPointsColumns.TRACKID + "=? AND " + TrackPointsColumns.TIME + "=?)";
-        String[] selectionArgs = new String[]{Long.toString(trackId.id()), Long.toString(position.time().toEpochMilli())};
-        try (Cursor cursor = getTrackPointCursor(new String[]{TrackPointsColumns._ID}, selection, selectionArgs, TrackPointsColumns._ID)) {
+        try (Cursor cursor = getTrackPointCursor(new String[]{TrackPointsColumns._ID}, TrackPointsQuery.trackPointId(trackId, position))) {
             if (cursor != null && cursor.moveToFirst()) {
                 return new TrackPoint.Id(cursor.getLong(cursor.getColumnIndexOrThrow(TrackPointsColumns._ID)));
             }
@@ -735,17 +1103,64 @@ public class ContentProviderUtils {
      */
     @NonNull
     public Cursor getTrackPointCursor(@NonNull Track.Id trackId, TrackPoint.Id startTrackPointId) {
-        String selection;
-        String[] selectionArgs;
-        if (startTrackPointId != null) {
-            selection = TrackPointsColumns.TRACKID + "=? AND " + TrackPointsColumns._ID + ">=?";
-            selectionArgs = new String[]{Long.toString(trackId.id()), Long.toString(startTrackPointId.id())};
-        } else {
-            selection = TrackPointsColumns.TRACKID + "=?";
-            selectionArgs = new String[]{Long.toString(trackId.id())};
+        return getTrackPointCursor(null, TrackPointsQuery.trackPoints(trackId, startTrackPointId));
+    }
+
+    /**
+     * Creates a cursor for one page of TrackPoints (ordered by id); for keyset pagination.
+     * The caller owns the returned cursor and is responsible for closing it.
+     *
+     * @param projection        the columns
+     * @param startTrackPointId the first trackPoint id of the page (inclusive). `null` to start with the first TrackPoint
+     * @param maxCount          the page size
+     */
+    Cursor getTrackPointPageCursor(@NonNull Track.Id trackId, String[] projection, @Nullable TrackPoint.Id startTrackPointId, int maxCount) {
+        return getTrackPointCursor(projection, TrackPointsQuery.trackPointPage(trackId, startTrackPointId, maxCount));
+    }
+
+    /**
+     * Loads one page of TrackPoints (ordered by id) into primitive arrays; use for loops over many TrackPoints.
+     *
+     * @param startTrackPointId the first trackPoint id of the page (inclusive). `null` to start with the first TrackPoint
+     * @param maxCount          the page size
+     * @param altitudeMsl       provide the stored EGM2008 altitude (if available) instead of WGS84.
+     */
+    @NonNull
+    public TrackPointColumnarCursor getTrackPointColumns(@NonNull Track.Id trackId, @Nullable TrackPoint.Id startTrackPointId, int maxCount, boolean altitudeMsl) {
+        try (Cursor cursor = getTrackPointCursor(TrackPointColumnarCursor.PROJECTION, TrackPointsQuery.trackPointPage(trackId, startTrackPointId, maxCount))) {
+            return TrackPointColumnarCursor.load(cursor, altitudeMsl);
         }
+    }
 
-        return getTrackPointCursor(null, selection, selectionArgs, TrackPointsColumns.DEFAULT_SORT_ORDER);
+    /**
+     * Creates a cursor for the TrackPoints of a track up to (and including) lastTrackPointId ordered by time; for equal times by id.
+     * The caller owns the returned cursor and is responsible for closing it.
+     */
+    @NonNull
+    public Cursor getTrackPointCursorSortedByTime(@NonNull Track.Id trackId, @NonNull TrackPoint.Id lastTrackPointId) {
+        return getTrackPointCursor(null, TrackPointsQuery.trackPointsUpTo(trackId, lastTrackPointId, TrackPointsColumns.TIME + ", " + TrackPointsColumns._ID));
+    }
+
+    /**
+     * Deletes the TrackPoints of a track up to (and including) lastTrackPointId.
+     */
+    public void deleteTrackPoints(@NonNull Track.Id trackId, @NonNull TrackPoint.Id lastTrackPointId) {
+        TrackPointsQuery query = TrackPointsQuery.trackPointsUpTo(trackId, lastTrackPointId, null);
+        contentResolver.delete(TrackPointsColumns.CONTENT_URI_BY_ID, query.selection(), query.selectionArgs());
+    }
+
+    /**
+     * Counts the TrackPoints of a track.
+     *
+     * @param startTrackPointId the first trackPoint id (inclusive). `null` to ignore
+     */
+    int getTrackPointCount(@NonNull Track.Id trackId, @Nullable TrackPoint.Id startTrackPointId) {
+        try (Cursor cursor = getTrackPointCursor(new String[]{"COUNT(*)"}, TrackPointsQuery.trackPointCount(trackId, startTrackPointId))) {
+            if (cursor != null && cursor.moveToFirst()) {
+                return cursor.getInt(0);
+            }
+        }
+        return 0;
     }
 
     /**
@@ -756,9 +1171,12 @@ public class ContentProviderUtils {
      */
     @Deprecated
     public TrackPoint getLastValidTrackPoint(Track.Id trackId) {
-        String selection = TrackPointsColumns._ID + "=(SELECT MAX(" + TrackPointsColumns._ID + ") FROM " + TrackPointsColumns.TABLE_NAME + " WHERE " + TrackPointsColumns.TRACKID + "=? AND " + TrackPointsColumns.TYPE + " IN (" + TrackPoint.Type.SEGMENT_START_AUTOMATIC.type_db + "," + TrackPoint.Type.TRACKPOINT.type_db + "))";
-        String[] selectionArgs = new String[]{Long.toString(trackId.id())};
-        return findTrackPointBy(selection, selectionArgs);
+        try (Cursor cursor = getTrackPointCursor(null, TrackPointsQuery.lastValidTrackPoint(trackId))) {
+            if (cursor != null && cursor.moveToNext()) {
+                return createTrackPoint(cursor);
+            }
+        }
+        return null;
     }
 
     /**
@@ -838,14 +1256,66 @@ public class ContentProviderUtils {
         return new TrackPointIterator(this, trackId, startTrackPointId);
     }
 
-    @Deprecated
-    private TrackPoint findTrackPointBy(String selection, String[] selectionArgs) {
-        try (Cursor cursor = getTrackPointCursor(null, selection, selectionArgs, TrackPointsColumns._ID)) {
-            if (cursor != null && cursor.moveToNext()) {
-                return createTrackPoint(cursor);
+    /**
+     * Like {@link #getTrackPointLocationIterator(Track.Id, TrackPoint.Id)}, but only reads the values needed for the statistics (see {@link TrackPointIterator#COLUMNS_STATISTICS}).
+     */
+    public TrackPointIterator getTrackPointStatisticsIterator(final Track.Id trackId, final TrackPoint.Id startTrackPointId) {
+        return new TrackPointIterator(this, trackId, startTrackPointId, TrackPointIterator.COLUMNS_STATISTICS);
+    }
+
+    /**
+     * Like {@link #getTrackPointLocationIterator(Track.Id, TrackPoint.Id)}, but provides the stored EGM2008 altitude if available.
+     * TrackPoints without stored EGM2008 altitude provide the WGS84 altitude.
+     */
+    public TrackPointIterator getTrackPointLocationIteratorAltitudeMsl(final Track.Id trackId, final TrackPoint.Id startTrackPointId) {
+        return new TrackPointIterator(this, trackId, startTrackPointId, true);
+    }
+
+    /**
+     * @param afterTrackPointId only TrackPoints with a greater id. `null` to ignore
+     * @return TrackPoints (ordered by id) with location and WGS84 altitude, but without stored EGM2008 altitude.
+     */
+    public List<TrackPoint> getTrackPointsWithoutAltitudeMsl(@Nullable TrackPoint.Id afterTrackPointId, int maxCount) {
+        ArrayList<TrackPoint> trackPoints = new ArrayList<>();
+        try (Cursor cursor = getTrackPointCursor(null, TrackPointsQuery.withoutAltitudeMsl(afterTrackPointId, maxCount))) {
+            if (cursor != null && cursor.moveToFirst()) {
+                CachedTrackPointsIndexes indexes = new CachedTrackPointsIndexes(cursor);
+                do {
+                    trackPoints.add(fillTrackPoint(cursor, indexes));
+                } while (cursor.moveToNext());
             }
         }
-        return null;
+        return trackPoints;
+    }
+
+    /**
+     * Stores the EGM2008 altitude of the TrackPoints in one transaction; observers are not notified as the altitude does not change (only its stored form).
+     *
+     * @param trackPoints TrackPoints (with id) with EGM2008 altitude; others are ignored.
+     * @return number of updated TrackPoints.
+     */
+    public int updateAltitudeMsl(List<TrackPoint> trackPoints) {
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+        for (TrackPoint trackPoint : trackPoints) {
+            if (trackPoint.getId() == null || !(trackPoint.getAltitude() instanceof Altitude.EGM2008)) {
+                continue;
+            }
+            operations.add(ContentProviderOperation.newUpdate(UPDATE_URI_WITHOUT_NOTIFICATION)
+                    .withSelection(TrackPointsColumns._ID + "=?", new String[]{Long.toString(trackPoint.getId().id())})
+                    .withValue(TrackPointsColumns.ALTITUDE_MSL, trackPoint.getAltitude().toM())
+                    .build());
+        }
+        if (operations.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            contentResolver.applyBatch(AUTHORITY_PACKAGE, operations);
+        } catch (OperationApplicationException | RemoteException e) {
+            Log.e(TAG, "Could not store altitude_msl.", e);
+            return 0;
+        }
+        return operations.size();
     }
 
     /**
@@ -860,6 +1330,73 @@ public class ContentProviderUtils {
         return contentResolver.query(TrackPointsColumns.CONTENT_URI_BY_ID, projection, selection, selectionArgs, sortOrder);
     }
 
+    private Cursor getTrackPointCursor(String[] projection, TrackPointsQuery query) {
+        return getTrackPointCursor(projection, query.selection(), query.selectionArgs(), query.sortOrder());
+    }
+
+    /**
+     * Selection, selection arguments, and sort order of the queries on {@link TrackPointsColumns#CONTENT_URI_BY_ID}.
+     */
+    @VisibleForTesting
+    record TrackPointsQuery(@NonNull String selection, @Nullable String[] selectionArgs, @Nullable String sortOrder) {
+
+        static TrackPointsQuery lastTrackPointId(@NonNull Track.Id trackId) {
+            return new TrackPointsQuery(TrackPointsColumns._ID + "=(SELECT MAX(" + TrackPointsColumns._ID + ") from " + TrackPointsColumns.TABLE_NAME + " WHERE " + TrackPointsColumns.TRACKID + "=?)",
+                    new String[]{Long.toString(trackId.id())}, TrackPointsColumns._ID);
+        }
+
+        static TrackPointsQuery trackPointId(@NonNull Track.Id trackId, @NonNull Position position) {
+            return new TrackPointsQuery(TrackPointsColumns._ID + "=(SELECT MAX(" + TrackPointsColumns._ID + ") FROM " + TrackPointsColumns.TABLE_NAME + " WHERE " + TrackPointsColumns.TRACKID + "=? AND " + TrackPointsColumns.TIME + "=?)",
+                    new String[]{Long.toString(trackId.id()), Long.toString(position.time().toEpochMilli())}, TrackPointsColumns._ID);
+        }
+
+        static TrackPointsQuery lastValidTrackPoint(@NonNull Track.Id trackId) {
+            return new TrackPointsQuery(TrackPointsColumns._ID + "=(SELECT MAX(" + TrackPointsColumns._ID + ") FROM " + TrackPointsColumns.TABLE_NAME + " WHERE " + TrackPointsColumns.TRACKID + "=? AND " + TrackPointsColumns.TYPE + " IN (" + TrackPoint.Type.SEGMENT_START_AUTOMATIC.type_db + "," + TrackPoint.Type.TRACKPOINT.type_db + "))",
+                    new String[]{Long.toString(trackId.id())}, TrackPointsColumns._ID);
+        }
+
+        /**
+         * @param startTrackPointId the first trackPoint id (inclusive). `null` to ignore
+         */
+        static TrackPointsQuery trackPoints(@NonNull Track.Id trackId, @Nullable TrackPoint.Id startTrackPointId) {
+            return trackPoints(trackId, startTrackPointId, TrackPointsColumns.DEFAULT_SORT_ORDER);
+        }
+
+        static TrackPointsQuery trackPointPage(@NonNull Track.Id trackId, @Nullable TrackPoint.Id startTrackPointId, int maxCount) {
+            return trackPoints(trackId, startTrackPointId, TrackPointsColumns.DEFAULT_SORT_ORDER + " LIMIT " + maxCount);
+        }
+
+        static TrackPointsQuery trackPointCount(@NonNull Track.Id trackId, @Nullable TrackPoint.Id startTrackPointId) {
+            return trackPoints(trackId, startTrackPointId, null);
+        }
+
+        private static TrackPointsQuery trackPoints(@NonNull Track.Id trackId, @Nullable TrackPoint.Id startTrackPointId, @Nullable String sortOrder) {
+            if (startTrackPointId != null) {
+                return new TrackPointsQuery(TrackPointsColumns.TRACKID + "=? AND " + TrackPointsColumns._ID + ">=?",
+                        new String[]{Long.toString(trackId.id()), Long.toString(startTrackPointId.id())}, sortOrder);
+            }
+            return new TrackPointsQuery(TrackPointsColumns.TRACKID + "=?", new String[]{Long.toString(trackId.id())}, sortOrder);
+        }
+
+        static TrackPointsQuery trackPointsUpTo(@NonNull Track.Id trackId, @NonNull TrackPoint.Id lastTrackPointId, @Nullable String sortOrder) {
+            return new TrackPointsQuery(TrackPointsColumns.TRACKID + "=? AND " + TrackPointsColumns._ID + "<=?",
+                    new String[]{Long.toString(trackId.id()), Long.toString(lastTrackPointId.id())}, sortOrder);
+        }
+
+        /**
+         * @param afterTrackPointId only TrackPoints with a greater id. `null` to ignore
+         */
+        static TrackPointsQuery withoutAltitudeMsl(@Nullable TrackPoint.Id afterTrackPointId, int maxCount) {
+            String selection = TrackPointsColumns.ALTITUDE_MSL + " IS NULL AND " + TrackPointsColumns.ALTITUDE + " IS NOT NULL AND " + TrackPointsColumns.LATITUDE + " IS NOT NULL";
+            String[] selectionArgs = null;
+            if (afterTrackPointId != null) {
+                selection += " AND " + TrackPointsColumns._ID + ">?";
+                selectionArgs = new String[]{Long.toString(afterTrackPointId.id())};
+            }
+            return new TrackPointsQuery(selection, selectionArgs, TrackPointsColumns._ID + " LIMIT " + maxCount);
+        }
+    }
+
     public static String formatIdListForUri(Track.Id... trackIds) {
         long[] ids = new long[trackIds.length];
         for (int i = 0; i < trackIds.length; i++) {
@@ -17,11 +17,15 @@
 package de.dennisguse.opentracks.data;
 
 import android.content.ContentProvider;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.Context;
+import android.content.OperationApplicationException;
 import android.content.UriMatcher;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteException;
@@ -31,14 +35,28 @@ import android.text.TextUtils;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
 
+import de.dennisguse.opentracks.data.models.Track;
 import de.dennisguse.opentracks.data.models.TrackPoint;
+import de.dennisguse.opentracks.data.tables.ImportingTracksColumns;
 import de.dennisguse.opentracks.data.tables.MarkerColumns;
+import de.dennisguse.opentracks.data.tables.MarkersFtsColumns;
+import de.dennisguse.opentracks.data.tables.RecordingTracksColumns;
 import de.dennisguse.opentracks.data.tables.TrackPointsColumns;
+import de.dennisguse.opentracks.data.tables.TrackRevisionsColumns;
+import de.dennisguse.opentracks.data.tables.TrackRollupsColumns;
+import de.dennisguse.opentracks.data.tables.TrackSensorStatsColumns;
 import de.dennisguse.opentracks.data.tables.TracksColumns;
+import de.dennisguse.opentracks.data.tables.TracksFtsColumns;
 import de.dennisguse.opentracks.settings.PreferencesUtils;
 
 /**
@@ -60,12 +78,45 @@ public class CustomContentProvider extends ContentProvider {
 
     private SQLiteDatabase db;
 
+    private boolean hasWindowFunctions;
+
+    /**
+     * Notifications of the current thread's {@link #applyBatch(ArrayList)}; sent once all operations were applied.
+     */
+    private final ThreadLocal<Set<Uri>> batchNotificationUris = new ThreadLocal<>();
+
     /**
      * The string representing the query that compute sensor stats from trackpoints table.
      * It computes the average for heart rate, cadence and power (duration-based average) and the maximum for heart rate, cadence and power.
      * Finally, it ignores manual pause (SEGMENT_START_MANUAL).
+     * The duration of each TrackPoint (until the next TrackPoint) is computed in one pass via LEAD().
+     * Parameters: trackId.
+     */
+    @VisibleForTesting
+    static final String SENSOR_STATS_QUERY =
+            "SELECT " +
+                "SUM(" + TrackPointsColumns.SENSOR_HEARTRATE + " * duration) / SUM(duration) " + TrackPointsColumns.ALIAS_AVG_HR + ", " +
+                "MAX(" + TrackPointsColumns.SENSOR_HEARTRATE + ") " + TrackPointsColumns.ALIAS_MAX_HR + ", " +
+                "SUM(" + TrackPointsColumns.SENSOR_CADENCE + " * duration) / SUM(duration) " + TrackPointsColumns.ALIAS_AVG_CADENCE + ", " +
+                "MAX(" + TrackPointsColumns.SENSOR_CADENCE + ") " + TrackPointsColumns.ALIAS_MAX_CADENCE + ", " +
+                "SUM(" + TrackPointsColumns.SENSOR_POWER + " * duration) / SUM(duration) " + TrackPointsColumns.ALIAS_AVG_POWER + ", " +
+                "MAX(" + TrackPointsColumns.SENSOR_POWER + ") " + TrackPointsColumns.ALIAS_MAX_POWER + " " +
+            "FROM (" +
+                "SELECT " + TrackPointsColumns.SENSOR_HEARTRATE + ", " + TrackPointsColumns.SENSOR_CADENCE + ", " + TrackPointsColumns.SENSOR_POWER + ", " +
+                    TrackPointsColumns.TYPE + " NOT IN (" + TrackPoint.Type.SEGMENT_START_MANUAL.type_db + ") included, " +
+                    "COALESCE(MAX(" + TrackPointsColumns.TIME + ", LEAD(" + TrackPointsColumns.TIME + " * (" + TrackPointsColumns.TYPE + " NOT IN (" + TrackPoint.Type.SEGMENT_START_MANUAL.type_db + "))) OVER (ORDER BY " + TrackPointsColumns._ID + ")), " + TrackPointsColumns.TIME + ") - " + TrackPointsColumns.TIME + " duration " +
+                "FROM " + TrackPointsColumns.TABLE_NAME + " " +
+                "WHERE " + TrackPointsColumns.TRACKID + " = ?" +
+            ") " +
+            "WHERE included";
+
+    /**
+     * Like {@link #SENSOR_STATS_QUERY}, but for SQLite without window functions (before 3.25; i.e., Android before 11).
+     * The duration of each TrackPoint is computed via a correlated subquery.
+     * Parameters: trackId, trackId.
      */
-    private final String SENSOR_STATS_QUERY =
+    @VisibleForTesting
+    static final String SENSOR_STATS_QUERY_LEGACY =
             "WITH time_select as " +
                 "(SELECT t1." + TrackPointsColumns.TIME + " * (t1." + TrackPointsColumns.TYPE + " NOT IN (" + TrackPoint.Type.SEGMENT_START_MANUAL.type_db + ")) time_value " +
                 "FROM " + TrackPointsColumns.TABLE_NAME + " t1 " +
@@ -102,11 +153,18 @@ public class CustomContentProvider extends ContentProvider {
 
         uriMatcher.addURI(ContentProviderUtils.AUTHORITY_PACKAGE, TracksColumns.CONTENT_URI.getPath(), UrlType.TRACKS.ordinal());
         uriMatcher.addURI(ContentProviderUtils.AUTHORITY_PACKAGE, TracksColumns.CONTENT_URI_SENSOR_STATS.getPath() + "/#", UrlType.TRACKS_SENSOR_STATS.ordinal());
+        // Before TRACKS_BY_ID as it would match, too.
+        uriMatcher.addURI(ContentProviderUtils.AUTHORITY_PACKAGE, TracksColumns.CONTENT_URI_SEARCH.getPath(), UrlType.TRACKS_SEARCH.ordinal());
+        uriMatcher.addURI(ContentProviderUtils.AUTHORITY_PACKAGE, ImportingTracksColumns.CONTENT_URI.getPath(), UrlType.IMPORTING_TRACKS.ordinal());
+        uriMatcher.addURI(ContentProviderUtils.AUTHORITY_PACKAGE, RecordingTracksColumns.CONTENT_URI.getPath(), UrlType.RECORDING_TRACKS.ordinal());
         uriMatcher.addURI(ContentProviderUtils.AUTHORITY_PACKAGE, TracksColumns.CONTENT_URI.getPath() + "/*", UrlType.TRACKS_BY_ID.ordinal());
 
         uriMatcher.addURI(ContentProviderUtils.AUTHORITY_PACKAGE, MarkerColumns.CONTENT_URI.getPath(), UrlType.MARKERS.ordinal());
         uriMatcher.addURI(ContentProviderUtils.AUTHORITY_PACKAGE, MarkerColumns.CONTENT_URI.getPath() + "/#", UrlType.MARKERS_BY_ID.ordinal());
         uriMatcher.addURI(ContentProviderUtils.AUTHORITY_PACKAGE, MarkerColumns.CONTENT_URI_BY_TRACKID.getPath() + "/*", UrlType.MARKERS_BY_TRACKID.ordinal());
+        uriMatcher.addURI(ContentProviderUtils.AUTHORITY_PACKAGE, MarkerColumns.CONTENT_URI_SEARCH.getPath(), UrlType.MARKERS_SEARCH.ordinal());
+
+        uriMatcher.addURI(ContentProviderUtils.AUTHORITY_PACKAGE, TrackRollupsColumns.CONTENT_URI.getPath(), UrlType.TRACK_ROLLUPS.ordinal());
     }
 
     @Override
@@ -127,17 +185,31 @@ public class CustomContentProvider extends ContentProvider {
             db = databaseHelper.getWritableDatabase();
             // Necessary to enable cascade deletion from Track to TrackPoints and Markers
             db.setForeignKeyConstraintsEnabled(true);
+            hasWindowFunctions = hasWindowFunctions(db);
+            deleteImportingTracks();
         } catch (SQLiteException e) {
             Log.e(TAG, "Unable to open database for writing.", e);
         }
         return db != null;
     }
 
+    /**
+     * Deletes the tracks of imports that did not finish (e.g., the process was killed); no import is running before the first access.
+     */
+    private void deleteImportingTracks() {
+        int deleted = db.delete(TracksColumns.TABLE_NAME, TracksColumns._ID + " IN (SELECT " + ImportingTracksColumns.TRACKID + " FROM " + ImportingTracksColumns.TABLE_NAME + ")", null);
+        if (deleted > 0) {
+            Log.w(TAG, "Deleted " + deleted + " tracks of unfinished imports.");
+        }
+    }
+
     @Override
     public int delete(@NonNull Uri url, String where, String[] selectionArgs) {
         String table = switch (getUrlType(url)) {
             case TRACKPOINTS -> TrackPointsColumns.TABLE_NAME;
             case TRACKS -> TracksColumns.TABLE_NAME;
+            case IMPORTING_TRACKS -> ImportingTracksColumns.TABLE_NAME;
+            case RECORDING_TRACKS -> RecordingTracksColumns.TABLE_NAME;
             case MARKERS -> MarkerColumns.TABLE_NAME;
             default -> throw new IllegalArgumentException("Unknown URL " + url);
         };
@@ -153,7 +225,7 @@ public class CustomContentProvider extends ContentProvider {
         } finally {
             db.endTransaction();
         }
-        getContext().getContentResolver().notifyChange(url, null, false);
+        notifyChange(url);
 
         int totalChanges = getTotalChanges() - totalChangesBefore;
         Log.i(TAG, "Deleted " + totalChanges + " total rows from database");
@@ -183,10 +255,11 @@ public class CustomContentProvider extends ContentProvider {
         return switch (getUrlType(url)) {
             case TRACKPOINTS -> TrackPointsColumns.CONTENT_TYPE;
             case TRACKPOINTS_BY_ID, TRACKPOINTS_BY_TRACKID -> TrackPointsColumns.CONTENT_ITEMTYPE;
-            case TRACKS -> TracksColumns.CONTENT_TYPE;
+            case TRACKS, TRACKS_SEARCH -> TracksColumns.CONTENT_TYPE;
             case TRACKS_BY_ID -> TracksColumns.CONTENT_ITEMTYPE;
-            case MARKERS -> MarkerColumns.CONTENT_TYPE;
+            case MARKERS, MARKERS_SEARCH -> MarkerColumns.CONTENT_TYPE;
             case MARKERS_BY_ID, MARKERS_BY_TRACKID -> MarkerColumns.CONTENT_ITEMTYPE;
+            case TRACK_ROLLUPS -> TrackRollupsColumns.CONTENT_TYPE;
             default -> throw new IllegalArgumentException("Unknown URL " + url);
         };
     }
@@ -196,50 +269,148 @@ public class CustomContentProvider extends ContentProvider {
         if (initialValues == null) {
             initialValues = new ContentValues();
         }
+        UrlType urlType = getUrlType(url);
         Uri result;
         try {
             db.beginTransaction();
-            result = insertContentValues(url, getUrlType(url), initialValues);
+            result = insertContentValues(url, urlType, initialValues);
             db.setTransactionSuccessful();
         } finally {
             db.endTransaction();
         }
-        getContext().getContentResolver().notifyChange(url, null, false);
+
+        if (urlType == UrlType.TRACKPOINTS) {
+            TrackPoint.Id trackPointId = new TrackPoint.Id(ContentUris.parseId(result));
+            notifyChange(new TrackPointsChange(new Track.Id(initialValues.getAsLong(TrackPointsColumns.TRACKID)), trackPointId, trackPointId).toUri());
+        } else {
+            notifyChange(getInsertNotificationUri(url, urlType, initialValues, result));
+        }
         return result;
     }
 
     @Override
     public int bulkInsert(@NonNull Uri url, @NonNull ContentValues[] valuesBulk) {
+        UrlType urlType = getUrlType(url);
+        // Inserted TrackPoints per track; bulk inserts are usually for one track.
+        Map<Track.Id, TrackPointsChange> trackPointsChanges = new LinkedHashMap<>();
+        Set<Uri> notificationUris = new LinkedHashSet<>();
         int numInserted;
         try {
             // Use a transaction in order to make the insertions run as a single batch
             db.beginTransaction();
 
-            UrlType urlType = getUrlType(url);
             for (numInserted = 0; numInserted < valuesBulk.length; numInserted++) {
                 ContentValues contentValues = valuesBulk[numInserted];
                 if (contentValues == null) {
                     contentValues = new ContentValues();
                 }
-                insertContentValues(url, urlType, contentValues);
+                Uri result = insertContentValues(url, urlType, contentValues);
+                if (urlType == UrlType.TRACKPOINTS) {
+                    Track.Id trackId = new Track.Id(contentValues.getAsLong(TrackPointsColumns.TRACKID));
+                    TrackPoint.Id trackPointId = new TrackPoint.Id(ContentUris.parseId(result));
+                    trackPointsChanges.merge(trackId, new TrackPointsChange(trackId, trackPointId, trackPointId), (previous, current) -> new TrackPointsChange(trackId, previous.first(), current.last()));
+                } else {
+                    notificationUris.add(getInsertNotificationUri(url, urlType, contentValues, result));
+                }
             }
             db.setTransactionSuccessful();
         } finally {
             db.endTransaction();
         }
-        getContext().getContentResolver().notifyChange(url, null, false);
+
+        trackPointsChanges.values().forEach(change -> notifyChange(change.toUri()));
+        notificationUris.forEach(this::notifyChange);
         return numInserted;
     }
 
+    /**
+     * Inserted rows are notified as specific as possible, so observers of other tracks (e.g., while importing) are not notified.
+     * <p>
+     * For TrackPoints, see {@link TrackPointsChange}.
+     */
+    private static Uri getInsertNotificationUri(Uri url, UrlType urlType, ContentValues values, Uri result) {
+        return switch (urlType) {
+            case TRACKS -> result;
+            case MARKERS -> values.containsKey(MarkerColumns.TRACKID)
+                    ? ContentUris.withAppendedId(MarkerColumns.CONTENT_URI_BY_TRACKID, values.getAsLong(MarkerColumns.TRACKID))
+                    : url;
+            default -> url;
+        };
+    }
+
+    private void notifyChange(Uri uri) {
+        Set<Uri> pendingUris = batchNotificationUris.get();
+        if (pendingUris != null) {
+            pendingUris.add(uri);
+            return;
+        }
+        getContext().getContentResolver().notifyChange(uri, null, false);
+    }
+
+    /**
+     * Applies all operations in one transaction; each distinct URI is notified once afterwards (see {@link #notifyBatch(Collection)}).
+     */
+    @NonNull
+    @Override
+    public ContentProviderResult[] applyBatch(@NonNull ArrayList<ContentProviderOperation> operations) throws OperationApplicationException {
+        Set<Uri> notificationUris = new LinkedHashSet<>();
+        ContentProviderResult[] results;
+        try {
+            batchNotificationUris.set(notificationUris);
+            db.beginTransaction();
+            results = super.applyBatch(operations);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            batchNotificationUris.remove();
+        }
+        notifyBatch(notificationUris);
+        return results;
+    }
+
+    /**
+     * Like {@link #notifyChange(Uri)}, but inserted TrackPoints are combined per track (see {@link TrackPointsChange}).
+     */
+    private void notifyBatch(Collection<Uri> uris) {
+        Map<Track.Id, TrackPointsChange> trackPointsChanges = new LinkedHashMap<>();
+        for (Uri uri : uris) {
+            TrackPointsChange change = TrackPointsChange.fromUri(uri);
+            if (change == null) {
+                notifyChange(uri);
+                continue;
+            }
+            trackPointsChanges.merge(change.trackId(), change, (previous, current) -> new TrackPointsChange(current.trackId(), previous.first(), current.last()));
+        }
+        trackPointsChanges.values().forEach(change -> notifyChange(change.toUri()));
+    }
+
     @Override
     public Cursor query(@NonNull Uri url, String[] projection, String selection, String[] selectionArgs, String sort) {
-        SQLiteQueryBuilder queryBuilder = new SQLiteQueryBuilder();
-        String sortOrder = null;
-        switch (getUrlType(url)) {
-            case TRACKPOINTS -> {
-                queryBuilder.setTables(TrackPointsColumns.TABLE_NAME);
-                sortOrder = sort != null ? sort : TrackPointsColumns.DEFAULT_SORT_ORDER;
+        UrlType urlType = getUrlType(url);
+        switch (urlType) {
+            case TRACKS_SENSOR_STATS -> {
+                return querySensorStats(ContentUris.parseId(url));
             }
+            case TRACKS_SEARCH, MARKERS_SEARCH -> selectionArgs = withMatchQuery(url, selectionArgs);
+        }
+        Cursor cursor = createQueryBuilder(url, urlType).query(db, projection, selection, selectionArgs, null, null, getSortOrder(urlType, sort));
+        cursor.setNotificationUri(getContext().getContentResolver(), url);
+        return cursor;
+    }
+
+    /**
+     * Returns the SQL {@link #query(Uri, String[], String, String[], String)} executes for the url (without the match query of search urls).
+     */
+    @VisibleForTesting
+    String buildQuery(@NonNull Uri url, String[] projection, String selection, String sort) {
+        UrlType urlType = getUrlType(url);
+        return createQueryBuilder(url, urlType).buildQuery(projection, selection, null, null, getSortOrder(urlType, sort), null);
+    }
+
+    private static SQLiteQueryBuilder createQueryBuilder(@NonNull Uri url, @NonNull UrlType urlType) {
+        SQLiteQueryBuilder queryBuilder = new SQLiteQueryBuilder();
+        switch (urlType) {
+            case TRACKPOINTS -> queryBuilder.setTables(TrackPointsColumns.TABLE_NAME);
             case TRACKPOINTS_BY_ID -> {
                 queryBuilder.setTables(TrackPointsColumns.TABLE_NAME);
                 queryBuilder.appendWhere(TrackPointsColumns._ID + "=" + ContentUris.parseId(url));
@@ -249,25 +420,18 @@ public class CustomContentProvider extends ContentProvider {
                 queryBuilder.appendWhere(TrackPointsColumns.TRACKID + " IN (" + TextUtils.join(SQL_LIST_DELIMITER, ContentProviderUtils.parseTrackIdsFromUri(url)) + ")");
             }
             case TRACKS -> {
-                if (projection != null && Arrays.asList(projection).contains(TracksColumns.MARKER_COUNT)) {
-                    queryBuilder.setTables(TracksColumns.TABLE_NAME + " LEFT OUTER JOIN (SELECT " + MarkerColumns.TRACKID + " AS markerTrackId, COUNT(*) AS " + TracksColumns.MARKER_COUNT + " FROM " + MarkerColumns.TABLE_NAME + " GROUP BY " + MarkerColumns.TRACKID + ") ON (" + TracksColumns.TABLE_NAME + "." + TracksColumns._ID + "= markerTrackId)");
-                } else {
-                    queryBuilder.setTables(TracksColumns.TABLE_NAME);
-                }
-                sortOrder = sort != null ? sort : TracksColumns.DEFAULT_SORT_ORDER;
+                queryBuilder.setTables(TracksColumns.TABLE_NAME);
+                queryBuilder.appendWhere(ImportingTracksColumns.SELECTION_COMPLETE);
             }
             case TRACKS_BY_ID -> {
                 queryBuilder.setTables(TracksColumns.TABLE_NAME);
                 queryBuilder.appendWhere(TracksColumns._ID + " IN (" + TextUtils.join(SQL_LIST_DELIMITER, ContentProviderUtils.parseTrackIdsFromUri(url)) + ")");
             }
-            case TRACKS_SENSOR_STATS -> {
-                long trackId = ContentUris.parseId(url);
-                return db.rawQuery(SENSOR_STATS_QUERY, new String[]{String.valueOf(trackId), String.valueOf(trackId)});
-            }
-            case MARKERS -> {
-                queryBuilder.setTables(MarkerColumns.TABLE_NAME);
-                sortOrder = sort != null ? sort : MarkerColumns.DEFAULT_SORT_ORDER;
+            case TRACKS_SEARCH -> {
+                queryBuilder.setTables(FullTextSearch.getTables(TracksColumns.TABLE_NAME, TracksFtsColumns.TABLE_NAME, TracksColumns._ID));
+                queryBuilder.appendWhere(ImportingTracksColumns.SELECTION_COMPLETE);
             }
+            case MARKERS -> queryBuilder.setTables(MarkerColumns.TABLE_NAME);
             case MARKERS_BY_ID -> {
                 queryBuilder.setTables(MarkerColumns.TABLE_NAME);
                 queryBuilder.appendWhere(MarkerColumns._ID + "=" + ContentUris.parseId(url));
@@ -276,11 +440,117 @@ public class CustomContentProvider extends ContentProvider {
                 queryBuilder.setTables(MarkerColumns.TABLE_NAME);
                 queryBuilder.appendWhere(MarkerColumns.TRACKID + " IN (" + TextUtils.join(SQL_LIST_DELIMITER, ContentProviderUtils.parseTrackIdsFromUri(url)) + ")");
             }
+            case MARKERS_SEARCH -> queryBuilder.setTables(FullTextSearch.getTables(MarkerColumns.TABLE_NAME, MarkersFtsColumns.TABLE_NAME, MarkerColumns._ID));
+            case TRACK_ROLLUPS -> queryBuilder.setTables(TrackRollupsColumns.TABLE_NAME);
             default -> throw new IllegalArgumentException("Unknown url " + url);
         }
-        Cursor cursor = queryBuilder.query(db, projection, selection, selectionArgs, null, null, sortOrder);
-        cursor.setNotificationUri(getContext().getContentResolver(), url);
-        return cursor;
+        return queryBuilder;
+    }
+
+    /**
+     * Urls of single items and item lists by trackId ignore the requested sort order.
+     */
+    private static String getSortOrder(@NonNull UrlType urlType, String sort) {
+        return switch (urlType) {
+            case TRACKPOINTS -> sort != null ? sort : TrackPointsColumns.DEFAULT_SORT_ORDER;
+            case TRACKS, TRACKS_SEARCH -> sort != null ? sort : TracksColumns.DEFAULT_SORT_ORDER;
+            case MARKERS, MARKERS_SEARCH -> sort != null ? sort : MarkerColumns.DEFAULT_SORT_ORDER;
+            case TRACK_ROLLUPS -> sort;
+            default -> null;
+        };
+    }
+
+    /**
+     * Prepends the match query of a search URL to the selection arguments (its parameter precedes the selection's).
+     */
+    private static String[] withMatchQuery(Uri url, String[] selectionArgs) {
+        String matchQuery = url.getQueryParameter(FullTextSearch.QUERY_PARAMETER);
+        if (matchQuery == null) {
+            throw new IllegalArgumentException("Missing search query " + url);
+        }
+
+        int count = selectionArgs != null ? selectionArgs.length : 0;
+        String[] args = new String[count + 1];
+        args[0] = matchQuery;
+        if (count > 0) {
+            System.arraycopy(selectionArgs, 0, args, 1, count);
+        }
+        return args;
+    }
+
+    /**
+     * Provides the sensor statistics of a track from track_sensor_stats; if not available (or TrackPoints were inserted since), these are computed and stored.
+     */
+    private Cursor querySensorStats(long trackId) {
+        String[] trackIdArgs = new String[]{String.valueOf(trackId)};
+
+        Cursor cached = db.query(TrackSensorStatsColumns.TABLE_NAME, TrackSensorStatsColumns.STATISTICS, TrackSensorStatsColumns.SELECTION_VALID, new String[]{String.valueOf(trackId), String.valueOf(trackId)}, null, null, null);
+        if (cached.getCount() > 0) {
+            return cached;
+        }
+        cached.close();
+
+        // No TrackPoints must be inserted between computing and storing.
+        db.beginTransaction();
+        try {
+            Cursor cursor = hasWindowFunctions
+                    ? db.rawQuery(SENSOR_STATS_QUERY, trackIdArgs)
+                    : db.rawQuery(SENSOR_STATS_QUERY_LEGACY, new String[]{String.valueOf(trackId), String.valueOf(trackId)});
+            if (cursor.moveToFirst() && DatabaseUtils.queryNumEntries(db, TracksColumns.TABLE_NAME, TracksColumns._ID + "=?", trackIdArgs) > 0) {
+                ContentValues values = new ContentValues();
+                values.put(TrackSensorStatsColumns.TRACKID, trackId);
+                values.put(TrackSensorStatsColumns.LAST_TRACKPOINTID, DatabaseUtils.stringForQuery(db, "SELECT MAX(" + TrackPointsColumns._ID + ") FROM " + TrackPointsColumns.TABLE_NAME + " WHERE " + TrackPointsColumns.TRACKID + "=?", trackIdArgs));
+                for (String column : TrackSensorStatsColumns.STATISTICS) {
+                    int index = cursor.getColumnIndexOrThrow(column);
+                    if (!cursor.isNull(index)) {
+                        values.put(column, cursor.getDouble(index));
+                    }
+                }
+                db.insertWithOnConflict(TrackSensorStatsColumns.TABLE_NAME, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            }
+            cursor.moveToPosition(-1);
+            db.setTransactionSuccessful();
+            return cursor;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Provides a stamp of the current content of the tracks (incl. Markers and TrackPoints), i.e., it changes if any of it changes.
+     * Consists of the revision (see {@link TrackRevisionsColumns}) and the maximum TrackPoint id (i.e., inserted TrackPoints) per track.
+     *
+     * @return null if any of the tracks does not exist.
+     */
+    @Nullable
+    String queryContentStamp(@NonNull Collection<Track.Id> trackIds) {
+        String sql = "SELECT t." + TracksColumns._ID + ", r." + TrackRevisionsColumns.REVISION + ", "
+                + "(SELECT MAX(" + TrackPointsColumns._ID + ") FROM " + TrackPointsColumns.TABLE_NAME + " WHERE " + TrackPointsColumns.TRACKID + " = t." + TracksColumns._ID + ") "
+                + "FROM " + TracksColumns.TABLE_NAME + " t LEFT JOIN " + TrackRevisionsColumns.TABLE_NAME + " r ON r." + TrackRevisionsColumns.TRACKID + " = t." + TracksColumns._ID + " "
+                + "WHERE t." + TracksColumns._ID + " IN (" + TextUtils.join(SQL_LIST_DELIMITER, trackIds.stream().map(Track.Id::id).toArray()) + ") "
+                + "ORDER BY t." + TracksColumns._ID;
+
+        StringBuilder stamp = new StringBuilder();
+        try (Cursor cursor = db.rawQuery(sql, null)) {
+            if (cursor.getCount() != trackIds.size()) {
+                return null;
+            }
+            while (cursor.moveToNext()) {
+                stamp.append(cursor.getLong(0)).append(':').append(cursor.getLong(1)).append(':').append(cursor.getLong(2)).append(';');
+            }
+        }
+        return stamp.toString();
+    }
+
+    /**
+     * @return true if SQLite supports window functions (i.e., 3.25 or newer).
+     */
+    @VisibleForTesting
+    static boolean hasWindowFunctions(SQLiteDatabase db) {
+        String[] version = DatabaseUtils.stringForQuery(db, "SELECT sqlite_version()", null).split("\\.");
+        int major = Integer.parseInt(version[0]);
+        int minor = Integer.parseInt(version[1]);
+        return major > 3 || (major == 3 && minor >= 25);
     }
 
     @Override
@@ -332,7 +602,9 @@ public class CustomContentProvider extends ContentProvider {
         } finally {
             db.endTransaction();
         }
-        getContext().getContentResolver().notifyChange(url, null, false);
+        if (!Boolean.FALSE.toString().equals(url.getQueryParameter(ContentProviderUtils.QUERY_PARAMETER_NOTIFY))) {
+            notifyChange(url);
+        }
         return count;
     }
 
@@ -359,6 +631,8 @@ public class CustomContentProvider extends ContentProvider {
             case TRACKPOINTS -> insertTrackPoint(url, contentValues);
             case TRACKS -> insertTrack(url, contentValues);
             case MARKERS -> insertMarker(url, contentValues);
+            case IMPORTING_TRACKS -> insertImportingTrack(url, contentValues);
+            case RECORDING_TRACKS -> insertRecordingTrack(url, contentValues);
             default -> throw new IllegalArgumentException("Unknown url " + url);
         };
     }
@@ -383,6 +657,22 @@ public class CustomContentProvider extends ContentProvider {
         throw new SQLException("Failed to insert a track " + url);
     }
 
+    private Uri insertImportingTrack(Uri url, ContentValues contentValues) {
+        long rowId = db.insert(ImportingTracksColumns.TABLE_NAME, null, contentValues);
+        if (rowId >= 0) {
+            return url;
+        }
+        throw new SQLException("Failed to insert an importing track " + url);
+    }
+
+    private Uri insertRecordingTrack(Uri url, ContentValues contentValues) {
+        long rowId = db.insert(RecordingTracksColumns.TABLE_NAME, null, contentValues);
+        if (rowId >= 0) {
+            return url;
+        }
+        throw new SQLException("Failed to insert a recording track " + url);
+    }
+
     private Uri insertMarker(Uri url, ContentValues contentValues) {
         long rowId = db.insert(MarkerColumns.TABLE_NAME, MarkerColumns._ID, contentValues);
         if (rowId >= 0) {
@@ -399,8 +689,13 @@ public class CustomContentProvider extends ContentProvider {
         TRACKS,
         TRACKS_BY_ID,
         TRACKS_SENSOR_STATS,
+        TRACKS_SEARCH,
         MARKERS,
         MARKERS_BY_ID,
-        MARKERS_BY_TRACKID
+        MARKERS_BY_TRACKID,
+        MARKERS_SEARCH,
+        TRACK_ROLLUPS,
+        IMPORTING_TRACKS,
+        RECORDING_TRACKS
     }
 }
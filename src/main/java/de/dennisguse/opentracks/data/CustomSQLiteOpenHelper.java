@@ -18,9 +18,16 @@ import java.util.UUID;
 import de.dennisguse.opentracks.Startup;
 import de.dennisguse.opentracks.data.models.ActivityType;
 import de.dennisguse.opentracks.data.models.Track;
+import de.dennisguse.opentracks.data.tables.ImportingTracksColumns;
 import de.dennisguse.opentracks.data.tables.MarkerColumns;
+import de.dennisguse.opentracks.data.tables.MarkersFtsColumns;
+import de.dennisguse.opentracks.data.tables.RecordingTracksColumns;
 import de.dennisguse.opentracks.data.tables.TrackPointsColumns;
+import de.dennisguse.opentracks.data.tables.TrackRevisionsColumns;
+import de.dennisguse.opentracks.data.tables.TrackRollupsColumns;
+import de.dennisguse.opentracks.data.tables.TrackSensorStatsColumns;
 import de.dennisguse.opentracks.data.tables.TracksColumns;
+import de.dennisguse.opentracks.data.tables.TracksFtsColumns;
 
 /**
  * Database helper for creating and upgrading the database.
@@ -29,7 +36,7 @@ class CustomSQLiteOpenHelper extends SQLiteOpenHelper {
 
     private static final String TAG = CustomSQLiteOpenHelper.class.getSimpleName();
 
-    private static final int DATABASE_VERSION = 38;
+    private static final int DATABASE_VERSION = 50;
 
     private final Context context;
 
@@ -53,12 +60,47 @@ class CustomSQLiteOpenHelper extends SQLiteOpenHelper {
     public void onCreate(SQLiteDatabase db) {
         db.execSQL(TrackPointsColumns.CREATE_TABLE);
         db.execSQL(TrackPointsColumns.CREATE_TABLE_INDEX);
+        db.execSQL(TrackPointsColumns.CREATE_TABLE_INDEX_ALTITUDE_MSL_MISSING);
+        db.execSQL(TrackPointsColumns.CREATE_TABLE_INDEX_TRACKID_TIME);
+        db.execSQL(TrackPointsColumns.CREATE_TABLE_INDEX_TRACKID_TYPE);
 
         db.execSQL(TracksColumns.CREATE_TABLE);
         db.execSQL(TracksColumns.CREATE_TABLE_INDEX);
+        db.execSQL(TracksColumns.CREATE_TABLE_INDEX_STARTTIME);
 
         db.execSQL(MarkerColumns.CREATE_TABLE);
         db.execSQL(MarkerColumns.CREATE_TABLE_INDEX);
+        for (String createTrigger : TracksColumns.CREATE_TRIGGERS) {
+            db.execSQL(createTrigger);
+        }
+
+        db.execSQL(TrackSensorStatsColumns.CREATE_TABLE);
+        db.execSQL(TrackSensorStatsColumns.CREATE_TRIGGER_UPDATE);
+        db.execSQL(TrackSensorStatsColumns.CREATE_TRIGGER_DELETE);
+
+        db.execSQL(TrackRevisionsColumns.CREATE_TABLE);
+        for (String createTrigger : TrackRevisionsColumns.CREATE_TRIGGERS) {
+            db.execSQL(createTrigger);
+        }
+
+        db.execSQL(TracksFtsColumns.CREATE_TABLE);
+        for (String createTrigger : TracksFtsColumns.CREATE_TRIGGERS) {
+            db.execSQL(createTrigger);
+        }
+        db.execSQL(MarkersFtsColumns.CREATE_TABLE);
+        for (String createTrigger : MarkersFtsColumns.CREATE_TRIGGERS) {
+            db.execSQL(createTrigger);
+        }
+
+        db.execSQL(RecordingTracksColumns.CREATE_TABLE);
+
+        db.execSQL(TrackRollupsColumns.CREATE_TABLE);
+        db.execSQL(TrackRollupsColumns.CREATE_TABLE_INDEX);
+        for (String createTrigger : TrackRollupsColumns.CREATE_TRIGGERS) {
+            db.execSQL(createTrigger);
+        }
+
+        db.execSQL(ImportingTracksColumns.CREATE_TABLE);
     }
 
     @Override
@@ -82,6 +124,18 @@ class CustomSQLiteOpenHelper extends SQLiteOpenHelper {
                 case 36 -> upgradeFrom35to36(db);
                 case 37 -> upgradeFrom36to37(db);
                 case 38 -> upgradeFrom37to38(db);
+                case 39 -> upgradeFrom38to39(db);
+                case 40 -> upgradeFrom39to40(db);
+                case 41 -> upgradeFrom40to41(db);
+                case 42 -> upgradeFrom41to42(db);
+                case 43 -> upgradeFrom42to43(db);
+                case 44 -> upgradeFrom43to44(db);
+                case 45 -> upgradeFrom44to45(db);
+                case 46 -> upgradeFrom45to46(db);
+                case 47 -> upgradeFrom46to47(db);
+                case 48 -> upgradeFrom47to48(db);
+                case 49 -> upgradeFrom48to49(db);
+                case 50 -> upgradeFrom49to50(db);
                 default -> throw new RuntimeException("Not implemented: upgrade to " + toVersion);
             }
         }
@@ -107,6 +161,18 @@ class CustomSQLiteOpenHelper extends SQLiteOpenHelper {
                 case 35 -> downgradeFrom36to35(db);
                 case 36 -> downgradeFrom37to36(db);
                 case 37 -> downgradeFrom38to37(db);
+                case 38 -> downgradeFrom39to38(db);
+                case 39 -> downgradeFrom40to39(db);
+                case 40 -> downgradeFrom41to40(db);
+                case 41 -> downgradeFrom42to41(db);
+                case 42 -> downgradeFrom43to42(db);
+                case 43 -> downgradeFrom44to43(db);
+                case 44 -> downgradeFrom45to44(db);
+                case 45 -> downgradeFrom46to45(db);
+                case 46 -> downgradeFrom47to46(db);
+                case 47 -> downgradeFrom48to47(db);
+                case 48 -> downgradeFrom49to48(db);
+                case 49 -> downgradeFrom50to49(db);
                 default -> throw new RuntimeException("Not implemented: downgrade to " + toVersion);
             }
         }
@@ -670,4 +736,396 @@ class CustomSQLiteOpenHelper extends SQLiteOpenHelper {
         db.endTransaction();
     }
 
+    /**
+     * Add altitude_msl (EGM2008) to TrackPoints; computed in background.
+     */
+    private void upgradeFrom38to39(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        db.execSQL("ALTER TABLE trackpoints ADD COLUMN altitude_msl FLOAT");
+        db.execSQL("CREATE INDEX trackpoints_altitude_msl_missing_index ON trackpoints(_id) WHERE altitude_msl IS NULL AND elevation IS NOT NULL AND latitude IS NOT NULL");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
+
+    private void downgradeFrom39to38(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        db.execSQL("ALTER TABLE trackpoints RENAME TO trackpoints_old");
+        db.execSQL("CREATE TABLE trackpoints (_id INTEGER PRIMARY KEY AUTOINCREMENT, trackid INTEGER NOT NULL, longitude INTEGER, latitude INTEGER, time INTEGER, elevation FLOAT, accuracy FLOAT, speed FLOAT, bearing FLOAT, sensor_heartrate FLOAT, sensor_cadence FLOAT, sensor_power FLOAT, elevation_gain FLOAT, elevation_loss FLOAT, type TEXT CHECK(type IN (-2, -1, 0, 1, 3)), sensor_distance FLOAT, accuracy_vertical FLOAT, FOREIGN KEY (trackid) REFERENCES tracks(_id) ON UPDATE CASCADE ON DELETE CASCADE)");
+        db.execSQL("INSERT INTO trackpoints SELECT _id, trackid, longitude, latitude, time, elevation, accuracy, speed, bearing, sensor_heartrate, sensor_cadence, sensor_power, elevation_gain, elevation_loss, type, sensor_distance, accuracy_vertical FROM trackpoints_old");
+        db.execSQL("DROP TABLE trackpoints_old");
+
+        db.execSQL("CREATE INDEX trackpoints_trackid_index ON trackpoints(trackid)");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
+
+    private void upgradeFrom39to40(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        db.execSQL("ALTER TABLE tracks ADD COLUMN statistics_checkpoint BLOB");
+        db.execSQL("ALTER TABLE tracks ADD COLUMN statistics_checkpoint_trackpointid INTEGER");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
+
+    private void downgradeFrom40to39(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        // Keep the foreign keys of trackpoints and markers pointing to tracks (not tracks_old).
+        db.execSQL("PRAGMA legacy_alter_table=ON");
+
+        db.execSQL("DROP INDEX tracks_uuid_index");
+
+        db.execSQL("ALTER TABLE tracks RENAME TO tracks_old");
+        db.execSQL("CREATE TABLE tracks (_id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT, description TEXT, category TEXT, starttime INTEGER, stoptime INTEGER, numpoints INTEGER, totaldistance FLOAT, totaltime INTEGER, movingtime INTEGER, avgspeed FLOAT, avgmovingspeed FLOAT, maxspeed FLOAT, minelevation FLOAT, maxelevation FLOAT, elevationgain FLOAT, icon TEXT, uuid BLOB, elevationloss FLOAT, starttime_offset INTEGER, activity_type TEXT)");
+        db.execSQL("INSERT INTO tracks SELECT _id, name, description, category, starttime, stoptime, numpoints, totaldistance, totaltime, movingtime, avgspeed, avgmovingspeed, maxspeed, minelevation, maxelevation, elevationgain, icon, uuid, elevationloss, starttime_offset, activity_type FROM tracks_old");
+        db.execSQL("DROP TABLE tracks_old");
+
+        db.execSQL("CREATE UNIQUE INDEX tracks_uuid_index ON tracks(uuid)");
+
+        db.execSQL("PRAGMA legacy_alter_table=OFF");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
+
+    /**
+     * Add composite indexes for lookups of TrackPoints of a track by time and by type.
+     */
+    private void upgradeFrom40to41(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        db.execSQL("CREATE INDEX trackpoints_trackid_time_index ON trackpoints(trackid, time)");
+        db.execSQL("CREATE INDEX trackpoints_trackid_type_index ON trackpoints(trackid, type)");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
+
+    private void downgradeFrom41to40(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        db.execSQL("DROP INDEX trackpoints_trackid_time_index");
+        db.execSQL("DROP INDEX trackpoints_trackid_type_index");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
+
+    /**
+     * Add cache for sensor statistics per track (invalidated via triggers on trackpoints).
+     */
+    private void upgradeFrom41to42(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        db.execSQL("CREATE TABLE track_sensor_stats (trackid INTEGER PRIMARY KEY, avg_hr FLOAT, max_hr FLOAT, avg_cadence FLOAT, max_cadence FLOAT, avg_power FLOAT, max_power FLOAT, FOREIGN KEY (trackid) REFERENCES tracks(_id) ON UPDATE CASCADE ON DELETE CASCADE)");
+        db.execSQL("CREATE TRIGGER track_sensor_stats_insert_trigger AFTER INSERT ON trackpoints BEGIN DELETE FROM track_sensor_stats WHERE trackid = NEW.trackid; END");
+        db.execSQL("CREATE TRIGGER track_sensor_stats_update_trigger AFTER UPDATE OF trackid, time, type, sensor_heartrate, sensor_cadence, sensor_power ON trackpoints BEGIN DELETE FROM track_sensor_stats WHERE trackid IN (OLD.trackid, NEW.trackid); END");
+        db.execSQL("CREATE TRIGGER track_sensor_stats_delete_trigger AFTER DELETE ON trackpoints BEGIN DELETE FROM track_sensor_stats WHERE trackid = OLD.trackid; END");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
+
+    private void downgradeFrom42to41(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        db.execSQL("DROP TRIGGER track_sensor_stats_insert_trigger");
+        db.execSQL("DROP TRIGGER track_sensor_stats_update_trigger");
+        db.execSQL("DROP TRIGGER track_sensor_stats_delete_trigger");
+        db.execSQL("DROP TABLE track_sensor_stats");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
+
+    /**
+     * Add revision per track (incremented via triggers on tracks, markers, and trackpoints).
+     * Revisions start again at 0; so, files that were cached with revisions of a previous upgrade are deleted.
+     */
+    private void upgradeFrom42to43(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        db.execSQL("CREATE TABLE track_revisions (trackid INTEGER PRIMARY KEY, revision INTEGER NOT NULL DEFAULT 0, FOREIGN KEY (trackid) REFERENCES tracks(_id) ON UPDATE CASCADE ON DELETE CASCADE)");
+        db.execSQL("INSERT INTO track_revisions (trackid) SELECT _id FROM tracks");
+        db.execSQL("CREATE TRIGGER track_revisions_tracks_insert_trigger AFTER INSERT ON tracks BEGIN INSERT INTO track_revisions (trackid) VALUES (NEW._id); END");
+        db.execSQL("CREATE TRIGGER track_revisions_tracks_update_trigger AFTER UPDATE ON tracks BEGIN UPDATE track_revisions SET revision = revision + 1 WHERE trackid = NEW._id; END");
+        db.execSQL("CREATE TRIGGER track_revisions_markers_insert_trigger AFTER INSERT ON markers BEGIN UPDATE track_revisions SET revision = revision + 1 WHERE trackid = NEW.trackid; END");
+        db.execSQL("CREATE TRIGGER track_revisions_markers_update_trigger AFTER UPDATE ON markers BEGIN UPDATE track_revisions SET revision = revision + 1 WHERE trackid IN (OLD.trackid, NEW.trackid); END");
+        db.execSQL("CREATE TRIGGER track_revisions_markers_delete_trigger AFTER DELETE ON markers BEGIN UPDATE track_revisions SET revision = revision + 1 WHERE trackid = OLD.trackid; END");
+        db.execSQL("CREATE TRIGGER track_revisions_trackpoints_update_trigger AFTER UPDATE ON trackpoints BEGIN UPDATE track_revisions SET revision = revision + 1 WHERE trackid IN (OLD.trackid, NEW.trackid); END");
+        db.execSQL("CREATE TRIGGER track_revisions_trackpoints_delete_trigger AFTER DELETE ON trackpoints BEGIN UPDATE track_revisions SET revision = revision + 1 WHERE trackid = OLD.trackid; END");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+
+        ShareFileCache.clear(context);
+    }
+
+    private void downgradeFrom43to42(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        db.execSQL("DROP TRIGGER track_revisions_tracks_insert_trigger");
+        db.execSQL("DROP TRIGGER track_revisions_tracks_update_trigger");
+        db.execSQL("DROP TRIGGER track_revisions_markers_insert_trigger");
+        db.execSQL("DROP TRIGGER track_revisions_markers_update_trigger");
+        db.execSQL("DROP TRIGGER track_revisions_markers_delete_trigger");
+        db.execSQL("DROP TRIGGER track_revisions_trackpoints_update_trigger");
+        db.execSQL("DROP TRIGGER track_revisions_trackpoints_delete_trigger");
+        db.execSQL("DROP TABLE track_revisions");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
+
+    /**
+     * Add marker count per track (maintained via triggers on markers) and an index for the order of the track list.
+     */
+    private void upgradeFrom43to44(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        db.execSQL("ALTER TABLE tracks ADD COLUMN marker_count INTEGER NOT NULL DEFAULT 0");
+
+        // Changing only the marker count does not increment the revision (already done by the triggers on markers).
+        db.execSQL("DROP TRIGGER track_revisions_tracks_update_trigger");
+        db.execSQL("CREATE TRIGGER track_revisions_tracks_update_trigger AFTER UPDATE ON tracks WHEN OLD.marker_count = NEW.marker_count BEGIN UPDATE track_revisions SET revision = revision + 1 WHERE trackid = NEW._id; END");
+
+        db.execSQL("UPDATE tracks SET marker_count = (SELECT COUNT(*) FROM markers WHERE markers.trackid = tracks._id)");
+        db.execSQL("CREATE TRIGGER tracks_marker_count_insert_trigger AFTER INSERT ON markers BEGIN UPDATE tracks SET marker_count = marker_count + 1 WHERE _id = NEW.trackid; END");
+        db.execSQL("CREATE TRIGGER tracks_marker_count_update_trigger AFTER UPDATE OF trackid ON markers BEGIN UPDATE tracks SET marker_count = (SELECT COUNT(*) FROM markers WHERE trackid = tracks._id) WHERE _id IN (OLD.trackid, NEW.trackid); END");
+        db.execSQL("CREATE TRIGGER tracks_marker_count_delete_trigger AFTER DELETE ON markers BEGIN UPDATE tracks SET marker_count = marker_count - 1 WHERE _id = OLD.trackid; END");
+
+        db.execSQL("CREATE INDEX tracks_starttime_index ON tracks(starttime, _id)");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
+
+    private void downgradeFrom44to43(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        // Keep the foreign keys of trackpoints, markers, and track_revisions pointing to tracks (not tracks_old).
+        db.execSQL("PRAGMA legacy_alter_table=ON");
+
+        db.execSQL("DROP TRIGGER tracks_marker_count_insert_trigger");
+        db.execSQL("DROP TRIGGER tracks_marker_count_update_trigger");
+        db.execSQL("DROP TRIGGER tracks_marker_count_delete_trigger");
+        db.execSQL("DROP TRIGGER track_revisions_tracks_insert_trigger");
+        db.execSQL("DROP TRIGGER track_revisions_tracks_update_trigger");
+        db.execSQL("DROP INDEX tracks_starttime_index");
+        db.execSQL("DROP INDEX tracks_uuid_index");
+
+        db.execSQL("ALTER TABLE tracks RENAME TO tracks_old");
+        db.execSQL("CREATE TABLE tracks (_id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT, description TEXT, category TEXT, starttime INTEGER, stoptime INTEGER, numpoints INTEGER, totaldistance FLOAT, totaltime INTEGER, movingtime INTEGER, avgspeed FLOAT, avgmovingspeed FLOAT, maxspeed FLOAT, minelevation FLOAT, maxelevation FLOAT, elevationgain FLOAT, icon TEXT, uuid BLOB, elevationloss FLOAT, starttime_offset INTEGER, activity_type TEXT, statistics_checkpoint BLOB, statistics_checkpoint_trackpointid INTEGER)");
+        db.execSQL("INSERT INTO tracks SELECT _id, name, description, category, starttime, stoptime, numpoints, totaldistance, totaltime, movingtime, avgspeed, avgmovingspeed, maxspeed, minelevation, maxelevation, elevationgain, icon, uuid, elevationloss, starttime_offset, activity_type, statistics_checkpoint, statistics_checkpoint_trackpointid FROM tracks_old");
+        db.execSQL("DROP TABLE tracks_old");
+
+        db.execSQL("CREATE UNIQUE INDEX tracks_uuid_index ON tracks(uuid)");
+        db.execSQL("CREATE TRIGGER track_revisions_tracks_insert_trigger AFTER INSERT ON tracks BEGIN INSERT INTO track_revisions (trackid) VALUES (NEW._id); END");
+        db.execSQL("CREATE TRIGGER track_revisions_tracks_update_trigger AFTER UPDATE ON tracks BEGIN UPDATE track_revisions SET revision = revision + 1 WHERE trackid = NEW._id; END");
+
+        db.execSQL("PRAGMA legacy_alter_table=OFF");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
+
+    /**
+     * Add full-text search indexes for tracks and markers (FTS4; kept in sync via triggers).
+     */
+    private void upgradeFrom44to45(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        db.execSQL("CREATE VIRTUAL TABLE tracks_fts USING fts4(content=\"tracks\", name, description, category, tokenize=unicode61, prefix=\"2,3\")");
+        db.execSQL("CREATE TRIGGER tracks_fts_insert_trigger AFTER INSERT ON tracks BEGIN INSERT INTO tracks_fts (docid, name, description, category) VALUES (NEW._id, NEW.name, NEW.description, NEW.category); END");
+        db.execSQL("CREATE TRIGGER tracks_fts_before_update_trigger BEFORE UPDATE OF _id, name, description, category ON tracks WHEN OLD._id IS NOT NEW._id OR OLD.name IS NOT NEW.name OR OLD.description IS NOT NEW.description OR OLD.category IS NOT NEW.category BEGIN DELETE FROM tracks_fts WHERE docid = OLD._id; END");
+        db.execSQL("CREATE TRIGGER tracks_fts_after_update_trigger AFTER UPDATE OF _id, name, description, category ON tracks WHEN OLD._id IS NOT NEW._id OR OLD.name IS NOT NEW.name OR OLD.description IS NOT NEW.description OR OLD.category IS NOT NEW.category BEGIN INSERT INTO tracks_fts (docid, name, description, category) VALUES (NEW._id, NEW.name, NEW.description, NEW.category); END");
+        db.execSQL("CREATE TRIGGER tracks_fts_delete_trigger BEFORE DELETE ON tracks BEGIN DELETE FROM tracks_fts WHERE docid = OLD._id; END");
+        db.execSQL("INSERT INTO tracks_fts(tracks_fts) VALUES('rebuild')");
+
+        db.execSQL("CREATE VIRTUAL TABLE markers_fts USING fts4(content=\"markers\", name, description, category, tokenize=unicode61, prefix=\"2,3\")");
+        db.execSQL("CREATE TRIGGER markers_fts_insert_trigger AFTER INSERT ON markers BEGIN INSERT INTO markers_fts (docid, name, description, category) VALUES (NEW._id, NEW.name, NEW.description, NEW.category); END");
+        db.execSQL("CREATE TRIGGER markers_fts_before_update_trigger BEFORE UPDATE OF _id, name, description, category ON markers WHEN OLD._id IS NOT NEW._id OR OLD.name IS NOT NEW.name OR OLD.description IS NOT NEW.description OR OLD.category IS NOT NEW.category BEGIN DELETE FROM markers_fts WHERE docid = OLD._id; END");
+        db.execSQL("CREATE TRIGGER markers_fts_after_update_trigger AFTER UPDATE OF _id, name, description, category ON markers WHEN OLD._id IS NOT NEW._id OR OLD.name IS NOT NEW.name OR OLD.description IS NOT NEW.description OR OLD.category IS NOT NEW.category BEGIN INSERT INTO markers_fts (docid, name, description, category) VALUES (NEW._id, NEW.name, NEW.description, NEW.category); END");
+        db.execSQL("CREATE TRIGGER markers_fts_delete_trigger BEFORE DELETE ON markers BEGIN DELETE FROM markers_fts WHERE docid = OLD._id; END");
+        db.execSQL("INSERT INTO markers_fts(markers_fts) VALUES('rebuild')");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
+
+    private void downgradeFrom45to44(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        db.execSQL("DROP TRIGGER tracks_fts_insert_trigger");
+        db.execSQL("DROP TRIGGER tracks_fts_before_update_trigger");
+        db.execSQL("DROP TRIGGER tracks_fts_after_update_trigger");
+        db.execSQL("DROP TRIGGER tracks_fts_delete_trigger");
+        db.execSQL("DROP TABLE tracks_fts");
+
+        db.execSQL("DROP TRIGGER markers_fts_insert_trigger");
+        db.execSQL("DROP TRIGGER markers_fts_before_update_trigger");
+        db.execSQL("DROP TRIGGER markers_fts_after_update_trigger");
+        db.execSQL("DROP TRIGGER markers_fts_delete_trigger");
+        db.execSQL("DROP TABLE markers_fts");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
+
+    /**
+     * Add rollups of the track statistics per activity type and day, week, and month (kept up to date via triggers).
+     */
+    private void upgradeFrom45to46(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        db.execSQL("CREATE TABLE track_rollups (category TEXT, period INTEGER NOT NULL, period_start INTEGER NOT NULL, track_count INTEGER NOT NULL, starttime INTEGER, stoptime INTEGER, totaldistance FLOAT, totaltime INTEGER, movingtime INTEGER, maxspeed FLOAT, minelevation FLOAT, maxelevation FLOAT, elevationgain FLOAT, elevationloss FLOAT)");
+        db.execSQL("CREATE UNIQUE INDEX track_rollups_period_index ON track_rollups(period, period_start, category)");
+        db.execSQL("INSERT INTO track_rollups (category, period, period_start, track_count, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss) SELECT category, 0, CAST(strftime('%s', starttime / 1000, 'unixepoch', 'start of day') AS INTEGER) * 1000 AS start, COUNT(*), MIN(starttime), MAX(stoptime), SUM(totaldistance), SUM(totaltime), SUM(movingtime), MAX(maxspeed), MIN(minelevation), MAX(maxelevation), SUM(elevationgain), SUM(elevationloss) FROM tracks WHERE starttime IS NOT NULL GROUP BY category, start");
+        db.execSQL("INSERT INTO track_rollups (category, period, period_start, track_count, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss) SELECT category, 1, CAST(strftime('%s', starttime / 1000, 'unixepoch', 'weekday 0', '-6 days', 'start of day') AS INTEGER) * 1000 AS start, COUNT(*), MIN(starttime), MAX(stoptime), SUM(totaldistance), SUM(totaltime), SUM(movingtime), MAX(maxspeed), MIN(minelevation), MAX(maxelevation), SUM(elevationgain), SUM(elevationloss) FROM tracks WHERE starttime IS NOT NULL GROUP BY category, start");
+        db.execSQL("INSERT INTO track_rollups (category, period, period_start, track_count, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss) SELECT category, 2, CAST(strftime('%s', starttime / 1000, 'unixepoch', 'start of month') AS INTEGER) * 1000 AS start, COUNT(*), MIN(starttime), MAX(stoptime), SUM(totaldistance), SUM(totaltime), SUM(movingtime), MAX(maxspeed), MIN(minelevation), MAX(maxelevation), SUM(elevationgain), SUM(elevationloss) FROM tracks WHERE starttime IS NOT NULL GROUP BY category, start");
+        db.execSQL("CREATE TRIGGER track_rollups_insert_trigger AFTER INSERT ON tracks BEGIN DELETE FROM track_rollups WHERE period = 0 AND period_start = CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of day') AS INTEGER) * 1000 AND category IS NEW.category; INSERT INTO track_rollups (category, period, period_start, track_count, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss) SELECT NEW.category, 0, CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of day') AS INTEGER) * 1000, COUNT(*), MIN(starttime), MAX(stoptime), SUM(totaldistance), SUM(totaltime), SUM(movingtime), MAX(maxspeed), MIN(minelevation), MAX(maxelevation), SUM(elevationgain), SUM(elevationloss) FROM tracks WHERE category IS NEW.category AND starttime >= CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of day') AS INTEGER) * 1000 AND starttime < CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of day', '+1 days') AS INTEGER) * 1000 GROUP BY category; DELETE FROM track_rollups WHERE period = 1 AND period_start = CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'weekday 0', '-6 days', 'start of day') AS INTEGER) * 1000 AND category IS NEW.category; INSERT INTO track_rollups (category, period, period_start, track_count, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss) SELECT NEW.category, 1, CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'weekday 0', '-6 days', 'start of day') AS INTEGER) * 1000, COUNT(*), MIN(starttime), MAX(stoptime), SUM(totaldistance), SUM(totaltime), SUM(movingtime), MAX(maxspeed), MIN(minelevation), MAX(maxelevation), SUM(elevationgain), SUM(elevationloss) FROM tracks WHERE category IS NEW.category AND starttime >= CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'weekday 0', '-6 days', 'start of day') AS INTEGER) * 1000 AND starttime < CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'weekday 0', '+1 days', 'start of day') AS INTEGER) * 1000 GROUP BY category; DELETE FROM track_rollups WHERE period = 2 AND period_start = CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of month') AS INTEGER) * 1000 AND category IS NEW.category; INSERT INTO track_rollups (category, period, period_start, track_count, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss) SELECT NEW.category, 2, CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of month') AS INTEGER) * 1000, COUNT(*), MIN(starttime), MAX(stoptime), SUM(totaldistance), SUM(totaltime), SUM(movingtime), MAX(maxspeed), MIN(minelevation), MAX(maxelevation), SUM(elevationgain), SUM(elevationloss) FROM tracks WHERE category IS NEW.category AND starttime >= CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of month') AS INTEGER) * 1000 AND starttime < CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of month', '+1 months') AS INTEGER) * 1000 GROUP BY category; END");
+        db.execSQL("CREATE TRIGGER track_rollups_update_old_trigger AFTER UPDATE OF category, starttime ON tracks WHEN OLD.category IS NOT NEW.category OR OLD.starttime IS NOT NEW.starttime BEGIN DELETE FROM track_rollups WHERE period = 0 AND period_start = CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of day') AS INTEGER) * 1000 AND category IS OLD.category; INSERT INTO track_rollups (category, period, period_start, track_count, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss) SELECT OLD.category, 0, CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of day') AS INTEGER) * 1000, COUNT(*), MIN(starttime), MAX(stoptime), SUM(totaldistance), SUM(totaltime), SUM(movingtime), MAX(maxspeed), MIN(minelevation), MAX(maxelevation), SUM(elevationgain), SUM(elevationloss) FROM tracks WHERE category IS OLD.category AND starttime >= CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of day') AS INTEGER) * 1000 AND starttime < CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of day', '+1 days') AS INTEGER) * 1000 GROUP BY category; DELETE FROM track_rollups WHERE period = 1 AND period_start = CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'weekday 0', '-6 days', 'start of day') AS INTEGER) * 1000 AND category IS OLD.category; INSERT INTO track_rollups (category, period, period_start, track_count, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss) SELECT OLD.category, 1, CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'weekday 0', '-6 days', 'start of day') AS INTEGER) * 1000, COUNT(*), MIN(starttime), MAX(stoptime), SUM(totaldistance), SUM(totaltime), SUM(movingtime), MAX(maxspeed), MIN(minelevation), MAX(maxelevation), SUM(elevationgain), SUM(elevationloss) FROM tracks WHERE category IS OLD.category AND starttime >= CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'weekday 0', '-6 days', 'start of day') AS INTEGER) * 1000 AND starttime < CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'weekday 0', '+1 days', 'start of day') AS INTEGER) * 1000 GROUP BY category; DELETE FROM track_rollups WHERE period = 2 AND period_start = CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of month') AS INTEGER) * 1000 AND category IS OLD.category; INSERT INTO track_rollups (category, period, period_start, track_count, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss) SELECT OLD.category, 2, CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of month') AS INTEGER) * 1000, COUNT(*), MIN(starttime), MAX(stoptime), SUM(totaldistance), SUM(totaltime), SUM(movingtime), MAX(maxspeed), MIN(minelevation), MAX(maxelevation), SUM(elevationgain), SUM(elevationloss) FROM tracks WHERE category IS OLD.category AND starttime >= CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of month') AS INTEGER) * 1000 AND starttime < CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of month', '+1 months') AS INTEGER) * 1000 GROUP BY category; END");
+        db.execSQL("CREATE TRIGGER track_rollups_update_new_trigger AFTER UPDATE OF category, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss ON tracks WHEN OLD.category IS NOT NEW.category OR OLD.starttime IS NOT NEW.starttime OR OLD.stoptime IS NOT NEW.stoptime OR OLD.totaldistance IS NOT NEW.totaldistance OR OLD.totaltime IS NOT NEW.totaltime OR OLD.movingtime IS NOT NEW.movingtime OR OLD.maxspeed IS NOT NEW.maxspeed OR OLD.minelevation IS NOT NEW.minelevation OR OLD.maxelevation IS NOT NEW.maxelevation OR OLD.elevationgain IS NOT NEW.elevationgain OR OLD.elevationloss IS NOT NEW.elevationloss BEGIN DELETE FROM track_rollups WHERE period = 0 AND period_start = CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of day') AS INTEGER) * 1000 AND category IS NEW.category; INSERT INTO track_rollups (category, period, period_start, track_count, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss) SELECT NEW.category, 0, CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of day') AS INTEGER) * 1000, COUNT(*), MIN(starttime), MAX(stoptime), SUM(totaldistance), SUM(totaltime), SUM(movingtime), MAX(maxspeed), MIN(minelevation), MAX(maxelevation), SUM(elevationgain), SUM(elevationloss) FROM tracks WHERE category IS NEW.category AND starttime >= CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of day') AS INTEGER) * 1000 AND starttime < CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of day', '+1 days') AS INTEGER) * 1000 GROUP BY category; DELETE FROM track_rollups WHERE period = 1 AND period_start = CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'weekday 0', '-6 days', 'start of day') AS INTEGER) * 1000 AND category IS NEW.category; INSERT INTO track_rollups (category, period, period_start, track_count, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss) SELECT NEW.category, 1, CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'weekday 0', '-6 days', 'start of day') AS INTEGER) * 1000, COUNT(*), MIN(starttime), MAX(stoptime), SUM(totaldistance), SUM(totaltime), SUM(movingtime), MAX(maxspeed), MIN(minelevation), MAX(maxelevation), SUM(elevationgain), SUM(elevationloss) FROM tracks WHERE category IS NEW.category AND starttime >= CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'weekday 0', '-6 days', 'start of day') AS INTEGER) * 1000 AND starttime < CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'weekday 0', '+1 days', 'start of day') AS INTEGER) * 1000 GROUP BY category; DELETE FROM track_rollups WHERE period = 2 AND period_start = CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of month') AS INTEGER) * 1000 AND category IS NEW.category; INSERT INTO track_rollups (category, period, period_start, track_count, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss) SELECT NEW.category, 2, CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of month') AS INTEGER) * 1000, COUNT(*), MIN(starttime), MAX(stoptime), SUM(totaldistance), SUM(totaltime), SUM(movingtime), MAX(maxspeed), MIN(minelevation), MAX(maxelevation), SUM(elevationgain), SUM(elevationloss) FROM tracks WHERE category IS NEW.category AND starttime >= CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of month') AS INTEGER) * 1000 AND starttime < CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of month', '+1 months') AS INTEGER) * 1000 GROUP BY category; END");
+        db.execSQL("CREATE TRIGGER track_rollups_delete_trigger AFTER DELETE ON tracks BEGIN DELETE FROM track_rollups WHERE period = 0 AND period_start = CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of day') AS INTEGER) * 1000 AND category IS OLD.category; INSERT INTO track_rollups (category, period, period_start, track_count, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss) SELECT OLD.category, 0, CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of day') AS INTEGER) * 1000, COUNT(*), MIN(starttime), MAX(stoptime), SUM(totaldistance), SUM(totaltime), SUM(movingtime), MAX(maxspeed), MIN(minelevation), MAX(maxelevation), SUM(elevationgain), SUM(elevationloss) FROM tracks WHERE category IS OLD.category AND starttime >= CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of day') AS INTEGER) * 1000 AND starttime < CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of day', '+1 days') AS INTEGER) * 1000 GROUP BY category; DELETE FROM track_rollups WHERE period = 1 AND period_start = CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'weekday 0', '-6 days', 'start of day') AS INTEGER) * 1000 AND category IS OLD.category; INSERT INTO track_rollups (category, period, period_start, track_count, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss) SELECT OLD.category, 1, CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'weekday 0', '-6 days', 'start of day') AS INTEGER) * 1000, COUNT(*), MIN(starttime), MAX(stoptime), SUM(totaldistance), SUM(totaltime), SUM(movingtime), MAX(maxspeed), MIN(minelevation), MAX(maxelevation), SUM(elevationgain), SUM(elevationloss) FROM tracks WHERE category IS OLD.category AND starttime >= CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'weekday 0', '-6 days', 'start of day') AS INTEGER) * 1000 AND starttime < CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'weekday 0', '+1 days', 'start of day') AS INTEGER) * 1000 GROUP BY category; DELETE FROM track_rollups WHERE period = 2 AND period_start = CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of month') AS INTEGER) * 1000 AND category IS OLD.category; INSERT INTO track_rollups (category, period, period_start, track_count, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss) SELECT OLD.category, 2, CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of month') AS INTEGER) * 1000, COUNT(*), MIN(starttime), MAX(stoptime), SUM(totaldistance), SUM(totaltime), SUM(movingtime), MAX(maxspeed), MIN(minelevation), MAX(maxelevation), SUM(elevationgain), SUM(elevationloss) FROM tracks WHERE category IS OLD.category AND starttime >= CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of month') AS INTEGER) * 1000 AND starttime < CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of month', '+1 months') AS INTEGER) * 1000 GROUP BY category; END");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
+
+    private void downgradeFrom46to45(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        db.execSQL("DROP TRIGGER track_rollups_insert_trigger");
+        db.execSQL("DROP TRIGGER track_rollups_update_old_trigger");
+        db.execSQL("DROP TRIGGER track_rollups_update_new_trigger");
+        db.execSQL("DROP TRIGGER track_rollups_delete_trigger");
+        db.execSQL("DROP INDEX track_rollups_period_index");
+        db.execSQL("DROP TABLE track_rollups");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
+
+    /**
+     * Only updates of exported TrackPoint columns increment the track's revision (not altitude_msl).
+     */
+    private void upgradeFrom46to47(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        db.execSQL("DROP TRIGGER track_revisions_trackpoints_update_trigger");
+        db.execSQL("CREATE TRIGGER track_revisions_trackpoints_update_trigger AFTER UPDATE OF trackid, longitude, latitude, time, elevation, accuracy, speed, bearing, sensor_heartrate, sensor_cadence, sensor_power, elevation_gain, elevation_loss, type, sensor_distance, accuracy_vertical ON trackpoints BEGIN UPDATE track_revisions SET revision = revision + 1 WHERE trackid IN (OLD.trackid, NEW.trackid); END");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
+
+    private void downgradeFrom47to46(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        db.execSQL("DROP TRIGGER track_revisions_trackpoints_update_trigger");
+        db.execSQL("CREATE TRIGGER track_revisions_trackpoints_update_trigger AFTER UPDATE ON trackpoints BEGIN UPDATE track_revisions SET revision = revision + 1 WHERE trackid IN (OLD.trackid, NEW.trackid); END");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
+
+    /**
+     * Add importing tracks (hidden until the import finished).
+     */
+    private void upgradeFrom47to48(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        db.execSQL("CREATE TABLE importing_tracks (trackid INTEGER PRIMARY KEY, FOREIGN KEY (trackid) REFERENCES tracks(_id) ON UPDATE CASCADE ON DELETE CASCADE)");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
+
+    private void downgradeFrom48to47(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        // Foreign keys are not enforced while downgrading.
+        db.execSQL("DELETE FROM trackpoints WHERE trackid IN (SELECT trackid FROM importing_tracks)");
+        db.execSQL("DELETE FROM markers WHERE trackid IN (SELECT trackid FROM importing_tracks)");
+        db.execSQL("DELETE FROM tracks WHERE _id IN (SELECT trackid FROM importing_tracks)");
+        db.execSQL("DROP TABLE importing_tracks");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
+
+    /**
+     * Cached sensor statistics store the last TrackPoint id instead of being deleted by a trigger for every inserted TrackPoint.
+     * The cache is dropped.
+     */
+    private void upgradeFrom48to49(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        db.execSQL("DROP TRIGGER track_sensor_stats_insert_trigger");
+        db.execSQL("DROP TABLE track_sensor_stats");
+        db.execSQL("CREATE TABLE track_sensor_stats (trackid INTEGER PRIMARY KEY, avg_hr FLOAT, max_hr FLOAT, avg_cadence FLOAT, max_cadence FLOAT, avg_power FLOAT, max_power FLOAT, last_trackpointid INTEGER, FOREIGN KEY (trackid) REFERENCES tracks(_id) ON UPDATE CASCADE ON DELETE CASCADE)");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
+
+    private void downgradeFrom49to48(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        db.execSQL("DROP TABLE track_sensor_stats");
+        db.execSQL("CREATE TABLE track_sensor_stats (trackid INTEGER PRIMARY KEY, avg_hr FLOAT, max_hr FLOAT, avg_cadence FLOAT, max_cadence FLOAT, avg_power FLOAT, max_power FLOAT, FOREIGN KEY (trackid) REFERENCES tracks(_id) ON UPDATE CASCADE ON DELETE CASCADE)");
+        db.execSQL("CREATE TRIGGER track_sensor_stats_insert_trigger AFTER INSERT ON trackpoints BEGIN DELETE FROM track_sensor_stats WHERE trackid = NEW.trackid; END");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
+
+    /**
+     * The recording track is not contained in the track rollups until the recording ends; so, statistics updates while recording do not recompute rollups.
+     */
+    private void upgradeFrom49to50(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        db.execSQL("CREATE TABLE recording_tracks (trackid INTEGER PRIMARY KEY, FOREIGN KEY (trackid) REFERENCES tracks(_id) ON UPDATE CASCADE ON DELETE CASCADE)");
+        db.execSQL("DROP TRIGGER track_rollups_insert_trigger");
+        db.execSQL("DROP TRIGGER track_rollups_update_old_trigger");
+        db.execSQL("DROP TRIGGER track_rollups_update_new_trigger");
+        db.execSQL("DROP TRIGGER track_rollups_delete_trigger");
+        db.execSQL("CREATE TRIGGER track_rollups_insert_trigger AFTER INSERT ON tracks BEGIN DELETE FROM track_rollups WHERE period = 0 AND period_start = CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of day') AS INTEGER) * 1000 AND category IS NEW.category; INSERT INTO track_rollups (category, period, period_start, track_count, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss) SELECT NEW.category, 0, CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of day') AS INTEGER) * 1000, COUNT(*), MIN(starttime), MAX(stoptime), SUM(totaldistance), SUM(totaltime), SUM(movingtime), MAX(maxspeed), MIN(minelevation), MAX(maxelevation), SUM(elevationgain), SUM(elevationloss) FROM tracks WHERE category IS NEW.category AND starttime >= CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of day') AS INTEGER) * 1000 AND starttime < CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of day', '+1 days') AS INTEGER) * 1000 AND tracks._id NOT IN (SELECT trackid FROM recording_tracks) GROUP BY category; DELETE FROM track_rollups WHERE period = 1 AND period_start = CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'weekday 0', '-6 days', 'start of day') AS INTEGER) * 1000 AND category IS NEW.category; INSERT INTO track_rollups (category, period, period_start, track_count, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss) SELECT NEW.category, 1, CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'weekday 0', '-6 days', 'start of day') AS INTEGER) * 1000, COUNT(*), MIN(starttime), MAX(stoptime), SUM(totaldistance), SUM(totaltime), SUM(movingtime), MAX(maxspeed), MIN(minelevation), MAX(maxelevation), SUM(elevationgain), SUM(elevationloss) FROM tracks WHERE category IS NEW.category AND starttime >= CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'weekday 0', '-6 days', 'start of day') AS INTEGER) * 1000 AND starttime < CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'weekday 0', '+1 days', 'start of day') AS INTEGER) * 1000 AND tracks._id NOT IN (SELECT trackid FROM recording_tracks) GROUP BY category; DELETE FROM track_rollups WHERE period = 2 AND period_start = CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of month') AS INTEGER) * 1000 AND category IS NEW.category; INSERT INTO track_rollups (category, period, period_start, track_count, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss) SELECT NEW.category, 2, CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of month') AS INTEGER) * 1000, COUNT(*), MIN(starttime), MAX(stoptime), SUM(totaldistance), SUM(totaltime), SUM(movingtime), MAX(maxspeed), MIN(minelevation), MAX(maxelevation), SUM(elevationgain), SUM(elevationloss) FROM tracks WHERE category IS NEW.category AND starttime >= CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of month') AS INTEGER) * 1000 AND starttime < CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of month', '+1 months') AS INTEGER) * 1000 AND tracks._id NOT IN (SELECT trackid FROM recording_tracks) GROUP BY category; END");
+        db.execSQL("CREATE TRIGGER track_rollups_update_old_trigger AFTER UPDATE OF category, starttime ON tracks WHEN (OLD.category IS NOT NEW.category OR OLD.starttime IS NOT NEW.starttime) AND NEW._id NOT IN (SELECT trackid FROM recording_tracks) BEGIN DELETE FROM track_rollups WHERE period = 0 AND period_start = CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of day') AS INTEGER) * 1000 AND category IS OLD.category; INSERT INTO track_rollups (category, period, period_start, track_count, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss) SELECT OLD.category, 0, CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of day') AS INTEGER) * 1000, COUNT(*), MIN(starttime), MAX(stoptime), SUM(totaldistance), SUM(totaltime), SUM(movingtime), MAX(maxspeed), MIN(minelevation), MAX(maxelevation), SUM(elevationgain), SUM(elevationloss) FROM tracks WHERE category IS OLD.category AND starttime >= CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of day') AS INTEGER) * 1000 AND starttime < CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of day', '+1 days') AS INTEGER) * 1000 AND tracks._id NOT IN (SELECT trackid FROM recording_tracks) GROUP BY category; DELETE FROM track_rollups WHERE period = 1 AND period_start = CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'weekday 0', '-6 days', 'start of day') AS INTEGER) * 1000 AND category IS OLD.category; INSERT INTO track_rollups (category, period, period_start, track_count, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss) SELECT OLD.category, 1, CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'weekday 0', '-6 days', 'start of day') AS INTEGER) * 1000, COUNT(*), MIN(starttime), MAX(stoptime), SUM(totaldistance), SUM(totaltime), SUM(movingtime), MAX(maxspeed), MIN(minelevation), MAX(maxelevation), SUM(elevationgain), SUM(elevationloss) FROM tracks WHERE category IS OLD.category AND starttime >= CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'weekday 0', '-6 days', 'start of day') AS INTEGER) * 1000 AND starttime < CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'weekday 0', '+1 days', 'start of day') AS INTEGER) * 1000 AND tracks._id NOT IN (SELECT trackid FROM recording_tracks) GROUP BY category; DELETE FROM track_rollups WHERE period = 2 AND period_start = CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of month') AS INTEGER) * 1000 AND category IS OLD.category; INSERT INTO track_rollups (category, period, period_start, track_count, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss) SELECT OLD.category, 2, CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of month') AS INTEGER) * 1000, COUNT(*), MIN(starttime), MAX(stoptime), SUM(totaldistance), SUM(totaltime), SUM(movingtime), MAX(maxspeed), MIN(minelevation), MAX(maxelevation), SUM(elevationgain), SUM(elevationloss) FROM tracks WHERE category IS OLD.category AND starttime >= CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of month') AS INTEGER) * 1000 AND starttime < CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of month', '+1 months') AS INTEGER) * 1000 AND tracks._id NOT IN (SELECT trackid FROM recording_tracks) GROUP BY category; END");
+        db.execSQL("CREATE TRIGGER track_rollups_update_new_trigger AFTER UPDATE OF category, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss ON tracks WHEN (OLD.category IS NOT NEW.category OR OLD.starttime IS NOT NEW.starttime OR OLD.stoptime IS NOT NEW.stoptime OR OLD.totaldistance IS NOT NEW.totaldistance OR OLD.totaltime IS NOT NEW.totaltime OR OLD.movingtime IS NOT NEW.movingtime OR OLD.maxspeed IS NOT NEW.maxspeed OR OLD.minelevation IS NOT NEW.minelevation OR OLD.maxelevation IS NOT NEW.maxelevation OR OLD.elevationgain IS NOT NEW.elevationgain OR OLD.elevationloss IS NOT NEW.elevationloss) AND NEW._id NOT IN (SELECT trackid FROM recording_tracks) BEGIN DELETE FROM track_rollups WHERE period = 0 AND period_start = CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of day') AS INTEGER) * 1000 AND category IS NEW.category; INSERT INTO track_rollups (category, period, period_start, track_count, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss) SELECT NEW.category, 0, CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of day') AS INTEGER) * 1000, COUNT(*), MIN(starttime), MAX(stoptime), SUM(totaldistance), SUM(totaltime), SUM(movingtime), MAX(maxspeed), MIN(minelevation), MAX(maxelevation), SUM(elevationgain), SUM(elevationloss) FROM tracks WHERE category IS NEW.category AND starttime >= CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of day') AS INTEGER) * 1000 AND starttime < CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of day', '+1 days') AS INTEGER) * 1000 AND tracks._id NOT IN (SELECT trackid FROM recording_tracks) GROUP BY category; DELETE FROM track_rollups WHERE period = 1 AND period_start = CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'weekday 0', '-6 days', 'start of day') AS INTEGER) * 1000 AND category IS NEW.category; INSERT INTO track_rollups (category, period, period_start, track_count, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss) SELECT NEW.category, 1, CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'weekday 0', '-6 days', 'start of day') AS INTEGER) * 1000, COUNT(*), MIN(starttime), MAX(stoptime), SUM(totaldistance), SUM(totaltime), SUM(movingtime), MAX(maxspeed), MIN(minelevation), MAX(maxelevation), SUM(elevationgain), SUM(elevationloss) FROM tracks WHERE category IS NEW.category AND starttime >= CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'weekday 0', '-6 days', 'start of day') AS INTEGER) * 1000 AND starttime < CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'weekday 0', '+1 days', 'start of day') AS INTEGER) * 1000 AND tracks._id NOT IN (SELECT trackid FROM recording_tracks) GROUP BY category; DELETE FROM track_rollups WHERE period = 2 AND period_start = CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of month') AS INTEGER) * 1000 AND category IS NEW.category; INSERT INTO track_rollups (category, period, period_start, track_count, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss) SELECT NEW.category, 2, CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of month') AS INTEGER) * 1000, COUNT(*), MIN(starttime), MAX(stoptime), SUM(totaldistance), SUM(totaltime), SUM(movingtime), MAX(maxspeed), MIN(minelevation), MAX(maxelevation), SUM(elevationgain), SUM(elevationloss) FROM tracks WHERE category IS NEW.category AND starttime >= CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of month') AS INTEGER) * 1000 AND starttime < CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of month', '+1 months') AS INTEGER) * 1000 AND tracks._id NOT IN (SELECT trackid FROM recording_tracks) GROUP BY category; END");
+        db.execSQL("CREATE TRIGGER track_rollups_delete_trigger AFTER DELETE ON tracks BEGIN DELETE FROM track_rollups WHERE period = 0 AND period_start = CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of day') AS INTEGER) * 1000 AND category IS OLD.category; INSERT INTO track_rollups (category, period, period_start, track_count, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss) SELECT OLD.category, 0, CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of day') AS INTEGER) * 1000, COUNT(*), MIN(starttime), MAX(stoptime), SUM(totaldistance), SUM(totaltime), SUM(movingtime), MAX(maxspeed), MIN(minelevation), MAX(maxelevation), SUM(elevationgain), SUM(elevationloss) FROM tracks WHERE category IS OLD.category AND starttime >= CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of day') AS INTEGER) * 1000 AND starttime < CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of day', '+1 days') AS INTEGER) * 1000 AND tracks._id NOT IN (SELECT trackid FROM recording_tracks) GROUP BY category; DELETE FROM track_rollups WHERE period = 1 AND period_start = CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'weekday 0', '-6 days', 'start of day') AS INTEGER) * 1000 AND category IS OLD.category; INSERT INTO track_rollups (category, period, period_start, track_count, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss) SELECT OLD.category, 1, CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'weekday 0', '-6 days', 'start of day') AS INTEGER) * 1000, COUNT(*), MIN(starttime), MAX(stoptime), SUM(totaldistance), SUM(totaltime), SUM(movingtime), MAX(maxspeed), MIN(minelevation), MAX(maxelevation), SUM(elevationgain), SUM(elevationloss) FROM tracks WHERE category IS OLD.category AND starttime >= CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'weekday 0', '-6 days', 'start of day') AS INTEGER) * 1000 AND starttime < CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'weekday 0', '+1 days', 'start of day') AS INTEGER) * 1000 AND tracks._id NOT IN (SELECT trackid FROM recording_tracks) GROUP BY category; DELETE FROM track_rollups WHERE period = 2 AND period_start = CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of month') AS INTEGER) * 1000 AND category IS OLD.category; INSERT INTO track_rollups (category, period, period_start, track_count, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss) SELECT OLD.category, 2, CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of month') AS INTEGER) * 1000, COUNT(*), MIN(starttime), MAX(stoptime), SUM(totaldistance), SUM(totaltime), SUM(movingtime), MAX(maxspeed), MIN(minelevation), MAX(maxelevation), SUM(elevationgain), SUM(elevationloss) FROM tracks WHERE category IS OLD.category AND starttime >= CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of month') AS INTEGER) * 1000 AND starttime < CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of month', '+1 months') AS INTEGER) * 1000 AND tracks._id NOT IN (SELECT trackid FROM recording_tracks) GROUP BY category; END");
+        db.execSQL("CREATE TRIGGER track_rollups_recording_insert_trigger AFTER INSERT ON recording_tracks BEGIN DELETE FROM track_rollups WHERE period = 0 AND period_start = CAST(strftime('%s', (SELECT starttime FROM tracks WHERE _id = NEW.trackid) / 1000, 'unixepoch', 'start of day') AS INTEGER) * 1000 AND category IS (SELECT category FROM tracks WHERE _id = NEW.trackid); INSERT INTO track_rollups (category, period, period_start, track_count, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss) SELECT (SELECT category FROM tracks WHERE _id = NEW.trackid), 0, CAST(strftime('%s', (SELECT starttime FROM tracks WHERE _id = NEW.trackid) / 1000, 'unixepoch', 'start of day') AS INTEGER) * 1000, COUNT(*), MIN(starttime), MAX(stoptime), SUM(totaldistance), SUM(totaltime), SUM(movingtime), MAX(maxspeed), MIN(minelevation), MAX(maxelevation), SUM(elevationgain), SUM(elevationloss) FROM tracks WHERE category IS (SELECT category FROM tracks WHERE _id = NEW.trackid) AND starttime >= CAST(strftime('%s', (SELECT starttime FROM tracks WHERE _id = NEW.trackid) / 1000, 'unixepoch', 'start of day') AS INTEGER) * 1000 AND starttime < CAST(strftime('%s', (SELECT starttime FROM tracks WHERE _id = NEW.trackid) / 1000, 'unixepoch', 'start of day', '+1 days') AS INTEGER) * 1000 AND tracks._id NOT IN (SELECT trackid FROM recording_tracks) GROUP BY category; DELETE FROM track_rollups WHERE period = 1 AND period_start = CAST(strftime('%s', (SELECT starttime FROM tracks WHERE _id = NEW.trackid) / 1000, 'unixepoch', 'weekday 0', '-6 days', 'start of day') AS INTEGER) * 1000 AND category IS (SELECT category FROM tracks WHERE _id = NEW.trackid); INSERT INTO track_rollups (category, period, period_start, track_count, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss) SELECT (SELECT category FROM tracks WHERE _id = NEW.trackid), 1, CAST(strftime('%s', (SELECT starttime FROM tracks WHERE _id = NEW.trackid) / 1000, 'unixepoch', 'weekday 0', '-6 days', 'start of day') AS INTEGER) * 1000, COUNT(*), MIN(starttime), MAX(stoptime), SUM(totaldistance), SUM(totaltime), SUM(movingtime), MAX(maxspeed), MIN(minelevation), MAX(maxelevation), SUM(elevationgain), SUM(elevationloss) FROM tracks WHERE category IS (SELECT category FROM tracks WHERE _id = NEW.trackid) AND starttime >= CAST(strftime('%s', (SELECT starttime FROM tracks WHERE _id = NEW.trackid) / 1000, 'unixepoch', 'weekday 0', '-6 days', 'start of day') AS INTEGER) * 1000 AND starttime < CAST(strftime('%s', (SELECT starttime FROM tracks WHERE _id = NEW.trackid) / 1000, 'unixepoch', 'weekday 0', '+1 days', 'start of day') AS INTEGER) * 1000 AND tracks._id NOT IN (SELECT trackid FROM recording_tracks) GROUP BY category; DELETE FROM track_rollups WHERE period = 2 AND period_start = CAST(strftime('%s', (SELECT starttime FROM tracks WHERE _id = NEW.trackid) / 1000, 'unixepoch', 'start of month') AS INTEGER) * 1000 AND category IS (SELECT category FROM tracks WHERE _id = NEW.trackid); INSERT INTO track_rollups (category, period, period_start, track_count, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss) SELECT (SELECT category FROM tracks WHERE _id = NEW.trackid), 2, CAST(strftime('%s', (SELECT starttime FROM tracks WHERE _id = NEW.trackid) / 1000, 'unixepoch', 'start of month') AS INTEGER) * 1000, COUNT(*), MIN(starttime), MAX(stoptime), SUM(totaldistance), SUM(totaltime), SUM(movingtime), MAX(maxspeed), MIN(minelevation), MAX(maxelevation), SUM(elevationgain), SUM(elevationloss) FROM tracks WHERE category IS (SELECT category FROM tracks WHERE _id = NEW.trackid) AND starttime >= CAST(strftime('%s', (SELECT starttime FROM tracks WHERE _id = NEW.trackid) / 1000, 'unixepoch', 'start of month') AS INTEGER) * 1000 AND starttime < CAST(strftime('%s', (SELECT starttime FROM tracks WHERE _id = NEW.trackid) / 1000, 'unixepoch', 'start of month', '+1 months') AS INTEGER) * 1000 AND tracks._id NOT IN (SELECT trackid FROM recording_tracks) GROUP BY category; END");
+        db.execSQL("CREATE TRIGGER track_rollups_recording_delete_trigger AFTER DELETE ON recording_tracks BEGIN DELETE FROM track_rollups WHERE period = 0 AND period_start = CAST(strftime('%s', (SELECT starttime FROM tracks WHERE _id = OLD.trackid) / 1000, 'unixepoch', 'start of day') AS INTEGER) * 1000 AND category IS (SELECT category FROM tracks WHERE _id = OLD.trackid); INSERT INTO track_rollups (category, period, period_start, track_count, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss) SELECT (SELECT category FROM tracks WHERE _id = OLD.trackid), 0, CAST(strftime('%s', (SELECT starttime FROM tracks WHERE _id = OLD.trackid) / 1000, 'unixepoch', 'start of day') AS INTEGER) * 1000, COUNT(*), MIN(starttime), MAX(stoptime), SUM(totaldistance), SUM(totaltime), SUM(movingtime), MAX(maxspeed), MIN(minelevation), MAX(maxelevation), SUM(elevationgain), SUM(elevationloss) FROM tracks WHERE category IS (SELECT category FROM tracks WHERE _id = OLD.trackid) AND starttime >= CAST(strftime('%s', (SELECT starttime FROM tracks WHERE _id = OLD.trackid) / 1000, 'unixepoch', 'start of day') AS INTEGER) * 1000 AND starttime < CAST(strftime('%s', (SELECT starttime FROM tracks WHERE _id = OLD.trackid) / 1000, 'unixepoch', 'start of day', '+1 days') AS INTEGER) * 1000 AND tracks._id NOT IN (SELECT trackid FROM recording_tracks) GROUP BY category; DELETE FROM track_rollups WHERE period = 1 AND period_start = CAST(strftime('%s', (SELECT starttime FROM tracks WHERE _id = OLD.trackid) / 1000, 'unixepoch', 'weekday 0', '-6 days', 'start of day') AS INTEGER) * 1000 AND category IS (SELECT category FROM tracks WHERE _id = OLD.trackid); INSERT INTO track_rollups (category, period, period_start, track_count, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss) SELECT (SELECT category FROM tracks WHERE _id = OLD.trackid), 1, CAST(strftime('%s', (SELECT starttime FROM tracks WHERE _id = OLD.trackid) / 1000, 'unixepoch', 'weekday 0', '-6 days', 'start of day') AS INTEGER) * 1000, COUNT(*), MIN(starttime), MAX(stoptime), SUM(totaldistance), SUM(totaltime), SUM(movingtime), MAX(maxspeed), MIN(minelevation), MAX(maxelevation), SUM(elevationgain), SUM(elevationloss) FROM tracks WHERE category IS (SELECT category FROM tracks WHERE _id = OLD.trackid) AND starttime >= CAST(strftime('%s', (SELECT starttime FROM tracks WHERE _id = OLD.trackid) / 1000, 'unixepoch', 'weekday 0', '-6 days', 'start of day') AS INTEGER) * 1000 AND starttime < CAST(strftime('%s', (SELECT starttime FROM tracks WHERE _id = OLD.trackid) / 1000, 'unixepoch', 'weekday 0', '+1 days', 'start of day') AS INTEGER) * 1000 AND tracks._id NOT IN (SELECT trackid FROM recording_tracks) GROUP BY category; DELETE FROM track_rollups WHERE period = 2 AND period_start = CAST(strftime('%s', (SELECT starttime FROM tracks WHERE _id = OLD.trackid) / 1000, 'unixepoch', 'start of month') AS INTEGER) * 1000 AND category IS (SELECT category FROM tracks WHERE _id = OLD.trackid); INSERT INTO track_rollups (category, period, period_start, track_count, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss) SELECT (SELECT category FROM tracks WHERE _id = OLD.trackid), 2, CAST(strftime('%s', (SELECT starttime FROM tracks WHERE _id = OLD.trackid) / 1000, 'unixepoch', 'start of month') AS INTEGER) * 1000, COUNT(*), MIN(starttime), MAX(stoptime), SUM(totaldistance), SUM(totaltime), SUM(movingtime), MAX(maxspeed), MIN(minelevation), MAX(maxelevation), SUM(elevationgain), SUM(elevationloss) FROM tracks WHERE category IS (SELECT category FROM tracks WHERE _id = OLD.trackid) AND starttime >= CAST(strftime('%s', (SELECT starttime FROM tracks WHERE _id = OLD.trackid) / 1000, 'unixepoch', 'start of month') AS INTEGER) * 1000 AND starttime < CAST(strftime('%s', (SELECT starttime FROM tracks WHERE _id = OLD.trackid) / 1000, 'unixepoch', 'start of month', '+1 months') AS INTEGER) * 1000 AND tracks._id NOT IN (SELECT trackid FROM recording_tracks) GROUP BY category; END");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
+
+    private void downgradeFrom50to49(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        // Adds the recording track to its rollups.
+        db.execSQL("DELETE FROM recording_tracks");
+        db.execSQL("DROP TRIGGER track_rollups_recording_insert_trigger");
+        db.execSQL("DROP TRIGGER track_rollups_recording_delete_trigger");
+        db.execSQL("DROP TRIGGER track_rollups_insert_trigger");
+        db.execSQL("DROP TRIGGER track_rollups_update_old_trigger");
+        db.execSQL("DROP TRIGGER track_rollups_update_new_trigger");
+        db.execSQL("DROP TRIGGER track_rollups_delete_trigger");
+        db.execSQL("CREATE TRIGGER track_rollups_insert_trigger AFTER INSERT ON tracks BEGIN DELETE FROM track_rollups WHERE period = 0 AND period_start = CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of day') AS INTEGER) * 1000 AND category IS NEW.category; INSERT INTO track_rollups (category, period, period_start, track_count, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss) SELECT NEW.category, 0, CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of day') AS INTEGER) * 1000, COUNT(*), MIN(starttime), MAX(stoptime), SUM(totaldistance), SUM(totaltime), SUM(movingtime), MAX(maxspeed), MIN(minelevation), MAX(maxelevation), SUM(elevationgain), SUM(elevationloss) FROM tracks WHERE category IS NEW.category AND starttime >= CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of day') AS INTEGER) * 1000 AND starttime < CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of day', '+1 days') AS INTEGER) * 1000 GROUP BY category; DELETE FROM track_rollups WHERE period = 1 AND period_start = CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'weekday 0', '-6 days', 'start of day') AS INTEGER) * 1000 AND category IS NEW.category; INSERT INTO track_rollups (category, period, period_start, track_count, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss) SELECT NEW.category, 1, CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'weekday 0', '-6 days', 'start of day') AS INTEGER) * 1000, COUNT(*), MIN(starttime), MAX(stoptime), SUM(totaldistance), SUM(totaltime), SUM(movingtime), MAX(maxspeed), MIN(minelevation), MAX(maxelevation), SUM(elevationgain), SUM(elevationloss) FROM tracks WHERE category IS NEW.category AND starttime >= CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'weekday 0', '-6 days', 'start of day') AS INTEGER) * 1000 AND starttime < CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'weekday 0', '+1 days', 'start of day') AS INTEGER) * 1000 GROUP BY category; DELETE FROM track_rollups WHERE period = 2 AND period_start = CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of month') AS INTEGER) * 1000 AND category IS NEW.category; INSERT INTO track_rollups (category, period, period_start, track_count, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss) SELECT NEW.category, 2, CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of month') AS INTEGER) * 1000, COUNT(*), MIN(starttime), MAX(stoptime), SUM(totaldistance), SUM(totaltime), SUM(movingtime), MAX(maxspeed), MIN(minelevation), MAX(maxelevation), SUM(elevationgain), SUM(elevationloss) FROM tracks WHERE category IS NEW.category AND starttime >= CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of month') AS INTEGER) * 1000 AND starttime < CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of month', '+1 months') AS INTEGER) * 1000 GROUP BY category; END");
+        db.execSQL("CREATE TRIGGER track_rollups_update_old_trigger AFTER UPDATE OF category, starttime ON tracks WHEN OLD.category IS NOT NEW.category OR OLD.starttime IS NOT NEW.starttime BEGIN DELETE FROM track_rollups WHERE period = 0 AND period_start = CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of day') AS INTEGER) * 1000 AND category IS OLD.category; INSERT INTO track_rollups (category, period, period_start, track_count, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss) SELECT OLD.category, 0, CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of day') AS INTEGER) * 1000, COUNT(*), MIN(starttime), MAX(stoptime), SUM(totaldistance), SUM(totaltime), SUM(movingtime), MAX(maxspeed), MIN(minelevation), MAX(maxelevation), SUM(elevationgain), SUM(elevationloss) FROM tracks WHERE category IS OLD.category AND starttime >= CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of day') AS INTEGER) * 1000 AND starttime < CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of day', '+1 days') AS INTEGER) * 1000 GROUP BY category; DELETE FROM track_rollups WHERE period = 1 AND period_start = CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'weekday 0', '-6 days', 'start of day') AS INTEGER) * 1000 AND category IS OLD.category; INSERT INTO track_rollups (category, period, period_start, track_count, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss) SELECT OLD.category, 1, CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'weekday 0', '-6 days', 'start of day') AS INTEGER) * 1000, COUNT(*), MIN(starttime), MAX(stoptime), SUM(totaldistance), SUM(totaltime), SUM(movingtime), MAX(maxspeed), MIN(minelevation), MAX(maxelevation), SUM(elevationgain), SUM(elevationloss) FROM tracks WHERE category IS OLD.category AND starttime >= CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'weekday 0', '-6 days', 'start of day') AS INTEGER) * 1000 AND starttime < CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'weekday 0', '+1 days', 'start of day') AS INTEGER) * 1000 GROUP BY category; DELETE FROM track_rollups WHERE period = 2 AND period_start = CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of month') AS INTEGER) * 1000 AND category IS OLD.category; INSERT INTO track_rollups (category, period, period_start, track_count, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss) SELECT OLD.category, 2, CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of month') AS INTEGER) * 1000, COUNT(*), MIN(starttime), MAX(stoptime), SUM(totaldistance), SUM(totaltime), SUM(movingtime), MAX(maxspeed), MIN(minelevation), MAX(maxelevation), SUM(elevationgain), SUM(elevationloss) FROM tracks WHERE category IS OLD.category AND starttime >= CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of month') AS INTEGER) * 1000 AND starttime < CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of month', '+1 months') AS INTEGER) * 1000 GROUP BY category; END");
+        db.execSQL("CREATE TRIGGER track_rollups_update_new_trigger AFTER UPDATE OF category, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss ON tracks WHEN OLD.category IS NOT NEW.category OR OLD.starttime IS NOT NEW.starttime OR OLD.stoptime IS NOT NEW.stoptime OR OLD.totaldistance IS NOT NEW.totaldistance OR OLD.totaltime IS NOT NEW.totaltime OR OLD.movingtime IS NOT NEW.movingtime OR OLD.maxspeed IS NOT NEW.maxspeed OR OLD.minelevation IS NOT NEW.minelevation OR OLD.maxelevation IS NOT NEW.maxelevation OR OLD.elevationgain IS NOT NEW.elevationgain OR OLD.elevationloss IS NOT NEW.elevationloss BEGIN DELETE FROM track_rollups WHERE period = 0 AND period_start = CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of day') AS INTEGER) * 1000 AND category IS NEW.category; INSERT INTO track_rollups (category, period, period_start, track_count, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss) SELECT NEW.category, 0, CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of day') AS INTEGER) * 1000, COUNT(*), MIN(starttime), MAX(stoptime), SUM(totaldistance), SUM(totaltime), SUM(movingtime), MAX(maxspeed), MIN(minelevation), MAX(maxelevation), SUM(elevationgain), SUM(elevationloss) FROM tracks WHERE category IS NEW.category AND starttime >= CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of day') AS INTEGER) * 1000 AND starttime < CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of day', '+1 days') AS INTEGER) * 1000 GROUP BY category; DELETE FROM track_rollups WHERE period = 1 AND period_start = CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'weekday 0', '-6 days', 'start of day') AS INTEGER) * 1000 AND category IS NEW.category; INSERT INTO track_rollups (category, period, period_start, track_count, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss) SELECT NEW.category, 1, CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'weekday 0', '-6 days', 'start of day') AS INTEGER) * 1000, COUNT(*), MIN(starttime), MAX(stoptime), SUM(totaldistance), SUM(totaltime), SUM(movingtime), MAX(maxspeed), MIN(minelevation), MAX(maxelevation), SUM(elevationgain), SUM(elevationloss) FROM tracks WHERE category IS NEW.category AND starttime >= CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'weekday 0', '-6 days', 'start of day') AS INTEGER) * 1000 AND starttime < CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'weekday 0', '+1 days', 'start of day') AS INTEGER) * 1000 GROUP BY category; DELETE FROM track_rollups WHERE period = 2 AND period_start = CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of month') AS INTEGER) * 1000 AND category IS NEW.category; INSERT INTO track_rollups (category, period, period_start, track_count, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss) SELECT NEW.category, 2, CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of month') AS INTEGER) * 1000, COUNT(*), MIN(starttime), MAX(stoptime), SUM(totaldistance), SUM(totaltime), SUM(movingtime), MAX(maxspeed), MIN(minelevation), MAX(maxelevation), SUM(elevationgain), SUM(elevationloss) FROM tracks WHERE category IS NEW.category AND starttime >= CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of month') AS INTEGER) * 1000 AND starttime < CAST(strftime('%s', NEW.starttime / 1000, 'unixepoch', 'start of month', '+1 months') AS INTEGER) * 1000 GROUP BY category; END");
+        db.execSQL("CREATE TRIGGER track_rollups_delete_trigger AFTER DELETE ON tracks BEGIN DELETE FROM track_rollups WHERE period = 0 AND period_start = CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of day') AS INTEGER) * 1000 AND category IS OLD.category; INSERT INTO track_rollups (category, period, period_start, track_count, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss) SELECT OLD.category, 0, CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of day') AS INTEGER) * 1000, COUNT(*), MIN(starttime), MAX(stoptime), SUM(totaldistance), SUM(totaltime), SUM(movingtime), MAX(maxspeed), MIN(minelevation), MAX(maxelevation), SUM(elevationgain), SUM(elevationloss) FROM tracks WHERE category IS OLD.category AND starttime >= CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of day') AS INTEGER) * 1000 AND starttime < CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of day', '+1 days') AS INTEGER) * 1000 GROUP BY category; DELETE FROM track_rollups WHERE period = 1 AND period_start = CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'weekday 0', '-6 days', 'start of day') AS INTEGER) * 1000 AND category IS OLD.category; INSERT INTO track_rollups (category, period, period_start, track_count, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss) SELECT OLD.category, 1, CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'weekday 0', '-6 days', 'start of day') AS INTEGER) * 1000, COUNT(*), MIN(starttime), MAX(stoptime), SUM(totaldistance), SUM(totaltime), SUM(movingtime), MAX(maxspeed), MIN(minelevation), MAX(maxelevation), SUM(elevationgain), SUM(elevationloss) FROM tracks WHERE category IS OLD.category AND starttime >= CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'weekday 0', '-6 days', 'start of day') AS INTEGER) * 1000 AND starttime < CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'weekday 0', '+1 days', 'start of day') AS INTEGER) * 1000 GROUP BY category; DELETE FROM track_rollups WHERE period = 2 AND period_start = CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of month') AS INTEGER) * 1000 AND category IS OLD.category; INSERT INTO track_rollups (category, period, period_start, track_count, starttime, stoptime, totaldistance, totaltime, movingtime, maxspeed, minelevation, maxelevation, elevationgain, elevationloss) SELECT OLD.category, 2, CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of month') AS INTEGER) * 1000, COUNT(*), MIN(starttime), MAX(stoptime), SUM(totaldistance), SUM(totaltime), SUM(movingtime), MAX(maxspeed), MIN(minelevation), MAX(maxelevation), SUM(elevationgain), SUM(elevationloss) FROM tracks WHERE category IS OLD.category AND starttime >= CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of month') AS INTEGER) * 1000 AND starttime < CAST(strftime('%s', OLD.starttime / 1000, 'unixepoch', 'start of month', '+1 months') AS INTEGER) * 1000 GROUP BY category; END");
+        db.execSQL("DROP TABLE recording_tracks");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
 }
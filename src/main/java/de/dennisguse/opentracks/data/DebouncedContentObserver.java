@@ -0,0 +1,63 @@
+package de.dennisguse.opentracks.data;
+
+import android.database.ContentObserver;
+import android.net.Uri;
+import android.os.Handler;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link ContentObserver} that combines all notifications within {@link #delay} (starting with the first one) into one call of {@link #onDebouncedChange(List)}.
+ * So, a burst of notifications (e.g., while importing) only causes one reload; a continuous stream of notifications is delivered at most once per {@link #delay}.
+ * <p>
+ * Notifications are received and delivered in the {@link Handler}'s thread; {@link #cancel()} may be called from any thread.
+ */
+public abstract class DebouncedContentObserver extends ContentObserver {
+
+    private final Handler handler;
+    private final Duration delay;
+
+    private final List<Uri> pendingUris = new ArrayList<>();
+    private final Runnable deliver = this::deliver;
+
+    public DebouncedContentObserver(@NonNull Handler handler, @NonNull Duration delay) {
+        super(handler);
+        this.handler = handler;
+        this.delay = delay;
+    }
+
+    @Override
+    public final synchronized void onChange(boolean selfChange, @Nullable Uri uri) {
+        if (pendingUris.isEmpty()) {
+            handler.postDelayed(deliver, delay.toMillis());
+        }
+        pendingUris.add(uri);
+    }
+
+    /**
+     * Drops pending notifications (e.g., after unregistering).
+     */
+    public synchronized void cancel() {
+        handler.removeCallbacks(deliver);
+        pendingUris.clear();
+    }
+
+    private void deliver() {
+        List<Uri> uris;
+        synchronized (this) {
+            uris = new ArrayList<>(pendingUris);
+            pendingUris.clear();
+        }
+        onDebouncedChange(uris);
+    }
+
+    /**
+     * @param uris the notified URIs in order; may contain null if the URI was not provided.
+     */
+    protected abstract void onDebouncedChange(@NonNull List<Uri> uris);
+}
@@ -0,0 +1,131 @@
+package de.dennisguse.opentracks.data;
+
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+import de.dennisguse.opentracks.data.tables.MarkersFtsColumns;
+import de.dennisguse.opentracks.data.tables.TracksFtsColumns;
+
+/**
+ * Queries the full-text search indexes ({@link TracksFtsColumns} and {@link MarkersFtsColumns}).
+ * <p>
+ * Every word of a search query must be the prefix of a word in one of the indexed columns.
+ * Results are ranked similar to BM25 using matchinfo(): SQLite on Android provides neither FTS5 nor a way to register a rank function, so the rank is computed while reading the cursor.
+ */
+class FullTextSearch {
+
+    /**
+     * The URI query parameter containing the search query.
+     */
+    static final String QUERY_PARAMETER = "query";
+
+    /**
+     * The column containing the matchinfo (format pcnx) of a result.
+     */
+    static final String MATCHINFO = "matchinfo";
+
+    private record Ranked<T>(double rank, T item) {
+    }
+
+    private FullTextSearch() {
+    }
+
+    /**
+     * The table joined with the matching entries of its index.
+     * Parameters: the match query (see {@link #toMatchQuery(String)}).
+     */
+    static String getTables(String table, String ftsTable, String idColumn) {
+        return table + " JOIN (SELECT docid, matchinfo(" + ftsTable + ", 'pcnx') AS " + MATCHINFO + " FROM " + ftsTable + " WHERE " + ftsTable + " MATCH ?) " + ftsTable
+                + " ON " + ftsTable + ".docid = " + table + "." + idColumn;
+    }
+
+    /**
+     * Converts a search query into a match query: all words as prefix (e.g., "Morning run" becomes "morning*" "run*").
+     * Words are quoted, so the query cannot contain operators.
+     *
+     * @return null if the search query does not contain a word.
+     */
+    @Nullable
+    static String toMatchQuery(@NonNull String searchQuery) {
+        StringBuilder matchQuery = new StringBuilder();
+        int i = 0;
+        while (i < searchQuery.length()) {
+            int codePoint = searchQuery.codePointAt(i);
+            if (!Character.isLetterOrDigit(codePoint)) {
+                i += Character.charCount(codePoint);
+                continue;
+            }
+
+            int start = i;
+            while (i < searchQuery.length() && Character.isLetterOrDigit(codePoint = searchQuery.codePointAt(i))) {
+                i += Character.charCount(codePoint);
+            }
+
+            if (matchQuery.length() > 0) {
+                matchQuery.append(' ');
+            }
+            matchQuery.append('"').append(searchQuery.substring(start, i).toLowerCase(Locale.ROOT)).append("*\"");
+        }
+        return matchQuery.length() > 0 ? matchQuery.toString() : null;
+    }
+
+    /**
+     * Reads all results of a cursor containing {@link #MATCHINFO} ordered by rank (best first); results with the same rank keep the order of the cursor.
+     *
+     * @param weights the weight of each indexed column
+     */
+    static <T> List<T> readRanked(@NonNull Cursor cursor, @NonNull double[] weights, @NonNull Function<Cursor, T> reader) {
+        int matchinfoIndex = cursor.getColumnIndexOrThrow(MATCHINFO);
+        List<Ranked<T>> results = new ArrayList<>(cursor.getCount());
+        while (cursor.moveToNext()) {
+            results.add(new Ranked<>(rank(cursor.getBlob(matchinfoIndex), weights), reader.apply(cursor)));
+        }
+        results.sort(Comparator.comparingDouble((Ranked<T> ranked) -> ranked.rank()).reversed());
+
+        List<T> items = new ArrayList<>(results.size());
+        results.forEach(ranked -> items.add(ranked.item()));
+        return items;
+    }
+
+    /**
+     * Ranks a result similar to BM25 (without length normalization): for every phrase and column, the saturated term frequency weighted by the inverse document frequency.
+     *
+     * @param matchinfo matchinfo() with format pcnx: phrase count, column count, row count, and for every phrase and column: hits in this row, hits in all rows, rows with hits (unsigned 32-bit integers in native byte order).
+     * @param weights   the weight of each column
+     */
+    @VisibleForTesting
+    static double rank(@NonNull byte[] matchinfo, @NonNull double[] weights) {
+        IntBuffer values = ByteBuffer.wrap(matchinfo).order(ByteOrder.nativeOrder()).asIntBuffer();
+        int phraseCount = values.get(0);
+        int columnCount = values.get(1);
+        long rowCount = Integer.toUnsignedLong(values.get(2));
+
+        double rank = 0;
+        for (int phrase = 0; phrase < phraseCount; phrase++) {
+            for (int column = 0; column < columnCount && column < weights.length; column++) {
+                int offset = 3 + (phrase * columnCount + column) * 3;
+                long hits = Integer.toUnsignedLong(values.get(offset));
+                if (hits == 0) {
+                    continue;
+                }
+                long rowsWithHits = Integer.toUnsignedLong(values.get(offset + 2));
+
+                double idf = Math.log(1 + (rowCount - rowsWithHits + 0.5) / (rowsWithHits + 0.5));
+                rank += weights[column] * idf * hits / (hits + 1.0);
+            }
+        }
+        return rank;
+    }
+}
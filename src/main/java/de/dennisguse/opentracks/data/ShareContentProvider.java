@@ -14,10 +14,12 @@ import android.util.Pair;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 
+import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -42,6 +44,8 @@ import de.dennisguse.opentracks.io.file.exporter.TrackExporter;
  * Thus, if {@link ShareContentProvider} and {@link CustomContentProvider} would be two different instances, the data would not be accessible to external apps.
  * While handling a request {@link ShareContentProvider} could `grantPermissions()` to the calling app for {@link CustomContentProvider}'s URI.
  * However, while handling the request this would allow the calling app to actually contact {@link CustomContentProvider} directly and get access to stored data that should remain private.
+ * <p>
+ * Generated files are kept in a {@link ShareFileCache} keyed by format and content stamp of the tracks; so, repeated reads (and {@link OpenableColumns#SIZE}) are served from the cached file.
  */
 public class ShareContentProvider extends CustomContentProvider {
 
@@ -59,6 +63,8 @@ public class ShareContentProvider extends CustomContentProvider {
     private static final UriMatcher uriMatcher = new UriMatcher(UriMatcher.NO_MATCH);
     private static final String TRACKID_DELIMITER = "_";
 
+    private ShareFileCache shareFileCache;
+
     static {
         uriMatcher.addURI(ContentProviderUtils.AUTHORITY_PACKAGE, TracksColumns.TABLE_NAME + "/" + TrackFileFormat.GPX.getPreferenceId() + "/*/*", URI_GPX);
 
@@ -128,6 +134,12 @@ public class ShareContentProvider extends CustomContentProvider {
         }
     }
 
+    @Override
+    boolean onCreate(Context context) {
+        shareFileCache = new ShareFileCache(context);
+        return super.onCreate(context);
+    }
+
     private static TrackFileFormat getTrackFileFormat(@NonNull Uri uri) {
         return switch (uriMatcher.match(uri)) {
             case URI_GPX -> TrackFileFormat.GPX;
@@ -170,7 +182,7 @@ public class ShareContentProvider extends CustomContentProvider {
                 }
                 case OpenableColumns.SIZE -> {
                     cols[i] = OpenableColumns.SIZE;
-                    values[i++] = -1; //Report unknown size; if applications need to know, one need to generate the file here also (count bytes that are written to OutputStream.
+                    values[i++] = getSize(uri);
                 }
             }
         }
@@ -197,7 +209,47 @@ public class ShareContentProvider extends CustomContentProvider {
     @Nullable
     @Override
     public ParcelFileDescriptor openFile(@NonNull Uri uri, @NonNull String mode) throws FileNotFoundException {
+        if (mode.contains("w")) {
+            throw new FileNotFoundException("Only read access is supported: " + uri);
+        }
+        return ParcelFileDescriptor.open(getFile(uri), ParcelFileDescriptor.MODE_READ_ONLY);
+    }
+
+    /**
+     * @return size of the generated file or -1 (unknown) if it could not be generated.
+     */
+    private long getSize(@NonNull Uri uri) {
+        try {
+            return getFile(uri).length();
+        } catch (FileNotFoundException e) {
+            Log.w(TAG, "Could not determine size of " + uri + ": " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * @return the generated file from cache; generates it if not yet cached or if the tracks were modified since.
+     */
+    @VisibleForTesting
+    File getFile(@NonNull Uri uri) throws FileNotFoundException {
         Set<Track.Id> trackIds = parseURI(uri);
+        TrackFileFormat trackFileFormat = getTrackFileFormat(uri);
+
+        // Query before exporting: if the tracks are modified while exporting, the stamp does not match anymore.
+        String stamp = trackIds.isEmpty() ? null : queryContentStamp(trackIds);
+        if (stamp == null) {
+            throw new FileNotFoundException("Tracks do not exist: " + uri);
+        }
+
+        try {
+            return shareFileCache.getOrCreate(trackFileFormat.name() + "/" + stamp, outputStream -> writeTracks(trackIds, trackFileFormat, outputStream));
+        } catch (IOException e) {
+            Log.w(TAG, "there occurred an error while sharing a file: " + e);
+            throw new FileNotFoundException("Could not export " + uri + ": " + e.getMessage());
+        }
+    }
+
+    private void writeTracks(Set<Track.Id> trackIds, TrackFileFormat trackFileFormat, OutputStream outputStream) throws IOException {
         final ArrayList<Track> tracks = new ArrayList<>();
         String[] trackIdsString = trackIds.stream().map(id -> String.valueOf(id.id())).toArray(String[]::new);
         String whereClause = String.format(TracksColumns._ID + " IN (%s)", TextUtils.join(",", Collections.nCopies(trackIds.size(), "?")));
@@ -208,17 +260,9 @@ public class ShareContentProvider extends CustomContentProvider {
             }
         }
 
-        final TrackExporter trackExporter = getTrackFileFormat(uri).createTrackExporter(getContext(), new ContentProviderUtils(getContext()));
-
-        PipeDataWriter<String> pipeDataWriter = (output, uri1, mimeType, opts, args) -> {
-            try (FileOutputStream fileOutputStream = new FileOutputStream(output.getFileDescriptor())) {
-                // TODO handle failure (i.e., do not export an empty file)
-                trackExporter.writeTrack(tracks, fileOutputStream);
-            } catch (IOException e) {
-                Log.w(TAG, "there occurred an error while sharing a file: " + e);
-            }
-        };
-
-        return openPipeHelper(uri, getType(uri), null, null, pipeDataWriter);
+        TrackExporter trackExporter = trackFileFormat.createTrackExporter(getContext(), new ContentProviderUtils(getContext()));
+        if (!trackExporter.writeTrack(tracks, outputStream)) {
+            throw new IOException("Export of " + trackFileFormat.name() + " failed");
+        }
     }
 }
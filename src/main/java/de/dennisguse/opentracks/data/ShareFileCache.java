@@ -0,0 +1,225 @@
+package de.dennisguse.opentracks.data;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Disk-backed LRU cache for the files shared via {@link ShareContentProvider}.
+ * <p>
+ * An entry is identified by a key that must change if the content changes (e.g., format and revision of the tracks); so, entries are never invalidated but only evicted (least recently used first) if the cache exceeds its maximum size.
+ * The most recently used entry is never evicted, even if it exceeds the maximum size alone.
+ * <p>
+ * Files are written into a temporary file and renamed afterwards; so, a cached file is always complete.
+ * Thread-safe; a missing entry is created only once even if requested concurrently.
+ * Writers of different keys run in parallel; cache hits never wait for a writer.
+ */
+class ShareFileCache {
+
+    private static final String TAG = ShareFileCache.class.getSimpleName();
+
+    static final long DEFAULT_MAX_SIZE_BYTES = 64 * 1024 * 1024;
+
+    private static final String DIRECTORY_NAME = "share";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    interface Writer {
+        /**
+         * @throws IOException if the content could not be written completely; nothing is cached.
+         */
+        void write(@NonNull OutputStream outputStream) throws IOException;
+    }
+
+    private final File directory;
+    private final long maxSizeBytes;
+
+    // Running writers by file name.
+    private final ConcurrentHashMap<String, FutureTask<File>> pending = new ConcurrentHashMap<>();
+
+    ShareFileCache(@NonNull Context context) {
+        this(getDirectory(context), DEFAULT_MAX_SIZE_BYTES);
+    }
+
+    @VisibleForTesting
+    ShareFileCache(@NonNull File directory, long maxSizeBytes) {
+        this.directory = directory;
+        this.maxSizeBytes = maxSizeBytes;
+    }
+
+    static File getDirectory(@NonNull Context context) {
+        return new File(context.getCacheDir(), DIRECTORY_NAME);
+    }
+
+    /**
+     * Deletes all cached files (e.g., if keys are not unique anymore).
+     */
+    static void clear(@NonNull Context context) {
+        File[] files = getDirectory(context).listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (!file.delete()) {
+                Log.w(TAG, "Could not delete " + file);
+            }
+        }
+    }
+
+    /**
+     * @return the cached file for the key; if not cached, it is written by the writer first.
+     */
+    @NonNull
+    File getOrCreate(@NonNull String key, @NonNull Writer writer) throws IOException {
+        File file = new File(directory, toFileName(key));
+        if (file.exists()) {
+            touch(key, file);
+            return file;
+        }
+
+        // Only one thread writes per key; the others wait for its result.
+        FutureTask<File> task = new FutureTask<>(() -> create(key, file, writer));
+        FutureTask<File> running = pending.putIfAbsent(file.getName(), task);
+        if (running == null) {
+            running = task;
+            try {
+                task.run();
+            } finally {
+                pending.remove(file.getName(), task);
+            }
+        }
+
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + key);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private File create(@NonNull String key, @NonNull File file, @NonNull Writer writer) throws IOException {
+        // Another thread may have finished writing since the first check.
+        if (file.exists()) {
+            touch(key, file);
+            return file;
+        }
+
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+
+        File tempFile = File.createTempFile(file.getName(), TEMP_SUFFIX, directory);
+        try {
+            try (OutputStream outputStream = new FileOutputStream(tempFile)) {
+                writer.write(outputStream);
+            }
+            if (!tempFile.renameTo(file)) {
+                throw new IOException("Could not rename " + tempFile + " to " + file);
+            }
+        } finally {
+            if (tempFile.exists() && !tempFile.delete()) {
+                Log.w(TAG, "Could not delete " + tempFile);
+            }
+        }
+        Log.d(TAG, "Cached " + key + ": " + file.length() + " bytes");
+
+        evict(file);
+        return file;
+    }
+
+    private static void touch(@NonNull String key, @NonNull File file) {
+        Log.d(TAG, "Cache hit for " + key);
+        if (!file.setLastModified(System.currentTimeMillis())) {
+            Log.w(TAG, "Could not update last modified of " + file);
+        }
+    }
+
+    /**
+     * @return total size of all cached files.
+     */
+    @VisibleForTesting
+    long getSize() {
+        File[] files = listCachedFiles();
+        return files == null ? 0 : Arrays.stream(files).mapToLong(File::length).sum();
+    }
+
+    /**
+     * @return the cached files without the temporary files of running writers.
+     */
+    private File[] listCachedFiles() {
+        return directory.listFiles(file -> !file.getName().endsWith(TEMP_SUFFIX));
+    }
+
+    /**
+     * Deletes the least recently used files until the maximum size is not exceeded anymore.
+     * Synchronized as writers of different keys may finish concurrently.
+     */
+    private synchronized void evict(@NonNull File keep) {
+        File[] files = listCachedFiles();
+        if (files == null) {
+            return;
+        }
+
+        long size = Arrays.stream(files).mapToLong(File::length).sum();
+        if (size <= maxSizeBytes) {
+            return;
+        }
+
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            if (size <= maxSizeBytes) {
+                break;
+            }
+            if (file.equals(keep)) {
+                continue;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                size -= length;
+                Log.d(TAG, "Evicted " + file.getName());
+            } else {
+                Log.w(TAG, "Could not delete " + file);
+            }
+        }
+    }
+
+    /**
+     * Keys may contain any characters and be arbitrarily long; so, use a hash.
+     */
+    private static String toFileName(@NonNull String key) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder fileName = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                fileName.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return fileName.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
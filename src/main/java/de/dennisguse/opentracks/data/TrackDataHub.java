@@ -17,30 +17,36 @@
 package de.dennisguse.opentracks.data;
 
 import android.content.ContentResolver;
+import android.content.ContentUris;
 import android.content.Context;
 import android.database.ContentObserver;
 import android.database.Cursor;
+import android.net.Uri;
 import android.os.Handler;
 import android.os.HandlerThread;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import de.dennisguse.opentracks.data.models.Marker;
 import de.dennisguse.opentracks.data.models.Track;
 import de.dennisguse.opentracks.data.models.TrackPoint;
 import de.dennisguse.opentracks.data.tables.MarkerColumns;
-import de.dennisguse.opentracks.data.tables.TrackPointsColumns;
 import de.dennisguse.opentracks.data.tables.TracksColumns;
 import de.dennisguse.opentracks.services.RecordingStatus;
 import de.dennisguse.opentracks.services.TrackRecordingService;
 import de.dennisguse.opentracks.services.handlers.AltitudeCorrectionManager;
-import de.dennisguse.opentracks.stats.TrackStatistics;
+import de.dennisguse.opentracks.stats.TrackStatisticsCheckpoint;
+import de.dennisguse.opentracks.stats.TrackStatisticsView;
 import de.dennisguse.opentracks.stats.TrackStatisticsUpdater;
 
 /**
@@ -48,10 +54,13 @@ import de.dennisguse.opentracks.stats.TrackStatisticsUpdater;
  * Receives data from {@link CustomContentProvider} and distributes it to {@link Listener} after some processing.
  * <p>
  * {@link TrackPoint}s are filtered/downsampled with a dynamic sampling frequency.
+ * <p>
+ * Only changes of the selected track are observed; for inserted {@link TrackPoint}s only the new ones are loaded (see {@link TrackPointsChange}).
+ * <p>
+ * If no {@link Listener} requires all {@link TrackPoint}s (see {@link Listener#requiresAllTrackPoints()}), the statistics are restored from the stored {@link TrackStatisticsCheckpoint} and only later {@link TrackPoint}s are loaded.
  *
  * @author Rodrigo Damazio
  */
-//TODO register contentobserver only for exact URL (incl. trackId) to not filter here.
 public class TrackDataHub {
 
     /**
@@ -66,6 +75,16 @@ public class TrackDataHub {
     @VisibleForTesting
     private static final int MAX_DISPLAYED_MARKERS = 128;
 
+    /**
+     * Number of {@link TrackPoint}s that are altitude corrected at once.
+     */
+    private static final int ALTITUDE_CORRECTION_CHUNK_SIZE = 256;
+
+    /**
+     * Inserted {@link TrackPoint}s within this duration are loaded at once.
+     */
+    private static final Duration TRACKPOINTS_NOTIFICATION_DELAY = Duration.ofMillis(250);
+
     private static final String TAG = TrackDataHub.class.getSimpleName();
 
     private final Context context;
@@ -85,6 +104,7 @@ public class TrackDataHub {
 
     // Track points sampling state
     private int numLoadedPoints;
+    private int numSampledInPoints;
     private TrackPoint.Id firstSeenTrackPointId;
     private TrackPoint.Id lastSeenTrackPointId;
     private TrackStatisticsUpdater trackStatisticsUpdater;
@@ -92,14 +112,14 @@ public class TrackDataHub {
     // Registered listeners
     private ContentObserver tracksTableObserver;
     private ContentObserver markersTableObserver;
-    private ContentObserver trackPointsTableObserver;
+    private DebouncedContentObserver trackPointsTableObserver;
 
     public TrackDataHub(Context context) {
         this(context, new ContentProviderUtils(context), TARGET_DISPLAYED_TRACKPOINTS);
     }
 
     @VisibleForTesting
-    private TrackDataHub(Context context, ContentProviderUtils contentProviderUtils, int targetNumPoints) {
+    TrackDataHub(Context context, ContentProviderUtils contentProviderUtils, int targetNumPoints) {
         this.context = context;
         this.listeners = new HashSet<>();
         this.contentProviderUtils = contentProviderUtils;
@@ -124,7 +144,6 @@ public class TrackDataHub {
                 notifyTracksTableUpdate(listeners);
             }
         };
-        contentResolver.registerContentObserver(TracksColumns.CONTENT_URI, false, tracksTableObserver);
 
         markersTableObserver = new ContentObserver(handler) {
             @Override
@@ -132,28 +151,50 @@ public class TrackDataHub {
                 notifyMarkersTableUpdate(listeners);
             }
         };
-        contentResolver.registerContentObserver(MarkerColumns.CONTENT_URI, false, markersTableObserver);
 
-        trackPointsTableObserver = new ContentObserver(handler) {
+        trackPointsTableObserver = new DebouncedContentObserver(handler, TRACKPOINTS_NOTIFICATION_DELAY) {
             @Override
-            public void onChange(boolean selfChange) {
-                notifyTrackPointsTableUpdate(true, listeners);
+            protected void onDebouncedChange(@NonNull List<Uri> uris) {
+                TrackPointsChange change = TrackPointsChange.fromUris(uris);
+                notifyTrackPointsTableUpdate(true, listeners, change != null ? change.last() : null);
             }
         };
-        contentResolver.registerContentObserver(TrackPointsColumns.CONTENT_URI_BY_ID, false, trackPointsTableObserver);
+
+        registerContentObservers();
     }
 
-    public void stop() {
-        if (!isStarted()) {
-            Log.i(TAG, "TrackDataHub not started, ignoring stop.");
+    /**
+     * (Re-)registers the {@link ContentObserver}s for the selected track.
+     * Changes of the whole table (e.g., deletes) are still notified.
+     */
+    private void registerContentObservers() {
+        unregisterContentObservers();
+        if (selectedTrackId == null) {
             return;
         }
 
-        //Unregister listeners
+        ContentResolver contentResolver = context.getContentResolver();
+        contentResolver.registerContentObserver(ContentUris.withAppendedId(TracksColumns.CONTENT_URI, selectedTrackId.id()), false, tracksTableObserver);
+        contentResolver.registerContentObserver(ContentUris.withAppendedId(MarkerColumns.CONTENT_URI_BY_TRACKID, selectedTrackId.id()), false, markersTableObserver);
+        contentResolver.registerContentObserver(TrackPointsChange.getUri(selectedTrackId), false, trackPointsTableObserver);
+    }
+
+    private void unregisterContentObservers() {
         ContentResolver contentResolver = context.getContentResolver();
         contentResolver.unregisterContentObserver(tracksTableObserver);
         contentResolver.unregisterContentObserver(markersTableObserver);
         contentResolver.unregisterContentObserver(trackPointsTableObserver);
+        trackPointsTableObserver.cancel();
+    }
+
+    public void stop() {
+        if (!isStarted()) {
+            Log.i(TAG, "TrackDataHub not started, ignoring stop.");
+            return;
+        }
+
+        //Unregister listeners
+        unregisterContentObservers();
 
         if (handlerThread != null) {
             handlerThread.getLooper().quit();
@@ -170,6 +211,7 @@ public class TrackDataHub {
                 return;
             }
             selectedTrackId = trackId;
+            registerContentObservers();
             loadDataForAll();
         });
     }
@@ -218,7 +260,7 @@ public class TrackDataHub {
         for (Listener listener : listeners) {
             listener.clearTrackPoints();
         }
-        notifyTrackPointsTableUpdate(true, listeners);
+        notifyTrackPointsTableUpdate(true, listeners, null);
         notifyMarkersTableUpdate(listeners);
     }
 
@@ -239,7 +281,7 @@ public class TrackDataHub {
         if (isOnlyListener) {
             resetSamplingState();
         }
-        notifyTrackPointsTableUpdate(isOnlyListener, trackDataListeners);
+        notifyTrackPointsTableUpdate(isOnlyListener, trackDataListeners, null);
 
         //Markers
         notifyMarkersTableUpdate(trackDataListeners);
@@ -295,13 +337,15 @@ public class TrackDataHub {
      * Notifies track points table update; to be run in the {@link #handler} thread.
      *
      * @param updateSamplingState true to update the sampling state
+     * @param lastTrackPointId    the last {@link TrackPoint.Id} of the selected track if known (e.g., from {@link TrackPointsChange}); otherwise it is queried.
      */
-    private void notifyTrackPointsTableUpdate(boolean updateSamplingState, Set<Listener> listeners) {
+    private void notifyTrackPointsTableUpdate(boolean updateSamplingState, Set<Listener> listeners, @Nullable TrackPoint.Id lastTrackPointId) {
         if (listeners.isEmpty()) {
             return;
         }
 
-        if (updateSamplingState && numLoadedPoints >= targetNumPoints) {
+        // Sampled in TrackPoints are limited by the sampling frequency; so resampling is only needed once the track grew considerably.
+        if (updateSamplingState && numSampledInPoints >= 2 * targetNumPoints) {
             // Reload and resample the track at a lower frequency.
             Log.i(TAG, "Resampling track after " + numLoadedPoints + " points.");
             resetSamplingState();
@@ -311,6 +355,7 @@ public class TrackDataHub {
         }
 
         int localNumLoadedTrackPoints = updateSamplingState ? numLoadedPoints : 0;
+        int localNumSampledInTrackPoints = updateSamplingState ? numSampledInPoints : 0;
         TrackPoint.Id localFirstSeenTrackPointId = updateSamplingState ? firstSeenTrackPointId : null;
         TrackPoint.Id localLastSeenTrackPointIdId = updateSamplingState ? lastSeenTrackPointId : null;
         TrackPoint.Id maxPointId = updateSamplingState ? null : lastSeenTrackPointId;
@@ -320,7 +365,13 @@ public class TrackDataHub {
             return;
         }
 
-        TrackPoint.Id lastTrackPointId = contentProviderUtils.getLastTrackPointId(selectedTrackId);
+        if (updateSamplingState && localLastSeenTrackPointIdId == null && listeners.stream().noneMatch(Listener::requiresAllTrackPoints)) {
+            localLastSeenTrackPointIdId = restoreFromCheckpoint();
+        }
+
+        if (lastTrackPointId == null) {
+            lastTrackPointId = contentProviderUtils.getLastTrackPointId(selectedTrackId);
+        }
         int samplingFrequency = -1;
 
 
@@ -330,49 +381,60 @@ public class TrackDataHub {
         }
 
         TrackPoint trackPoint = null;
-        try (TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointLocationIterator(selectedTrackId, next)) {
-
-            while (trackPointIterator.hasNext()) {
-                //Prevents a NPE if stop() is happening while notifyTrackPointsTableUpdate()
-                TrackStatisticsUpdater currentUpdater = trackStatisticsUpdater;
-
-                if (!isStarted()) {
-                    return;
+        try (TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointLocationIteratorAltitudeMsl(selectedTrackId, next)) {
+            List<TrackPoint> chunk = new ArrayList<>(ALTITUDE_CORRECTION_CHUNK_SIZE);
+            boolean pastMaxPointId = false;
+            while (!pastMaxPointId && trackPointIterator.hasNext()) {
+                chunk.clear();
+                while (chunk.size() < ALTITUDE_CORRECTION_CHUNK_SIZE && trackPointIterator.hasNext()) {
+                    TrackPoint chunkTrackPoint = trackPointIterator.next();
+
+                    // Stop if past the last wanted point
+                    if (maxPointId != null && chunkTrackPoint.getId().id() > maxPointId.id()) {
+                        pastMaxPointId = true;
+                        break;
+                    }
+                    chunk.add(chunkTrackPoint);
                 }
 
-                trackPoint = trackPointIterator.next();
-                TrackPoint.Id trackPointId = trackPoint.getId();
+                egm2008Correction.correctAltitudes(context, chunk);
 
-                // Stop if past the last wanted point
-                if (maxPointId != null && trackPointId.id() > maxPointId.id()) {
-                    break;
-                }
+                for (TrackPoint chunkTrackPoint : chunk) {
+                    //Prevents a NPE if stop() is happening while notifyTrackPointsTableUpdate()
+                    TrackStatisticsUpdater currentUpdater = trackStatisticsUpdater;
 
-                egm2008Correction.correctAltitude(context, trackPoint);
+                    if (!isStarted()) {
+                        return;
+                    }
 
-                if (localFirstSeenTrackPointId == null) {
-                    localFirstSeenTrackPointId = trackPointId;
-                }
+                    trackPoint = chunkTrackPoint;
+                    TrackPoint.Id trackPointId = trackPoint.getId();
 
-                if (samplingFrequency == -1) {
-                    long numTotalPoints = Math.max(0L, lastTrackPointId.id() - localFirstSeenTrackPointId.id()); //TODO That is an assumption; should be derived from the DB.
-                    samplingFrequency = 1 + (int) (numTotalPoints / targetNumPoints);
-                }
-
-                currentUpdater.addTrackPoint(trackPoint);
+                    if (localFirstSeenTrackPointId == null) {
+                        localFirstSeenTrackPointId = trackPointId;
+                    }
 
-                // Also include the last point if the selected track is not recording.
-                if ((localNumLoadedTrackPoints % samplingFrequency == 0) || (trackPointId == lastTrackPointId && !isSelectedTrackRecording())) {
-                    for (Listener trackDataListener : listeners) {
-                        trackDataListener.onSampledInTrackPoint(trackPoint, currentUpdater.getTrackStatistics());
+                    if (samplingFrequency == -1) {
+                        long numTotalPoints = Math.max(0L, lastTrackPointId.id() - localFirstSeenTrackPointId.id()); //TODO That is an assumption; should be derived from the DB.
+                        samplingFrequency = 1 + (int) (numTotalPoints / targetNumPoints);
                     }
-                } else {
-                    for (Listener trackDataListener : listeners) {
-                        trackDataListener.onSampledOutTrackPoint(trackPoint, currentUpdater.getTrackStatistics());
+
+                    currentUpdater.addTrackPoint(trackPoint);
+
+                    // Also include the last point if the selected track is not recording.
+                    if ((localNumLoadedTrackPoints % samplingFrequency == 0) || (trackPointId.equals(lastTrackPointId) && !isSelectedTrackRecording())) {
+                        for (Listener trackDataListener : listeners) {
+                            trackDataListener.onSampledInTrackPoint(trackPoint, currentUpdater.getTrackStatisticsView());
+                        }
+                        localNumSampledInTrackPoints++;
+                    } else {
+                        for (Listener trackDataListener : listeners) {
+                            trackDataListener.onSampledOutTrackPoint(trackPoint, currentUpdater.getTrackStatisticsView());
+                        }
                     }
-                }
 
-                localNumLoadedTrackPoints++;
+                    localNumLoadedTrackPoints++;
+                }
             }
         }
 
@@ -382,6 +444,7 @@ public class TrackDataHub {
 
         if (updateSamplingState) {
             numLoadedPoints = localNumLoadedTrackPoints;
+            numSampledInPoints = localNumSampledInTrackPoints;
             firstSeenTrackPointId = localFirstSeenTrackPointId;
             lastSeenTrackPointId = localLastSeenTrackPointIdId;
         }
@@ -391,11 +454,29 @@ public class TrackDataHub {
 
 
 
+    /**
+     * Replaces {@link #trackStatisticsUpdater} with the stored checkpoint of the selected track (if available).
+     *
+     * @return the last {@link TrackPoint.Id} included in the checkpoint; `null` if not available.
+     */
+    @Nullable
+    private TrackPoint.Id restoreFromCheckpoint() {
+        TrackStatisticsCheckpoint checkpoint = contentProviderUtils.getTrackStatisticsCheckpoint(selectedTrackId);
+        TrackStatisticsUpdater restored = checkpoint != null ? TrackStatisticsUpdater.fromCheckpoint(checkpoint.data()) : null;
+        if (restored == null) {
+            return null;
+        }
+        Log.d(TAG, "Restored TrackStatistics of track " + selectedTrackId.id() + " up to TrackPoint " + checkpoint.trackPointId().id());
+        trackStatisticsUpdater = restored;
+        return checkpoint.trackPointId();
+    }
+
     /**
      * Resets the track points sampling states.
      */
     private void resetSamplingState() {
         numLoadedPoints = 0;
+        numSampledInPoints = 0;
         firstSeenTrackPointId = null;
         lastSeenTrackPointId = null;
         trackStatisticsUpdater = new TrackStatisticsUpdater();
@@ -423,20 +504,32 @@ public class TrackDataHub {
          */
         void clearTrackPoints();
 
+        /**
+         * Listeners that only need the (cumulative) statistics opt in to the {@link TrackStatisticsCheckpoint} by returning false.
+         * Then, the {@link TrackPoint}s stored before the checkpoint are neither loaded nor sent.
+         *
+         * @return false if the {@link TrackPoint}s stored before the statistics checkpoint are not needed (i.e., the statistics up to it are sufficient).
+         */
+        default boolean requiresAllTrackPoints() {
+            return true;
+        }
+
         /**
          * Called when a sampled in track point is read.
          *
-         * @param trackPoint the trackPoint
+         * @param trackPoint      the trackPoint
+         * @param trackStatistics the statistics up to this trackPoint; only valid during this call.
          */
-        default void onSampledInTrackPoint(@NonNull TrackPoint trackPoint, @NonNull TrackStatistics trackStatistics) {
+        default void onSampledInTrackPoint(@NonNull TrackPoint trackPoint, @NonNull TrackStatisticsView trackStatistics) {
         }
 
         /**
          * Called when a sampled out track point is read.
          *
-         * @param trackPoint the trackPoint
+         * @param trackPoint      the trackPoint
+         * @param trackStatistics the statistics up to this trackPoint; only valid during this call.
          */
-        default void onSampledOutTrackPoint(@NonNull TrackPoint trackPoint, @NonNull TrackStatistics trackStatistics) {
+        default void onSampledOutTrackPoint(@NonNull TrackPoint trackPoint, @NonNull TrackStatisticsView trackStatistics) {
         }
 
         /**
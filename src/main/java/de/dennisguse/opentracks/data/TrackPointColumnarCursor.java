@@ -0,0 +1,341 @@
+package de.dennisguse.opentracks.data;
+
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import de.dennisguse.opentracks.data.models.TrackPoint;
+import de.dennisguse.opentracks.data.tables.TrackPointsColumns;
+
+/**
+ * The {@link TrackPoint}s of a track (or a range of it) loaded into parallel primitive arrays.
+ * <p>
+ * In contrast to {@link TrackPointIterator}, no objects are created per row: the data is accessed via this flyweight (i.e., moving the position and reading the current row).
+ * Therefore, it is suited for loops over many {@link TrackPoint}s (e.g., the KML export).
+ * <p>
+ * Contains: id, type, time, location, accuracy (horizontal and vertical), altitude, speed, sensor distance, heart rate, cadence, power, and altitude gain/loss (i.e., not the bearing).
+ * Not thread-safe.
+ */
+public class TrackPointColumnarCursor {
+
+    // Bits of nullMask: set if the value is null.
+    private static final short NULL_LOCATION = 1;
+    private static final short NULL_ALTITUDE = 1 << 1;
+    private static final short NULL_SPEED = 1 << 2;
+    private static final short NULL_HEARTRATE = 1 << 3;
+    private static final short NULL_CADENCE = 1 << 4;
+    private static final short NULL_POWER = 1 << 5;
+    private static final short NULL_ACCURACY = 1 << 6;
+    private static final short NULL_ACCURACY_VERTICAL = 1 << 7;
+    private static final short NULL_SENSOR_DISTANCE = 1 << 8;
+    private static final short NULL_ALTITUDE_GAIN = 1 << 9;
+    private static final short NULL_ALTITUDE_LOSS = 1 << 10;
+    // Not a null value: altitude is EGM2008 (instead of WGS84).
+    private static final short ALTITUDE_EGM2008 = 1 << 11;
+
+    private static final TrackPoint.Type[] TYPES = TrackPoint.Type.values();
+
+    static final String[] PROJECTION = {
+            TrackPointsColumns._ID,
+            TrackPointsColumns.TYPE,
+            TrackPointsColumns.TIME,
+            TrackPointsColumns.LATITUDE,
+            TrackPointsColumns.LONGITUDE,
+            TrackPointsColumns.ALTITUDE,
+            TrackPointsColumns.ALTITUDE_MSL,
+            TrackPointsColumns.SPEED,
+            TrackPointsColumns.SENSOR_HEARTRATE,
+            TrackPointsColumns.SENSOR_CADENCE,
+            TrackPointsColumns.SENSOR_POWER,
+            TrackPointsColumns.HORIZONTAL_ACCURACY,
+            TrackPointsColumns.VERTICAL_ACCURACY,
+            TrackPointsColumns.SENSOR_DISTANCE,
+            TrackPointsColumns.ALTITUDE_GAIN,
+            TrackPointsColumns.ALTITUDE_LOSS
+    };
+
+    private final int count;
+
+    private final long[] id;
+    private final byte[] type;
+    private final long[] time;
+    private final int[] latitudeE6;
+    private final int[] longitudeE6;
+    private final float[] altitude;
+    private final float[] speed;
+    private final float[] heartRate;
+    private final float[] cadence;
+    private final float[] power;
+    private final float[] accuracy;
+    private final float[] accuracyVertical;
+    private final float[] sensorDistance;
+    private final float[] altitudeGain;
+    private final float[] altitudeLoss;
+    private final short[] nullMask;
+
+    private int position = -1;
+
+    private TrackPointColumnarCursor(int count) {
+        this.count = count;
+        id = new long[count];
+        type = new byte[count];
+        time = new long[count];
+        latitudeE6 = new int[count];
+        longitudeE6 = new int[count];
+        altitude = new float[count];
+        speed = new float[count];
+        heartRate = new float[count];
+        cadence = new float[count];
+        power = new float[count];
+        accuracy = new float[count];
+        accuracyVertical = new float[count];
+        sensorDistance = new float[count];
+        altitudeGain = new float[count];
+        altitudeLoss = new float[count];
+        nullMask = new short[count];
+    }
+
+    /**
+     * Reads all rows of the cursor; the cursor must use {@link #PROJECTION}.
+     * The caller remains responsible for closing the cursor.
+     *
+     * @param altitudeMsl use the stored EGM2008 altitude if available.
+     */
+    @NonNull
+    static TrackPointColumnarCursor load(@Nullable Cursor cursor, boolean altitudeMsl) {
+        if (cursor == null) {
+            return new TrackPointColumnarCursor(0);
+        }
+
+        int idIndex = cursor.getColumnIndexOrThrow(TrackPointsColumns._ID);
+        int typeIndex = cursor.getColumnIndexOrThrow(TrackPointsColumns.TYPE);
+        int timeIndex = cursor.getColumnIndexOrThrow(TrackPointsColumns.TIME);
+        int latitudeIndex = cursor.getColumnIndexOrThrow(TrackPointsColumns.LATITUDE);
+        int longitudeIndex = cursor.getColumnIndexOrThrow(TrackPointsColumns.LONGITUDE);
+        int altitudeIndex = cursor.getColumnIndexOrThrow(TrackPointsColumns.ALTITUDE);
+        int altitudeMslIndex = cursor.getColumnIndexOrThrow(TrackPointsColumns.ALTITUDE_MSL);
+        int speedIndex = cursor.getColumnIndexOrThrow(TrackPointsColumns.SPEED);
+        int heartRateIndex = cursor.getColumnIndexOrThrow(TrackPointsColumns.SENSOR_HEARTRATE);
+        int cadenceIndex = cursor.getColumnIndexOrThrow(TrackPointsColumns.SENSOR_CADENCE);
+        int powerIndex = cursor.getColumnIndexOrThrow(TrackPointsColumns.SENSOR_POWER);
+        int accuracyIndex = cursor.getColumnIndexOrThrow(TrackPointsColumns.HORIZONTAL_ACCURACY);
+        int accuracyVerticalIndex = cursor.getColumnIndexOrThrow(TrackPointsColumns.VERTICAL_ACCURACY);
+        int sensorDistanceIndex = cursor.getColumnIndexOrThrow(TrackPointsColumns.SENSOR_DISTANCE);
+        int altitudeGainIndex = cursor.getColumnIndexOrThrow(TrackPointsColumns.ALTITUDE_GAIN);
+        int altitudeLossIndex = cursor.getColumnIndexOrThrow(TrackPointsColumns.ALTITUDE_LOSS);
+
+        TrackPointColumnarCursor columns = new TrackPointColumnarCursor(cursor.getCount());
+        int i = 0;
+        cursor.moveToPosition(-1);
+        while (cursor.moveToNext() && i < columns.count) {
+            short nulls = 0;
+
+            columns.id[i] = cursor.getLong(idIndex);
+            columns.type[i] = (byte) cursor.getInt(typeIndex);
+            columns.time[i] = cursor.getLong(timeIndex);
+
+            if (cursor.isNull(latitudeIndex) || cursor.isNull(longitudeIndex)) {
+                nulls |= NULL_LOCATION;
+            } else {
+                columns.latitudeE6[i] = cursor.getInt(latitudeIndex);
+                columns.longitudeE6[i] = cursor.getInt(longitudeIndex);
+            }
+
+            if (altitudeMsl && !cursor.isNull(altitudeMslIndex)) {
+                columns.altitude[i] = cursor.getFloat(altitudeMslIndex);
+                nulls |= ALTITUDE_EGM2008;
+            } else if (!cursor.isNull(altitudeIndex)) {
+                columns.altitude[i] = cursor.getFloat(altitudeIndex);
+            } else {
+                nulls |= NULL_ALTITUDE;
+            }
+
+            nulls |= readFloat(cursor, speedIndex, columns.speed, i, NULL_SPEED);
+            nulls |= readFloat(cursor, heartRateIndex, columns.heartRate, i, NULL_HEARTRATE);
+            nulls |= readFloat(cursor, cadenceIndex, columns.cadence, i, NULL_CADENCE);
+            nulls |= readFloat(cursor, powerIndex, columns.power, i, NULL_POWER);
+            nulls |= readFloat(cursor, accuracyIndex, columns.accuracy, i, NULL_ACCURACY);
+            nulls |= readFloat(cursor, accuracyVerticalIndex, columns.accuracyVertical, i, NULL_ACCURACY_VERTICAL);
+            nulls |= readFloat(cursor, sensorDistanceIndex, columns.sensorDistance, i, NULL_SENSOR_DISTANCE);
+            nulls |= readFloat(cursor, altitudeGainIndex, columns.altitudeGain, i, NULL_ALTITUDE_GAIN);
+            nulls |= readFloat(cursor, altitudeLossIndex, columns.altitudeLoss, i, NULL_ALTITUDE_LOSS);
+
+            columns.nullMask[i] = nulls;
+            i++;
+        }
+        return columns;
+    }
+
+    private static short readFloat(Cursor cursor, int columnIndex, float[] values, int i, short nullBit) {
+        if (cursor.isNull(columnIndex)) {
+            return nullBit;
+        }
+        values[i] = cursor.getFloat(columnIndex);
+        return 0;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * @return false if position is out of range.
+     */
+    public boolean moveToPosition(int position) {
+        if (position < 0) {
+            this.position = -1;
+            return false;
+        }
+        if (position >= count) {
+            this.position = count;
+            return false;
+        }
+        this.position = position;
+        return true;
+    }
+
+    public boolean moveToFirst() {
+        return moveToPosition(0);
+    }
+
+    public boolean moveToNext() {
+        return moveToPosition(position + 1);
+    }
+
+    public long getId() {
+        return id[position];
+    }
+
+    @NonNull
+    public TrackPoint.Type getType() {
+        byte typeDb = type[position];
+        for (TrackPoint.Type t : TYPES) {
+            if (t.type_db == typeDb) return t;
+        }
+        throw new RuntimeException("unknown TrackPoint type " + typeDb);
+    }
+
+    public boolean isSegmentStart() {
+        return type[position] == TrackPoint.Type.SEGMENT_START_MANUAL.type_db || type[position] == TrackPoint.Type.SEGMENT_START_AUTOMATIC.type_db;
+    }
+
+    public long getTimeMillis() {
+        return time[position];
+    }
+
+    public boolean hasLocation() {
+        return isPresent(NULL_LOCATION);
+    }
+
+    public int getLatitudeE6() {
+        return latitudeE6[position];
+    }
+
+    public int getLongitudeE6() {
+        return longitudeE6[position];
+    }
+
+    public double getLatitude() {
+        return latitudeE6[position] / 1E6;
+    }
+
+    public double getLongitude() {
+        return longitudeE6[position] / 1E6;
+    }
+
+    public boolean hasAltitude() {
+        return isPresent(NULL_ALTITUDE);
+    }
+
+    /**
+     * @return WGS84 or EGM2008 (see {@link #isAltitudeEgm2008()}).
+     */
+    public float getAltitudeM() {
+        return altitude[position];
+    }
+
+    public boolean isAltitudeEgm2008() {
+        return (nullMask[position] & ALTITUDE_EGM2008) != 0;
+    }
+
+    public boolean hasSpeed() {
+        return isPresent(NULL_SPEED);
+    }
+
+    public float getSpeedMPS() {
+        return speed[position];
+    }
+
+    public boolean hasHeartRate() {
+        return isPresent(NULL_HEARTRATE);
+    }
+
+    public float getHeartRateBPM() {
+        return heartRate[position];
+    }
+
+    public boolean hasCadence() {
+        return isPresent(NULL_CADENCE);
+    }
+
+    public float getCadenceRPM() {
+        return cadence[position];
+    }
+
+    public boolean hasPower() {
+        return isPresent(NULL_POWER);
+    }
+
+    public float getPowerW() {
+        return power[position];
+    }
+
+    public boolean hasHorizontalAccuracy() {
+        return isPresent(NULL_ACCURACY);
+    }
+
+    public float getHorizontalAccuracyM() {
+        return accuracy[position];
+    }
+
+    public boolean hasVerticalAccuracy() {
+        return isPresent(NULL_ACCURACY_VERTICAL);
+    }
+
+    public float getVerticalAccuracyM() {
+        return accuracyVertical[position];
+    }
+
+    public boolean hasSensorDistance() {
+        return isPresent(NULL_SENSOR_DISTANCE);
+    }
+
+    public float getSensorDistanceM() {
+        return sensorDistance[position];
+    }
+
+    public boolean hasAltitudeGain() {
+        return isPresent(NULL_ALTITUDE_GAIN);
+    }
+
+    public float getAltitudeGainM() {
+        return altitudeGain[position];
+    }
+
+    public boolean hasAltitudeLoss() {
+        return isPresent(NULL_ALTITUDE_LOSS);
+    }
+
+    public float getAltitudeLossM() {
+        return altitudeLoss[position];
+    }
+
+    private boolean isPresent(short nullBit) {
+        return (nullMask[position] & nullBit) == 0;
+    }
+}
@@ -1,72 +1,240 @@
 package de.dennisguse.opentracks.data;
 
 import android.database.Cursor;
+import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import de.dennisguse.opentracks.data.models.Track;
 import de.dennisguse.opentracks.data.models.TrackPoint;
+import de.dennisguse.opentracks.data.tables.TrackPointsColumns;
 
 /**
- * A lightweight wrapper around the original {@link Cursor}.
+ * Iterates over the TrackPoints of a track page by page (keyset pagination by id).
+ * <p>
+ * Only two pages are in memory at the same time: while the current page is consumed, the next page is loaded in the background.
+ * So, large tracks are streamed with constant memory and without a cursor over the whole track.
+ * At most {@link #MAX_PREFETCH_THREADS} pages are loaded in the background at once (for all iterators); otherwise, the next page is loaded when needed.
+ * <p>
+ * Only the requested columns are read (see {@link #TrackPointIterator(ContentProviderUtils, Track.Id, TrackPoint.Id, String[])}).
  */
 public class TrackPointIterator implements Iterator<TrackPoint>, AutoCloseable {
 
     private static final String TAG = TrackPointIterator.class.getSimpleName();
 
+    @VisibleForTesting
+    static final int PAGE_SIZE = 1024;
+
+    private static final String[] PROJECTION = {
+            TrackPointsColumns._ID,
+            TrackPointsColumns.TYPE,
+            TrackPointsColumns.LONGITUDE,
+            TrackPointsColumns.LATITUDE,
+            TrackPointsColumns.TIME,
+            TrackPointsColumns.ALTITUDE,
+            TrackPointsColumns.HORIZONTAL_ACCURACY,
+            TrackPointsColumns.VERTICAL_ACCURACY,
+            TrackPointsColumns.SPEED,
+            TrackPointsColumns.BEARING,
+            TrackPointsColumns.SENSOR_HEARTRATE,
+            TrackPointsColumns.SENSOR_CADENCE,
+            TrackPointsColumns.SENSOR_DISTANCE,
+            TrackPointsColumns.SENSOR_POWER,
+            TrackPointsColumns.ALTITUDE_GAIN,
+            TrackPointsColumns.ALTITUDE_LOSS
+    };
+
+    private static final String[] PROJECTION_ALTITUDE_MSL = createProjection(PROJECTION, TrackPointsColumns.ALTITUDE_MSL);
+
+    // Required to create TrackPoints and for the pagination.
+    private static final String[] PROJECTION_REQUIRED = {TrackPointsColumns._ID, TrackPointsColumns.TYPE, TrackPointsColumns.TIME};
+
+    /**
+     * The columns used by {@link de.dennisguse.opentracks.stats.TrackStatisticsUpdater} and {@link de.dennisguse.opentracks.ui.intervals.IntervalStatistics}.
+     */
+    public static final String[] COLUMNS_STATISTICS = {
+            TrackPointsColumns.LONGITUDE,
+            TrackPointsColumns.LATITUDE,
+            TrackPointsColumns.ALTITUDE,
+            TrackPointsColumns.SPEED,
+            TrackPointsColumns.SENSOR_HEARTRATE,
+            TrackPointsColumns.SENSOR_DISTANCE,
+            TrackPointsColumns.SENSOR_POWER,
+            TrackPointsColumns.ALTITUDE_GAIN,
+            TrackPointsColumns.ALTITUDE_LOSS
+    };
+
+    private static final int MAX_PREFETCH_THREADS = 2;
+
+    // Rejects tasks if all threads are busy (SynchronousQueue).
+    private static final ExecutorService PREFETCH = new ThreadPoolExecutor(0, MAX_PREFETCH_THREADS, 30, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> new Thread(r, TAG));
+
     private final ContentProviderUtils contentProviderUtils;
     private final Track.Id trackId;
-    private final CachedTrackPointsIndexes indexes;
-    private Cursor cursor;
+    private final TrackPoint.Id startTrackPointId;
+    private final String[] projection;
+    private final boolean altitudeMsl;
+    private final int pageSize;
+
+    private List<TrackPoint> page;
+    private int position;
+    // Null if there is no next page.
+    private TrackPoint.Id nextPageStartTrackPointId;
+    // Null if the next page is not loaded in the background.
+    private Future<List<TrackPoint>> nextPage;
+    private boolean closed = false;
 
     public TrackPointIterator(ContentProviderUtils contentProviderUtils, Track.Id trackId, TrackPoint.Id startTrackPointId) {
+        this(contentProviderUtils, trackId, startTrackPointId, false);
+    }
+
+    /**
+     * @param altitudeMsl provide the stored EGM2008 altitude (if available) instead of WGS84.
+     */
+    public TrackPointIterator(ContentProviderUtils contentProviderUtils, Track.Id trackId, TrackPoint.Id startTrackPointId, boolean altitudeMsl) {
+        this(contentProviderUtils, trackId, startTrackPointId, altitudeMsl, PAGE_SIZE);
+    }
+
+    /**
+     * Reads only the columns (of {@link TrackPointsColumns}; id, type, and time are always read); the other values of the TrackPoints are not set.
+     * With {@link TrackPointsColumns#ALTITUDE_MSL}, provides the stored EGM2008 altitude (if available) instead of WGS84.
+     */
+    public TrackPointIterator(ContentProviderUtils contentProviderUtils, Track.Id trackId, TrackPoint.Id startTrackPointId, @NonNull String[] columns) {
+        this(contentProviderUtils, trackId, startTrackPointId, createProjection(PROJECTION_REQUIRED, columns), PAGE_SIZE);
+    }
+
+    @VisibleForTesting
+    TrackPointIterator(ContentProviderUtils contentProviderUtils, Track.Id trackId, TrackPoint.Id startTrackPointId, boolean altitudeMsl, int pageSize) {
+        this(contentProviderUtils, trackId, startTrackPointId, altitudeMsl ? PROJECTION_ALTITUDE_MSL : PROJECTION, pageSize);
+    }
+
+    private TrackPointIterator(ContentProviderUtils contentProviderUtils, Track.Id trackId, TrackPoint.Id startTrackPointId, @NonNull String[] projection, int pageSize) {
         this.contentProviderUtils = contentProviderUtils;
         this.trackId = trackId;
+        this.startTrackPointId = startTrackPointId;
+        this.projection = projection;
+        this.altitudeMsl = Arrays.asList(projection).contains(TrackPointsColumns.ALTITUDE_MSL);
+        this.pageSize = pageSize;
+
+        setPage(loadPage(startTrackPointId));
+    }
 
-        cursor = getCursor(startTrackPointId);
-        indexes = new CachedTrackPointsIndexes(cursor);
+    /**
+     * @return the columns without duplicates (in order).
+     */
+    private static String[] createProjection(String[] columns, String... additionalColumns) {
+        Set<String> projection = new LinkedHashSet<>(Arrays.asList(columns));
+        projection.addAll(Arrays.asList(additionalColumns));
+        return projection.toArray(new String[0]);
     }
 
-    private Cursor getCursor(TrackPoint.Id trackPointId) {
-        return contentProviderUtils.getTrackPointCursor(trackId, trackPointId);
+    @NonNull
+    private List<TrackPoint> loadPage(@Nullable TrackPoint.Id pageStartTrackPointId) {
+        List<TrackPoint> trackPoints = new ArrayList<>(pageSize);
+        try (Cursor cursor = contentProviderUtils.getTrackPointPageCursor(trackId, projection, pageStartTrackPointId, pageSize)) {
+            if (cursor != null && cursor.moveToFirst()) {
+                CachedTrackPointsIndexes indexes = new CachedTrackPointsIndexes(cursor, altitudeMsl);
+                do {
+                    trackPoints.add(ContentProviderUtils.fillTrackPoint(cursor, indexes));
+                } while (cursor.moveToNext());
+            }
+        }
+        return trackPoints;
+    }
+
+    /**
+     * Uses the page and starts loading the following page (if there might be one).
+     */
+    private void setPage(List<TrackPoint> trackPoints) {
+        page = trackPoints;
+        position = 0;
+        nextPageStartTrackPointId = null;
+        nextPage = null;
+
+        if (trackPoints.size() == pageSize) {
+            TrackPoint.Id nextStartTrackPointId = new TrackPoint.Id(trackPoints.get(trackPoints.size() - 1).getId().id() + 1);
+            nextPageStartTrackPointId = nextStartTrackPointId;
+            try {
+                nextPage = PREFETCH.submit(() -> loadPage(nextStartTrackPointId));
+            } catch (RejectedExecutionException e) {
+                Log.d(TAG, "No prefetch thread available; loading next page when needed.");
+            }
+        }
     }
 
     @Override
     public boolean hasNext() {
-        if (cursor == null) {
+        if (closed) {
             return false;
         }
-        return !cursor.isLast() && !cursor.isAfterLast();
+        while (position == page.size()) {
+            if (nextPageStartTrackPointId == null) {
+                return false;
+            }
+            setPage(nextPage != null ? awaitNextPage() : loadPage(nextPageStartTrackPointId));
+        }
+        return true;
+    }
+
+    private List<TrackPoint> awaitNextPage() {
+        try {
+            return nextPage.get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Could not load TrackPoints of track " + trackId.id(), e.getCause());
+        } catch (InterruptedException e) {
+            Log.w(TAG, "Interrupted while waiting for TrackPoints; loading synchronously.");
+            Thread.currentThread().interrupt();
+            return loadPage(nextPageStartTrackPointId);
+        }
     }
 
     @Override
     @NonNull
     public TrackPoint next() {
-        if (cursor == null || !cursor.moveToNext()) {
+        if (!hasNext()) {
             throw new NoSuchElementException();
         }
-        return ContentProviderUtils.fillTrackPoint(cursor, indexes);
+        return page.get(position++);
     }
 
+    /**
+     * @return the number of TrackPoints to iterate over (queries the database).
+     */
     @VisibleForTesting
     public int getCount() {
-        return cursor.getCount();
+        return contentProviderUtils.getTrackPointCount(trackId, startTrackPointId);
     }
 
     @Override
     public void close() {
-        if (cursor != null) {
-            cursor.close();
-            cursor = null;
+        closed = true;
+        if (nextPage != null) {
+            nextPage.cancel(false);
+            nextPage = null;
         }
+        nextPageStartTrackPointId = null;
+        page = null;
     }
 
     @Override
     public void remove() {
         throw new UnsupportedOperationException();
     }
-}
\ No newline at end of file
+}
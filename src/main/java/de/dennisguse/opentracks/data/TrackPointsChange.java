@@ -0,0 +1,89 @@
+package de.dennisguse.opentracks.data;
+
+import android.content.ContentUris;
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.List;
+
+import de.dennisguse.opentracks.data.models.Track;
+import de.dennisguse.opentracks.data.models.TrackPoint;
+import de.dennisguse.opentracks.data.tables.TrackPointsColumns;
+
+/**
+ * Inserted {@link TrackPoint}s of one track (ids from first to last) as notified by {@link CustomContentProvider}.
+ * <p>
+ * The notification URI is {@link #getUri(Track.Id)} with the ids as query parameters (e.g., trackpoints/trackid/5?first=100&last=109).
+ * As {@link android.database.ContentObserver}s are matched by path only, observers of {@link #getUri(Track.Id)} are only notified about changes of this track (and changes of the whole table).
+ */
+public record TrackPointsChange(@NonNull Track.Id trackId, @NonNull TrackPoint.Id first, @NonNull TrackPoint.Id last) {
+
+    private static final String PARAM_FIRST = "first";
+    private static final String PARAM_LAST = "last";
+
+    /**
+     * @return the URI to observe changes of the TrackPoints of a track.
+     */
+    @NonNull
+    public static Uri getUri(@NonNull Track.Id trackId) {
+        return ContentUris.withAppendedId(TrackPointsColumns.CONTENT_URI_BY_TRACKID, trackId.id());
+    }
+
+    @NonNull
+    public Uri toUri() {
+        return getUri(trackId).buildUpon()
+                .appendQueryParameter(PARAM_FIRST, Long.toString(first.id()))
+                .appendQueryParameter(PARAM_LAST, Long.toString(last.id()))
+                .build();
+    }
+
+    /**
+     * @return null if the URI does not describe inserted TrackPoints (e.g., TrackPoints were updated or deleted).
+     */
+    @Nullable
+    public static TrackPointsChange fromUri(@Nullable Uri uri) {
+        if (uri == null) {
+            return null;
+        }
+        List<String> segments = uri.getPathSegments();
+        List<String> baseSegments = TrackPointsColumns.CONTENT_URI_BY_TRACKID.getPathSegments();
+        if (!TrackPointsColumns.CONTENT_URI_BY_TRACKID.getAuthority().equals(uri.getAuthority())
+                || segments.size() != baseSegments.size() + 1
+                || !segments.subList(0, baseSegments.size()).equals(baseSegments)) {
+            return null;
+        }
+
+        try {
+            String first = uri.getQueryParameter(PARAM_FIRST);
+            String last = uri.getQueryParameter(PARAM_LAST);
+            if (first == null || last == null) {
+                return null;
+            }
+            return new TrackPointsChange(new Track.Id(Long.parseLong(segments.get(baseSegments.size()))), new TrackPoint.Id(Long.parseLong(first)), new TrackPoint.Id(Long.parseLong(last)));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Combines the notifications of one track.
+     *
+     * @return null if any of the URIs does not describe inserted TrackPoints of the same track.
+     */
+    @Nullable
+    public static TrackPointsChange fromUris(@NonNull List<Uri> uris) {
+        TrackPointsChange combined = null;
+        for (Uri uri : uris) {
+            TrackPointsChange change = fromUri(uri);
+            if (change == null || (combined != null && !combined.trackId.equals(change.trackId))) {
+                return null;
+            }
+            combined = combined == null ? change : new TrackPointsChange(change.trackId,
+                    combined.first.id() <= change.first.id() ? combined.first : change.first,
+                    combined.last.id() >= change.last.id() ? combined.last : change.last);
+        }
+        return combined;
+    }
+}
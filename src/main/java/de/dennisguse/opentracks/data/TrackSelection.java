@@ -2,16 +2,26 @@ package de.dennisguse.opentracks.data;
 
 import android.text.TextUtils;
 
+import androidx.annotation.Nullable;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
 import de.dennisguse.opentracks.data.models.Track;
+import de.dennisguse.opentracks.data.tables.RecordingTracksColumns;
+import de.dennisguse.opentracks.data.tables.TrackRollupsColumns;
 import de.dennisguse.opentracks.data.tables.TracksColumns;
 
 public class TrackSelection implements ContentProviderUtils.ContentProviderSelectionInterface {
+
+    private static final long DAY_MILLIS = Duration.ofDays(1).toMillis();
+
     private final List<Track.Id> trackIds = new ArrayList<>();
     private final List<String> categories = new ArrayList<>();
     private Instant from;
@@ -74,4 +84,108 @@ public class TrackSelection implements ContentProviderUtils.ContentProviderSelec
 
         return new SelectionData(selection, selectionArgs);
     }
+
+    /**
+     * Selects the rollups (see {@link TrackRollupsColumns}) of all whole days (UTC) within the date range; if there is none, all months.
+     * Combined with the tracks of {@link #buildRollupRemainderSelection()}, these contain the tracks of {@link #buildSelection()}.
+     *
+     * @return null if no rollups can be used (i.e., tracks are selected by id or no whole day is within the date range).
+     */
+    @Nullable
+    public SelectionData buildRollupSelection() {
+        if (!trackIds.isEmpty()) {
+            return null;
+        }
+
+        List<String> ranges = new ArrayList<>();
+        ArrayList<String> args = new ArrayList<>();
+        if (from != null && to != null) {
+            LocalDate firstDay = LocalDate.ofEpochDay(Math.floorDiv(from.toEpochMilli() + DAY_MILLIS - 1, DAY_MILLIS));
+            LocalDate endDay = LocalDate.ofEpochDay(Math.floorDiv(to.toEpochMilli() + 1, DAY_MILLIS));
+
+            // Largest periods first; weeks do not span the beginning of months (so these can be used).
+            int rangePeriod = -1;
+            LocalDate rangeStart = null;
+            LocalDate day = firstDay;
+            while (day.isBefore(endDay)) {
+                LocalDate nextMonth = day.withDayOfMonth(1).plusMonths(1);
+                LocalDate weekLimit = nextMonth.isBefore(endDay) ? nextMonth : endDay;
+
+                int period;
+                LocalDate next;
+                if (day.getDayOfMonth() == 1 && !nextMonth.isAfter(endDay)) {
+                    period = TrackRollupsColumns.PERIOD_MONTH;
+                    next = nextMonth;
+                } else if (day.getDayOfWeek() == DayOfWeek.MONDAY && !day.plusWeeks(1).isAfter(weekLimit)) {
+                    period = TrackRollupsColumns.PERIOD_WEEK;
+                    next = day.plusWeeks(1);
+                } else {
+                    period = TrackRollupsColumns.PERIOD_DAY;
+                    next = day.plusDays(1);
+                }
+
+                if (period != rangePeriod) {
+                    if (rangeStart != null) {
+                        addRollupRange(ranges, args, rangePeriod, rangeStart, day);
+                    }
+                    rangePeriod = period;
+                    rangeStart = day;
+                }
+                day = next;
+            }
+            if (rangeStart == null) {
+                return null;
+            }
+            addRollupRange(ranges, args, rangePeriod, rangeStart, day);
+        } else {
+            ranges.add(TrackRollupsColumns.PERIOD + " = ?");
+            args.add(Integer.toString(TrackRollupsColumns.PERIOD_MONTH));
+        }
+
+        String selection = "(" + String.join(" OR ", ranges) + ")";
+        if (!categories.isEmpty()) {
+            selection += String.format(" AND " + TrackRollupsColumns.ACTIVITY_TYPE_LOCALIZED + " IN (%s)", TextUtils.join(",", Collections.nCopies(categories.size(), "?")));
+            args.addAll(categories);
+        }
+        return new SelectionData(selection, args.toArray(new String[0]));
+    }
+
+    private static void addRollupRange(List<String> ranges, List<String> args, int period, LocalDate start, LocalDate end) {
+        ranges.add("(" + TrackRollupsColumns.PERIOD + " = ? AND " + TrackRollupsColumns.PERIOD_START + " >= ? AND " + TrackRollupsColumns.PERIOD_START + " < ?)");
+        args.add(Integer.toString(period));
+        args.add(Long.toString(start.toEpochDay() * DAY_MILLIS));
+        args.add(Long.toString(end.toEpochDay() * DAY_MILLIS));
+    }
+
+    /**
+     * Selects the tracks not contained in the rollups of {@link #buildRollupSelection()}: at the boundaries of the date range (partial days), without start time, or recording.
+     */
+    public SelectionData buildRollupRemainderSelection() {
+        if (buildRollupSelection() == null) {
+            return buildSelection();
+        }
+
+        String selection;
+        ArrayList<String> args = new ArrayList<>();
+        if (from != null && to != null) {
+            long firstDayMillis = Math.floorDiv(from.toEpochMilli() + DAY_MILLIS - 1, DAY_MILLIS) * DAY_MILLIS;
+            long endDayMillis = Math.floorDiv(to.toEpochMilli() + 1, DAY_MILLIS) * DAY_MILLIS;
+            selection = "(" + TracksColumns.STARTTIME + " >= ? AND " + TracksColumns.STARTTIME + " < ? OR " + TracksColumns.STARTTIME + " BETWEEN ? AND ?"
+                    + " OR " + RecordingTracksColumns.SELECTION_RECORDING + " AND " + TracksColumns.STARTTIME + " BETWEEN ? AND ?)";
+            args.add(Long.toString(from.toEpochMilli()));
+            args.add(Long.toString(firstDayMillis));
+            args.add(Long.toString(endDayMillis));
+            args.add(Long.toString(to.toEpochMilli()));
+            args.add(Long.toString(from.toEpochMilli()));
+            args.add(Long.toString(to.toEpochMilli()));
+        } else {
+            selection = "(" + TracksColumns.STARTTIME + " IS NULL OR " + RecordingTracksColumns.SELECTION_RECORDING + ")";
+        }
+
+        if (!categories.isEmpty()) {
+            selection += String.format(" AND " + TracksColumns.ACTIVITY_TYPE_LOCALIZED + " IN (%s)", TextUtils.join(",", Collections.nCopies(categories.size(), "?")));
+            args.addAll(categories);
+        }
+        return new SelectionData(selection, args.toArray(new String[0]));
+    }
 }
@@ -61,6 +61,17 @@ public class Track {
         this.zoneOffset = zoneOffset;
     }
 
+    public Track(@NonNull Track toCopy) {
+        this(toCopy.zoneOffset);
+        this.id = toCopy.id;
+        this.uuid = toCopy.uuid;
+        this.name = toCopy.name;
+        this.description = toCopy.description;
+        this.activityTypeLocalized = toCopy.activityTypeLocalized;
+        this.activityType = toCopy.activityType;
+        this.trackStatistics = new TrackStatistics(toCopy.trackStatistics);
+    }
+
     /**
      * May be null if the track was not loaded from the database.
      */
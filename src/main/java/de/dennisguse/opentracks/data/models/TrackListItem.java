@@ -0,0 +1,25 @@
+package de.dennisguse.opentracks.data.models;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+/**
+ * Summary of a {@link Track} as shown in the track list; only the columns needed are loaded.
+ * Being a record, two items are equal if the list would show the same content.
+ */
+public record TrackListItem(
+        @NonNull Track.Id id,
+        String name,
+        String description,
+        @NonNull ActivityType activityType,
+        String activityTypeLocalized,
+        @Nullable Instant startTime,
+        @NonNull ZoneOffset startTimeOffset,
+        @NonNull Distance totalDistance,
+        @NonNull Duration totalTime,
+        int markerCount) {
+}
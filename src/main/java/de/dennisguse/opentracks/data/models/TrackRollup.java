@@ -0,0 +1,12 @@
+package de.dennisguse.opentracks.data.models;
+
+import de.dennisguse.opentracks.stats.TrackStatistics;
+
+/**
+ * The statistics of tracks with the same activity type combined (e.g., a rollup of a day or a single track).
+ */
+public record TrackRollup(
+        String activityTypeLocalized,
+        int trackCount,
+        TrackStatistics trackStatistics) {
+}
@@ -0,0 +1,31 @@
+package de.dennisguse.opentracks.data.tables;
+
+import android.net.Uri;
+
+import de.dennisguse.opentracks.data.ContentProviderUtils;
+
+/**
+ * Constants for the importing tracks table: tracks that are stored while being imported (i.e., incomplete).
+ * These tracks are not returned by queries of the tracks table (e.g., track list, search, and export) until the import finished.
+ * If an import did not finish (e.g., the process was killed), its tracks are deleted on the next start.
+ */
+public interface ImportingTracksColumns {
+
+    String TABLE_NAME = "importing_tracks";
+
+    // Below the tracks; so, observers of the tracks table are notified.
+    Uri CONTENT_URI = Uri.parse(ContentProviderUtils.CONTENT_BASE_URI + "/" + TracksColumns.TABLE_NAME + "/importing");
+
+    // Columns
+    String TRACKID = "trackid";
+
+    String CREATE_TABLE = "CREATE TABLE " + TABLE_NAME + " ("
+            + TRACKID + " INTEGER PRIMARY KEY, "
+            + "FOREIGN KEY (" + TRACKID + ") REFERENCES " + TracksColumns.TABLE_NAME + "(" + TracksColumns._ID + ") ON UPDATE CASCADE ON DELETE CASCADE"
+            + ")";
+
+    /**
+     * Selection of the completed tracks.
+     */
+    String SELECTION_COMPLETE = TracksColumns.TABLE_NAME + "." + TracksColumns._ID + " NOT IN (SELECT " + TRACKID + " FROM " + TABLE_NAME + ")";
+}
@@ -0,0 +1,56 @@
+package de.dennisguse.opentracks.data.tables;
+
+/**
+ * Constants for the full-text search index of markers; see {@link TracksFtsColumns}.
+ * The docid of an entry is the marker's id.
+ */
+public interface MarkersFtsColumns {
+
+    String TABLE_NAME = "markers_fts";
+
+    // Columns (the same as in markers)
+    String DOCID = "docid";
+    String NAME = MarkerColumns.NAME;
+    String DESCRIPTION = MarkerColumns.DESCRIPTION;
+    String CATEGORY = MarkerColumns.CATEGORY;
+
+    /**
+     * Weights of the columns for ranking (in order of the columns).
+     */
+    double[] COLUMN_WEIGHTS = {4, 1, 2};
+
+    String CREATE_TABLE = "CREATE VIRTUAL TABLE " + TABLE_NAME + " USING fts4("
+            + "content=\"" + MarkerColumns.TABLE_NAME + "\", "
+            + NAME + ", "
+            + DESCRIPTION + ", "
+            + CATEGORY + ", "
+            + "tokenize=unicode61, "
+            + "prefix=\"2,3\")";
+
+    String REBUILD = "INSERT INTO " + TABLE_NAME + "(" + TABLE_NAME + ") VALUES('rebuild')";
+
+    String CHANGED = " OF " + MarkerColumns._ID + ", " + NAME + ", " + DESCRIPTION + ", " + CATEGORY + " ON " + MarkerColumns.TABLE_NAME
+            + " WHEN OLD." + MarkerColumns._ID + " IS NOT NEW." + MarkerColumns._ID
+            + " OR OLD." + NAME + " IS NOT NEW." + NAME
+            + " OR OLD." + DESCRIPTION + " IS NOT NEW." + DESCRIPTION
+            + " OR OLD." + CATEGORY + " IS NOT NEW." + CATEGORY;
+
+    String INSERT_NEW = "INSERT INTO " + TABLE_NAME + " (" + DOCID + ", " + NAME + ", " + DESCRIPTION + ", " + CATEGORY + ")"
+            + " VALUES (NEW." + MarkerColumns._ID + ", NEW." + NAME + ", NEW." + DESCRIPTION + ", NEW." + CATEGORY + ")";
+
+    String DELETE_OLD = "DELETE FROM " + TABLE_NAME + " WHERE " + DOCID + " = OLD." + MarkerColumns._ID;
+
+    String CREATE_TRIGGER_INSERT = "CREATE TRIGGER " + TABLE_NAME + "_insert_trigger AFTER INSERT ON " + MarkerColumns.TABLE_NAME
+            + " BEGIN " + INSERT_NEW + "; END";
+
+    String CREATE_TRIGGER_BEFORE_UPDATE = "CREATE TRIGGER " + TABLE_NAME + "_before_update_trigger BEFORE UPDATE" + CHANGED
+            + " BEGIN " + DELETE_OLD + "; END";
+
+    String CREATE_TRIGGER_AFTER_UPDATE = "CREATE TRIGGER " + TABLE_NAME + "_after_update_trigger AFTER UPDATE" + CHANGED
+            + " BEGIN " + INSERT_NEW + "; END";
+
+    String CREATE_TRIGGER_DELETE = "CREATE TRIGGER " + TABLE_NAME + "_delete_trigger BEFORE DELETE ON " + MarkerColumns.TABLE_NAME
+            + " BEGIN " + DELETE_OLD + "; END";
+
+    String[] CREATE_TRIGGERS = {CREATE_TRIGGER_INSERT, CREATE_TRIGGER_BEFORE_UPDATE, CREATE_TRIGGER_AFTER_UPDATE, CREATE_TRIGGER_DELETE};
+}
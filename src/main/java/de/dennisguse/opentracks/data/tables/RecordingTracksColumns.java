@@ -0,0 +1,31 @@
+package de.dennisguse.opentracks.data.tables;
+
+import android.net.Uri;
+
+import de.dennisguse.opentracks.data.ContentProviderUtils;
+
+/**
+ * Constants for the recording tracks table: the track that is currently recorded.
+ * Its statistics are updated for every stored batch of TrackPoints; so, it is not contained in the track rollups (see {@link TrackRollupsColumns}) until the recording ends.
+ * If a recording does not end (e.g., the process was killed and the recording is not resumed), the track stays until the next recording starts.
+ */
+public interface RecordingTracksColumns {
+
+    String TABLE_NAME = "recording_tracks";
+
+    // Below the tracks; so, observers of the tracks table are notified.
+    Uri CONTENT_URI = Uri.parse(ContentProviderUtils.CONTENT_BASE_URI + "/" + TracksColumns.TABLE_NAME + "/recording");
+
+    // Columns
+    String TRACKID = "trackid";
+
+    String CREATE_TABLE = "CREATE TABLE " + TABLE_NAME + " ("
+            + TRACKID + " INTEGER PRIMARY KEY, "
+            + "FOREIGN KEY (" + TRACKID + ") REFERENCES " + TracksColumns.TABLE_NAME + "(" + TracksColumns._ID + ") ON UPDATE CASCADE ON DELETE CASCADE"
+            + ")";
+
+    /**
+     * Selection of the recording tracks.
+     */
+    String SELECTION_RECORDING = TracksColumns.TABLE_NAME + "." + TracksColumns._ID + " IN (SELECT " + TRACKID + " FROM " + TABLE_NAME + ")";
+}
@@ -55,6 +55,7 @@ public interface TrackPointsColumns extends BaseColumns {
     String SENSOR_POWER = "sensor_power";
     String ALTITUDE_GAIN = "elevation_gain";
     String ALTITUDE_LOSS = "elevation_loss";
+    String ALTITUDE_MSL = "altitude_msl"; //EGM2008 of ALTITUDE; computed in background (may be null)
 
     // Alias for sensor statistics
     String ALIAS_AVG_HR = "avg_hr";
@@ -82,8 +83,19 @@ public interface TrackPointsColumns extends BaseColumns {
             + TYPE + " TEXT CHECK(type IN (-2, -1, 0, 1, 3)), "
             + SENSOR_DISTANCE + " FLOAT, "
             + VERTICAL_ACCURACY + " FLOAT, "
+            + ALTITUDE_MSL + " FLOAT, "
             + "FOREIGN KEY (" + TRACKID + ") REFERENCES " + TracksColumns.TABLE_NAME + "(" + TracksColumns._ID + ") ON UPDATE CASCADE ON DELETE CASCADE"
             + ")";
 
+    // Also serves as (trackid, _id) index as SQLite stores the rowid (i.e., _id) in every index entry.
     String CREATE_TABLE_INDEX = "CREATE INDEX " + TABLE_NAME + "_" + TRACKID + "_index ON " + TABLE_NAME + "(" + TRACKID + ")";
+
+    // Lookup of TrackPoints of a track by time (e.g., ContentProviderUtils.getTrackPointId()).
+    String CREATE_TABLE_INDEX_TRACKID_TIME = "CREATE INDEX " + TABLE_NAME + "_" + TRACKID + "_" + TIME + "_index ON " + TABLE_NAME + "(" + TRACKID + ", " + TIME + ")";
+
+    // Lookup of the last TrackPoint of a track by type (e.g., ContentProviderUtils.getLastValidTrackPoint()).
+    String CREATE_TABLE_INDEX_TRACKID_TYPE = "CREATE INDEX " + TABLE_NAME + "_" + TRACKID + "_" + TYPE + "_index ON " + TABLE_NAME + "(" + TRACKID + ", " + TYPE + ")";
+
+    // TrackPoints for which ALTITUDE_MSL still needs to be computed.
+    String CREATE_TABLE_INDEX_ALTITUDE_MSL_MISSING = "CREATE INDEX " + TABLE_NAME + "_" + ALTITUDE_MSL + "_missing_index ON " + TABLE_NAME + "(" + _ID + ") WHERE " + ALTITUDE_MSL + " IS NULL AND " + ALTITUDE + " IS NOT NULL AND " + LATITUDE + " IS NOT NULL";
 }
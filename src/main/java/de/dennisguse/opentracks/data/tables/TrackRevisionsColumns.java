@@ -0,0 +1,55 @@
+package de.dennisguse.opentracks.data.tables;
+
+/**
+ * Constants for the track revisions table: a counter per track that is incremented by triggers whenever the track, its Markers, or its TrackPoints are updated or deleted.
+ * Inserted TrackPoints do not increment the revision (to keep recording cheap); use the maximum TrackPoint id in addition.
+ * <p>
+ * Used to identify exported files that are still up-to-date.
+ */
+public interface TrackRevisionsColumns {
+
+    String TABLE_NAME = "track_revisions";
+
+    // Columns
+    String TRACKID = "trackid";
+    String REVISION = "revision";
+
+    String CREATE_TABLE = "CREATE TABLE " + TABLE_NAME + " ("
+            + TRACKID + " INTEGER PRIMARY KEY, "
+            + REVISION + " INTEGER NOT NULL DEFAULT 0, "
+            + "FOREIGN KEY (" + TRACKID + ") REFERENCES " + TracksColumns.TABLE_NAME + "(" + TracksColumns._ID + ") ON UPDATE CASCADE ON DELETE CASCADE"
+            + ")";
+
+    String INCREMENT = "UPDATE " + TABLE_NAME + " SET " + REVISION + " = " + REVISION + " + 1 WHERE " + TRACKID;
+
+    String CREATE_TRIGGER_TRACKS_INSERT = "CREATE TRIGGER " + TABLE_NAME + "_tracks_insert_trigger AFTER INSERT ON " + TracksColumns.TABLE_NAME
+            + " BEGIN INSERT INTO " + TABLE_NAME + " (" + TRACKID + ") VALUES (NEW." + TracksColumns._ID + "); END";
+
+    // Changes of the marker count are already covered by the triggers on markers.
+    String CREATE_TRIGGER_TRACKS_UPDATE = "CREATE TRIGGER " + TABLE_NAME + "_tracks_update_trigger AFTER UPDATE ON " + TracksColumns.TABLE_NAME
+            + " WHEN OLD." + TracksColumns.MARKER_COUNT + " = NEW." + TracksColumns.MARKER_COUNT
+            + " BEGIN " + INCREMENT + " = NEW." + TracksColumns._ID + "; END";
+
+    String CREATE_TRIGGER_MARKERS_INSERT = "CREATE TRIGGER " + TABLE_NAME + "_markers_insert_trigger AFTER INSERT ON " + MarkerColumns.TABLE_NAME
+            + " BEGIN " + INCREMENT + " = NEW." + MarkerColumns.TRACKID + "; END";
+
+    String CREATE_TRIGGER_MARKERS_UPDATE = "CREATE TRIGGER " + TABLE_NAME + "_markers_update_trigger AFTER UPDATE ON " + MarkerColumns.TABLE_NAME
+            + " BEGIN " + INCREMENT + " IN (OLD." + MarkerColumns.TRACKID + ", NEW." + MarkerColumns.TRACKID + "); END";
+
+    String CREATE_TRIGGER_MARKERS_DELETE = "CREATE TRIGGER " + TABLE_NAME + "_markers_delete_trigger AFTER DELETE ON " + MarkerColumns.TABLE_NAME
+            + " BEGIN " + INCREMENT + " = OLD." + MarkerColumns.TRACKID + "; END";
+
+    // Only columns that are exported; e.g., the background computation of ALTITUDE_MSL does not change the revision.
+    String CREATE_TRIGGER_TRACKPOINTS_UPDATE = "CREATE TRIGGER " + TABLE_NAME + "_trackpoints_update_trigger AFTER UPDATE OF "
+            + TrackPointsColumns.TRACKID + ", " + TrackPointsColumns.LONGITUDE + ", " + TrackPointsColumns.LATITUDE + ", " + TrackPointsColumns.TIME + ", "
+            + TrackPointsColumns.ALTITUDE + ", " + TrackPointsColumns.HORIZONTAL_ACCURACY + ", " + TrackPointsColumns.SPEED + ", " + TrackPointsColumns.BEARING + ", "
+            + TrackPointsColumns.SENSOR_HEARTRATE + ", " + TrackPointsColumns.SENSOR_CADENCE + ", " + TrackPointsColumns.SENSOR_POWER + ", "
+            + TrackPointsColumns.ALTITUDE_GAIN + ", " + TrackPointsColumns.ALTITUDE_LOSS + ", " + TrackPointsColumns.TYPE + ", "
+            + TrackPointsColumns.SENSOR_DISTANCE + ", " + TrackPointsColumns.VERTICAL_ACCURACY + " ON " + TrackPointsColumns.TABLE_NAME
+            + " BEGIN " + INCREMENT + " IN (OLD." + TrackPointsColumns.TRACKID + ", NEW." + TrackPointsColumns.TRACKID + "); END";
+
+    String CREATE_TRIGGER_TRACKPOINTS_DELETE = "CREATE TRIGGER " + TABLE_NAME + "_trackpoints_delete_trigger AFTER DELETE ON " + TrackPointsColumns.TABLE_NAME
+            + " BEGIN " + INCREMENT + " = OLD." + TrackPointsColumns.TRACKID + "; END";
+
+    String[] CREATE_TRIGGERS = {CREATE_TRIGGER_TRACKS_INSERT, CREATE_TRIGGER_TRACKS_UPDATE, CREATE_TRIGGER_MARKERS_INSERT, CREATE_TRIGGER_MARKERS_UPDATE, CREATE_TRIGGER_MARKERS_DELETE, CREATE_TRIGGER_TRACKPOINTS_UPDATE, CREATE_TRIGGER_TRACKPOINTS_DELETE};
+}
@@ -0,0 +1,190 @@
+package de.dennisguse.opentracks.data.tables;
+
+import android.net.Uri;
+
+import de.dennisguse.opentracks.data.ContentProviderUtils;
+
+/**
+ * Constants for the track rollups table: the statistics of tracks summed up per activity type and day, week (starting Monday), and month (all in UTC).
+ * So, the statistics of a date range are combined from a few rollups instead of all its tracks (see {@link de.dennisguse.opentracks.data.TrackSelection#buildRollupSelection()}).
+ * <p>
+ * Tracks are assigned by their start time (tracks without are not contained).
+ * Triggers on tracks recompute the affected rollups (only from the tracks within) whenever a track is inserted, updated, or deleted.
+ * The recording track (see {@link RecordingTracksColumns}) is not contained, as its statistics are updated for every stored batch of TrackPoints; its rollups are recomputed once the recording ends.
+ */
+public interface TrackRollupsColumns {
+
+    String TABLE_NAME = "track_rollups";
+
+    Uri CONTENT_URI = Uri.parse(ContentProviderUtils.CONTENT_BASE_URI + "/" + TABLE_NAME);
+    String CONTENT_TYPE = "vnd.android.cursor.dir/vnd.de.dennisguse.trackrollup";
+
+    int PERIOD_DAY = 0;
+    int PERIOD_WEEK = 1;
+    int PERIOD_MONTH = 2;
+
+    // Columns
+    String ACTIVITY_TYPE_LOCALIZED = TracksColumns.ACTIVITY_TYPE_LOCALIZED;
+    String PERIOD = "period"; // PERIOD_*
+    String PERIOD_START = "period_start"; // start of the period (epoch millis)
+    String TRACK_COUNT = "track_count";
+
+    // Columns: aggregated from tracks
+    String STARTTIME = TracksColumns.STARTTIME; // minimum
+    String STOPTIME = TracksColumns.STOPTIME; // maximum
+    String TOTALDISTANCE = TracksColumns.TOTALDISTANCE; // sum
+    String TOTALTIME = TracksColumns.TOTALTIME; // sum
+    String MOVINGTIME = TracksColumns.MOVINGTIME; // sum
+    String MAXSPEED = TracksColumns.MAXSPEED; // maximum
+    String MIN_ALTITUDE = TracksColumns.MIN_ALTITUDE; // minimum
+    String MAX_ALTITUDE = TracksColumns.MAX_ALTITUDE; // maximum
+    String ALTITUDE_GAIN = TracksColumns.ALTITUDE_GAIN; // sum
+    String ALTITUDE_LOSS = TracksColumns.ALTITUDE_LOSS; // sum
+
+    String CREATE_TABLE = "CREATE TABLE " + TABLE_NAME + " ("
+            + ACTIVITY_TYPE_LOCALIZED + " TEXT, "
+            + PERIOD + " INTEGER NOT NULL, "
+            + PERIOD_START + " INTEGER NOT NULL, "
+            + TRACK_COUNT + " INTEGER NOT NULL, "
+            + STARTTIME + " INTEGER, "
+            + STOPTIME + " INTEGER, "
+            + TOTALDISTANCE + " FLOAT, "
+            + TOTALTIME + " INTEGER, "
+            + MOVINGTIME + " INTEGER, "
+            + MAXSPEED + " FLOAT, "
+            + MIN_ALTITUDE + " FLOAT, "
+            + MAX_ALTITUDE + " FLOAT, "
+            + ALTITUDE_GAIN + " FLOAT, "
+            + ALTITUDE_LOSS + " FLOAT"
+            + ")";
+
+    String CREATE_TABLE_INDEX = "CREATE UNIQUE INDEX " + TABLE_NAME + "_period_index ON " + TABLE_NAME + "(" + PERIOD + ", " + PERIOD_START + ", " + ACTIVITY_TYPE_LOCALIZED + ")";
+
+    String COLUMNS = ACTIVITY_TYPE_LOCALIZED + ", " + PERIOD + ", " + PERIOD_START + ", " + TRACK_COUNT + ", "
+            + STARTTIME + ", " + STOPTIME + ", " + TOTALDISTANCE + ", " + TOTALTIME + ", " + MOVINGTIME + ", "
+            + MAXSPEED + ", " + MIN_ALTITUDE + ", " + MAX_ALTITUDE + ", " + ALTITUDE_GAIN + ", " + ALTITUDE_LOSS;
+
+    /**
+     * The aggregated columns (from {@link #TRACK_COUNT} on) computed from tracks.
+     */
+    String AGGREGATES = "COUNT(*), "
+            + "MIN(" + TracksColumns.STARTTIME + "), "
+            + "MAX(" + TracksColumns.STOPTIME + "), "
+            + "SUM(" + TracksColumns.TOTALDISTANCE + "), "
+            + "SUM(" + TracksColumns.TOTALTIME + "), "
+            + "SUM(" + TracksColumns.MOVINGTIME + "), "
+            + "MAX(" + TracksColumns.MAXSPEED + "), "
+            + "MIN(" + TracksColumns.MIN_ALTITUDE + "), "
+            + "MAX(" + TracksColumns.MAX_ALTITUDE + "), "
+            + "SUM(" + TracksColumns.ALTITUDE_GAIN + "), "
+            + "SUM(" + TracksColumns.ALTITUDE_LOSS + ")";
+
+    String CREATE_TRIGGER_INSERT = "CREATE TRIGGER " + TABLE_NAME + "_insert_trigger AFTER INSERT ON " + TracksColumns.TABLE_NAME
+            + " BEGIN " + refresh("NEW") + "END";
+
+    // Only needed if the track moved to other rollups.
+    String CREATE_TRIGGER_UPDATE_OLD = "CREATE TRIGGER " + TABLE_NAME + "_update_old_trigger AFTER UPDATE OF "
+            + TracksColumns.ACTIVITY_TYPE_LOCALIZED + ", " + TracksColumns.STARTTIME + " ON " + TracksColumns.TABLE_NAME
+            + " WHEN (OLD." + TracksColumns.ACTIVITY_TYPE_LOCALIZED + " IS NOT NEW." + TracksColumns.ACTIVITY_TYPE_LOCALIZED
+            + " OR OLD." + TracksColumns.STARTTIME + " IS NOT NEW." + TracksColumns.STARTTIME + ")"
+            + " AND " + notRecording("NEW")
+            + " BEGIN " + refresh("OLD") + "END";
+
+    String CREATE_TRIGGER_UPDATE_NEW = "CREATE TRIGGER " + TABLE_NAME + "_update_new_trigger AFTER UPDATE OF "
+            + TracksColumns.ACTIVITY_TYPE_LOCALIZED + ", " + TracksColumns.STARTTIME + ", " + TracksColumns.STOPTIME + ", " + TracksColumns.TOTALDISTANCE + ", " + TracksColumns.TOTALTIME + ", " + TracksColumns.MOVINGTIME + ", "
+            + TracksColumns.MAXSPEED + ", " + TracksColumns.MIN_ALTITUDE + ", " + TracksColumns.MAX_ALTITUDE + ", " + TracksColumns.ALTITUDE_GAIN + ", " + TracksColumns.ALTITUDE_LOSS
+            + " ON " + TracksColumns.TABLE_NAME
+            + " WHEN (OLD." + TracksColumns.ACTIVITY_TYPE_LOCALIZED + " IS NOT NEW." + TracksColumns.ACTIVITY_TYPE_LOCALIZED
+            + " OR OLD." + TracksColumns.STARTTIME + " IS NOT NEW." + TracksColumns.STARTTIME
+            + " OR OLD." + TracksColumns.STOPTIME + " IS NOT NEW." + TracksColumns.STOPTIME
+            + " OR OLD." + TracksColumns.TOTALDISTANCE + " IS NOT NEW." + TracksColumns.TOTALDISTANCE
+            + " OR OLD." + TracksColumns.TOTALTIME + " IS NOT NEW." + TracksColumns.TOTALTIME
+            + " OR OLD." + TracksColumns.MOVINGTIME + " IS NOT NEW." + TracksColumns.MOVINGTIME
+            + " OR OLD." + TracksColumns.MAXSPEED + " IS NOT NEW." + TracksColumns.MAXSPEED
+            + " OR OLD." + TracksColumns.MIN_ALTITUDE + " IS NOT NEW." + TracksColumns.MIN_ALTITUDE
+            + " OR OLD." + TracksColumns.MAX_ALTITUDE + " IS NOT NEW." + TracksColumns.MAX_ALTITUDE
+            + " OR OLD." + TracksColumns.ALTITUDE_GAIN + " IS NOT NEW." + TracksColumns.ALTITUDE_GAIN
+            + " OR OLD." + TracksColumns.ALTITUDE_LOSS + " IS NOT NEW." + TracksColumns.ALTITUDE_LOSS + ")"
+            + " AND " + notRecording("NEW")
+            + " BEGIN " + refresh("NEW") + "END";
+
+    String CREATE_TRIGGER_DELETE = "CREATE TRIGGER " + TABLE_NAME + "_delete_trigger AFTER DELETE ON " + TracksColumns.TABLE_NAME
+            + " BEGIN " + refresh("OLD") + "END";
+
+    // Removes the track from its rollups.
+    String CREATE_TRIGGER_RECORDING_INSERT = "CREATE TRIGGER " + TABLE_NAME + "_recording_insert_trigger AFTER INSERT ON " + RecordingTracksColumns.TABLE_NAME
+            + " BEGIN " + refreshTrack("NEW") + "END";
+
+    // Adds the track to its rollups.
+    String CREATE_TRIGGER_RECORDING_DELETE = "CREATE TRIGGER " + TABLE_NAME + "_recording_delete_trigger AFTER DELETE ON " + RecordingTracksColumns.TABLE_NAME
+            + " BEGIN " + refreshTrack("OLD") + "END";
+
+    /**
+     * Requires {@link RecordingTracksColumns#CREATE_TABLE}.
+     */
+    String[] CREATE_TRIGGERS = {CREATE_TRIGGER_INSERT, CREATE_TRIGGER_UPDATE_OLD, CREATE_TRIGGER_UPDATE_NEW, CREATE_TRIGGER_DELETE, CREATE_TRIGGER_RECORDING_INSERT, CREATE_TRIGGER_RECORDING_DELETE};
+
+    /**
+     * Start (epoch millis) of the period containing a start time (as SQL).
+     */
+    private static String periodStart(int period, String startTime) {
+        String modifiers = switch (period) {
+            case PERIOD_DAY -> "'start of day'";
+            case PERIOD_WEEK -> "'weekday 0', '-6 days', 'start of day'";
+            case PERIOD_MONTH -> "'start of month'";
+            default -> throw new IllegalArgumentException("Unknown period " + period);
+        };
+        return "CAST(strftime('%s', " + startTime + " / 1000, 'unixepoch', " + modifiers + ") AS INTEGER) * 1000";
+    }
+
+    /**
+     * End (epoch millis; exclusive) of the period containing a start time (as SQL).
+     */
+    private static String periodEnd(int period, String startTime) {
+        String modifiers = switch (period) {
+            case PERIOD_DAY -> "'start of day', '+1 days'";
+            case PERIOD_WEEK -> "'weekday 0', '+1 days', 'start of day'";
+            case PERIOD_MONTH -> "'start of month', '+1 months'";
+            default -> throw new IllegalArgumentException("Unknown period " + period);
+        };
+        return "CAST(strftime('%s', " + startTime + " / 1000, 'unixepoch', " + modifiers + ") AS INTEGER) * 1000";
+    }
+
+    /**
+     * If a track (OLD or NEW) is not recorded (as SQL).
+     */
+    private static String notRecording(String row) {
+        return row + "." + TracksColumns._ID + " NOT IN (SELECT " + RecordingTracksColumns.TRACKID + " FROM " + RecordingTracksColumns.TABLE_NAME + ")";
+    }
+
+    /**
+     * Recomputes the rollups containing a track (OLD or NEW) from the tracks within; does nothing if it has no start time.
+     */
+    private static String refresh(String row) {
+        return refresh(row + "." + TracksColumns.STARTTIME, row + "." + TracksColumns.ACTIVITY_TYPE_LOCALIZED);
+    }
+
+    /**
+     * Like {@link #refresh(String)}, but for the track of a recording track (OLD or NEW); does nothing if the track does not exist (anymore).
+     */
+    private static String refreshTrack(String row) {
+        String track = " FROM " + TracksColumns.TABLE_NAME + " WHERE " + TracksColumns._ID + " = " + row + "." + RecordingTracksColumns.TRACKID + ")";
+        return refresh("(SELECT " + TracksColumns.STARTTIME + track, "(SELECT " + TracksColumns.ACTIVITY_TYPE_LOCALIZED + track);
+    }
+
+    private static String refresh(String startTime, String activityType) {
+        StringBuilder sql = new StringBuilder();
+        for (int period : new int[]{PERIOD_DAY, PERIOD_WEEK, PERIOD_MONTH}) {
+            String start = periodStart(period, startTime);
+            String end = periodEnd(period, startTime);
+
+            sql.append("DELETE FROM " + TABLE_NAME + " WHERE " + PERIOD + " = " + period + " AND " + PERIOD_START + " = " + start + " AND " + ACTIVITY_TYPE_LOCALIZED + " IS " + activityType + "; ");
+            sql.append("INSERT INTO " + TABLE_NAME + " (" + COLUMNS + ") SELECT " + activityType + ", " + period + ", " + start + ", " + AGGREGATES
+                    + " FROM " + TracksColumns.TABLE_NAME
+                    + " WHERE " + TracksColumns.ACTIVITY_TYPE_LOCALIZED + " IS " + activityType + " AND " + TracksColumns.STARTTIME + " >= " + start + " AND " + TracksColumns.STARTTIME + " < " + end
+                    + " AND " + notRecording(TracksColumns.TABLE_NAME)
+                    + " GROUP BY " + TracksColumns.ACTIVITY_TYPE_LOCALIZED + "; "); // No rollup without tracks
+        }
+        return sql.toString();
+    }
+}
@@ -0,0 +1,48 @@
+package de.dennisguse.opentracks.data.tables;
+
+/**
+ * Constants for the track sensor statistics table: a cache of the sensor statistics (computed from the TrackPoints) per track.
+ * An entry is removed by triggers as soon as TrackPoints of the track are updated or deleted.
+ * Inserted TrackPoints are detected on read via {@link #LAST_TRACKPOINTID} (a trigger would run once per inserted TrackPoint).
+ */
+public interface TrackSensorStatsColumns {
+
+    String TABLE_NAME = "track_sensor_stats";
+
+    // Columns
+    String TRACKID = "trackid";
+    String AVG_HR = TrackPointsColumns.ALIAS_AVG_HR;
+    String MAX_HR = TrackPointsColumns.ALIAS_MAX_HR;
+    String AVG_CADENCE = TrackPointsColumns.ALIAS_AVG_CADENCE;
+    String MAX_CADENCE = TrackPointsColumns.ALIAS_MAX_CADENCE;
+    String AVG_POWER = TrackPointsColumns.ALIAS_AVG_POWER;
+    String MAX_POWER = TrackPointsColumns.ALIAS_MAX_POWER;
+    String LAST_TRACKPOINTID = "last_trackpointid"; // largest TrackPoint id of the track at computation; the entry is stale if it differs
+
+    /**
+     * Selection of a valid entry; arguments: trackId, trackId.
+     */
+    String SELECTION_VALID = TRACKID + "=? AND " + LAST_TRACKPOINTID + " IS (SELECT MAX(" + TrackPointsColumns._ID + ") FROM " + TrackPointsColumns.TABLE_NAME + " WHERE " + TrackPointsColumns.TRACKID + "=?)";
+
+    String[] STATISTICS = {AVG_HR, MAX_HR, AVG_CADENCE, MAX_CADENCE, AVG_POWER, MAX_POWER};
+
+    String CREATE_TABLE = "CREATE TABLE " + TABLE_NAME + " ("
+            + TRACKID + " INTEGER PRIMARY KEY, "
+            + AVG_HR + " FLOAT, "
+            + MAX_HR + " FLOAT, "
+            + AVG_CADENCE + " FLOAT, "
+            + MAX_CADENCE + " FLOAT, "
+            + AVG_POWER + " FLOAT, "
+            + MAX_POWER + " FLOAT, "
+            + LAST_TRACKPOINTID + " INTEGER, "
+            + "FOREIGN KEY (" + TRACKID + ") REFERENCES " + TracksColumns.TABLE_NAME + "(" + TracksColumns._ID + ") ON UPDATE CASCADE ON DELETE CASCADE"
+            + ")";
+
+    String CREATE_TRIGGER_UPDATE = "CREATE TRIGGER " + TABLE_NAME + "_update_trigger AFTER UPDATE OF "
+            + TrackPointsColumns.TRACKID + ", " + TrackPointsColumns.TIME + ", " + TrackPointsColumns.TYPE + ", " + TrackPointsColumns.SENSOR_HEARTRATE + ", " + TrackPointsColumns.SENSOR_CADENCE + ", " + TrackPointsColumns.SENSOR_POWER
+            + " ON " + TrackPointsColumns.TABLE_NAME
+            + " BEGIN DELETE FROM " + TABLE_NAME + " WHERE " + TRACKID + " IN (OLD." + TrackPointsColumns.TRACKID + ", NEW." + TrackPointsColumns.TRACKID + "); END";
+
+    String CREATE_TRIGGER_DELETE = "CREATE TRIGGER " + TABLE_NAME + "_delete_trigger AFTER DELETE ON " + TrackPointsColumns.TABLE_NAME
+            + " BEGIN DELETE FROM " + TABLE_NAME + " WHERE " + TRACKID + " = OLD." + TrackPointsColumns.TRACKID + "; END";
+}
@@ -31,6 +31,7 @@ public interface TracksColumns extends BaseColumns {
     String TABLE_NAME = "tracks";
     Uri CONTENT_URI = Uri.parse(ContentProviderUtils.CONTENT_BASE_URI + "/" + TABLE_NAME);
     Uri CONTENT_URI_SENSOR_STATS = Uri.parse(ContentProviderUtils.CONTENT_BASE_URI + "/" + TABLE_NAME + "/sensorstats");
+    Uri CONTENT_URI_SEARCH = Uri.parse(ContentProviderUtils.CONTENT_BASE_URI + "/" + TABLE_NAME + "/search");
     String CONTENT_TYPE = "vnd.android.cursor.dir/vnd.de.dennisguse.track";
     String CONTENT_ITEMTYPE = "vnd.android.cursor.item/vnd.de.dennisguse.track";
     String DEFAULT_SORT_ORDER = _ID;
@@ -47,7 +48,7 @@ public interface TracksColumns extends BaseColumns {
     String STARTTIME = "starttime"; // track start time
     String STARTTIME_OFFSET = "starttime_offset"; // in plus/minus in seconds
     String STOPTIME = "stoptime"; // track stop time
-    String MARKER_COUNT = "markerCount"; // the numbers of markers (virtual column)
+    String MARKER_COUNT = "marker_count"; // the numbers of markers (maintained by triggers on markers)
     @Deprecated
     String NUMPOINTS = "numpoints"; // number of track points //TODO UNUSED
     String TOTALDISTANCE = "totaldistance"; // total distance
@@ -61,6 +62,8 @@ public interface TracksColumns extends BaseColumns {
     String MAX_ALTITUDE = "maxelevation"; // maximum altitude //TODO RENAME column
     String ALTITUDE_GAIN = "elevationgain"; // altitude gain //TODO RENAME column
     String ALTITUDE_LOSS = "elevationloss"; // altitude loss //TODO RENAME column
+    String STATISTICS_CHECKPOINT = "statistics_checkpoint"; // serialized TrackStatisticsUpdater (may be null)
+    String STATISTICS_CHECKPOINT_TRACKPOINTID = "statistics_checkpoint_trackpointid"; // last TrackPoint included in STATISTICS_CHECKPOINT
 
     String CREATE_TABLE = "CREATE TABLE " + TABLE_NAME + " ("
             + _ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
@@ -83,8 +86,26 @@ public interface TracksColumns extends BaseColumns {
             + UUID + " BLOB, "
             + ALTITUDE_LOSS + " FLOAT, "
             + STARTTIME_OFFSET + " INTEGER, "
-            + ACTIVITY_TYPE + " TEXT)";
+            + ACTIVITY_TYPE + " TEXT, "
+            + STATISTICS_CHECKPOINT + " BLOB, "
+            + STATISTICS_CHECKPOINT_TRACKPOINTID + " INTEGER, "
+            + MARKER_COUNT + " INTEGER NOT NULL DEFAULT 0)";
 
     String CREATE_TABLE_INDEX = "CREATE UNIQUE INDEX " + TABLE_NAME + "_" + UUID + "_index ON " + TABLE_NAME + "(" + UUID + ")";
 
+    // Order of the track list (newest first)
+    String CREATE_TABLE_INDEX_STARTTIME = "CREATE INDEX " + TABLE_NAME + "_" + STARTTIME + "_index ON " + TABLE_NAME + "(" + STARTTIME + ", " + _ID + ")";
+
+    String CREATE_TRIGGER_MARKER_COUNT_INSERT = "CREATE TRIGGER " + TABLE_NAME + "_" + MARKER_COUNT + "_insert_trigger AFTER INSERT ON " + MarkerColumns.TABLE_NAME
+            + " BEGIN UPDATE " + TABLE_NAME + " SET " + MARKER_COUNT + " = " + MARKER_COUNT + " + 1 WHERE " + _ID + " = NEW." + MarkerColumns.TRACKID + "; END";
+
+    // Recounts as the track's id itself may have changed (ON UPDATE CASCADE).
+    String CREATE_TRIGGER_MARKER_COUNT_UPDATE = "CREATE TRIGGER " + TABLE_NAME + "_" + MARKER_COUNT + "_update_trigger AFTER UPDATE OF " + MarkerColumns.TRACKID + " ON " + MarkerColumns.TABLE_NAME
+            + " BEGIN UPDATE " + TABLE_NAME + " SET " + MARKER_COUNT + " = (SELECT COUNT(*) FROM " + MarkerColumns.TABLE_NAME + " WHERE " + MarkerColumns.TRACKID + " = " + TABLE_NAME + "." + _ID + ") WHERE " + _ID + " IN (OLD." + MarkerColumns.TRACKID + ", NEW." + MarkerColumns.TRACKID + "); END";
+
+    String CREATE_TRIGGER_MARKER_COUNT_DELETE = "CREATE TRIGGER " + TABLE_NAME + "_" + MARKER_COUNT + "_delete_trigger AFTER DELETE ON " + MarkerColumns.TABLE_NAME
+            + " BEGIN UPDATE " + TABLE_NAME + " SET " + MARKER_COUNT + " = " + MARKER_COUNT + " - 1 WHERE " + _ID + " = OLD." + MarkerColumns.TRACKID + "; END";
+
+    String[] CREATE_TRIGGERS = {CREATE_TRIGGER_MARKER_COUNT_INSERT, CREATE_TRIGGER_MARKER_COUNT_UPDATE, CREATE_TRIGGER_MARKER_COUNT_DELETE};
+
 }
@@ -0,0 +1,58 @@
+package de.dennisguse.opentracks.data.tables;
+
+/**
+ * Constants for the full-text search index of tracks (FTS4; FTS5 is not available in Android's SQLite).
+ * The index stores no content itself (content is read from the tracks table); it is kept in sync by triggers on tracks.
+ * The docid of an entry is the track's id.
+ */
+public interface TracksFtsColumns {
+
+    String TABLE_NAME = "tracks_fts";
+
+    // Columns (the same as in tracks)
+    String DOCID = "docid";
+    String NAME = TracksColumns.NAME;
+    String DESCRIPTION = TracksColumns.DESCRIPTION;
+    String ACTIVITY_TYPE_LOCALIZED = TracksColumns.ACTIVITY_TYPE_LOCALIZED;
+
+    /**
+     * Weights of the columns for ranking (in order of the columns).
+     */
+    double[] COLUMN_WEIGHTS = {4, 1, 2};
+
+    String CREATE_TABLE = "CREATE VIRTUAL TABLE " + TABLE_NAME + " USING fts4("
+            + "content=\"" + TracksColumns.TABLE_NAME + "\", "
+            + NAME + ", "
+            + DESCRIPTION + ", "
+            + ACTIVITY_TYPE_LOCALIZED + ", "
+            + "tokenize=unicode61, "
+            + "prefix=\"2,3\")";
+
+    String REBUILD = "INSERT INTO " + TABLE_NAME + "(" + TABLE_NAME + ") VALUES('rebuild')";
+
+    String CHANGED = " OF " + TracksColumns._ID + ", " + NAME + ", " + DESCRIPTION + ", " + ACTIVITY_TYPE_LOCALIZED + " ON " + TracksColumns.TABLE_NAME
+            + " WHEN OLD." + TracksColumns._ID + " IS NOT NEW." + TracksColumns._ID
+            + " OR OLD." + NAME + " IS NOT NEW." + NAME
+            + " OR OLD." + DESCRIPTION + " IS NOT NEW." + DESCRIPTION
+            + " OR OLD." + ACTIVITY_TYPE_LOCALIZED + " IS NOT NEW." + ACTIVITY_TYPE_LOCALIZED;
+
+    String INSERT_NEW = "INSERT INTO " + TABLE_NAME + " (" + DOCID + ", " + NAME + ", " + DESCRIPTION + ", " + ACTIVITY_TYPE_LOCALIZED + ")"
+            + " VALUES (NEW." + TracksColumns._ID + ", NEW." + NAME + ", NEW." + DESCRIPTION + ", NEW." + ACTIVITY_TYPE_LOCALIZED + ")";
+
+    // Entries must be deleted while the content is still available (i.e., before).
+    String DELETE_OLD = "DELETE FROM " + TABLE_NAME + " WHERE " + DOCID + " = OLD." + TracksColumns._ID;
+
+    String CREATE_TRIGGER_INSERT = "CREATE TRIGGER " + TABLE_NAME + "_insert_trigger AFTER INSERT ON " + TracksColumns.TABLE_NAME
+            + " BEGIN " + INSERT_NEW + "; END";
+
+    String CREATE_TRIGGER_BEFORE_UPDATE = "CREATE TRIGGER " + TABLE_NAME + "_before_update_trigger BEFORE UPDATE" + CHANGED
+            + " BEGIN " + DELETE_OLD + "; END";
+
+    String CREATE_TRIGGER_AFTER_UPDATE = "CREATE TRIGGER " + TABLE_NAME + "_after_update_trigger AFTER UPDATE" + CHANGED
+            + " BEGIN " + INSERT_NEW + "; END";
+
+    String CREATE_TRIGGER_DELETE = "CREATE TRIGGER " + TABLE_NAME + "_delete_trigger BEFORE DELETE ON " + TracksColumns.TABLE_NAME
+            + " BEGIN " + DELETE_OLD + "; END";
+
+    String[] CREATE_TRIGGERS = {CREATE_TRIGGER_INSERT, CREATE_TRIGGER_BEFORE_UPDATE, CREATE_TRIGGER_AFTER_UPDATE, CREATE_TRIGGER_DELETE};
+}
@@ -0,0 +1,129 @@
+package de.dennisguse.opentracks.io.file;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs one task per item (e.g., one file) on a bounded number of worker threads; shared by the import and the export.
+ * <p>
+ * {@link #cancel()} and the metrics may be used from any thread.
+ *
+ * @param <T> the item
+ */
+public class ParallelTaskRunner<T> {
+
+    private static final String TAG = ParallelTaskRunner.class.getSimpleName();
+
+    public interface Worker<T> {
+        /**
+         * Called from a worker thread.
+         * Must handle its failures; interrupted if {@link #cancel()} is called.
+         */
+        void run(@NonNull T item);
+    }
+
+    private final String name;
+    private final int parallelism;
+
+    private final List<Future<?>> futures = new ArrayList<>();
+    private boolean cancelled = false;
+
+    private final AtomicInteger totalCount = new AtomicInteger();
+    private final AtomicInteger doneCount = new AtomicInteger();
+
+    /**
+     * @param name used for the worker threads.
+     */
+    public ParallelTaskRunner(@NonNull String name, int parallelism) {
+        this.name = name;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Keeps one core for the UI.
+     */
+    public static int getDefaultParallelism() {
+        return Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Runs the worker for all items and blocks until they are done or {@link #cancel()} was called.
+     * Returns only after all workers terminated (also the interrupted ones).
+     */
+    public void run(@NonNull List<T> items, @NonNull Worker<T> worker) throws InterruptedException {
+        if (items.isEmpty()) {
+            return;
+        }
+
+        totalCount.addAndGet(items.size());
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, items.size()), r -> new Thread(r, name + "-" + threadCount.incrementAndGet()));
+        try {
+            synchronized (this) {
+                for (T item : items) {
+                    if (cancelled) {
+                        break;
+                    }
+                    futures.add(executor.submit(() -> {
+                        try {
+                            worker.run(item);
+                        } finally {
+                            doneCount.incrementAndGet();
+                        }
+                    }));
+                }
+            }
+            executor.shutdown();
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                Log.d(TAG, name + " still running: " + getDoneCount() + "/" + getTotalCount());
+            }
+        } finally {
+            executor.shutdownNow();
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                Log.w(TAG, name + " waiting for cancelled tasks.");
+            }
+            synchronized (this) {
+                futures.clear();
+            }
+        }
+    }
+
+    /**
+     * Interrupts running tasks and skips pending ones (the worker is not called).
+     */
+    public synchronized void cancel() {
+        cancelled = true;
+        for (Future<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    public int getTotalCount() {
+        return totalCount.get();
+    }
+
+    /**
+     * @return number of finished tasks (successful or not).
+     */
+    public int getDoneCount() {
+        return doneCount.get();
+    }
+}
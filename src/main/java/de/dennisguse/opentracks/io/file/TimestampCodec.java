@@ -0,0 +1,248 @@
+package de.dennisguse.opentracks.io.file;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+import de.dennisguse.opentracks.util.StringUtils;
+
+/**
+ * Parses and formats the ISO 8601 timestamps of track files (e.g., 2020-01-01T12:00:00.123+01:00).
+ * <p>
+ * Within a file, nearly all timestamps share their date and offset: both are cached, so only the time of day is parsed or formatted (arithmetically).
+ * Results are the same as {@link StringUtils#parseTime(String)} and {@link StringUtils#formatDateTimeIso8601(Instant, ZoneOffset)}; other forms (e.g., without offset) are handled by these.
+ * <p>
+ * Not thread-safe: use one instance per file.
+ */
+public class TimestampCodec {
+
+    private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+
+    // Parsing: date (yyyy-MM-dd) and offset (Z or +HH:MM) of the previous timestamp.
+    private final char[] parsedDate = new char[10];
+    private boolean parsedDateValid = false;
+    private long parsedEpochDay;
+
+    private final char[] parsedOffset = new char[6];
+    private int parsedOffsetLength = 0;
+    private ZoneOffset parsedZoneOffset;
+
+    private ZoneOffset lastOffset;
+
+    // Formatting: prefix (yyyy-MM-ddT) and suffix (offset) of the previous timestamp.
+    private final StringBuilder formatted = new StringBuilder(40);
+    private long formattedEpochDay;
+    private ZoneOffset formattedZoneOffset;
+    private String formattedDate;
+    private String formattedOffset;
+
+    /**
+     * @throws java.time.format.DateTimeParseException if not a valid timestamp.
+     * @see StringUtils#parseTime(String)
+     */
+    @NonNull
+    public Instant parse(@NonNull String value) {
+        return parse(value.toCharArray(), 0, value.length());
+    }
+
+    /**
+     * Parses the characters from start (inclusive) to end (exclusive); the offset is available via {@link #getOffset()}.
+     *
+     * @throws java.time.format.DateTimeParseException if not a valid timestamp.
+     */
+    @NonNull
+    public Instant parse(@NonNull char[] chars, int start, int end) {
+        // yyyy-MM-ddTHH:mm:ss
+        if (end - start < 20
+                || chars[start + 4] != '-' || chars[start + 7] != '-' || chars[start + 10] != 'T'
+                || chars[start + 13] != ':' || chars[start + 16] != ':') {
+            return parseFallback(chars, start, end);
+        }
+
+        if (!parsedDateValid || !regionMatches(chars, start, parsedDate, parsedDate.length)) {
+            int year = digits(chars, start, 4);
+            int month = digits(chars, start + 5, 2);
+            int day = digits(chars, start + 8, 2);
+            if (year < 0 || month < 0 || day < 0) {
+                return parseFallback(chars, start, end);
+            }
+            try {
+                parsedEpochDay = LocalDate.of(year, month, day).toEpochDay();
+            } catch (DateTimeException e) {
+                return parseFallback(chars, start, end);
+            }
+            System.arraycopy(chars, start, parsedDate, 0, parsedDate.length);
+            parsedDateValid = true;
+        }
+
+        int hour = digits(chars, start + 11, 2);
+        int minute = digits(chars, start + 14, 2);
+        int second = digits(chars, start + 17, 2);
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return parseFallback(chars, start, end);
+        }
+
+        // Fraction: .SSSSSSSSS
+        int i = start + 19;
+        int nano = 0;
+        if (chars[i] == '.') {
+            i++;
+            int fractionStart = i;
+            while (i < end && chars[i] >= '0' && chars[i] <= '9') {
+                nano = nano * 10 + (chars[i] - '0');
+                i++;
+            }
+            int fractionDigits = i - fractionStart;
+            if (fractionDigits == 0 || fractionDigits > 9) {
+                return parseFallback(chars, start, end);
+            }
+            for (int d = fractionDigits; d < 9; d++) {
+                nano *= 10;
+            }
+        }
+
+        // Offset: Z or +HH:MM
+        int offsetLength = end - i;
+        if (parsedZoneOffset == null || offsetLength != parsedOffsetLength || !regionMatches(chars, i, parsedOffset, offsetLength)) {
+            ZoneOffset zoneOffset = parseOffset(chars, i, end);
+            if (zoneOffset == null) {
+                return parseFallback(chars, start, end);
+            }
+            System.arraycopy(chars, i, parsedOffset, 0, offsetLength);
+            parsedOffsetLength = offsetLength;
+            parsedZoneOffset = zoneOffset;
+        }
+
+        lastOffset = parsedZoneOffset;
+        long epochSecond = parsedEpochDay * SECONDS_PER_DAY + hour * 3600 + minute * 60 + second - parsedZoneOffset.getTotalSeconds();
+        return Instant.ofEpochSecond(epochSecond, nano);
+    }
+
+    /**
+     * @return the offset of the last parsed timestamp (UTC if it had none).
+     */
+    @Nullable
+    public ZoneOffset getOffset() {
+        return lastOffset;
+    }
+
+    /**
+     * Formats like {@link StringUtils#formatDateTimeIso8601(Instant, ZoneOffset)}.
+     *
+     * @return only valid until the next call.
+     */
+    @NonNull
+    public CharSequence format(@NonNull Instant time, @NonNull ZoneOffset zoneOffset) {
+        long localSecond = time.getEpochSecond() + zoneOffset.getTotalSeconds();
+        long epochDay = Math.floorDiv(localSecond, SECONDS_PER_DAY);
+        int secondOfDay = (int) Math.floorMod(localSecond, SECONDS_PER_DAY);
+
+        if (formattedDate == null || epochDay != formattedEpochDay || !zoneOffset.equals(formattedZoneOffset)) {
+            LocalDate date = LocalDate.ofEpochDay(epochDay);
+            if (date.getYear() < 0 || date.getYear() > 9999) {
+                // Years are formatted with sign.
+                return StringUtils.formatDateTimeIso8601(time, zoneOffset);
+            }
+            formattedDate = date + "T";
+            formattedOffset = zoneOffset.getId();
+            formattedEpochDay = epochDay;
+            formattedZoneOffset = zoneOffset;
+        }
+
+        formatted.setLength(0);
+        formatted.append(formattedDate);
+        appendTwoDigits(secondOfDay / 3600);
+        formatted.append(':');
+        appendTwoDigits(secondOfDay / 60 % 60);
+        formatted.append(':');
+        appendTwoDigits(secondOfDay % 60);
+
+        int nano = time.getNano();
+        if (nano != 0) {
+            // Without trailing zeros.
+            int digits = 9;
+            while (nano % 10 == 0) {
+                nano /= 10;
+                digits--;
+            }
+            formatted.append('.');
+            for (int divisor = pow10(digits - 1); divisor > 0; divisor /= 10) {
+                formatted.append((char) ('0' + nano / divisor % 10));
+            }
+        }
+
+        formatted.append(formattedOffset);
+        return formatted;
+    }
+
+    private Instant parseFallback(char[] chars, int start, int end) {
+        OffsetDateTime time = StringUtils.parseTime(new String(chars, start, end - start));
+        lastOffset = time.getOffset();
+        return time.toInstant();
+    }
+
+    /**
+     * @return null if not Z or +HH:MM.
+     */
+    private static ZoneOffset parseOffset(char[] chars, int start, int end) {
+        if (end - start == 1 && chars[start] == 'Z') {
+            return ZoneOffset.UTC;
+        }
+        if (end - start == 6 && (chars[start] == '+' || chars[start] == '-') && chars[start + 3] == ':') {
+            int hours = digits(chars, start + 1, 2);
+            int minutes = digits(chars, start + 4, 2);
+            if (hours < 0 || minutes < 0) {
+                return null;
+            }
+            int sign = chars[start] == '-' ? -1 : 1;
+            try {
+                return ZoneOffset.ofHoursMinutes(sign * hours, sign * minutes);
+            } catch (DateTimeException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private void appendTwoDigits(int value) {
+        formatted.append((char) ('0' + value / 10));
+        formatted.append((char) ('0' + value % 10));
+    }
+
+    private static int pow10(int exponent) {
+        int value = 1;
+        for (int i = 0; i < exponent; i++) {
+            value *= 10;
+        }
+        return value;
+    }
+
+    /**
+     * @return the value of the digits or -1 if not only digits.
+     */
+    private static int digits(char[] chars, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = chars[i];
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static boolean regionMatches(char[] chars, int start, char[] other, int length) {
+        for (int i = 0; i < length; i++) {
+            if (chars[start + i] != other[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -21,18 +21,14 @@ import android.util.Log;
 import androidx.annotation.NonNull;
 
 import java.io.OutputStream;
-import java.io.PrintWriter;
-import java.text.NumberFormat;
 import java.util.List;
-import java.util.Locale;
-import java.util.function.Function;
 
 import de.dennisguse.opentracks.data.ContentProviderUtils;
 import de.dennisguse.opentracks.data.TrackPointIterator;
 import de.dennisguse.opentracks.data.models.Marker;
 import de.dennisguse.opentracks.data.models.Track;
 import de.dennisguse.opentracks.data.models.TrackPoint;
-import de.dennisguse.opentracks.util.StringUtils;
+import de.dennisguse.opentracks.io.file.TimestampCodec;
 
 /**
  * Exports the {@link TrackPoint} into a CSV.
@@ -47,41 +43,20 @@ public class CSVTrackExporter implements TrackExporter {
 
     private static final String TAG = CSVTrackExporter.class.getSimpleName();
 
-    private static final NumberFormat ALTITUDE_FORMAT = NumberFormat.getInstance(Locale.US);
-    private static final NumberFormat COORDINATE_FORMAT = NumberFormat.getInstance(Locale.US);
-    private static final NumberFormat SPEED_FORMAT = NumberFormat.getInstance(Locale.US);
-    private static final NumberFormat DISTANCE_FORMAT = NumberFormat.getInstance(Locale.US);
-    private static final NumberFormat HEARTRATE_FORMAT = NumberFormat.getInstance(Locale.US);
-    private static final NumberFormat CADENCE_FORMAT = NumberFormat.getInstance(Locale.US);
-    private static final NumberFormat POWER_FORMAT = NumberFormat.getInstance(Locale.US);
+    private static final int ALTITUDE_FRACTION_DIGITS = 1;
+    private static final int COORDINATE_FRACTION_DIGITS = 6;
+    private static final int SPEED_FRACTION_DIGITS = 2;
+    private static final int DISTANCE_FRACTION_DIGITS = 0;
+    private static final int HEARTRATE_FRACTION_DIGITS = 0;
+    private static final int CADENCE_FRACTION_DIGITS = 0;
 
-    static {
-        ALTITUDE_FORMAT.setMaximumFractionDigits(1);
-        ALTITUDE_FORMAT.setGroupingUsed(false);
-
-        COORDINATE_FORMAT.setMaximumFractionDigits(6);
-        COORDINATE_FORMAT.setMaximumIntegerDigits(3);
-        COORDINATE_FORMAT.setGroupingUsed(false);
-
-        SPEED_FORMAT.setMaximumFractionDigits(2);
-        SPEED_FORMAT.setGroupingUsed(false);
-
-        DISTANCE_FORMAT.setMaximumFractionDigits(0);
-        DISTANCE_FORMAT.setGroupingUsed(false);
-
-        HEARTRATE_FORMAT.setMaximumFractionDigits(0);
-        HEARTRATE_FORMAT.setGroupingUsed(false);
-
-        CADENCE_FORMAT.setMaximumFractionDigits(0);
-        CADENCE_FORMAT.setGroupingUsed(false);
-
-        POWER_FORMAT.setMaximumFractionDigits(0);
-        POWER_FORMAT.setGroupingUsed(false);
-    }
+    private static final char SEPARATOR = ',';
+    private static final char QUOTE = '"';
 
     private final ContentProviderUtils contentProviderUtils;
 
-    private PrintWriter printWriter;
+    private ExportWriter exportWriter;
+    private final TimestampCodec timestampCodec = new TimestampCodec();
 
     public CSVTrackExporter(ContentProviderUtils contentProviderUtils) {
         this.contentProviderUtils = contentProviderUtils;
@@ -91,20 +66,44 @@ public class CSVTrackExporter implements TrackExporter {
     public boolean writeTrack(@NonNull List<Track> tracks, @NonNull OutputStream outputStream) {
         List<Column> columns = List.of(
                 new Column("time", null),
-                new Column("trackpoint_type", t -> quote(t.getType().name())),
-                new Column("latitude", t -> t.hasLocation() ? COORDINATE_FORMAT.format(t.getLatitude()) : ""),
-                new Column("longitude", t -> t.hasLocation() ? COORDINATE_FORMAT.format(t.getLongitude()) : ""),
-                new Column("altitude", t -> t.hasAltitude() ? COORDINATE_FORMAT.format(t.getAltitude().toM()) : ""),
-                new Column("accuracy_horizontal", t -> t.hasHorizontalAccuracy() ? DISTANCE_FORMAT.format(t.getHorizontalAccuracy().toM()) : ""),
-                new Column("accuracy_vertical", t -> t.hasVerticalAccuracy() ? DISTANCE_FORMAT.format(t.getVerticalAccuracy().toM()) : ""),
-
-                new Column("speed", t -> t.hasSpeed() ? SPEED_FORMAT.format(t.getSpeed().toKMH()) : ""),
-                new Column("altitude_gain", t -> t.hasAltitudeGain() ? DISTANCE_FORMAT.format(t.getAltitudeGain()) : ""),
-                new Column("altitude_loss", t -> t.hasAltitudeLoss() ? DISTANCE_FORMAT.format(t.getAltitudeLoss()) : ""),
-                new Column("sensor_distance", t -> t.hasSensorDistance() ? DISTANCE_FORMAT.format(t.getSensorDistance().toM()) : ""),
-                new Column("heartrate", t -> t.hasHeartRate() ? HEARTRATE_FORMAT.format(t.getHeartRate().getBPM()) : ""),
-                new Column("cadence", t -> t.hasCadence() ? CADENCE_FORMAT.format(t.getCadence().getRPM()) : ""),
-                new Column("power", t -> t.hasPower() ? ALTITUDE_FORMAT.format(t.getPower().getW()) : ""));
+                new Column("trackpoint_type", (w, t) -> w.write(QUOTE).write(t.getType().name()).write(QUOTE)),
+                new Column("latitude", (w, t) -> {
+                    if (t.hasLocation()) w.write(t.getLatitude(), COORDINATE_FRACTION_DIGITS);
+                }),
+                new Column("longitude", (w, t) -> {
+                    if (t.hasLocation()) w.write(t.getLongitude(), COORDINATE_FRACTION_DIGITS);
+                }),
+                new Column("altitude", (w, t) -> {
+                    if (t.hasAltitude()) w.write(t.getAltitude().toM(), COORDINATE_FRACTION_DIGITS);
+                }),
+                new Column("accuracy_horizontal", (w, t) -> {
+                    if (t.hasHorizontalAccuracy()) w.write(t.getHorizontalAccuracy().toM(), DISTANCE_FRACTION_DIGITS);
+                }),
+                new Column("accuracy_vertical", (w, t) -> {
+                    if (t.hasVerticalAccuracy()) w.write(t.getVerticalAccuracy().toM(), DISTANCE_FRACTION_DIGITS);
+                }),
+
+                new Column("speed", (w, t) -> {
+                    if (t.hasSpeed()) w.write(t.getSpeed().toKMH(), SPEED_FRACTION_DIGITS);
+                }),
+                new Column("altitude_gain", (w, t) -> {
+                    if (t.hasAltitudeGain()) w.write(t.getAltitudeGain(), DISTANCE_FRACTION_DIGITS);
+                }),
+                new Column("altitude_loss", (w, t) -> {
+                    if (t.hasAltitudeLoss()) w.write(t.getAltitudeLoss(), DISTANCE_FRACTION_DIGITS);
+                }),
+                new Column("sensor_distance", (w, t) -> {
+                    if (t.hasSensorDistance()) w.write(t.getSensorDistance().toM(), DISTANCE_FRACTION_DIGITS);
+                }),
+                new Column("heartrate", (w, t) -> {
+                    if (t.hasHeartRate()) w.write(t.getHeartRate().getBPM(), HEARTRATE_FRACTION_DIGITS);
+                }),
+                new Column("cadence", (w, t) -> {
+                    if (t.hasCadence()) w.write(t.getCadence().getRPM(), CADENCE_FRACTION_DIGITS);
+                }),
+                new Column("power", (w, t) -> {
+                    if (t.hasPower()) w.write(t.getPower().getW(), ALTITUDE_FRACTION_DIGITS);
+                }));
 
         try {
             prepare(outputStream);
@@ -112,7 +111,7 @@ public class CSVTrackExporter implements TrackExporter {
             boolean headerWritten = false;
 
             for (Track track : tracks) {
-                columns.get(0).extractor = t -> quote(StringUtils.formatDateTimeIso8601(t.getTime(), track.getZoneOffset()));
+                columns.get(0).extractor = (w, t) -> w.write(QUOTE).write(timestampCodec.format(t.getTime(), track.getZoneOffset())).write(QUOTE);
 
                 if (!headerWritten) {
                     writeHeader(columns);
@@ -122,9 +121,7 @@ public class CSVTrackExporter implements TrackExporter {
                 writeTrackPoints(columns, track);
             }
 
-            close();
-
-            return true;
+            return close();
         } catch (InterruptedException e) {
             Log.e(TAG, "Thread interrupted", e);
             return false;
@@ -142,35 +139,56 @@ public class CSVTrackExporter implements TrackExporter {
     }
 
     public void prepare(OutputStream outputStream) {
-        this.printWriter = new PrintWriter(outputStream);
+        this.exportWriter = new ExportWriter(outputStream);
     }
 
-    public void close() {
-        printWriter.flush();
-        printWriter = null;
+    /**
+     * @return true if everything was written.
+     */
+    public boolean close() {
+        exportWriter.flush();
+        boolean success = !exportWriter.checkError();
+        exportWriter = null;
+        return success;
     }
 
     public void writeHeader(List<Column> columns) {
-        String columnNames = columns.stream().map(c -> c.columnName).reduce((s, s2) -> s + "," + s2).orElseThrow(() -> new RuntimeException("No columns defined"));
-        printWriter.println("#" + columnNames);
+        if (columns.isEmpty()) {
+            throw new RuntimeException("No columns defined");
+        }
+        exportWriter.write('#');
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) exportWriter.write(SEPARATOR);
+            exportWriter.write(columns.get(i).columnName);
+        }
+        exportWriter.newLine();
     }
 
     public void writeTrackPoint(List<Column> columns, TrackPoint trackPoint) {
-        String columnNames = columns.stream().map(c -> c.extractor.apply(trackPoint)).reduce((s, s2) -> s + "," + s2).orElseThrow(() -> new RuntimeException("No columns defined"));
-        printWriter.println(columnNames);
+        if (columns.isEmpty()) {
+            throw new RuntimeException("No columns defined");
+        }
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) exportWriter.write(SEPARATOR);
+            columns.get(i).extractor.write(exportWriter, trackPoint);
+        }
+        exportWriter.newLine();
     }
 
     private static class Column {
         final String columnName;
-        Function<TrackPoint, String> extractor;
+        ColumnWriter extractor;
 
-        Column(String columnName, Function<TrackPoint, String> extractor) {
+        Column(String columnName, ColumnWriter extractor) {
             this.columnName = columnName;
             this.extractor = extractor;
         }
     }
 
-    private static String quote(String content) {
-        return '"' + content + '"';
+    /**
+     * Writes the value of a column (nothing if not available).
+     */
+    private interface ColumnWriter {
+        void write(ExportWriter exportWriter, TrackPoint trackPoint);
     }
 }
@@ -28,6 +28,7 @@ import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.content.ContextCompat;
 import androidx.documentfile.provider.DocumentFile;
+import androidx.lifecycle.ViewModelProvider;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -50,8 +51,8 @@ import de.dennisguse.opentracks.util.FileUtils;
  *
  * @author Rodrigo Damazio
  * TODO: This class needs some refactoring.
- * * It pushes each export job (usually one Track) for export; although export could be run in parallel.
- *   Also this requires that the ExportActivity stays in foreground, so the user has to activily wait.
+ * * It pushes all export jobs without conflicts at once (exported in parallel by {@link ExportEngine}); conflicting jobs are pushed after the user decided.
+ *   The ExportActivity needs to stay in foreground, so the user has to activily wait.
  *   It would be better to let the ExportService handle this and let it report progress / conflicts to ExportActivity
  * * File name conflicts are checked in this class instead of the ExportService.
  *    So, for this check actually a different file name might be used than in the ExportService.
@@ -85,7 +86,7 @@ public class ExportActivity extends AppCompatActivity implements ExportService.E
     private TrackFileFormat trackFileFormat;
     private Uri directoryUri;
 
-    private ExportService.ExportServiceResultReceiver resultReceiver;
+    private ExportViewModel viewModel;
 
     private List<String> directoryFiles;
 
@@ -164,7 +165,8 @@ public class ExportActivity extends AppCompatActivity implements ExportService.E
         DocumentFile documentFile = DocumentFile.fromTreeUri(this, directoryUri);
         String directoryDisplayName = FileUtils.getPath(documentFile);
 
-        resultReceiver = new ExportService.ExportServiceResultReceiver(new Handler(), this);
+        viewModel = new ViewModelProvider(this).get(ExportViewModel.class);
+        viewModel.setReceiver(this);
 
         if (savedInstanceState == null) {
             autoConflict = ConflictResolutionStrategy.CONFLICT_NONE;
@@ -173,7 +175,7 @@ public class ExportActivity extends AppCompatActivity implements ExportService.E
                 directoryFiles = ExportUtils.getAllFiles(ExportActivity.this, documentFile.getUri());
                 runOnUiThread(() -> {
                     createExportTasks(allInOneFile);
-                    nextExport(null);
+                    exportAll();
                 });
             }).start();
         } else {
@@ -186,8 +188,7 @@ public class ExportActivity extends AppCompatActivity implements ExportService.E
             directoryFiles = savedInstanceState.getStringArrayList(BUNDLE_DIRECTORY_FILES);
             trackErrors = savedInstanceState.getStringArrayList(BUNDLE_TRACK_ERRORS);
             exportTasks = new ArrayList<>(savedInstanceState.getParcelableArrayList(BUNDLE_EXPORT_TASKS));
-            setProgress();
-            nextExport(null);
+            exportAll();
         }
 
         viewBinding.exportActivityToolbar.setTitle(getString(R.string.export_progress_message, directoryDisplayName));
@@ -210,8 +211,15 @@ public class ExportActivity extends AppCompatActivity implements ExportService.E
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        viewModel.setReceiver(null);
+        if (isFinishing() && !isChangingConfigurations() && exportTasks != null && !exportTasks.isEmpty()) {
+            // Otherwise, the export continues and the recreated instance receives the results (see ExportViewModel).
+            ExportService.cancel();
+        }
         conflictsQueue.clear();
-        exportTasks.clear();
+        if (exportTasks != null) {
+            exportTasks.clear();
+        }
     }
 
     @Override
@@ -239,6 +247,33 @@ public class ExportActivity extends AppCompatActivity implements ExportService.E
         trackExportTotalCount = exportTasks.size();
     }
 
+    /**
+     * Enqueue all tracks that can be exported without asking the user at once; conflicts are resolved one after another.
+     */
+    private void exportAll() {
+        List<ExportTask> exportable = new ArrayList<>();
+        for (ExportTask exportTask : List.copyOf(exportTasks)) {
+            if (viewModel.isEnqueued(exportTask)) {
+                // Enqueued before a configuration change.
+                continue;
+            }
+            boolean fileExists = exportFileExists(exportTask);
+            if (fileExists && autoConflict == ConflictResolutionStrategy.CONFLICT_NONE) {
+                conflict(exportTask);
+            } else if (fileExists && autoConflict == ConflictResolutionStrategy.CONFLICT_SKIP) {
+                trackExportSkippedCount++;
+                exportTasks.remove(exportTask);
+            } else {
+                exportable.add(exportTask);
+            }
+        }
+
+        if (!exportable.isEmpty()) {
+            viewModel.enqueue(this, exportable, directoryUri);
+        }
+        exportDone(null);
+    }
+
     /**
      * Enqueue track identified by UUID to be exported if not exported already or there is a conflict resolution.
      */
@@ -249,9 +284,9 @@ public class ExportActivity extends AppCompatActivity implements ExportService.E
             conflict(exportTask);
         } else if (fileExists && conflictResolution == ConflictResolutionStrategy.CONFLICT_SKIP) {
             trackExportSkippedCount++;
-            nextExport(exportTask);
+            exportDone(exportTask);
         } else {
-            ExportService.enqueue(this, resultReceiver, exportTask, directoryUri);
+            viewModel.enqueue(this, List.of(exportTask), directoryUri);
         }
     }
 
@@ -298,15 +333,13 @@ public class ExportActivity extends AppCompatActivity implements ExportService.E
         viewBinding.exportProgressSummaryErrorsGroup.setVisibility(trackExportErrorCount > 0 ? View.VISIBLE : View.GONE);
     }
 
-    private void nextExport(@Nullable ExportTask exportTask) {
+    private void exportDone(@Nullable ExportTask exportTask) {
         exportTasks.remove(exportTask);
 
         setProgress();
         if (exportTasks.isEmpty()) {
             onExportEnded();
-            return;
         }
-        export(exportTasks.get(0));
     }
 
     private void onExportEnded() {
@@ -338,7 +371,7 @@ public class ExportActivity extends AppCompatActivity implements ExportService.E
             trackExportSuccessCount++;
         }
 
-        nextExport(exportTask);
+        exportDone(exportTask);
     }
 
     @Override
@@ -353,7 +386,7 @@ public class ExportActivity extends AppCompatActivity implements ExportService.E
         Log.e(TAG, "Error exporting " + name + ": " + errorMessage);
         trackErrors.add(name);
 
-        nextExport(exportTask);
+        exportDone(exportTask);
     }
 
     private void conflict(ExportTask exportTask) {
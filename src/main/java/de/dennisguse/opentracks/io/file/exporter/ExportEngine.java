@@ -0,0 +1,130 @@
+package de.dennisguse.opentracks.io.file.exporter;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+import androidx.documentfile.provider.DocumentFile;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.dennisguse.opentracks.data.TrackPointIterator;
+import de.dennisguse.opentracks.io.file.ParallelTaskRunner;
+import de.dennisguse.opentracks.util.ExportUtils;
+
+/**
+ * Exports {@link ExportTask}s in parallel via a {@link ParallelTaskRunner}; the number of workers depends on the available cores.
+ * <p>
+ * Each {@link ExportTask} (i.e., one file) is written by one worker, so the content of a file is written in order.
+ * Within one {@link ExportTask} reading the TrackPoints is pipelined with formatting them, as {@link TrackPointIterator} prefetches the next page.
+ * <p>
+ * {@link #cancel()} and the metrics may be used from any thread.
+ */
+public class ExportEngine {
+
+    private static final String TAG = ExportEngine.class.getSimpleName();
+
+    public interface Listener {
+        /**
+         * Called from a worker thread.
+         */
+        void onExportSuccess(@NonNull ExportTask exportTask);
+
+        /**
+         * Called from a worker thread.
+         */
+        void onExportError(@NonNull ExportTask exportTask, String errorMessage);
+    }
+
+    @VisibleForTesting
+    interface TaskExporter {
+        /**
+         * @return number of bytes written.
+         */
+        long export(@NonNull ExportTask exportTask) throws Exception;
+    }
+
+    private final TaskExporter taskExporter;
+    private final ParallelTaskRunner<ExportTask> taskRunner;
+
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private volatile long startNanos;
+
+    public ExportEngine(@NonNull Context context, @NonNull DocumentFile directory) {
+        this(context, directory, ParallelTaskRunner.getDefaultParallelism());
+    }
+
+    public ExportEngine(@NonNull Context context, @NonNull DocumentFile directory, int parallelism) {
+        this(exportTask -> ExportUtils.exportTrack(context, directory, exportTask), parallelism);
+    }
+
+    @VisibleForTesting
+    ExportEngine(@NonNull TaskExporter taskExporter, int parallelism) {
+        this.taskExporter = taskExporter;
+        this.taskRunner = new ParallelTaskRunner<>(TAG, parallelism);
+    }
+
+    /**
+     * Exports all tasks and blocks until they are done or {@link #cancel()} was called.
+     */
+    public void run(@NonNull List<ExportTask> exportTasks, @NonNull Listener listener) throws InterruptedException {
+        if (exportTasks.isEmpty()) {
+            return;
+        }
+
+        startNanos = System.nanoTime();
+        try {
+            taskRunner.run(exportTasks, exportTask -> export(exportTask, listener));
+        } finally {
+            Log.i(TAG, "Exported " + getDoneCount() + "/" + getTotalCount() + " in " + getDuration().toMillis() + "ms: "
+                    + getBytesWritten() + " bytes; " + Math.round(getBytesPerSecond()) + " bytes/s; parallelism " + taskRunner.getParallelism());
+        }
+    }
+
+    /**
+     * Interrupts running exports (see {@link TrackExporter}; reported as errors) and skips pending ones (not reported).
+     */
+    public void cancel() {
+        taskRunner.cancel();
+    }
+
+    public boolean isCancelled() {
+        return taskRunner.isCancelled();
+    }
+
+    public int getTotalCount() {
+        return taskRunner.getTotalCount();
+    }
+
+    /**
+     * @return number of finished exports (successful or not).
+     */
+    public int getDoneCount() {
+        return taskRunner.getDoneCount();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    public Duration getDuration() {
+        return startNanos == 0 ? Duration.ZERO : Duration.ofNanos(System.nanoTime() - startNanos);
+    }
+
+    public double getBytesPerSecond() {
+        double seconds = getDuration().toNanos() / 1_000_000_000d;
+        return seconds == 0 ? 0 : getBytesWritten() / seconds;
+    }
+
+    private void export(ExportTask exportTask, Listener listener) {
+        try {
+            bytesWritten.addAndGet(taskExporter.export(exportTask));
+            listener.onExportSuccess(exportTask);
+        } catch (Exception e) {
+            listener.onExportError(exportTask, e.getMessage());
+        }
+    }
+}
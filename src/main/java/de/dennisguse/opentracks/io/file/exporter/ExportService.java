@@ -7,59 +7,121 @@ import android.net.Uri;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.ResultReceiver;
+import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.core.app.JobIntentService;
 import androidx.documentfile.provider.DocumentFile;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import de.dennisguse.opentracks.R;
-import de.dennisguse.opentracks.util.ExportUtils;
 
 public class ExportService extends JobIntentService {
 
     private static final int JOB_ID = 1;
 
+    private static final String TAG = ExportService.class.getSimpleName();
+
     private static final String EXTRA_RECEIVER = "extra_receiver";
-    private static final String EXTRA_EXPORT_TASK = "export_task";
+    private static final String EXTRA_EXPORT_TASKS = "export_tasks";
     private static final String EXTRA_DIRECTORY_URI = "extra_directory_uri";
+    private static final String EXTRA_GENERATION = "extra_generation";
+
+    // Work enqueued before the last cancel() is skipped.
+    private static final AtomicInteger generation = new AtomicInteger();
+    private static volatile ExportEngine runningExportEngine;
 
     public static void enqueue(Context context, ExportServiceResultReceiver receiver, ExportTask exportTask, Uri directoryUri) {
+        enqueue(context, receiver, List.of(exportTask), directoryUri);
+    }
+
+    /**
+     * The {@link ExportTask}s are exported in parallel; the receiver gets one result per {@link ExportTask}.
+     */
+    public static void enqueue(Context context, ExportServiceResultReceiver receiver, List<ExportTask> exportTasks, Uri directoryUri) {
         Intent intent = new Intent(context, JobService.class);
         intent.putExtra(EXTRA_RECEIVER, receiver);
-        intent.putExtra(EXTRA_EXPORT_TASK, exportTask);
+        intent.putParcelableArrayListExtra(EXTRA_EXPORT_TASKS, new ArrayList<>(exportTasks));
         intent.putExtra(EXTRA_DIRECTORY_URI, directoryUri);
+        intent.putExtra(EXTRA_GENERATION, generation.get());
         enqueueWork(context, ExportService.class, JOB_ID, intent);
     }
 
+    /**
+     * Cancels the running export and all enqueued work (see {@link ExportEngine#cancel()}).
+     */
+    public static void cancel() {
+        generation.incrementAndGet();
+        ExportEngine exportEngine = runningExportEngine;
+        if (exportEngine != null) {
+            exportEngine.cancel();
+        }
+    }
+
     @Override
     protected void onHandleWork(@NonNull Intent intent) {
         // Get all data.
         ResultReceiver resultReceiver = intent.getParcelableExtra(EXTRA_RECEIVER);
-        ExportTask exportTask = intent.getParcelableExtra(EXTRA_EXPORT_TASK);
+        List<ExportTask> exportTasks = intent.getParcelableArrayListExtra(EXTRA_EXPORT_TASKS);
         Uri directoryUri = intent.getParcelableExtra(EXTRA_DIRECTORY_URI);
+        int intentGeneration = intent.getIntExtra(EXTRA_GENERATION, 0);
 
-        // Prepare resultCode and bundle to send to the receiver.
-        Bundle bundle = new Bundle();
-        bundle.putParcelable(ExportServiceResultReceiver.RESULT_EXTRA_EXPORT_TASK, exportTask);
+        if (intentGeneration != generation.get()) {
+            Log.i(TAG, "Export was cancelled; skipping " + exportTasks.size() + " export tasks.");
+            return;
+        }
 
         // Build directory file.
         DocumentFile directoryFile = DocumentFile.fromTreeUri(this, directoryUri);
         if (directoryFile == null || !directoryFile.canWrite()) {
-            bundle.putString(ExportServiceResultReceiver.EXTRA_EXPORT_ERROR_MESSAGE, getString(R.string.export_cannot_write_to_dir) + ": " + directoryFile);
-            resultReceiver.send(ExportServiceResultReceiver.RESULT_CODE_ERROR, bundle);
+            for (ExportTask exportTask : exportTasks) {
+                sendError(resultReceiver, exportTask, getString(R.string.export_cannot_write_to_dir) + ": " + directoryFile);
+            }
             return;
         }
 
-        // Export and send result
+        // Export and send results
+        ExportEngine exportEngine = new ExportEngine(this, directoryFile);
+        runningExportEngine = exportEngine;
+        if (intentGeneration != generation.get()) {
+            // cancel() was called concurrently.
+            exportEngine.cancel();
+        }
         try {
-            ExportUtils.exportTrack(this, directoryFile, exportTask);
-            resultReceiver.send(ExportServiceResultReceiver.RESULT_CODE_SUCCESS, bundle);
-        } catch (Exception e) {
-            bundle.putString(ExportServiceResultReceiver.EXTRA_EXPORT_ERROR_MESSAGE, e.getMessage());
-            resultReceiver.send(ExportServiceResultReceiver.RESULT_CODE_ERROR, bundle);
+            exportEngine.run(exportTasks, new ExportEngine.Listener() {
+                @Override
+                public void onExportSuccess(@NonNull ExportTask exportTask) {
+                    resultReceiver.send(ExportServiceResultReceiver.RESULT_CODE_SUCCESS, createBundle(exportTask));
+                }
+
+                @Override
+                public void onExportError(@NonNull ExportTask exportTask, String errorMessage) {
+                    sendError(resultReceiver, exportTask, errorMessage);
+                }
+            });
+        } catch (InterruptedException e) {
+            Log.w(TAG, "Interrupted while exporting", e);
+            exportEngine.cancel();
+        } finally {
+            runningExportEngine = null;
         }
     }
 
+    private static Bundle createBundle(ExportTask exportTask) {
+        Bundle bundle = new Bundle();
+        bundle.putParcelable(ExportServiceResultReceiver.RESULT_EXTRA_EXPORT_TASK, exportTask);
+        return bundle;
+    }
+
+    private static void sendError(ResultReceiver resultReceiver, ExportTask exportTask, String errorMessage) {
+        Bundle bundle = createBundle(exportTask);
+        bundle.putString(ExportServiceResultReceiver.EXTRA_EXPORT_ERROR_MESSAGE, errorMessage);
+        resultReceiver.send(ExportServiceResultReceiver.RESULT_CODE_ERROR, bundle);
+    }
+
     public static class ExportServiceResultReceiver extends ResultReceiver {
 
         public static final int RESULT_CODE_SUCCESS = 1;
@@ -0,0 +1,71 @@
+package de.dennisguse.opentracks.io.file.exporter;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.ViewModel;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps the {@link ExportService.ExportServiceResultReceiver} of {@link ExportActivity} across configuration changes.
+ * So, the running export is not restarted; its results are forwarded to the current {@link ExportActivity}.
+ */
+public class ExportViewModel extends ViewModel implements ExportService.ExportServiceResultReceiver.Receiver {
+
+    private final ExportService.ExportServiceResultReceiver resultReceiver = new ExportService.ExportServiceResultReceiver(new Handler(), this);
+
+    private final Set<ExportTask> enqueuedTasks = new HashSet<>();
+
+    // Results that arrived without a receiver; delivered with the next setReceiver().
+    private final List<Runnable> pendingResults = new ArrayList<>();
+
+    private ExportService.ExportServiceResultReceiver.Receiver receiver;
+
+    void setReceiver(@Nullable ExportService.ExportServiceResultReceiver.Receiver receiver) {
+        this.receiver = receiver;
+        if (receiver != null) {
+            List<Runnable> results = List.copyOf(pendingResults);
+            pendingResults.clear();
+            results.forEach(Runnable::run);
+        }
+    }
+
+    void enqueue(@NonNull Context context, @NonNull List<ExportTask> exportTasks, @NonNull Uri directoryUri) {
+        enqueuedTasks.addAll(exportTasks);
+        ExportService.enqueue(context, resultReceiver, exportTasks, directoryUri);
+    }
+
+    /**
+     * @return if the {@link ExportTask} was enqueued and its result is not yet delivered.
+     */
+    boolean isEnqueued(@NonNull ExportTask exportTask) {
+        return enqueuedTasks.contains(exportTask);
+    }
+
+    @Override
+    public void onExportSuccess(ExportTask exportTask) {
+        enqueuedTasks.remove(exportTask);
+        deliver(() -> receiver.onExportSuccess(exportTask));
+    }
+
+    @Override
+    public void onExportError(ExportTask exportTask, String errorMessage) {
+        enqueuedTasks.remove(exportTask);
+        deliver(() -> receiver.onExportError(exportTask, errorMessage));
+    }
+
+    private void deliver(Runnable result) {
+        if (receiver == null) {
+            pendingResults.add(result);
+            return;
+        }
+        result.run();
+    }
+}
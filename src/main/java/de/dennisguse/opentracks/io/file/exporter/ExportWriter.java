@@ -0,0 +1,264 @@
+package de.dennisguse.opentracks.io.file.exporter;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Buffered UTF-8 writer used by the {@link TrackExporter}s.
+ * <p>
+ * Replaces {@link java.io.PrintWriter} + {@link java.text.NumberFormat}: numbers are formatted directly into a reusable byte buffer (without creating Strings) and constant markup can be pre-encoded via {@link #encode(String)}.
+ * Like {@link java.io.PrintWriter}, {@link IOException}s are not thrown, but reported via {@link #checkError()}.
+ * <p>
+ * Not thread-safe.
+ */
+class ExportWriter {
+
+    private static final String TAG = ExportWriter.class.getSimpleName();
+
+    static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private static final long[] POWERS_OF_TEN = {1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L};
+
+    // Largest value that is still exactly representable as long via a double (2^53).
+    private static final double MAX_EXACT_LONG = 9007199254740992d;
+
+    private final OutputStream outputStream;
+    private final byte[] buffer;
+    private int position = 0;
+
+    private final byte[] digits = new byte[20];
+    private final StringBuilder scratch = new StringBuilder(32);
+
+    private long bytesWritten = 0;
+    private boolean error = false;
+
+    ExportWriter(@NonNull OutputStream outputStream) {
+        this(outputStream, DEFAULT_BUFFER_SIZE);
+    }
+
+    ExportWriter(@NonNull OutputStream outputStream, int bufferSize) {
+        this.outputStream = outputStream;
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * Encodes constant markup once, so it can be written via {@link #write(byte[])}.
+     */
+    @NonNull
+    static byte[] encode(@NonNull String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    ExportWriter write(@NonNull byte[] encoded) {
+        if (encoded.length > buffer.length) {
+            flushBuffer();
+            writeToStream(encoded, encoded.length);
+            return this;
+        }
+        ensureCapacity(encoded.length);
+        System.arraycopy(encoded, 0, buffer, position, encoded.length);
+        position += encoded.length;
+        return this;
+    }
+
+    ExportWriter write(char value) {
+        ensureCapacity(3);
+        if (value < 0x80) {
+            buffer[position++] = (byte) value;
+        } else if (value < 0x800) {
+            buffer[position++] = (byte) (0xC0 | (value >> 6));
+            buffer[position++] = (byte) (0x80 | (value & 0x3F));
+        } else if (Character.isSurrogate(value)) {
+            // Unpaired surrogate; same replacement as String.getBytes(UTF_8).
+            buffer[position++] = '?';
+        } else {
+            buffer[position++] = (byte) (0xE0 | (value >> 12));
+            buffer[position++] = (byte) (0x80 | ((value >> 6) & 0x3F));
+            buffer[position++] = (byte) (0x80 | (value & 0x3F));
+        }
+        return this;
+    }
+
+    /**
+     * Writes the value UTF-8 encoded; null is written as "null" (like {@link java.io.PrintWriter}).
+     */
+    ExportWriter write(CharSequence value) {
+        if (value == null) {
+            value = "null";
+        }
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                ensureCapacity(4);
+                buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else {
+                write(c);
+            }
+        }
+        return this;
+    }
+
+    ExportWriter write(long value) {
+        if (value == Long.MIN_VALUE) {
+            return write(Long.toString(value));
+        }
+        if (value < 0) {
+            write('-');
+            value = -value;
+        }
+        writeDigits(value, 1);
+        return this;
+    }
+
+    /**
+     * Writes the shortest representation that uniquely identifies the value (same as {@link Double#toString(double)}).
+     */
+    ExportWriter write(double value) {
+        scratch.setLength(0);
+        scratch.append(value);
+        return write(scratch);
+    }
+
+    /**
+     * Writes the value like a {@link java.text.NumberFormat} (US locale, without grouping) with the given maximum fraction digits:
+     * rounded half-even and without trailing zeros (e.g., 1.25 with 1 fraction digit: "1.2"; 3.0: "3").
+     * <p>
+     * Rounding is applied to the scaled binary value; so, ties that are only ties in their decimal representation may round differently than {@link java.text.NumberFormat}.
+     *
+     * @param maxFractionDigits between 0 and 9
+     */
+    ExportWriter write(double value, int maxFractionDigits) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return write(value);
+        }
+
+        long scale = POWERS_OF_TEN[maxFractionDigits];
+        double scaled = Math.rint(Math.abs(value) * scale);
+        if (scaled >= MAX_EXACT_LONG) {
+            return write(new BigDecimal(value).setScale(maxFractionDigits, RoundingMode.HALF_EVEN).stripTrailingZeros().toPlainString());
+        }
+
+        if (Math.copySign(1d, value) < 0) {
+            // NumberFormat keeps the sign of negative values that round to zero.
+            write('-');
+        }
+
+        long unscaled = (long) scaled;
+        writeDigits(unscaled / scale, 1);
+
+        long fraction = unscaled % scale;
+        if (fraction != 0) {
+            int fractionDigits = maxFractionDigits;
+            while (fraction % 10 == 0) {
+                fraction /= 10;
+                fractionDigits--;
+            }
+            write('.');
+            writeDigits(fraction, fractionDigits);
+        }
+        return this;
+    }
+
+    ExportWriter newLine() {
+        return write('\n');
+    }
+
+    ExportWriter writeLine(CharSequence value) {
+        return write(value).newLine();
+    }
+
+    ExportWriter writeLine(@NonNull byte[] encoded) {
+        return write(encoded).newLine();
+    }
+
+    /**
+     * Writes the buffer to the {@link OutputStream} and flushes it; does not close it.
+     */
+    void flush() {
+        flushBuffer();
+        if (error) {
+            return;
+        }
+        try {
+            outputStream.flush();
+        } catch (IOException e) {
+            setError(e);
+        }
+    }
+
+    /**
+     * @return true if writing to the {@link OutputStream} failed; all further output was discarded.
+     */
+    boolean checkError() {
+        return error;
+    }
+
+    /**
+     * @return number of bytes written so far (incl. buffered).
+     */
+    long getBytesWritten() {
+        return bytesWritten + position;
+    }
+
+    /**
+     * Writes a non-negative value with at least minDigits digits (padded with leading zeros).
+     */
+    private void writeDigits(long value, int minDigits) {
+        int count = 0;
+        do {
+            digits[count++] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value != 0);
+        while (count < minDigits) {
+            digits[count++] = '0';
+        }
+
+        ensureCapacity(count);
+        while (count > 0) {
+            buffer[position++] = digits[--count];
+        }
+    }
+
+    private void ensureCapacity(int length) {
+        if (position + length > buffer.length) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() {
+        if (position == 0) {
+            return;
+        }
+        writeToStream(buffer, position);
+        position = 0;
+    }
+
+    private void writeToStream(byte[] bytes, int length) {
+        bytesWritten += length;
+        if (error) {
+            return;
+        }
+        try {
+            outputStream.write(bytes, 0, length);
+        } catch (IOException e) {
+            setError(e);
+        }
+    }
+
+    private void setError(IOException e) {
+        Log.e(TAG, "Could not write export", e);
+        error = true;
+    }
+}
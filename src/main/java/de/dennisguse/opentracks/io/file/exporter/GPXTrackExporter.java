@@ -22,15 +22,10 @@ import android.util.Log;
 import androidx.annotation.NonNull;
 
 import java.io.OutputStream;
-import java.io.PrintWriter;
-import java.text.NumberFormat;
 import java.time.ZoneOffset;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Locale;
-import java.util.Objects;
 import java.util.function.Function;
-import java.util.stream.Stream;
 
 import de.dennisguse.opentracks.data.ContentProviderUtils;
 import de.dennisguse.opentracks.data.TrackPointIterator;
@@ -38,6 +33,7 @@ import de.dennisguse.opentracks.data.models.Distance;
 import de.dennisguse.opentracks.data.models.Marker;
 import de.dennisguse.opentracks.data.models.Track;
 import de.dennisguse.opentracks.data.models.TrackPoint;
+import de.dennisguse.opentracks.io.file.TimestampCodec;
 import de.dennisguse.opentracks.stats.TrackStatistics;
 import de.dennisguse.opentracks.util.StringUtils;
 
@@ -54,43 +50,58 @@ public class GPXTrackExporter implements TrackExporter {
 
     private static final String TAG = GPXTrackExporter.class.getSimpleName();
 
-    private static final NumberFormat ALTITUDE_FORMAT = NumberFormat.getInstance(Locale.US);
-    private static final NumberFormat COORDINATE_FORMAT = NumberFormat.getInstance(Locale.US);
-    private static final NumberFormat SPEED_FORMAT = NumberFormat.getInstance(Locale.US);
-    private static final NumberFormat DISTANCE_FORMAT = NumberFormat.getInstance(Locale.US);
-    private static final NumberFormat HEARTRATE_FORMAT = NumberFormat.getInstance(Locale.US);
-    private static final NumberFormat CADENCE_FORMAT = NumberFormat.getInstance(Locale.US);
-    private static final NumberFormat POWER_FORMAT = NumberFormat.getInstance(Locale.US);
-
-    static {
-        /*
-         * GPX readers expect to see fractional numbers with US-style punctuation.
-         * That is, they want periods for decimal points, rather than commas.
-         */
-        ALTITUDE_FORMAT.setMaximumFractionDigits(1);
-        ALTITUDE_FORMAT.setGroupingUsed(false);
-
-        COORDINATE_FORMAT.setMaximumFractionDigits(6);
-        COORDINATE_FORMAT.setMaximumIntegerDigits(3);
-        COORDINATE_FORMAT.setGroupingUsed(false);
-
-        SPEED_FORMAT.setMaximumFractionDigits(2);
-        SPEED_FORMAT.setGroupingUsed(false);
-
-        HEARTRATE_FORMAT.setMaximumFractionDigits(0);
-        HEARTRATE_FORMAT.setGroupingUsed(false);
-
-        CADENCE_FORMAT.setMaximumFractionDigits(0);
-        CADENCE_FORMAT.setGroupingUsed(false);
-
-        POWER_FORMAT.setMaximumFractionDigits(0);
-        POWER_FORMAT.setGroupingUsed(false);
-    }
+    /*
+     * GPX readers expect to see fractional numbers with US-style punctuation.
+     * That is, they want periods for decimal points, rather than commas.
+     */
+    private static final int ALTITUDE_FRACTION_DIGITS = 1;
+    private static final int COORDINATE_FRACTION_DIGITS = 6;
+    private static final int SPEED_FRACTION_DIGITS = 2;
+    private static final int DISTANCE_FRACTION_DIGITS = 3;
+    private static final int HEARTRATE_FRACTION_DIGITS = 0;
+    private static final int CADENCE_FRACTION_DIGITS = 0;
+    private static final int POWER_FRACTION_DIGITS = 0;
+
+    private static final byte[] WPT_BEGIN = ExportWriter.encode("<wpt ");
+    private static final byte[] TRKPT_BEGIN = ExportWriter.encode("<trkpt ");
+    private static final byte[] TRKPT_END = ExportWriter.encode("</trkpt>");
+    private static final byte[] LAT_BEGIN = ExportWriter.encode("lat=\"");
+    private static final byte[] LON_BEGIN = ExportWriter.encode("\" lon=\"");
+    private static final byte[] LOCATION_END = ExportWriter.encode("\">");
+    private static final byte[] ELE_BEGIN = ExportWriter.encode("<ele>");
+    private static final byte[] ELE_END = ExportWriter.encode("</ele>");
+    private static final byte[] TIME_BEGIN = ExportWriter.encode("<time>");
+    private static final byte[] TIME_END = ExportWriter.encode("</time>");
+    private static final byte[] EXTENSIONS_BEGIN = ExportWriter.encode("<extensions>");
+    private static final byte[] EXTENSIONS_END = ExportWriter.encode("</extensions>");
+    private static final byte[] TRACKPOINT_EXTENSION_BEGIN = ExportWriter.encode("<gpxtpx:TrackPointExtension>");
+    private static final byte[] TRACKPOINT_EXTENSION_END = ExportWriter.encode("</gpxtpx:TrackPointExtension>");
+    private static final byte[] HEARTRATE_BEGIN = ExportWriter.encode("<gpxtpx:hr>");
+    private static final byte[] HEARTRATE_END = ExportWriter.encode("</gpxtpx:hr>");
+    private static final byte[] CADENCE_BEGIN = ExportWriter.encode("<gpxtpx:cad>");
+    private static final byte[] CADENCE_END = ExportWriter.encode("</gpxtpx:cad>");
+    private static final byte[] SPEED_BEGIN = ExportWriter.encode("<gpxtpx:speed>");
+    private static final byte[] SPEED_END = ExportWriter.encode("</gpxtpx:speed>");
+    private static final byte[] POWER_BEGIN = ExportWriter.encode("<pwr:PowerInWatts>");
+    private static final byte[] POWER_END = ExportWriter.encode("</pwr:PowerInWatts>");
+    private static final byte[] GAIN_BEGIN = ExportWriter.encode("<opentracks:gain>");
+    private static final byte[] GAIN_END = ExportWriter.encode("</opentracks:gain>");
+    private static final byte[] LOSS_BEGIN = ExportWriter.encode("<opentracks:loss>");
+    private static final byte[] LOSS_END = ExportWriter.encode("</opentracks:loss>");
+    private static final byte[] ACCURACY_HORIZONTAL_BEGIN = ExportWriter.encode("<opentracks:accuracy_horizontal>");
+    private static final byte[] ACCURACY_HORIZONTAL_END = ExportWriter.encode("</opentracks:accuracy_horizontal>");
+    private static final byte[] ACCURACY_VERTICAL_BEGIN = ExportWriter.encode("<opentracks:accuracy_vertical>");
+    private static final byte[] ACCURACY_VERTICAL_END = ExportWriter.encode("</opentracks:accuracy_vertical>");
+    private static final byte[] DISTANCE_BEGIN = ExportWriter.encode("<opentracks:distance>");
+    private static final byte[] DISTANCE_END = ExportWriter.encode("</opentracks:distance>");
+    private static final byte[] TRACK_DISTANCE_BEGIN = ExportWriter.encode("<cluetrust:distance>");
+    private static final byte[] TRACK_DISTANCE_END = ExportWriter.encode("</cluetrust:distance>");
 
     private final ContentProviderUtils contentProviderUtils;
 
     private final String creator;
-    private PrintWriter printWriter;
+    private ExportWriter exportWriter;
+    private final TimestampCodec timestampCodec = new TimestampCodec();
 
     public GPXTrackExporter(ContentProviderUtils contentProviderUtils, String creator) {
         this.contentProviderUtils = contentProviderUtils;
@@ -111,9 +122,7 @@ public class GPXTrackExporter implements TrackExporter {
             }
 
             writeFooter();
-            close();
-
-            return true;
+            return close();
         } catch (InterruptedException e) {
             Log.e(TAG, "Thread interrupted", e);
             return false;
@@ -200,29 +209,34 @@ public class GPXTrackExporter implements TrackExporter {
     }
 
     private void prepare(OutputStream outputStream) {
-        this.printWriter = new PrintWriter(outputStream);
+        this.exportWriter = new ExportWriter(outputStream);
     }
 
-    private void close() {
-        printWriter.flush();
-        printWriter = null;
+    /**
+     * @return true if everything was written.
+     */
+    private boolean close() {
+        exportWriter.flush();
+        boolean success = !exportWriter.checkError();
+        exportWriter = null;
+        return success;
     }
 
 
     private void writeHeader() {
-        printWriter.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
-        printWriter.println("<gpx");
-        printWriter.println("version=\"1.1\"");
-        printWriter.println("creator=\"" + creator + "\"");
-        printWriter.println("xmlns=\"http://www.topografix.com/GPX/1/1\"");
-        printWriter.println("xmlns:topografix=\"http://www.topografix.com/GPX/Private/TopoGrafix/0/1\"");
-        printWriter.println("xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"");
-        printWriter.println("xmlns:opentracks=\"http://opentracksapp.com/xmlschemas/v1\"");
-        printWriter.println("xmlns:gpxtpx=\"http://www.garmin.com/xmlschemas/TrackPointExtension/v2\"");
-        printWriter.println("xmlns:gpxtrkx=\"http://www.garmin.com/xmlschemas/TrackStatsExtension/v1\"");
-        printWriter.println("xmlns:cluetrust=\"http://www.cluetrust.com/Schemas/\"");
-        printWriter.println("xmlns:pwr=\"http://www.garmin.com/xmlschemas/PowerExtension/v1\"");
-        printWriter.println("xsi:schemaLocation=" +
+        exportWriter.writeLine("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+        exportWriter.writeLine("<gpx");
+        exportWriter.writeLine("version=\"1.1\"");
+        exportWriter.writeLine("creator=\"" + creator + "\"");
+        exportWriter.writeLine("xmlns=\"http://www.topografix.com/GPX/1/1\"");
+        exportWriter.writeLine("xmlns:topografix=\"http://www.topografix.com/GPX/Private/TopoGrafix/0/1\"");
+        exportWriter.writeLine("xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"");
+        exportWriter.writeLine("xmlns:opentracks=\"http://opentracksapp.com/xmlschemas/v1\"");
+        exportWriter.writeLine("xmlns:gpxtpx=\"http://www.garmin.com/xmlschemas/TrackPointExtension/v2\"");
+        exportWriter.writeLine("xmlns:gpxtrkx=\"http://www.garmin.com/xmlschemas/TrackStatsExtension/v1\"");
+        exportWriter.writeLine("xmlns:cluetrust=\"http://www.cluetrust.com/Schemas/\"");
+        exportWriter.writeLine("xmlns:pwr=\"http://www.garmin.com/xmlschemas/PowerExtension/v1\"");
+        exportWriter.writeLine("xsi:schemaLocation=" +
                 "\"http://www.topografix.com/GPX/1/1 http://www.topografix.com/GPX/1/1/gpx.xsd"
                 + " http://www.topografix.com/GPX/Private/TopoGrafix/0/1 http://www.topografix.com/GPX/Private/TopoGrafix/0/1/topografix.xsd"
                 + " http://www.garmin.com/xmlschemas/TrackPointExtension/v2 https://www8.garmin.com/xmlschemas/TrackPointExtensionv2.xsd"
@@ -233,7 +247,7 @@ public class GPXTrackExporter implements TrackExporter {
     }
 
     private void writeFooter() {
-        printWriter.println("</gpx>");
+        exportWriter.writeLine("</gpx>");
     }
 
     private void writeMarkers(Track track) throws InterruptedException {
@@ -253,133 +267,122 @@ public class GPXTrackExporter implements TrackExporter {
     }
 
     private void writeMarker(ZoneOffset zoneOffset, Marker marker) {
-        printWriter.println("<wpt " + formatLocation(marker.getLatitude(), marker.getLongitude()) + ">");
+        exportWriter.write(WPT_BEGIN);
+        writeLocation(marker.getLatitude(), marker.getLongitude());
         if (marker.hasAltitude()) {
-            printWriter.println("<ele>" + ALTITUDE_FORMAT.format(marker.getAltitude().toM()) + "</ele>");
+            exportWriter.write(ELE_BEGIN).write(marker.getAltitude().toM(), ALTITUDE_FRACTION_DIGITS).writeLine(ELE_END);
         }
-        printWriter.println("<time>" + StringUtils.formatDateTimeIso8601(marker.getTime(), zoneOffset) + "</time>");
-        printWriter.println("<name>" + StringUtils.formatCData(marker.getName()) + "</name>");
-        printWriter.println("<desc>" + StringUtils.formatCData(marker.getDescription()) + "</desc>");
-        printWriter.println("<type>" + StringUtils.formatCData(marker.getCategory()) + "</type>"); //TODO This is localized; may be better to export in English only. See #1608
-        printWriter.println("</wpt>");
+        exportWriter.write(TIME_BEGIN).write(timestampCodec.format(marker.getTime(), zoneOffset)).writeLine(TIME_END);
+        exportWriter.writeLine("<name>" + StringUtils.formatCData(marker.getName()) + "</name>");
+        exportWriter.writeLine("<desc>" + StringUtils.formatCData(marker.getDescription()) + "</desc>");
+        exportWriter.writeLine("<type>" + StringUtils.formatCData(marker.getCategory()) + "</type>"); //TODO This is localized; may be better to export in English only. See #1608
+        exportWriter.writeLine("</wpt>");
     }
 
     private void writeBeginTrack(Track track) {
-        printWriter.println("<trk>");
-        printWriter.println("<name>" + StringUtils.formatCData(track.getName()) + "</name>");
-        printWriter.println("<desc>" + StringUtils.formatCData(track.getDescription()) + "</desc>");
-        printWriter.println("<type>" + StringUtils.formatCData(track.getActivityType().getId()) + "</type>");
+        exportWriter.writeLine("<trk>");
+        exportWriter.writeLine("<name>" + StringUtils.formatCData(track.getName()) + "</name>");
+        exportWriter.writeLine("<desc>" + StringUtils.formatCData(track.getDescription()) + "</desc>");
+        exportWriter.writeLine("<type>" + StringUtils.formatCData(track.getActivityType().getId()) + "</type>");
 
-        printWriter.println("<extensions>");
-        printWriter.println("<topografix:color>c0c0c0</topografix:color>");
-        printWriter.println("<opentracks:trackid>" + track.getUuid() + "</opentracks:trackid>");
+        exportWriter.writeLine("<extensions>");
+        exportWriter.writeLine("<topografix:color>c0c0c0</topografix:color>");
+        exportWriter.writeLine("<opentracks:trackid>" + track.getUuid() + "</opentracks:trackid>");
 
         if (track.getActivityTypeLocalized() != null || !track.getActivityTypeLocalized().isBlank()) {
-            printWriter.println("<opentracks:typeTranslated>" + StringUtils.formatCData(track.getActivityTypeLocalized()) + "</opentracks:typeTranslated>");
+            exportWriter.writeLine("<opentracks:typeTranslated>" + StringUtils.formatCData(track.getActivityTypeLocalized()) + "</opentracks:typeTranslated>");
         }
 
         TrackStatistics trackStatistics = track.getTrackStatistics();
-        printWriter.println("<gpxtrkx:TrackStatsExtension>");
-        printWriter.println("<gpxtrkx:Distance>" + trackStatistics.getTotalDistance().toM() + "</gpxtrkx:Distance>");
-        printWriter.println("<gpxtrkx:TimerTime>" + trackStatistics.getTotalTime().getSeconds() + "</gpxtrkx:TimerTime>");
-        printWriter.println("<gpxtrkx:MovingTime>" + trackStatistics.getMovingTime().getSeconds() + "</gpxtrkx:MovingTime>");
-        printWriter.println("<gpxtrkx:StoppedTime>" + trackStatistics.getStoppedTime().getSeconds() + "</gpxtrkx:StoppedTime>");
-        printWriter.println("<gpxtrkx:MaxSpeed>" + trackStatistics.getMaxSpeed().toMPS() + "</gpxtrkx:MaxSpeed>");
+        exportWriter.writeLine("<gpxtrkx:TrackStatsExtension>");
+        exportWriter.writeLine("<gpxtrkx:Distance>" + trackStatistics.getTotalDistance().toM() + "</gpxtrkx:Distance>");
+        exportWriter.writeLine("<gpxtrkx:TimerTime>" + trackStatistics.getTotalTime().getSeconds() + "</gpxtrkx:TimerTime>");
+        exportWriter.writeLine("<gpxtrkx:MovingTime>" + trackStatistics.getMovingTime().getSeconds() + "</gpxtrkx:MovingTime>");
+        exportWriter.writeLine("<gpxtrkx:StoppedTime>" + trackStatistics.getStoppedTime().getSeconds() + "</gpxtrkx:StoppedTime>");
+        exportWriter.writeLine("<gpxtrkx:MaxSpeed>" + trackStatistics.getMaxSpeed().toMPS() + "</gpxtrkx:MaxSpeed>");
         if (trackStatistics.hasTotalAltitudeGain()) {
-            printWriter.println("<gpxtrkx:Ascent>" + trackStatistics.getTotalAltitudeGain() + "</gpxtrkx:Ascent>");
+            exportWriter.writeLine("<gpxtrkx:Ascent>" + trackStatistics.getTotalAltitudeGain() + "</gpxtrkx:Ascent>");
         }
         if (trackStatistics.hasTotalAltitudeLoss()) {
-            printWriter.println("<gpxtrkx:Descent>" + trackStatistics.getTotalAltitudeLoss() + "</gpxtrkx:Descent>");
+            exportWriter.writeLine("<gpxtrkx:Descent>" + trackStatistics.getTotalAltitudeLoss() + "</gpxtrkx:Descent>");
         }
-        printWriter.println("</gpxtrkx:TrackStatsExtension>");
+        exportWriter.writeLine("</gpxtrkx:TrackStatsExtension>");
 
-        printWriter.println("</extensions>");
+        exportWriter.writeLine("</extensions>");
     }
 
     private void writeEndTrack() {
-        printWriter.println("</trk>");
+        exportWriter.writeLine("</trk>");
     }
 
     private void writeOpenSegment() {
-        printWriter.println("<trkseg>");
+        exportWriter.writeLine("<trkseg>");
     }
 
     private void writeCloseSegment() {
-        printWriter.println("</trkseg>");
+        exportWriter.writeLine("</trkseg>");
     }
 
     private Distance writeTrackPoint(ZoneOffset zoneOffset, TrackPoint trackPoint, List<TrackPoint> sensorPoints, Distance trackDistance) {
-        Distance cumulativeDistance;
-
-        printWriter.println("<trkpt " + formatLocation(trackPoint.getLatitude(), trackPoint.getLongitude()) + ">");
+        exportWriter.write(TRKPT_BEGIN);
+        writeLocation(trackPoint.getLatitude(), trackPoint.getLongitude());
 
         if (trackPoint.hasAltitude()) {
-            printWriter.println("<ele>" + ALTITUDE_FORMAT.format(trackPoint.getAltitude().toM()) + "</ele>");
+            exportWriter.write(ELE_BEGIN).write(trackPoint.getAltitude().toM(), ALTITUDE_FRACTION_DIGITS).writeLine(ELE_END);
         }
 
-        printWriter.println("<time>" + StringUtils.formatDateTimeIso8601(trackPoint.getTime(), zoneOffset) + "</time>");
+        exportWriter.write(TIME_BEGIN).write(timestampCodec.format(trackPoint.getTime(), zoneOffset)).writeLine(TIME_END);
 
-        {
-            String trackPointExtensionV2Content = "";
+        boolean hasTrackPointExtensionV2 = trackPoint.hasHeartRate() || trackPoint.hasCadence() || trackPoint.hasSpeed();
 
-            if (trackPoint.hasHeartRate()) {
-                trackPointExtensionV2Content += "<gpxtpx:hr>" + HEARTRATE_FORMAT.format(trackPoint.getHeartRate().getBPM()) + "</gpxtpx:hr>\n";
-            }
+        Double cumulativeGain = cumulateSensorData(trackPoint, sensorPoints, (tp) -> tp.hasAltitudeGain() ? (double) tp.getAltitudeGain() : null);
+        Double cumulativeLoss = cumulateSensorData(trackPoint, sensorPoints, (tp) -> tp.hasAltitudeLoss() ? (double) tp.getAltitudeLoss() : null);
+        Distance cumulativeDistance = Distance.ofOrNull(cumulateSensorData(trackPoint, sensorPoints, (tp) -> tp.hasSensorDistance() ? tp.getSensorDistance().toM() : null));
 
-            if (trackPoint.hasCadence()) {
-                trackPointExtensionV2Content += "<gpxtpx:cad>" + CADENCE_FORMAT.format(trackPoint.getCadence().getRPM()) + "</gpxtpx:cad>\n";
-            }
+        boolean hasExtension = trackPoint.hasPower() || cumulativeGain != null || cumulativeLoss != null
+                || trackPoint.hasHorizontalAccuracy() || trackPoint.hasVerticalAccuracy() || cumulativeDistance != null;
+
+        if (hasTrackPointExtensionV2 || hasExtension) {
+            exportWriter.writeLine(EXTENSIONS_BEGIN);
 
-            if (trackPoint.hasSpeed()) {
-                trackPointExtensionV2Content += "<gpxtpx:speed>" + SPEED_FORMAT.format(trackPoint.getSpeed().toMPS()) + "</gpxtpx:speed>\n";
+            if (hasTrackPointExtensionV2) {
+                exportWriter.writeLine(TRACKPOINT_EXTENSION_BEGIN);
+                if (trackPoint.hasHeartRate()) {
+                    exportWriter.write(HEARTRATE_BEGIN).write(trackPoint.getHeartRate().getBPM(), HEARTRATE_FRACTION_DIGITS).writeLine(HEARTRATE_END);
+                }
+                if (trackPoint.hasCadence()) {
+                    exportWriter.write(CADENCE_BEGIN).write(trackPoint.getCadence().getRPM(), CADENCE_FRACTION_DIGITS).writeLine(CADENCE_END);
+                }
+                if (trackPoint.hasSpeed()) {
+                    exportWriter.write(SPEED_BEGIN).write(trackPoint.getSpeed().toMPS(), SPEED_FRACTION_DIGITS).writeLine(SPEED_END);
+                }
+                exportWriter.writeLine(TRACKPOINT_EXTENSION_END);
             }
 
-            String extensionContent = "";
             if (trackPoint.hasPower()) {
-                extensionContent += "<pwr:PowerInWatts>" + POWER_FORMAT.format(trackPoint.getPower().getW()) + "</pwr:PowerInWatts>\n";
+                exportWriter.write(POWER_BEGIN).write(trackPoint.getPower().getW(), POWER_FRACTION_DIGITS).writeLine(POWER_END);
             }
-
-            Double cumulativeGain = cumulateSensorData(trackPoint, sensorPoints, (tp) -> tp.hasAltitudeGain() ? (double) tp.getAltitudeGain() : null);
             if (cumulativeGain != null) {
-                extensionContent += ("<opentracks:gain>" + ALTITUDE_FORMAT.format(cumulativeGain) + "</opentracks:gain>\n");
+                exportWriter.write(GAIN_BEGIN).write(cumulativeGain, ALTITUDE_FRACTION_DIGITS).writeLine(GAIN_END);
             }
-
-            Double cumulativeLoss = cumulateSensorData(trackPoint, sensorPoints, (tp) -> tp.hasAltitudeLoss() ? (double) tp.getAltitudeLoss() : null);
             if (cumulativeLoss != null) {
-                extensionContent += ("<opentracks:loss>" + ALTITUDE_FORMAT.format(cumulativeLoss) + "</opentracks:loss>\n");
+                exportWriter.write(LOSS_BEGIN).write(cumulativeLoss, ALTITUDE_FRACTION_DIGITS).writeLine(LOSS_END);
             }
-
             if (trackPoint.hasHorizontalAccuracy()) {
-                extensionContent += ("<opentracks:accuracy_horizontal>" + DISTANCE_FORMAT.format(trackPoint.getHorizontalAccuracy().toM()) + "</opentracks:accuracy_horizontal>");
+                exportWriter.write(ACCURACY_HORIZONTAL_BEGIN).write(trackPoint.getHorizontalAccuracy().toM(), DISTANCE_FRACTION_DIGITS).writeLine(ACCURACY_HORIZONTAL_END);
             }
             if (trackPoint.hasVerticalAccuracy()) {
-                extensionContent += ("<opentracks:accuracy_vertical>" + DISTANCE_FORMAT.format(trackPoint.getVerticalAccuracy().toM()) + "</opentracks:accuracy_vertical>");
+                exportWriter.write(ACCURACY_VERTICAL_BEGIN).write(trackPoint.getVerticalAccuracy().toM(), DISTANCE_FRACTION_DIGITS).writeLine(ACCURACY_VERTICAL_END);
             }
-
-            cumulativeDistance = Distance.ofOrNull(cumulateSensorData(trackPoint, sensorPoints, (tp) -> tp.hasSensorDistance() ? tp.getSensorDistance().toM() : null));
             if (cumulativeDistance != null) {
-                extensionContent += ("<opentracks:distance>" + DISTANCE_FORMAT.format(cumulativeDistance.toM()) + "</opentracks:distance>\n");
-                extensionContent += ("<cluetrust:distance>" + DISTANCE_FORMAT.format(trackDistance.plus(cumulativeDistance).toM()) + "</cluetrust:distance>\n");
+                exportWriter.write(DISTANCE_BEGIN).write(cumulativeDistance.toM(), DISTANCE_FRACTION_DIGITS).writeLine(DISTANCE_END);
+                exportWriter.write(TRACK_DISTANCE_BEGIN).write(trackDistance.plus(cumulativeDistance).toM(), DISTANCE_FRACTION_DIGITS).writeLine(TRACK_DISTANCE_END);
             }
 
-            if (!extensionContent.isEmpty() || !trackPointExtensionV2Content.isEmpty()) {
-                printWriter.println("<extensions>");
-
-                if (!trackPointExtensionV2Content.isEmpty()) {
-                    printWriter.println("<gpxtpx:TrackPointExtension>");
-                    printWriter.print(trackPointExtensionV2Content);
-                    printWriter.println("</gpxtpx:TrackPointExtension>");
-                }
-
-                if (!extensionContent.isEmpty()) {
-                    printWriter.print(extensionContent);
-                }
-
-                printWriter.println("</extensions>");
-            }
+            exportWriter.writeLine(EXTENSIONS_END);
         }
 
-        printWriter.println("</trkpt>");
+        exportWriter.writeLine(TRKPT_END);
 
         if (cumulativeDistance != null) {
             return cumulativeDistance;
@@ -388,14 +391,23 @@ public class GPXTrackExporter implements TrackExporter {
     }
 
     private Double cumulateSensorData(TrackPoint trackPoint, List<TrackPoint> sensorPoints, Function<TrackPoint, Double> map) {
-        return Stream.concat(sensorPoints.stream(), Stream.of(trackPoint))
-                .map(map)
-                .filter(Objects::nonNull)
-                .reduce(Double::sum)
-                .orElse(null);
+        Double sum = null;
+        for (TrackPoint sensorPoint : sensorPoints) {
+            sum = sum(sum, map.apply(sensorPoint));
+        }
+        return sum(sum, map.apply(trackPoint));
+    }
+
+    private static Double sum(Double sum, Double value) {
+        if (value == null) {
+            return sum;
+        }
+        return sum == null ? value : sum + value;
     }
 
-    private String formatLocation(double latitude, double longitude) {
-        return "lat=\"" + COORDINATE_FORMAT.format(latitude) + "\" lon=\"" + COORDINATE_FORMAT.format(longitude) + "\"";
+    private void writeLocation(double latitude, double longitude) {
+        exportWriter.write(LAT_BEGIN).write(latitude, COORDINATE_FRACTION_DIGITS)
+                .write(LON_BEGIN).write(longitude, COORDINATE_FRACTION_DIGITS)
+                .writeLine(LOCATION_END);
     }
 }
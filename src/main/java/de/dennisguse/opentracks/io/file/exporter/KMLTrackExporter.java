@@ -24,25 +24,23 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.OutputStream;
-import java.io.PrintWriter;
-import java.text.NumberFormat;
 import java.time.Instant;
 import java.time.ZoneOffset;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
-import java.util.Objects;
 import java.util.Optional;
 
 import de.dennisguse.opentracks.R;
 import de.dennisguse.opentracks.data.ContentProviderUtils;
-import de.dennisguse.opentracks.data.TrackPointIterator;
+import de.dennisguse.opentracks.data.TrackPointColumnarCursor;
 import de.dennisguse.opentracks.data.models.ActivityType;
 import de.dennisguse.opentracks.data.models.Marker;
 import de.dennisguse.opentracks.data.models.Position;
 import de.dennisguse.opentracks.data.models.Track;
 import de.dennisguse.opentracks.data.models.TrackPoint;
+import de.dennisguse.opentracks.io.file.TimestampCodec;
 import de.dennisguse.opentracks.ui.markers.MarkerUtils;
 import de.dennisguse.opentracks.util.StringUtils;
 
@@ -76,35 +74,61 @@ public class KMLTrackExporter implements TrackExporter {
     public static final String EXTENDED_DATA_TYPE_ACCURACY_HORIZONTAL = "accuracy_horizontal";
     public static final String EXTENDED_DATA_TYPE_ACCURACY_VERTICAL = "accuracy_vertical";
 
-    private static final NumberFormat SENSOR_DATA_FORMAT = NumberFormat.getInstance(Locale.US);
+    private static final int SENSOR_DATA_FRACTION_DIGITS = 1;
 
-    static {
-        SENSOR_DATA_FORMAT.setMaximumFractionDigits(1);
-        SENSOR_DATA_FORMAT.setGroupingUsed(false);
-    }
+    // TrackPoints are read in pages into primitive arrays (see TrackPointColumnarCursor).
+    @VisibleForTesting
+    static final int TRACKPOINTS_PAGE_SIZE = 1000;
+
+    private static final TrackPoint.Type[] TRACKPOINT_TYPES = TrackPoint.Type.values();
+
+    private static final byte[] WHEN_BEGIN = ExportWriter.encode("<when>");
+    private static final byte[] WHEN_END = ExportWriter.encode("</when>");
+    private static final byte[] COORD_BEGIN = ExportWriter.encode("<coord>");
+    private static final byte[] COORD_END = ExportWriter.encode("</coord>");
+    private static final byte[] COORD_EMPTY = ExportWriter.encode("<coord/>");
+    private static final byte[] VALUE_BEGIN = ExportWriter.encode("<value>");
+    private static final byte[] VALUE_END = ExportWriter.encode("</value>");
+    private static final byte[] VALUE_EMPTY = ExportWriter.encode("<value />");
 
     private final Context context;
     private final boolean exportPhotos;
     private final ContentProviderUtils contentProviderUtils;
 
-    private PrintWriter printWriter;
-
-    private final ArrayList<TrackPoint.Type> trackpointTypeList = new ArrayList<>();
-
-    private final List<Float> speedList = new ArrayList<>();
-    private final List<Float> distanceList = new ArrayList<>();
-    private final List<Float> powerList = new ArrayList<>();
-    private final List<Float> cadenceList = new ArrayList<>();
-    private final List<Float> heartRateList = new ArrayList<>();
-    private final List<Float> altitudeGainList = new ArrayList<>();
-    private final List<Float> altitudeLossList = new ArrayList<>();
-    private final List<Float> accuracyHorizontal = new ArrayList<>();
-    private final List<Float> accuracyVertical = new ArrayList<>();
+    private ExportWriter exportWriter;
+    private final TimestampCodec timestampCodec = new TimestampCodec();
+
+    // Per segment; the SimpleArrayData can only be written after all TrackPoints of a segment.
+    private final SpillingIntArray trackpointTypes;
+    private final SensorDataArray speeds;
+    private final SensorDataArray distances;
+    private final SensorDataArray powers;
+    private final SensorDataArray cadences;
+    private final SensorDataArray heartRates;
+    private final SensorDataArray altitudeGains;
+    private final SensorDataArray altitudeLosses;
+    private final SensorDataArray accuraciesHorizontal;
+    private final SensorDataArray accuraciesVertical;
+    private final List<SensorDataArray> sensorDataArrays;
 
     public KMLTrackExporter(Context context, ContentProviderUtils contentProviderUtils, boolean exportPhotos) {
         this.context = context;
         this.exportPhotos = exportPhotos;
         this.contentProviderUtils = contentProviderUtils;
+
+        File directory = context.getCacheDir();
+        trackpointTypes = new SpillingIntArray(directory);
+        speeds = new SensorDataArray(EXTENDED_DATA_TYPE_SPEED, directory);
+        distances = new SensorDataArray(EXTENDED_DATA_TYPE_DISTANCE, directory);
+        powers = new SensorDataArray(EXTENDED_DATA_TYPE_POWER, directory);
+        cadences = new SensorDataArray(EXTENDED_DATA_TYPE_CADENCE, directory);
+        heartRates = new SensorDataArray(EXTENDED_DATA_TYPE_HEARTRATE, directory);
+        altitudeGains = new SensorDataArray(EXTENDED_DATA_TYPE_ALTITUDE_GAIN, directory);
+        altitudeLosses = new SensorDataArray(EXTENDED_DATA_TYPE_ALTITUDE_LOSS, directory);
+        accuraciesHorizontal = new SensorDataArray(EXTENDED_DATA_TYPE_ACCURACY_HORIZONTAL, directory);
+        accuraciesVertical = new SensorDataArray(EXTENDED_DATA_TYPE_ACCURACY_VERTICAL, directory);
+        // Order of the SimpleArrayData in the output.
+        sensorDataArrays = List.of(speeds, distances, powers, cadences, heartRates, altitudeGains, altitudeLosses, accuraciesHorizontal, accuraciesVertical);
     }
 
     @Override
@@ -126,12 +150,19 @@ public class KMLTrackExporter implements TrackExporter {
                 writeMultiTrackEnd();
             }
             writeFooter();
-            close();
-
-            return true;
+            return close();
         } catch (InterruptedException e) {
             Log.e(TAG, "Thread interrupted", e);
             return false;
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to buffer sensor data", e);
+            return false;
+        } finally {
+            try {
+                clearSegment();
+            } catch (IOException e) {
+                Log.w(TAG, "Unable to delete buffered sensor data", e);
+            }
         }
     }
 
@@ -159,30 +190,33 @@ public class KMLTrackExporter implements TrackExporter {
         }
     }
 
-    private void writeLocations(Track track) throws InterruptedException {
+    private void writeLocations(Track track) throws InterruptedException, IOException {
         boolean wroteTrack = false;
         boolean wroteSegment = false;
 
-        try (TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointLocationIterator(track.getId(), null)) {
-            while (trackPointIterator.hasNext()) {
+        TrackPoint.Id startTrackPointId = null;
+        TrackPointColumnarCursor trackPoints;
+        do {
+            trackPoints = contentProviderUtils.getTrackPointColumns(track.getId(), startTrackPointId, TRACKPOINTS_PAGE_SIZE, false);
+            while (trackPoints.moveToNext()) {
                 if (Thread.interrupted()) throw new InterruptedException();
 
-                TrackPoint trackPoint = trackPointIterator.next();
                 if (!wroteTrack) {
                     writeBeginTrack(track);
                     wroteTrack = true;
                 }
 
-                switch (trackPoint.getType()) {
+                TrackPoint.Type type = trackPoints.getType();
+                switch (type) {
                     case SEGMENT_START_MANUAL, SEGMENT_START_AUTOMATIC -> {
                         if (wroteSegment) writeCloseSegment();
                         writeOpenSegment();
-                        writeTrackPoint(track.getZoneOffset(), trackPoint);
+                        writeTrackPoint(track.getZoneOffset(), trackPoints);
                         wroteSegment = true;
                     }
                     case SEGMENT_END_MANUAL -> {
                         if (!wroteSegment) writeOpenSegment();
-                        writeTrackPoint(track.getZoneOffset(), trackPoint);
+                        writeTrackPoint(track.getZoneOffset(), trackPoints);
                         writeCloseSegment();
                         wroteSegment = false;
                     }
@@ -193,45 +227,51 @@ public class KMLTrackExporter implements TrackExporter {
                             wroteSegment = true;
                         }
 
-                        writeTrackPoint(track.getZoneOffset(), trackPoint);
+                        writeTrackPoint(track.getZoneOffset(), trackPoints);
                     }
                     default ->
-                            throw new RuntimeException("Exporting this TrackPoint type is not implemented: " + trackPoint.getType());
+                            throw new RuntimeException("Exporting this TrackPoint type is not implemented: " + type);
                 }
+                startTrackPointId = new TrackPoint.Id(trackPoints.getId() + 1);
             }
+        } while (trackPoints.getCount() == TRACKPOINTS_PAGE_SIZE);
 
-            if (wroteSegment) {
-                // Should not be necessary as tracks should end with SEGMENT_END_MANUAL.
-                // Anyhow, make sure that the last segment is closed.
-                writeCloseSegment();
-            }
-
-            if (!wroteTrack) {
-                // Write an empty track
-                writeBeginTrack(track);
-            }
+        if (wroteSegment) {
+            // Should not be necessary as tracks should end with SEGMENT_END_MANUAL.
+            // Anyhow, make sure that the last segment is closed.
+            writeCloseSegment();
+        }
 
-            writeEndTrack();
+        if (!wroteTrack) {
+            // Write an empty track
+            writeBeginTrack(track);
         }
+
+        writeEndTrack();
     }
 
     @VisibleForTesting
     void prepare(OutputStream outputStream) {
-        this.printWriter = new PrintWriter(outputStream);
+        this.exportWriter = new ExportWriter(outputStream);
     }
 
+    /**
+     * @return true if everything was written.
+     */
     @VisibleForTesting
-    void close() {
-        printWriter.flush();
-        printWriter = null;
+    boolean close() {
+        exportWriter.flush();
+        boolean success = !exportWriter.checkError();
+        exportWriter = null;
+        return success;
     }
 
     private void writeHeader(List<Track> tracks) {
-        printWriter.println(
+        exportWriter.writeLine(
                 """
                         <?xml version="1.0" encoding="UTF-8"?>
                         """);
-        printWriter.println(
+        exportWriter.writeLine(
                 """
                         <kml xmlns="http://www.opengis.net/kml/2.3"
                             xmlns:atom="http://www.w3.org/2005/Atom"
@@ -240,35 +280,35 @@ public class KMLTrackExporter implements TrackExporter {
                             xsi:schemaLocation="http://www.opengis.net/kml/2.3 http://schemas.opengis.net/kml/2.3/ogckml23.xsd
                                                 http://opentracksapp.com/xmlschemas/v1 http://opentracksapp.com/xmlschemas/OpenTracks_v1.xsd">
                         """); //TODO ADD xsi:schemaLocation for atom
-        printWriter.println("<Document>");
-        printWriter.println("<open>1</open>");
-        printWriter.println("<visibility>1</visibility>");
+        exportWriter.writeLine("<Document>");
+        exportWriter.writeLine("<open>1</open>");
+        exportWriter.writeLine("<visibility>1</visibility>");
 
         Track track = tracks.get(0);
-        printWriter.println("<name>" + StringUtils.formatCData(track.getName()) + "</name>");
-        printWriter.println("<atom:generator>" + StringUtils.formatCData(context.getString(R.string.app_name)) + "</atom:generator>");
+        exportWriter.writeLine("<name>" + StringUtils.formatCData(track.getName()) + "</name>");
+        exportWriter.writeLine("<atom:generator>" + StringUtils.formatCData(context.getString(R.string.app_name)) + "</atom:generator>");
 
         writeTrackStyle();
         writePlacemarkerStyle();
-        printWriter.println("<Schema id=\"" + SCHEMA_ID + "\">");
+        exportWriter.writeLine("<Schema id=\"" + SCHEMA_ID + "\">");
 
         writeSimpleArrayStyle(EXTENDED_DATA_TYPE_SPEED, context.getString(R.string.description_speed_ms));
         writeSimpleArrayStyle(EXTENDED_DATA_TYPE_POWER, context.getString(R.string.description_sensor_power));
         writeSimpleArrayStyle(EXTENDED_DATA_TYPE_CADENCE, context.getString(R.string.description_sensor_cadence));
         writeSimpleArrayStyle(EXTENDED_DATA_TYPE_HEARTRATE, context.getString(R.string.description_sensor_heart_rate));
 
-        printWriter.println("</Schema>");
+        exportWriter.writeLine("</Schema>");
     }
 
     private void writeFooter() {
-        printWriter.println("</Document>");
-        printWriter.println("</kml>");
+        exportWriter.writeLine("</Document>");
+        exportWriter.writeLine("</kml>");
     }
 
     private void writeBeginMarkers(Track track) {
-        printWriter.println("<Folder>");
-        printWriter.println("<name>" + StringUtils.formatCData(context.getString(R.string.track_markers, track.getName())) + "</name>");
-        printWriter.println("<open>1</open>");
+        exportWriter.writeLine("<Folder>");
+        exportWriter.writeLine("<name>" + StringUtils.formatCData(context.getString(R.string.track_markers, track.getName())) + "</name>");
+        exportWriter.writeLine("<open>1</open>");
     }
 
     private void writeMarker(Marker marker, ZoneOffset zoneOffset) {
@@ -282,190 +322,176 @@ public class KMLTrackExporter implements TrackExporter {
     }
 
     private void writeEndMarkers() {
-        printWriter.println("</Folder>");
+        exportWriter.writeLine("</Folder>");
     }
 
     private void writeMultiTrackBegin() {
-        printWriter.println("<Folder id=\"tracks\">");
-        printWriter.println("<name>" + context.getString(R.string.generic_tracks) + "</name>");
-        printWriter.println("<open>1</open>");
+        exportWriter.writeLine("<Folder id=\"tracks\">");
+        exportWriter.writeLine("<name>" + context.getString(R.string.generic_tracks) + "</name>");
+        exportWriter.writeLine("<open>1</open>");
     }
 
     private void writeMultiTrackEnd() {
-        printWriter.println("</Folder>");
+        exportWriter.writeLine("</Folder>");
     }
 
     private void writeBeginTrack(Track track) {
-        printWriter.println("<Placemark>");
+        exportWriter.writeLine("<Placemark>");
 
-        printWriter.println("<name>" + StringUtils.formatCData(track.getName()) + "</name>");
-        printWriter.println("<description>" + StringUtils.formatCData(track.getDescription()) + "</description>");
-        printWriter.println("<opentracks:trackid>" + track.getUuid() + "</opentracks:trackid>");
+        exportWriter.writeLine("<name>" + StringUtils.formatCData(track.getName()) + "</name>");
+        exportWriter.writeLine("<description>" + StringUtils.formatCData(track.getDescription()) + "</description>");
+        exportWriter.writeLine("<opentracks:trackid>" + track.getUuid() + "</opentracks:trackid>");
 
-        printWriter.println("<styleUrl>#" + TRACK_STYLE + "</styleUrl>");
+        exportWriter.writeLine("<styleUrl>#" + TRACK_STYLE + "</styleUrl>");
         writeActivityType(track.getActivityType());
         writeTypeLocalized(track.getActivityTypeLocalized());
-        printWriter.println("<MultiTrack>");
-        printWriter.println("<altitudeMode>absolute</altitudeMode>");
-        printWriter.println("<interpolate>1</interpolate>");
+        exportWriter.writeLine("<MultiTrack>");
+        exportWriter.writeLine("<altitudeMode>absolute</altitudeMode>");
+        exportWriter.writeLine("<interpolate>1</interpolate>");
     }
 
     private void writeEndTrack() {
-        printWriter.println("</MultiTrack>");
-        printWriter.println("</Placemark>");
+        exportWriter.writeLine("</MultiTrack>");
+        exportWriter.writeLine("</Placemark>");
     }
 
     @VisibleForTesting
-    void writeOpenSegment() {
-        printWriter.println("<Track>");
-        trackpointTypeList.clear();
-        speedList.clear();
-        distanceList.clear();
-        powerList.clear();
-        cadenceList.clear();
-        heartRateList.clear();
-        altitudeGainList.clear();
-        altitudeLossList.clear();
-        accuracyHorizontal.clear();
-        accuracyVertical.clear();
+    void writeOpenSegment() throws IOException {
+        exportWriter.writeLine("<Track>");
+        clearSegment();
     }
 
     @VisibleForTesting
-    void writeCloseSegment() {
-        printWriter.println("<ExtendedData>");
-        printWriter.println("<SchemaData schemaUrl=\"#" + SCHEMA_ID + "\">");
+    void writeCloseSegment() throws IOException {
+        exportWriter.writeLine("<ExtendedData>");
+        exportWriter.writeLine("<SchemaData schemaUrl=\"#" + SCHEMA_ID + "\">");
 
-        writeTrackPointType(trackpointTypeList);
+        writeTrackPointType();
 
-        if (speedList.stream().anyMatch(Objects::nonNull)) {
-            writeSimpleArraySensorData(speedList, EXTENDED_DATA_TYPE_SPEED);
-        }
-        if (distanceList.stream().anyMatch(Objects::nonNull)) {
-            writeSimpleArraySensorData(distanceList, EXTENDED_DATA_TYPE_DISTANCE);
-        }
-        if (powerList.stream().anyMatch(Objects::nonNull)) {
-            writeSimpleArraySensorData(powerList, EXTENDED_DATA_TYPE_POWER);
-        }
-        if (cadenceList.stream().anyMatch(Objects::nonNull)) {
-            writeSimpleArraySensorData(cadenceList, EXTENDED_DATA_TYPE_CADENCE);
-        }
-        if (heartRateList.stream().anyMatch(Objects::nonNull)) {
-            writeSimpleArraySensorData(heartRateList, EXTENDED_DATA_TYPE_HEARTRATE);
-        }
-        if (altitudeGainList.stream().anyMatch(Objects::nonNull)) {
-            writeSimpleArraySensorData(altitudeGainList, EXTENDED_DATA_TYPE_ALTITUDE_GAIN);
-        }
-        if (altitudeLossList.stream().anyMatch(Objects::nonNull)) {
-            writeSimpleArraySensorData(altitudeLossList, EXTENDED_DATA_TYPE_ALTITUDE_LOSS);
-        }
-        if (accuracyHorizontal.stream().anyMatch(Objects::nonNull)) {
-            writeSimpleArraySensorData(accuracyHorizontal, EXTENDED_DATA_TYPE_ACCURACY_HORIZONTAL);
-        }
-        if (accuracyVertical.stream().anyMatch(Objects::nonNull)) {
-            writeSimpleArraySensorData(accuracyVertical, EXTENDED_DATA_TYPE_ACCURACY_VERTICAL);
+        for (SensorDataArray sensorDataArray : sensorDataArrays) {
+            if (sensorDataArray.hasValues) {
+                writeSimpleArraySensorData(sensorDataArray);
+            }
         }
-        printWriter.println("</SchemaData>");
-        printWriter.println("</ExtendedData>");
-        printWriter.println("</Track>");
+        exportWriter.writeLine("</SchemaData>");
+        exportWriter.writeLine("</ExtendedData>");
+        exportWriter.writeLine("</Track>");
     }
 
+    /**
+     * Writes the current TrackPoint of trackPoints.
+     */
     @VisibleForTesting
-    void writeTrackPoint(ZoneOffset zoneOffset, TrackPoint trackPoint) {
-        printWriter.println("<when>" + getTime(zoneOffset, trackPoint.getTime()) + "</when>");
+    void writeTrackPoint(ZoneOffset zoneOffset, TrackPointColumnarCursor trackPoints) throws IOException {
+        exportWriter.write(WHEN_BEGIN).write(getTime(zoneOffset, Instant.ofEpochMilli(trackPoints.getTimeMillis()))).writeLine(WHEN_END);
 
-        trackpointTypeList.add(trackPoint.getType());
+        trackpointTypes.add(trackPoints.getType().ordinal());
 
-        if (trackPoint.hasLocation()) {
-            printWriter.println("<coord>" + getCoordinates(trackPoint.getPosition(), " ") + "</coord>");
+        if (trackPoints.hasLocation()) {
+            exportWriter.write(COORD_BEGIN);
+            exportWriter.write(trackPoints.getLongitude()).write(' ').write(trackPoints.getLatitude());
+            if (trackPoints.hasAltitude()) {
+                exportWriter.write(' ').write((double) trackPoints.getAltitudeM());
+            }
+            exportWriter.writeLine(COORD_END);
         } else {
-            printWriter.println("<coord/>");
+            exportWriter.writeLine(COORD_EMPTY);
         }
-        speedList.add(trackPoint.hasSpeed() ? (float) trackPoint.getSpeed().toMPS() : null);
+        speeds.add(trackPoints.hasSpeed() ? trackPoints.getSpeedMPS() : SensorDataArray.MISSING);
 
-        distanceList.add(trackPoint.hasSensorDistance() ? (float) trackPoint.getSensorDistance().toM() : null);
-        heartRateList.add(trackPoint.hasHeartRate() ? trackPoint.getHeartRate().getBPM() : null);
-        cadenceList.add(trackPoint.hasCadence() ? trackPoint.getCadence().getRPM() : null);
-        powerList.add(trackPoint.hasPower() ? trackPoint.getPower().getW() : null);
+        distances.add(trackPoints.hasSensorDistance() ? trackPoints.getSensorDistanceM() : SensorDataArray.MISSING);
+        heartRates.add(trackPoints.hasHeartRate() ? trackPoints.getHeartRateBPM() : SensorDataArray.MISSING);
+        cadences.add(trackPoints.hasCadence() ? trackPoints.getCadenceRPM() : SensorDataArray.MISSING);
+        powers.add(trackPoints.hasPower() ? trackPoints.getPowerW() : SensorDataArray.MISSING);
 
-        altitudeGainList.add(trackPoint.hasAltitudeGain() ? trackPoint.getAltitudeGain() : null);
-        altitudeLossList.add(trackPoint.hasAltitudeLoss() ? trackPoint.getAltitudeLoss() : null);
-        accuracyHorizontal.add(trackPoint.hasHorizontalAccuracy() ? (float) trackPoint.getHorizontalAccuracy().toM() : null);
-        accuracyVertical.add(trackPoint.hasVerticalAccuracy() ? (float) trackPoint.getVerticalAccuracy().toM() : null);
+        altitudeGains.add(trackPoints.hasAltitudeGain() ? trackPoints.getAltitudeGainM() : SensorDataArray.MISSING);
+        altitudeLosses.add(trackPoints.hasAltitudeLoss() ? trackPoints.getAltitudeLossM() : SensorDataArray.MISSING);
+        accuraciesHorizontal.add(trackPoints.hasHorizontalAccuracy() ? trackPoints.getHorizontalAccuracyM() : SensorDataArray.MISSING);
+        accuraciesVertical.add(trackPoints.hasVerticalAccuracy() ? trackPoints.getVerticalAccuracyM() : SensorDataArray.MISSING);
     }
 
-    private void writeSimpleArraySensorData(List<Float> list, String name) {
-        printWriter.println("<SimpleArrayData name=\"" + name + "\">");
-        for (int i = 0; i < list.size(); i++) {
-            Float value = list.get(i);
-            if (value == null) {
-                printWriter.println("<value />");
+    private void clearSegment() throws IOException {
+        trackpointTypes.clear();
+        for (SensorDataArray sensorDataArray : sensorDataArrays) {
+            sensorDataArray.clear();
+        }
+    }
+
+    private void writeSimpleArraySensorData(SensorDataArray sensorDataArray) throws IOException {
+        exportWriter.writeLine("<SimpleArrayData name=\"" + sensorDataArray.name + "\">");
+        sensorDataArray.values.forEach(bits -> {
+            float value = Float.intBitsToFloat(bits);
+            if (Float.isNaN(value)) {
+                exportWriter.writeLine(VALUE_EMPTY);
             } else {
-                printWriter.println("<value>" + SENSOR_DATA_FORMAT.format(value) + "</value>");
+                exportWriter.write(VALUE_BEGIN).write(value, SENSOR_DATA_FRACTION_DIGITS).writeLine(VALUE_END);
             }
-        }
-        printWriter.println("</SimpleArrayData>");
+        });
+        exportWriter.writeLine("</SimpleArrayData>");
     }
 
-    private void writeTrackPointType(List<TrackPoint.Type> list) {
-        printWriter.println("<SimpleArrayData name=\"" + EXTENDED_DATA_TYPE_TRACKPOINT + "\">");
-        for (TrackPoint.Type value : list) {
-            printWriter.println("<value>" + value.name() + "</value>");
-        }
-        printWriter.println("</SimpleArrayData>");
+    private void writeTrackPointType() throws IOException {
+        exportWriter.writeLine("<SimpleArrayData name=\"" + EXTENDED_DATA_TYPE_TRACKPOINT + "\">");
+        trackpointTypes.forEach(ordinal -> exportWriter.write(VALUE_BEGIN).write(TRACKPOINT_TYPES[ordinal].name()).writeLine(VALUE_END));
+        exportWriter.writeLine("</SimpleArrayData>");
     }
 
     private void writePlacemark(String name, String activityType, String description, @Nullable Position position, Instant time, ZoneOffset zoneOffset) {
         if (position != null) {
-            printWriter.println("<Placemark>");
-            printWriter.println("<name>" + StringUtils.formatCData(name) + "</name>");
-            printWriter.println("<description>" + StringUtils.formatCData(description) + "</description>");
-            printWriter.println("<TimeStamp><when>" + getTime(zoneOffset, time) + "</when></TimeStamp>");
-            printWriter.println("<styleUrl>#" + KMLTrackExporter.MARKER_STYLE + "</styleUrl>");
+            exportWriter.writeLine("<Placemark>");
+            exportWriter.writeLine("<name>" + StringUtils.formatCData(name) + "</name>");
+            exportWriter.writeLine("<description>" + StringUtils.formatCData(description) + "</description>");
+            exportWriter.writeLine("<TimeStamp><when>" + getTime(zoneOffset, time) + "</when></TimeStamp>");
+            exportWriter.writeLine("<styleUrl>#" + KMLTrackExporter.MARKER_STYLE + "</styleUrl>");
             writeTypeLocalized(activityType);
-            printWriter.println("<Point>");
-            printWriter.println("<coordinates>" + getCoordinates(position, ",") + "</coordinates>");
-            printWriter.println("</Point>");
-            printWriter.println("</Placemark>");
+            exportWriter.writeLine("<Point>");
+            exportWriter.write("<coordinates>");
+            writeCoordinates(position, ',');
+            exportWriter.writeLine("</coordinates>");
+            exportWriter.writeLine("</Point>");
+            exportWriter.writeLine("</Placemark>");
         }
     }
 
     private void writePhotoOverlay(Marker marker, float heading, ZoneOffset zoneOffset) {
-        printWriter.println("<PhotoOverlay>");
-        printWriter.println("<name>" + StringUtils.formatCData(marker.getName()) + "</name>");
-        printWriter.println("<description>" + StringUtils.formatCData(marker.getDescription()) + "</description>");
-        printWriter.print("<Camera>");
-        printWriter.print("<longitude>" + marker.getLongitude() + "</longitude>");
-        printWriter.print("<latitude>" + marker.getLatitude() + "</latitude>");
-        printWriter.print("<altitude>20</altitude>");
-        printWriter.print("<heading>" + heading + "</heading>");
-        printWriter.print("<tilt>90</tilt>");
-        printWriter.println("</Camera>");
-        printWriter.println("<TimeStamp><when>" + getTime(zoneOffset, marker.getTime()) + "</when></TimeStamp>");
-        printWriter.println("<styleUrl>#" + MARKER_STYLE + "</styleUrl>");
+        exportWriter.writeLine("<PhotoOverlay>");
+        exportWriter.writeLine("<name>" + StringUtils.formatCData(marker.getName()) + "</name>");
+        exportWriter.writeLine("<description>" + StringUtils.formatCData(marker.getDescription()) + "</description>");
+        exportWriter.write("<Camera>");
+        exportWriter.write("<longitude>" + marker.getLongitude() + "</longitude>");
+        exportWriter.write("<latitude>" + marker.getLatitude() + "</latitude>");
+        exportWriter.write("<altitude>20</altitude>");
+        exportWriter.write("<heading>" + heading + "</heading>");
+        exportWriter.write("<tilt>90</tilt>");
+        exportWriter.writeLine("</Camera>");
+        exportWriter.writeLine("<TimeStamp><when>" + getTime(zoneOffset, marker.getTime()) + "</when></TimeStamp>");
+        exportWriter.writeLine("<styleUrl>#" + MARKER_STYLE + "</styleUrl>");
         writeTypeLocalized(marker.getCategory());
 
         if (exportPhotos) {
-            printWriter.println("<Icon><href>" + KMZTrackExporter.buildKmzImageFilePath(marker) + "</href></Icon>");
+            exportWriter.writeLine("<Icon><href>" + KMZTrackExporter.buildKmzImageFilePath(marker) + "</href></Icon>");
         }
 
-        printWriter.print("<ViewVolume>");
-        printWriter.print("<near>10</near>");
-        printWriter.print("<leftFov>-60</leftFov>");
-        printWriter.print("<rightFov>60</rightFov>");
-        printWriter.print("<bottomFov>-45</bottomFov>");
-        printWriter.print("<topFov>45</topFov>");
-        printWriter.println("</ViewVolume>");
-        printWriter.println("<Point>");
-        printWriter.println("<coordinates>" + getCoordinates(marker.getPosition(), ",") + "</coordinates>");
-        printWriter.println("</Point>");
-        printWriter.println("</PhotoOverlay>");
+        exportWriter.write("<ViewVolume>");
+        exportWriter.write("<near>10</near>");
+        exportWriter.write("<leftFov>-60</leftFov>");
+        exportWriter.write("<rightFov>60</rightFov>");
+        exportWriter.write("<bottomFov>-45</bottomFov>");
+        exportWriter.write("<topFov>45</topFov>");
+        exportWriter.writeLine("</ViewVolume>");
+        exportWriter.writeLine("<Point>");
+        exportWriter.write("<coordinates>");
+        writeCoordinates(marker.getPosition(), ',');
+        exportWriter.writeLine("</coordinates>");
+        exportWriter.writeLine("</Point>");
+        exportWriter.writeLine("</PhotoOverlay>");
     }
 
     /**
      * Returns the formatted time of the location; either absolute or relative depending exportTrackDetail.
      */
-    private String getTime(ZoneOffset zoneOffset, Instant instant) {
-        return StringUtils.formatDateTimeIso8601(instant, zoneOffset);
+    private CharSequence getTime(ZoneOffset zoneOffset, Instant instant) {
+        return timestampCodec.format(instant, zoneOffset);
     }
 
     /**
@@ -488,49 +514,48 @@ public class KMLTrackExporter implements TrackExporter {
         return position.bearing();
     }
 
-    private static String getCoordinates(Position position, String separator) {
-        String result = position.longitude() + separator + position.latitude();
+    private void writeCoordinates(Position position, char separator) {
+        exportWriter.write(position.longitude()).write(separator).write(position.latitude());
         if (position.hasAltitude()) {
-            result += separator + position.altitude().toM();
+            exportWriter.write(separator).write(position.altitude().toM());
         }
-        return result;
     }
 
     private void writeTypeLocalized(String localizedValue) {
         if (localizedValue == null || localizedValue.isEmpty()) {
             return;
         }
-        printWriter.println("<ExtendedData>");
-        printWriter.println("<Data name=\"" + EXTENDED_DATA_TYPE_LOCALIZED + "\"><value>" + StringUtils.formatCData(localizedValue) + "</value></Data>");
-        printWriter.println("</ExtendedData>");
+        exportWriter.writeLine("<ExtendedData>");
+        exportWriter.writeLine("<Data name=\"" + EXTENDED_DATA_TYPE_LOCALIZED + "\"><value>" + StringUtils.formatCData(localizedValue) + "</value></Data>");
+        exportWriter.writeLine("</ExtendedData>");
     }
 
     private void writeActivityType(ActivityType value) {
         if (value == null) {
             return;
         }
-        printWriter.println("<ExtendedData>");
-        printWriter.println("<Data name=\"" + EXTENDED_DATA_ACTIVITY_TYPE + "\"><value>" + StringUtils.formatCData(value.getId()) + "</value></Data>");
-        printWriter.println("</ExtendedData>");
+        exportWriter.writeLine("<ExtendedData>");
+        exportWriter.writeLine("<Data name=\"" + EXTENDED_DATA_ACTIVITY_TYPE + "\"><value>" + StringUtils.formatCData(value.getId()) + "</value></Data>");
+        exportWriter.writeLine("</ExtendedData>");
     }
 
     private void writeTrackStyle() {
-        printWriter.println("<Style id=\"" + TRACK_STYLE + "\">");
-        printWriter.println("<LineStyle><color>7f0000ff</color><width>4</width></LineStyle>");
-        printWriter.println("<IconStyle>");
-        printWriter.println("<scale>1.3</scale>");
-        printWriter.println("<Icon />");
-        printWriter.println("</IconStyle>");
-        printWriter.println("</Style>");
+        exportWriter.writeLine("<Style id=\"" + TRACK_STYLE + "\">");
+        exportWriter.writeLine("<LineStyle><color>7f0000ff</color><width>4</width></LineStyle>");
+        exportWriter.writeLine("<IconStyle>");
+        exportWriter.writeLine("<scale>1.3</scale>");
+        exportWriter.writeLine("<Icon />");
+        exportWriter.writeLine("</IconStyle>");
+        exportWriter.writeLine("</Style>");
     }
 
     /**
      * Writes a placemarker style.
      */
     private void writePlacemarkerStyle() {
-        printWriter.println("<Style id=\"" + KMLTrackExporter.MARKER_STYLE + "\"><IconStyle>");
-        printWriter.println("<Icon />");
-        printWriter.println("</IconStyle></Style>");
+        exportWriter.writeLine("<Style id=\"" + KMLTrackExporter.MARKER_STYLE + "\"><IconStyle>");
+        exportWriter.writeLine("<Icon />");
+        exportWriter.writeLine("</IconStyle></Style>");
     }
 
     /**
@@ -540,8 +565,35 @@ public class KMLTrackExporter implements TrackExporter {
      * @param extendedDataType the extended data display name
      */
     private void writeSimpleArrayStyle(String name, String extendedDataType) {
-        printWriter.println("<SimpleArrayField name=\"" + name + "\" type=\"float\">");
-        printWriter.println("<displayName>" + StringUtils.formatCData(extendedDataType) + "</displayName>");
-        printWriter.println("</SimpleArrayField>");
+        exportWriter.writeLine("<SimpleArrayField name=\"" + name + "\" type=\"float\">");
+        exportWriter.writeLine("<displayName>" + StringUtils.formatCData(extendedDataType) + "</displayName>");
+        exportWriter.writeLine("</SimpleArrayField>");
+    }
+
+    /**
+     * Values of one SimpleArrayData; missing values are stored as {@link #MISSING}.
+     */
+    private static class SensorDataArray {
+
+        static final float MISSING = Float.NaN;
+
+        private final String name;
+        private final SpillingIntArray values;
+        private boolean hasValues = false;
+
+        SensorDataArray(String name, File directory) {
+            this.name = name;
+            this.values = new SpillingIntArray(directory);
+        }
+
+        void add(float value) throws IOException {
+            hasValues |= !Float.isNaN(value);
+            values.add(Float.floatToRawIntBits(value));
+        }
+
+        void clear() throws IOException {
+            hasValues = false;
+            values.clear();
+        }
     }
 }
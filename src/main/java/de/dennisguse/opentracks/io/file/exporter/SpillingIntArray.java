@@ -0,0 +1,114 @@
+package de.dennisguse.opentracks.io.file.exporter;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.function.IntConsumer;
+
+/**
+ * Append-only array of ints that keeps at most memoryCapacity values in memory; older values are spilled to a temporary file.
+ * So, memory usage does not depend on the number of values.
+ * <p>
+ * Floats can be stored via {@link Float#floatToRawIntBits(float)}.
+ * Not thread-safe.
+ */
+class SpillingIntArray implements Closeable {
+
+    private static final String TAG = SpillingIntArray.class.getSimpleName();
+
+    static final int DEFAULT_MEMORY_CAPACITY = 4096;
+
+    private final File directory;
+    private final int[] memory;
+    private int memorySize = 0;
+
+    private File spillFile;
+    private DataOutputStream spillOutputStream;
+    private int spilledSize = 0;
+
+    /**
+     * @param directory for the temporary file (e.g., {@link android.content.Context#getCacheDir()}).
+     */
+    SpillingIntArray(@NonNull File directory) {
+        this(directory, DEFAULT_MEMORY_CAPACITY);
+    }
+
+    SpillingIntArray(@NonNull File directory, int memoryCapacity) {
+        this.directory = directory;
+        this.memory = new int[memoryCapacity];
+    }
+
+    void add(int value) throws IOException {
+        if (memorySize == memory.length) {
+            spill();
+        }
+        memory[memorySize++] = value;
+    }
+
+    int size() {
+        return spilledSize + memorySize;
+    }
+
+    /**
+     * Passes all values in insertion order to the consumer.
+     */
+    void forEach(@NonNull IntConsumer consumer) throws IOException {
+        if (spilledSize > 0) {
+            spillOutputStream.flush();
+            try (DataInputStream inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(spillFile)))) {
+                for (int i = 0; i < spilledSize; i++) {
+                    consumer.accept(inputStream.readInt());
+                }
+            }
+        }
+        for (int i = 0; i < memorySize; i++) {
+            consumer.accept(memory[i]);
+        }
+    }
+
+    /**
+     * Removes all values and deletes the temporary file (if any).
+     */
+    void clear() throws IOException {
+        memorySize = 0;
+        spilledSize = 0;
+
+        if (spillOutputStream != null) {
+            spillOutputStream.close();
+            spillOutputStream = null;
+        }
+        if (spillFile != null) {
+            if (!spillFile.delete()) {
+                Log.w(TAG, "Could not delete " + spillFile);
+            }
+            spillFile = null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        clear();
+    }
+
+    private void spill() throws IOException {
+        if (spillFile == null) {
+            spillFile = File.createTempFile(TAG, null, directory);
+            spillOutputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spillFile)));
+        }
+        for (int i = 0; i < memorySize; i++) {
+            spillOutputStream.writeInt(memory[i]);
+        }
+        spilledSize += memorySize;
+        memorySize = 0;
+    }
+}
@@ -24,10 +24,9 @@ import org.xml.sax.Attributes;
 import org.xml.sax.Locator;
 import org.xml.sax.helpers.DefaultHandler;
 
-import java.time.OffsetDateTime;
+import java.time.Instant;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 
@@ -38,7 +37,7 @@ import de.dennisguse.opentracks.data.models.Position;
 import de.dennisguse.opentracks.data.models.Speed;
 import de.dennisguse.opentracks.data.models.Track;
 import de.dennisguse.opentracks.data.models.TrackPoint;
-import de.dennisguse.opentracks.util.StringUtils;
+import de.dennisguse.opentracks.io.file.TimestampCodec;
 
 /**
  * Imports a GPX file.
@@ -90,36 +89,43 @@ public class GPXTrackImporter extends DefaultHandler implements XMLImporter.Trac
 
     private final Context context;
 
+    private final TimestampCodec timestampCodec = new TimestampCodec();
+    // Created once instead of per timestamp.
+    private final TextValue.CharParser<Instant> timestampParser = timestampCodec::parse;
+
     private ZoneOffset zoneOffset;
 
     // Belongs to the current track
     private final ArrayList<Marker> markers = new ArrayList<>();
 
     // The current element content
-    private String content = "";
+    private final TextValue content = new TextValue();
 
     private String name;
     private String description;
     private String activityType;
     private String activityTypeLocalized;
-    private String latitude;
-    private String longitude;
-    private String altitude;
-    private String time;
-    private String speed;
-    private String heartrate;
-    private String cadence;
-    private String power;
     private String markerType;
     private Uri photoUrl;
     private String uuid;
-    private String gain;
-    private String loss;
-    private String sensorDistance;
-    private String accuracyHorizontal;
-    private String accuracyVertical;
 
-    private final LinkedList<TrackPoint> currentSegment = new LinkedList<>();
+    // Belongs to the current TrackPoint or Marker; parsed when it ends.
+    private final TextValue latitude = new TextValue();
+    private final TextValue longitude = new TextValue();
+    private final TextValue altitude = new TextValue();
+    private final TextValue time = new TextValue();
+    private final TextValue speed = new TextValue();
+    private final TextValue heartrate = new TextValue();
+    private final TextValue cadence = new TextValue();
+    private final TextValue power = new TextValue();
+    private final TextValue gain = new TextValue();
+    private final TextValue loss = new TextValue();
+    private final TextValue sensorDistance = new TextValue();
+    private final TextValue accuracyHorizontal = new TextValue();
+    private final TextValue accuracyVertical = new TextValue();
+
+    // TrackPoints are passed to the TrackImporter immediately (i.e., streaming).
+    private int currentSegmentSize = 0;
 
     private final TrackImporter trackImporter;
 
@@ -153,7 +159,7 @@ public class GPXTrackImporter extends DefaultHandler implements XMLImporter.Trac
 
     @Override
     public void characters(char[] ch, int start, int length) {
-        content += new String(ch, start, length);
+        content.append(ch, start, length);
     }
 
     @Override
@@ -170,121 +176,65 @@ public class GPXTrackImporter extends DefaultHandler implements XMLImporter.Trac
                 zoneOffset = null;
             }
             case TAG_TRACK_SEGMENT -> onTrackSegmentEnd();
-            case TAG_TRACK_POINT -> currentSegment.add(createTrackPoint());
-            case TAG_NAME -> {
-                if (content != null) {
-                    name = content.trim();
-                }
-            }
-            case TAG_DESCRIPTION -> {
-                if (content != null) {
-                    description = content.trim();
-                }
-            }
+            case TAG_TRACK_POINT -> onTrackPointEnd();
+            case TAG_NAME -> name = content.toString();
+            case TAG_DESCRIPTION -> description = content.toString();
             case TAG_TYPE -> { //Track or Marker/WPT
-                if (content != null) {
-                    // In older  version this might be localized content.
-                    activityType = content.trim();
-                    markerType = content.trim();
-                }
-            }
-            case TAG_TYPE_LOCALIZED -> {
-                if (content != null) {
-                    activityTypeLocalized = content.trim();
-                }
-            }
-            case TAG_TIME -> {
-                if (content != null) {
-                    time = content.trim();
-                }
-            }
-            case TAG_ALTITUDE -> {
-                if (content != null) {
-                    altitude = content.trim();
-                }
-            }
-            case TAG_EXTENSION_SPEED, TAG_EXTENSION_SPEED_COMPAT -> {
-                if (content != null) {
-                    speed = content.trim();
-                }
-            }
-            case TAG_EXTENSION_HEARTRATE -> {
-                if (content != null) {
-                    heartrate = content.trim();
-                }
-            }
-            case TAG_EXTENSION_CADENCE -> {
-                if (content != null) {
-                    cadence = content.trim();
-                }
-            }
-            case TAG_EXTENSION_POWER -> {
-                if (content != null) {
-                    power = content.trim();
-                }
+                // In older  version this might be localized content.
+                activityType = content.toString();
+                markerType = activityType;
             }
+            case TAG_TYPE_LOCALIZED -> activityTypeLocalized = content.toString();
+            case TAG_TIME -> time.set(content);
+            case TAG_ALTITUDE -> altitude.set(content);
+            case TAG_EXTENSION_SPEED, TAG_EXTENSION_SPEED_COMPAT -> speed.set(content);
+            case TAG_EXTENSION_HEARTRATE -> heartrate.set(content);
+            case TAG_EXTENSION_CADENCE -> cadence.set(content);
+            case TAG_EXTENSION_POWER -> power.set(content);
             case TAG_ID -> {
-                if (content != null) {
-                    uuid = content.trim();
-                }
-            }
-            case TAG_EXTENSION_GAIN -> {
-                if (content != null) {
-                    gain = content.trim();
-                }
-            }
-            case TAG_EXTENSION_LOSS -> {
-                if (content != null) {
-                    loss = content.trim();
-                }
-            }
-            case TAG_EXTENSION_DISTANCE -> {
-                if (content != null) {
-                    sensorDistance = content.trim();
-                }
-            }
-            case TAG_EXTENSION_ACCURACY_HORIZONTAL -> {
-                if (content != null) {
-                    accuracyHorizontal = content.trim();
-                }
-            }
-            case TAG_EXTENSION_ACCURACY_VERTICAL -> {
-                if (content != null) {
-                    accuracyVertical = content.trim();
-                }
+                uuid = content.toString();
+                trackImporter.checkReimport(uuid);
             }
+            case TAG_EXTENSION_GAIN -> gain.set(content);
+            case TAG_EXTENSION_LOSS -> loss.set(content);
+            case TAG_EXTENSION_DISTANCE -> sensorDistance.set(content);
+            case TAG_EXTENSION_ACCURACY_HORIZONTAL -> accuracyHorizontal.set(content);
+            case TAG_EXTENSION_ACCURACY_VERTICAL -> accuracyVertical.set(content);
         }
 
-        content = "";
+        content.clear();
     }
 
-    private void onTrackSegmentEnd() {
-        if (currentSegment.isEmpty()) {
-            Log.w(TAG, "No TrackPoints in current segment.");
-            return;
+    private void onTrackPointEnd() {
+        TrackPoint trackPoint = createTrackPoint();
+        if (currentSegmentSize == 0) {
+            trackPoint.setType(TrackPoint.Type.SEGMENT_START_AUTOMATIC);
         }
+        currentSegmentSize++;
 
-        TrackPoint first = currentSegment.getFirst();
-        first.setType(TrackPoint.Type.SEGMENT_START_AUTOMATIC);
-
-        trackImporter.addTrackPoints(currentSegment);
-        currentSegment.clear();
+        trackImporter.addTrackPoint(trackPoint);
     }
 
+    private void onTrackSegmentEnd() {
+        if (currentSegmentSize == 0) {
+            Log.w(TAG, "No TrackPoints in current segment.");
+        }
+        currentSegmentSize = 0;
+    }
 
     private TrackPoint createTrackPoint() throws ParsingException {
-        OffsetDateTime parsedTime;
+        Instant parsedTime;
         try {
-            parsedTime = StringUtils.parseTime(time);
+            parsedTime = time.parse(timestampParser);
             if (zoneOffset == null) {
-                zoneOffset = parsedTime.getOffset();
+                zoneOffset = timestampCodec.getOffset();
             }
         } catch (Exception e) {
             throw new ParsingException(createErrorMessage(String.format(Locale.US, "Unable to parse time: %s", time)), e);
         }
 
-        if (latitude == null || longitude == null) {
-            return new TrackPoint(TrackPoint.Type.TRACKPOINT, parsedTime.toInstant());
+        if (!latitude.isPresent() || !longitude.isPresent()) {
+            return new TrackPoint(TrackPoint.Type.TRACKPOINT, parsedTime);
         }
 
         double latitudeParsed;
@@ -295,37 +245,37 @@ public class GPXTrackImporter extends DefaultHandler implements XMLImporter.Trac
         Speed speedParsed = null;
 
         try {
-            latitudeParsed = Double.parseDouble(latitude);
-            longitudeParsed = Double.parseDouble(longitude);
+            latitudeParsed = latitude.parseDouble();
+            longitudeParsed = longitude.parseDouble();
         } catch (NumberFormatException e) {
             throw new ParsingException(createErrorMessage(String.format(Locale.US, "Unable to parse latitude longitude: %s %s", latitude, longitude)), e);
         }
-        if (accuracyHorizontal != null) {
+        if (accuracyHorizontal.isPresent()) {
             try {
-                accuracyHorizontalParsed = Distance.of(accuracyHorizontal);
+                accuracyHorizontalParsed = Distance.of(accuracyHorizontal.parseFloat());
             } catch (NumberFormatException e) {
                 throw new ParsingException(createErrorMessage(String.format(Locale.US, "Unable to parse accuracy_horizontal: %s", sensorDistance)), e);
             }
         }
 
-        if (altitude != null) {
+        if (altitude.isPresent()) {
             try {
-                altitudeParsed = Altitude.WGS84.of(Double.parseDouble(altitude));
+                altitudeParsed = Altitude.WGS84.of(altitude.parseDouble());
             } catch (NumberFormatException e) {
                 throw new ParsingException(createErrorMessage(String.format(Locale.US, "Unable to parse altitude: %s", altitude)), e);
             }
         }
-        if (accuracyVertical != null) {
+        if (accuracyVertical.isPresent()) {
             try {
-                accuracyVerticalParsed = Distance.of(accuracyVertical);
+                accuracyVerticalParsed = Distance.of(accuracyVertical.parseFloat());
             } catch (NumberFormatException e) {
                 throw new ParsingException(createErrorMessage(String.format(Locale.US, "Unable to parse accuracy_vertical: %s", accuracyVertical)), e);
             }
         }
 
-        if (speed != null) {
+        if (speed.isPresent()) {
             try {
-                speedParsed = Speed.of(speed);
+                speedParsed = Speed.of(speed.parseFloat());
             } catch (NumberFormatException e) {
                 throw new ParsingException(createErrorMessage(String.format(Locale.US, "Unable to parse speed: %s", speed)), e);
             }
@@ -334,7 +284,7 @@ public class GPXTrackImporter extends DefaultHandler implements XMLImporter.Trac
         TrackPoint trackPoint = new TrackPoint(
                 TrackPoint.Type.TRACKPOINT,
                 new Position(
-                parsedTime.toInstant(),
+                parsedTime,
                 latitudeParsed,
                 longitudeParsed,
                 accuracyHorizontalParsed,
@@ -344,47 +294,47 @@ public class GPXTrackImporter extends DefaultHandler implements XMLImporter.Trac
                 speedParsed
         ));
 
-        if (heartrate != null) {
+        if (heartrate.isPresent()) {
             try {
-                trackPoint.setHeartRate(Float.parseFloat(heartrate));
+                trackPoint.setHeartRate(heartrate.parseFloat());
             } catch (NumberFormatException e) {
                 throw new ParsingException(createErrorMessage(String.format(Locale.US, "Unable to parse heart rate: %s", heartrate)), e);
             }
         }
 
-        if (cadence != null) {
+        if (cadence.isPresent()) {
             try {
-                trackPoint.setCadence(Float.parseFloat(cadence));
+                trackPoint.setCadence(cadence.parseFloat());
             } catch (Exception e) {
                 throw new ParsingException(createErrorMessage(String.format(Locale.US, "Unable to parse cadence: %s", cadence)), e);
             }
         }
 
-        if (power != null) {
+        if (power.isPresent()) {
             try {
-                trackPoint.setPower(Float.parseFloat(power));
+                trackPoint.setPower(power.parseFloat());
             } catch (NumberFormatException e) {
                 throw new ParsingException(createErrorMessage(String.format(Locale.US, "Unable to parse power: %s", power)), e);
             }
         }
 
-        if (gain != null) {
+        if (gain.isPresent()) {
             try {
-                trackPoint.setAltitudeGain(Float.parseFloat(gain));
+                trackPoint.setAltitudeGain(gain.parseFloat());
             } catch (NumberFormatException e) {
                 throw new ParsingException(createErrorMessage(String.format(Locale.US, "Unable to parse altitude gain: %s", gain)), e);
             }
         }
-        if (loss != null) {
+        if (loss.isPresent()) {
             try {
-                trackPoint.setAltitudeLoss(Float.parseFloat(loss));
+                trackPoint.setAltitudeLoss(loss.parseFloat());
             } catch (NumberFormatException e) {
                 throw new ParsingException(createErrorMessage(String.format(Locale.US, "Unable to parse altitude loss: %s", loss)), e);
             }
         }
-        if (sensorDistance != null) {
+        if (sensorDistance.isPresent()) {
             try {
-                trackPoint.setSensorDistance(Distance.of(sensorDistance));
+                trackPoint.setSensorDistance(Distance.of(sensorDistance.parseFloat()));
             } catch (NumberFormatException e) {
                 throw new ParsingException(createErrorMessage(String.format(Locale.US, "Unable to parse distance: %s", sensorDistance)), e);
             }
@@ -394,37 +344,37 @@ public class GPXTrackImporter extends DefaultHandler implements XMLImporter.Trac
     }
 
     private void onTrackPointStart(Attributes attributes) {
-        latitude = attributes.getValue(ATTRIBUTE_LAT);
-        longitude = attributes.getValue(ATTRIBUTE_LON);
-        altitude = null;
-        time = null;
-        speed = null;
-
-        gain = null;
-        loss = null;
-
-        sensorDistance = null;
-        accuracyHorizontal = null;
-        accuracyVertical = null;
-        power = null;
-        heartrate = null;
-        cadence = null;
+        latitude.set(attributes, ATTRIBUTE_LAT);
+        longitude.set(attributes, ATTRIBUTE_LON);
+        altitude.clear();
+        time.clear();
+        speed.clear();
+
+        gain.clear();
+        loss.clear();
+
+        sensorDistance.clear();
+        accuracyHorizontal.clear();
+        accuracyVertical.clear();
+        power.clear();
+        heartrate.clear();
+        cadence.clear();
     }
 
     private void onMarkerStart(Attributes attributes) {
         name = null;
         description = null;
         photoUrl = null;
-        latitude = attributes.getValue(ATTRIBUTE_LAT);
-        longitude = attributes.getValue(ATTRIBUTE_LON);
-        altitude = null;
-        time = null;
+        latitude.set(attributes, ATTRIBUTE_LAT);
+        longitude.set(attributes, ATTRIBUTE_LON);
+        altitude.clear();
+        time.clear();
         markerType = null;
     }
 
     private void onMarkerEnd() {
         // Markers must have a time, else cannot match to the track points
-        if (time == null) {
+        if (!time.isPresent()) {
             Log.w(TAG, "Marker without time; ignored.");
             return;
         }
@@ -0,0 +1,152 @@
+package de.dennisguse.opentracks.io.file.importer;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.documentfile.provider.DocumentFile;
+
+import java.io.IOException;
+import java.util.List;
+
+import de.dennisguse.opentracks.R;
+import de.dennisguse.opentracks.data.ContentProviderUtils;
+import de.dennisguse.opentracks.data.models.Distance;
+import de.dennisguse.opentracks.data.models.Track;
+import de.dennisguse.opentracks.io.file.ParallelTaskRunner;
+import de.dennisguse.opentracks.io.file.TrackFileFormat;
+import de.dennisguse.opentracks.util.FileUtils;
+
+/**
+ * Imports files in parallel via a {@link ParallelTaskRunner}; the number of parsers depends on the available cores.
+ * <p>
+ * Each file is parsed by one worker, while all database writes are executed by one {@link ImportWriter} thread.
+ * Re-imports are detected via the track's UUID while parsing (see {@link TrackImporter#checkReimport(String)}); so, files exported by OpenTracks are not parsed completely.
+ * <p>
+ * {@link #cancel()} and the metrics may be used from any thread.
+ */
+public class ImportEngine {
+
+    private static final String TAG = ImportEngine.class.getSimpleName();
+
+    public interface Listener {
+        /**
+         * Called from a worker thread.
+         */
+        void onImportSuccess(@NonNull DocumentFile file, @NonNull List<Track.Id> trackIds);
+
+        /**
+         * Called from a worker thread.
+         */
+        void onImportAlreadyExists(@NonNull DocumentFile file, String message);
+
+        /**
+         * Called from a worker thread.
+         */
+        void onImportError(@NonNull DocumentFile file, String errorMessage);
+    }
+
+    private final Context context;
+    private final ContentProviderUtils contentProviderUtils;
+    private final Distance maxRecordingDistance;
+    private final boolean preventReimport;
+    private final ParallelTaskRunner<Uri> taskRunner;
+
+    public ImportEngine(@NonNull Context context, Distance maxRecordingDistance, boolean preventReimport) {
+        this(context, maxRecordingDistance, preventReimport, ParallelTaskRunner.getDefaultParallelism());
+    }
+
+    public ImportEngine(@NonNull Context context, Distance maxRecordingDistance, boolean preventReimport, int parallelism) {
+        this.context = context;
+        this.contentProviderUtils = new ContentProviderUtils(context);
+        this.maxRecordingDistance = maxRecordingDistance;
+        this.preventReimport = preventReimport;
+        this.taskRunner = new ParallelTaskRunner<>(TAG, parallelism);
+    }
+
+    /**
+     * Imports all files and blocks until they are done or {@link #cancel()} was called.
+     */
+    public void run(@NonNull List<Uri> uris, @NonNull Listener listener) throws InterruptedException {
+        if (uris.isEmpty()) {
+            return;
+        }
+
+        long startNanos = System.nanoTime();
+        try (ImportWriter importWriter = ImportWriter.start(contentProviderUtils)) {
+            // Returns after all workers terminated; so, the sessions of interrupted workers are rolled back before the writer is closed.
+            taskRunner.run(uris, uri -> importFile(importWriter, DocumentFile.fromSingleUri(context, uri), listener));
+        } finally {
+            Log.i(TAG, "Imported " + getDoneCount() + "/" + getTotalCount() + " in " + (System.nanoTime() - startNanos) / 1_000_000 + "ms; parallelism " + taskRunner.getParallelism());
+        }
+    }
+
+    /**
+     * Interrupts running imports (rolled back and reported as errors) and skips pending ones (not reported).
+     */
+    public void cancel() {
+        taskRunner.cancel();
+    }
+
+    public boolean isCancelled() {
+        return taskRunner.isCancelled();
+    }
+
+    public int getTotalCount() {
+        return taskRunner.getTotalCount();
+    }
+
+    /**
+     * @return number of finished imports (successful or not).
+     */
+    public int getDoneCount() {
+        return taskRunner.getDoneCount();
+    }
+
+    private void importFile(ImportWriter importWriter, DocumentFile file, Listener listener) {
+        TrackImporter trackImporter = new TrackImporter(context, contentProviderUtils, importWriter, maxRecordingDistance, preventReimport);
+        try {
+            List<Track.Id> trackIds = importFile(trackImporter, file);
+            if (trackIds == null) {
+                listener.onImportError(file, context.getString(R.string.import_unsupported_format));
+            } else if (!trackIds.isEmpty()) {
+                listener.onImportSuccess(file, trackIds);
+            } else {
+                listener.onImportError(file, context.getString(R.string.import_unable_to_import_file, file.getName()));
+            }
+        } catch (IOException e) {
+            Log.d(TAG, "Unable to import file", e);
+            listener.onImportError(file, context.getString(R.string.import_unable_to_import_file, e.getMessage()));
+        } catch (ImportParserException e) {
+            Log.d(TAG, "Parser error: " + e.getMessage(), e);
+            listener.onImportError(file, context.getString(R.string.import_parser_error, e.getMessage()));
+        } catch (ImportAlreadyExistsException e) {
+            Log.d(TAG, "Track already exists: " + e.getMessage(), e);
+            listener.onImportAlreadyExists(file, e.getMessage());
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Unable to import file", e);
+            listener.onImportError(file, context.getString(R.string.import_unable_to_import_file, e.getMessage()));
+        } finally {
+            // If the parser did not finish or clean up (e.g., not reached).
+            trackImporter.abortImport();
+        }
+    }
+
+    /**
+     * @return null if the file format is not supported.
+     */
+    private List<Track.Id> importFile(@NonNull TrackImporter trackImporter, @NonNull DocumentFile file) throws IOException {
+        String fileExtension = FileUtils.getExtension(file);
+        if (TrackFileFormat.GPX.getExtension().equals(fileExtension)) {
+            return new XMLImporter(new GPXTrackImporter(context, trackImporter)).importFile(context, file.getUri());
+        } else if (TrackFileFormat.KML_WITH_TRACKDETAIL_AND_SENSORDATA.getExtension().equals(fileExtension)) {
+            return new XMLImporter(new KMLTrackImporter(context, trackImporter)).importFile(context, file.getUri());
+        } else if (TrackFileFormat.KMZ_WITH_TRACKDETAIL_AND_SENSORDATA_AND_PICTURES.getExtension().equals(fileExtension)) {
+            return new KMZTrackImporter(context, trackImporter).importFile(file.getUri());
+        }
+
+        Log.d(TAG, "Unsupported file format.");
+        return null;
+    }
+}
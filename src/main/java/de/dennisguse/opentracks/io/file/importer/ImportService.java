@@ -12,16 +12,15 @@ import androidx.annotation.NonNull;
 import androidx.core.app.JobIntentService;
 import androidx.documentfile.provider.DocumentFile;
 
-import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import de.dennisguse.opentracks.R;
-import de.dennisguse.opentracks.data.ContentProviderUtils;
+import de.dennisguse.opentracks.data.AltitudeMslMigration;
 import de.dennisguse.opentracks.data.models.Distance;
 import de.dennisguse.opentracks.data.models.Track;
-import de.dennisguse.opentracks.io.file.TrackFileFormat;
 import de.dennisguse.opentracks.settings.PreferencesUtils;
-import de.dennisguse.opentracks.util.FileUtils;
 
 public class ImportService extends JobIntentService {
 
@@ -29,65 +28,99 @@ public class ImportService extends JobIntentService {
 
     private static final int JOB_ID = 2;
 
+    /**
+     * Limits the size of an Intent (the transaction limit of Binder is shared by all transactions of the process).
+     */
+    private static final int MAX_URIS_PER_WORK = 100;
+
     private static final String EXTRA_RECEIVER = "extra_receiver";
-    private static final String EXTRA_URI = "extra_uri";
+    private static final String EXTRA_URIS = "extra_uris";
+    private static final String EXTRA_GENERATION = "extra_generation";
 
-    private ResultReceiver resultReceiver;
+    // Work enqueued before the last cancel() is skipped.
+    private static final AtomicInteger generation = new AtomicInteger();
+    private static volatile ImportEngine runningImportEngine;
 
     public static void enqueue(Context context, ImportServiceResultReceiver receiver, Uri uri) {
-        Intent intent = new Intent(context, JobService.class);
-        intent.putExtra(EXTRA_RECEIVER, receiver);
-        intent.putExtra(EXTRA_URI, uri);
-        enqueueWork(context, ImportService.class, JOB_ID, intent);
+        enqueue(context, receiver, List.of(uri));
+    }
+
+    /**
+     * The files are imported in parallel; the receiver gets one result per file.
+     * Enqueued as work of at most {@link #MAX_URIS_PER_WORK} files each (processed one after another).
+     */
+    public static void enqueue(Context context, ImportServiceResultReceiver receiver, List<Uri> uris) {
+        int currentGeneration = generation.get();
+        for (int from = 0; from < uris.size(); from += MAX_URIS_PER_WORK) {
+            List<Uri> batch = uris.subList(from, Math.min(from + MAX_URIS_PER_WORK, uris.size()));
+
+            Intent intent = new Intent(context, JobService.class);
+            intent.putExtra(EXTRA_RECEIVER, receiver);
+            intent.putParcelableArrayListExtra(EXTRA_URIS, new ArrayList<>(batch));
+            intent.putExtra(EXTRA_GENERATION, currentGeneration);
+            enqueueWork(context, ImportService.class, JOB_ID, intent);
+        }
+    }
+
+    /**
+     * Cancels the running import and all enqueued work (see {@link ImportEngine#cancel()}).
+     */
+    public static void cancel() {
+        generation.incrementAndGet();
+        ImportEngine importEngine = runningImportEngine;
+        if (importEngine != null) {
+            importEngine.cancel();
+        }
     }
 
     @Override
     protected void onHandleWork(@NonNull Intent intent) {
-        resultReceiver = intent.getParcelableExtra(EXTRA_RECEIVER);
-        Uri uri = intent.getParcelableExtra(EXTRA_URI);
-        importFile(DocumentFile.fromSingleUri(this, uri));
-    }
+        ResultReceiver resultReceiver = intent.getParcelableExtra(EXTRA_RECEIVER);
+        List<Uri> uris = intent.getParcelableArrayListExtra(EXTRA_URIS);
+        int intentGeneration = intent.getIntExtra(EXTRA_GENERATION, 0);
 
-    private void importFile(DocumentFile file) {
-        ArrayList<Track.Id> trackIds = new ArrayList<>();
+        if (intentGeneration != generation.get()) {
+            Log.i(TAG, "Import was cancelled; skipping " + uris.size() + " files.");
+            return;
+        }
 
-        String fileExtension = FileUtils.getExtension(file);
+        Distance maxRecordingDistance = PreferencesUtils.getMaxRecordingDistance();
+        boolean preventReimport = PreferencesUtils.getPreventReimportTracks();
+
+        ImportEngine importEngine = new ImportEngine(this, maxRecordingDistance, preventReimport);
+        runningImportEngine = importEngine;
+        if (intentGeneration != generation.get()) {
+            // cancel() was called concurrently.
+            importEngine.cancel();
+        }
         try {
-            Distance maxRecordingDistance = PreferencesUtils.getMaxRecordingDistance();
-            boolean preventReimport = PreferencesUtils.getPreventReimportTracks();
-
-            TrackImporter trackImporter = new TrackImporter(this, new ContentProviderUtils(this), maxRecordingDistance, preventReimport);
-
-            if (TrackFileFormat.GPX.getExtension().equals(fileExtension)) {
-                trackIds.addAll(new XMLImporter(new GPXTrackImporter(this, trackImporter)).importFile(this, file.getUri()));
-            } else if (TrackFileFormat.KML_WITH_TRACKDETAIL_AND_SENSORDATA.getExtension().equals(fileExtension)) {
-                trackIds.addAll(new XMLImporter(new KMLTrackImporter(this, trackImporter)).importFile(this, file.getUri()));
-            } else if (TrackFileFormat.KMZ_WITH_TRACKDETAIL_AND_SENSORDATA_AND_PICTURES.getExtension().equals(fileExtension)) {
-                trackIds.addAll(new KMZTrackImporter(this, trackImporter).importFile(file.getUri()));
-            } else {
-                Log.d(TAG, "Unsupported file format.");
-                sendResult(ImportServiceResultReceiver.RESULT_CODE_ERROR, null, file, getString(R.string.import_unsupported_format));
-                return;
-            }
-
-            if (!trackIds.isEmpty()) {
-                sendResult(ImportServiceResultReceiver.RESULT_CODE_IMPORTED, trackIds, file, getString(R.string.import_file_imported, file.getName()));
-            } else {
-                sendResult(ImportServiceResultReceiver.RESULT_CODE_ERROR, trackIds, file, getString(R.string.import_unable_to_import_file, file.getName()));
-            }
-        } catch (IOException e) {
-            Log.d(TAG, "Unable to import file", e);
-            sendResult(ImportServiceResultReceiver.RESULT_CODE_ERROR, null, file, getString(R.string.import_unable_to_import_file, e.getMessage()));
-        } catch (ImportParserException e) {
-            Log.d(TAG, "Parser error: " + e.getMessage(), e);
-            sendResult(ImportServiceResultReceiver.RESULT_CODE_ERROR, null, file, getString(R.string.import_parser_error, e.getMessage()));
-        } catch (ImportAlreadyExistsException e) {
-            Log.d(TAG, "Track already exists: " + e.getMessage(), e);
-            sendResult(ImportServiceResultReceiver.RESULT_CODE_ALREADY_EXISTS, null, file, e.getMessage());
+            importEngine.run(uris, new ImportEngine.Listener() {
+                @Override
+                public void onImportSuccess(@NonNull DocumentFile file, @NonNull List<Track.Id> trackIds) {
+                    sendResult(resultReceiver, ImportServiceResultReceiver.RESULT_CODE_IMPORTED, new ArrayList<>(trackIds), file, getString(R.string.import_file_imported, file.getName()));
+                }
+
+                @Override
+                public void onImportAlreadyExists(@NonNull DocumentFile file, String message) {
+                    sendResult(resultReceiver, ImportServiceResultReceiver.RESULT_CODE_ALREADY_EXISTS, null, file, message);
+                }
+
+                @Override
+                public void onImportError(@NonNull DocumentFile file, String errorMessage) {
+                    sendResult(resultReceiver, ImportServiceResultReceiver.RESULT_CODE_ERROR, null, file, errorMessage);
+                }
+            });
+        } catch (InterruptedException e) {
+            Log.w(TAG, "Interrupted while importing", e);
+            importEngine.cancel();
+        } finally {
+            runningImportEngine = null;
+            // Imported TrackPoints are stored without altitude_msl.
+            AltitudeMslMigration.start(this);
         }
     }
 
-    private void sendResult(int resultCode, ArrayList<Track.Id> trackId, DocumentFile file, String message) {
+    private static void sendResult(ResultReceiver resultReceiver, int resultCode, ArrayList<Track.Id> trackId, DocumentFile file, String message) {
         Bundle bundle = new Bundle();
         bundle.putParcelableArrayList(ImportServiceResultReceiver.RESULT_EXTRA_LIST_TRACK_ID, trackId);
         bundle.putString(ImportServiceResultReceiver.RESULT_EXTRA_FILENAME, file.getName());
@@ -25,8 +25,6 @@ public class ImportViewModel extends AndroidViewModel implements ImportServiceRe
     private MutableLiveData<Summary> importData;
     private final ImportServiceResultReceiver resultReceiver;
     private final Summary summary;
-    private boolean cancel = false;
-    private final List<DocumentFile> filesToImport = new ArrayList<>();
 
     public ImportViewModel(@NonNull Application application) {
         super(application);
@@ -43,7 +41,7 @@ public class ImportViewModel extends AndroidViewModel implements ImportServiceRe
     }
 
     void cancel() {
-        cancel = true;
+        ImportService.cancel();
     }
 
     private void loadData(List<DocumentFile> documentFiles) {
@@ -55,16 +53,10 @@ public class ImportViewModel extends AndroidViewModel implements ImportServiceRe
         nestedFileList.forEach(fileList::addAll);
 
         summary.totalCount = fileList.size();
-        filesToImport.addAll(fileList);
-        importNextFile();
-    }
-
-    private void importNextFile() {
-        if (cancel || filesToImport.isEmpty()) {
-            return;
+        if (!fileList.isEmpty()) {
+            // All files at once: ImportService enqueues them in batches and parses each batch in parallel.
+            ImportService.enqueue(getApplication(), resultReceiver, fileList.stream().map(DocumentFile::getUri).collect(Collectors.toList()));
         }
-        ImportService.enqueue(getApplication(), resultReceiver, filesToImport.get(0).getUri());
-        filesToImport.remove(0);
     }
 
     @Override
@@ -92,7 +84,6 @@ public class ImportViewModel extends AndroidViewModel implements ImportServiceRe
         }
 
         importData.postValue(summary);
-        importNextFile();
     }
 
     static class Summary {
@@ -0,0 +1,265 @@
+package de.dennisguse.opentracks.io.file.importer;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+import de.dennisguse.opentracks.data.ContentProviderUtils;
+
+/**
+ * Executes the database writes of {@link TrackImporter}s.
+ * <p>
+ * Each {@link TrackImporter} (i.e., one file) writes via one {@link Session}.
+ * Every task is a short write of its own (e.g., one chunk of TrackPoints); so, the database is not locked while a file is parsed.
+ * <p>
+ * {@link #sameThread(ContentProviderUtils)}: the writes are executed by the calling thread.
+ * {@link #start(ContentProviderUtils)}: the writes of all sessions are executed by one writer thread, so files can be parsed concurrently without competing for the database.
+ * The tasks of all sessions are executed in the order they were written; so, a slow parser does not delay the other sessions.
+ * Each session has at most {@link #MAX_PENDING_TASKS} tasks pending; then, its parser waits.
+ * So, heap usage is bounded by the number of concurrently parsed files.
+ */
+class ImportWriter implements AutoCloseable {
+
+    private static final String TAG = ImportWriter.class.getSimpleName();
+
+    @VisibleForTesting
+    static final int MAX_PENDING_TASKS = 4;
+
+    interface Task {
+        /**
+         * Called from the writer thread.
+         */
+        void run();
+    }
+
+    interface Session {
+        /**
+         * Executes the task now or later (in order).
+         *
+         * @throws RuntimeException the failure of a previous task of this session.
+         */
+        void write(@NonNull Task task);
+
+        /**
+         * Waits until all tasks were executed.
+         *
+         * @throws RuntimeException the failure of a task; the following tasks were not executed.
+         */
+        void commit();
+
+        /**
+         * Discards the tasks that were not yet executed and waits until the running one finished.
+         * The data written so far has to be deleted by the caller.
+         */
+        void rollback();
+    }
+
+    private final ContentProviderUtils contentProviderUtils;
+
+    // Only for the writer thread.
+    private final Thread thread;
+    private final BlockingQueue<Runnable> tasks = new LinkedBlockingQueue<>();
+    private final Runnable stop = () -> {
+    };
+    private final Set<UUID> knownUuids;
+
+    private ImportWriter(@NonNull ContentProviderUtils contentProviderUtils, boolean startThread) {
+        this.contentProviderUtils = contentProviderUtils;
+        if (startThread) {
+            knownUuids = ConcurrentHashMap.newKeySet();
+            knownUuids.addAll(contentProviderUtils.getTrackUuids());
+            thread = new Thread(this::run, TAG);
+            thread.start();
+        } else {
+            knownUuids = null;
+            thread = null;
+        }
+    }
+
+    static ImportWriter sameThread(@NonNull ContentProviderUtils contentProviderUtils) {
+        return new ImportWriter(contentProviderUtils, false);
+    }
+
+    /**
+     * Starts the writer thread; must be closed.
+     */
+    static ImportWriter start(@NonNull ContentProviderUtils contentProviderUtils) {
+        return new ImportWriter(contentProviderUtils, true);
+    }
+
+    Session openSession() {
+        if (thread == null) {
+            return new SameThreadSession();
+        }
+
+        return new QueuedSession();
+    }
+
+    /**
+     * Cheap check (i.e., before parsing a whole file); the session has to check again in its transaction.
+     * For the writer thread, the UUIDs are loaded once and updated via {@link #addKnownUuid(UUID)}.
+     */
+    boolean isKnownUuid(@NonNull UUID uuid) {
+        if (knownUuids == null) {
+            return contentProviderUtils.getTrack(uuid) != null;
+        }
+        return knownUuids.contains(uuid);
+    }
+
+    /**
+     * Registers the UUID of a committed track.
+     */
+    void addKnownUuid(@NonNull UUID uuid) {
+        if (knownUuids != null) {
+            knownUuids.add(uuid);
+        }
+    }
+
+    /**
+     * Waits until all written tasks were executed and stops the writer thread.
+     * Sessions have to be committed or rolled back before.
+     */
+    @Override
+    public void close() {
+        if (thread == null) {
+            return;
+        }
+
+        tasks.add(stop);
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        try {
+            Runnable task;
+            while ((task = tasks.take()) != stop) {
+                task.run();
+            }
+        } catch (InterruptedException e) {
+            Log.e(TAG, "Writer thread was interrupted; pending tasks are not written.", e);
+        }
+    }
+
+    private static class SameThreadSession implements Session {
+
+        @Override
+        public void write(@NonNull Task task) {
+            task.run();
+        }
+
+        @Override
+        public void commit() {
+        }
+
+        @Override
+        public void rollback() {
+        }
+    }
+
+    private class QueuedSession implements Session {
+
+        private final Semaphore pendingTasks = new Semaphore(MAX_PENDING_TASKS);
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        private volatile RuntimeException failure;
+        private volatile boolean rolledBack = false;
+
+        // Only for the thread using this session.
+        private boolean ended = false;
+
+        @Override
+        public void write(@NonNull Task task) {
+            throwIfFailed();
+            if (Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("Import was cancelled.");
+            }
+            try {
+                pendingTasks.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Import was cancelled.");
+            }
+            tasks.add(() -> execute(task));
+        }
+
+        @Override
+        public void commit() {
+            end();
+            throwIfFailed();
+        }
+
+        @Override
+        public void rollback() {
+            rolledBack = true;
+            end();
+        }
+
+        /**
+         * All previously written tasks are executed before the writer thread reaches the end marker.
+         */
+        private void end() {
+            if (!ended) {
+                ended = true;
+                tasks.add(done::countDown);
+            }
+            awaitUninterruptibly();
+        }
+
+        /**
+         * Called from the writer thread.
+         */
+        private void execute(Task task) {
+            try {
+                if (failure == null && !rolledBack) {
+                    task.run();
+                }
+            } catch (RuntimeException e) {
+                failure = e;
+            } finally {
+                pendingTasks.release();
+            }
+        }
+
+        private void throwIfFailed() {
+            RuntimeException failure = this.failure;
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+        private void awaitUninterruptibly() {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    done.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -27,7 +27,6 @@ import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
 
 import java.time.Instant;
-import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.List;
@@ -39,8 +38,8 @@ import de.dennisguse.opentracks.data.models.Position;
 import de.dennisguse.opentracks.data.models.Speed;
 import de.dennisguse.opentracks.data.models.Track;
 import de.dennisguse.opentracks.data.models.TrackPoint;
+import de.dennisguse.opentracks.io.file.TimestampCodec;
 import de.dennisguse.opentracks.io.file.exporter.KMLTrackExporter;
-import de.dennisguse.opentracks.util.StringUtils;
 
 /**
  * Imports a KML file; preferred version: KML2.3, but also supports KML2.2.
@@ -91,6 +90,10 @@ public class KMLTrackImporter extends DefaultHandler implements XMLImporter.Trac
 
     private final Context context;
 
+    private final TimestampCodec timestampCodec = new TimestampCodec();
+    // Created once instead of per timestamp.
+    private final TextValue.CharParser<Instant> timestampParser = timestampCodec::parse;
+
     // Belongs to the current track
     private ZoneOffset zoneOffset;
 
@@ -113,15 +116,15 @@ public class KMLTrackImporter extends DefaultHandler implements XMLImporter.Trac
     private final ArrayList<Marker> markers = new ArrayList<>();
 
     // The current element content
-    private String content = "";
+    private final TextValue content = new TextValue();
 
     private String name;
     private String description;
     private String activityType;
     private String activityTypeLocalized;
-    private String latitude;
-    private String longitude;
-    private String altitude;
+    private final TextValue latitude = new TextValue();
+    private final TextValue longitude = new TextValue();
+    private final TextValue altitude = new TextValue();
     private String markerType;
     private Uri photoUrl;
     private String uuid;
@@ -158,7 +161,7 @@ public class KMLTrackImporter extends DefaultHandler implements XMLImporter.Trac
 
     @Override
     public void characters(char[] ch, int start, int length) {
-        content += new String(ch, start, length);
+        content.append(ch, start, length);
     }
 
     @Override
@@ -177,61 +180,34 @@ public class KMLTrackImporter extends DefaultHandler implements XMLImporter.Trac
             case TAG_COORD, TAG_KML22_COORD -> onCoordEnded();
             case TAG_VALUE, TAG_KML22_VALUE -> {
                 switch (dataType) {
-                    case KMLTrackExporter.EXTENDED_DATA_ACTIVITY_TYPE -> {
-                        if (content != null) {
-                            activityType = content.trim();
-                        }
-                    }
-                    case KMLTrackExporter.EXTENDED_DATA_TYPE_LOCALIZED -> {
-                        if (content != null) {
-                            activityTypeLocalized = content.trim();
-                        }
-                    }
+                    case KMLTrackExporter.EXTENDED_DATA_ACTIVITY_TYPE -> activityType = content.toString();
+                    case KMLTrackExporter.EXTENDED_DATA_TYPE_LOCALIZED -> activityTypeLocalized = content.toString();
                     default -> onExtendedDataValueEnd();
                 }
             }
-            case TAG_NAME -> {
-                if (content != null) {
-                    name = content.trim();
-                }
-            }
+            case TAG_NAME -> name = content.toString();
             case TAG_UUID -> {
-                if (content != null) {
-                    uuid = content.trim();
-                }
-            }
-            case TAG_DESCRIPTION -> {
-                if (content != null) {
-                    description = content.trim();
-                }
+                uuid = content.toString();
+                trackImporter.checkReimport(uuid);
             }
+            case TAG_DESCRIPTION -> description = content.toString();
             case TAG_WHEN -> {
-                if (content != null) {
-                    try {
-                        OffsetDateTime time = StringUtils.parseTime(content.trim());
-                        if (zoneOffset == null) {
-                            zoneOffset = time.getOffset();
-                        }
-                        whenList.add(time.toInstant());
-                    } catch (Exception e) {
-                        throw new ParsingException(createErrorMessage(String.format(Locale.US, "Unable to parse time: %s", content.trim())), e);
+                try {
+                    Instant time = content.parse(timestampParser);
+                    if (zoneOffset == null) {
+                        zoneOffset = timestampCodec.getOffset();
                     }
+                    whenList.add(time);
+                } catch (Exception e) {
+                    throw new ParsingException(createErrorMessage(String.format(Locale.US, "Unable to parse time: %s", content)), e);
                 }
             }
-            case TAG_STYLE_URL -> {
-                if (content != null) {
-                    markerType = content.trim();
-                }
-            }
-            case TAG_HREF -> {
-                if (content != null) {
-                    photoUrl = Uri.parse(content.trim());
-                }
-            }
+            case TAG_STYLE_URL -> markerType = content.toString();
+            case TAG_HREF -> photoUrl = Uri.parse(content.toString());
         }
 
         // Reset element content
-        content = "";
+        content.clear();
     }
 
     private void onMarkerStart() {
@@ -240,9 +216,9 @@ public class KMLTrackImporter extends DefaultHandler implements XMLImporter.Trac
         description = null;
         activityTypeLocalized = null;
         photoUrl = null;
-        latitude = null;
-        longitude = null;
-        altitude = null;
+        latitude.clear();
+        longitude.clear();
+        altitude.clear();
         markerType = null;
     }
 
@@ -278,15 +254,7 @@ public class KMLTrackImporter extends DefaultHandler implements XMLImporter.Trac
     }
 
     private void onMarkerLocationEnd() {
-        if (content != null) {
-            String[] parts = content.trim().split(",");
-            if (parts.length != 2 && parts.length != 3) {
-                return;
-            }
-            longitude = parts[0];
-            latitude = parts[1];
-            altitude = parts.length == 3 ? parts[2] : null;
-        }
+        content.split(',', longitude, latitude, altitude);
     }
 
     private void onTrackSegmentStart() {
@@ -375,33 +343,28 @@ public class KMLTrackImporter extends DefaultHandler implements XMLImporter.Trac
     }
 
     private void onCoordEnded() {
-        String[] parts = content.trim().split(" ");
-        if (parts.length == 2 || parts.length == 3) {
-            longitude = parts[0];
-            latitude = parts[1];
-            altitude = parts.length == 3 ? parts[2] : null;
-        }
+        content.split(' ', longitude, latitude, altitude);
 
         positionList.add(createPosition(latitude, longitude, altitude));
 
-        longitude = null;
-        latitude = null;
-        altitude = null;
+        longitude.clear();
+        latitude.clear();
+        altitude.clear();
     }
 
-    private Position createPosition(String latitude, String longitude, String altitude) {
-        if (longitude != null && latitude != null) {
+    private Position createPosition(TextValue latitude, TextValue longitude, TextValue altitude) {
+        if (longitude.isPresent() && latitude.isPresent()) {
             Location location = new Location("import");
             try {
-                location.setLatitude(Double.parseDouble(latitude));
-                location.setLongitude(Double.parseDouble(longitude));
+                location.setLatitude(latitude.parseDouble());
+                location.setLongitude(longitude.parseDouble());
             } catch (NumberFormatException e) {
                 throw new ParsingException(createErrorMessage(String.format(Locale.US, "Unable to parse latitude longitude: %s %s", latitude, longitude)), e);
             }
 
-            if (altitude != null) {
+            if (altitude.isPresent()) {
                 try {
-                    location.setAltitude(Double.parseDouble(altitude));
+                    location.setAltitude(altitude.parseDouble());
                 } catch (NumberFormatException e) {
                     throw new ParsingException(createErrorMessage(String.format(Locale.US, "Unable to parse altitude: %s", altitude)), e);
                 }
@@ -414,18 +377,15 @@ public class KMLTrackImporter extends DefaultHandler implements XMLImporter.Trac
 
     private void onExtendedDataValueEnd() throws SAXException {
         if (dataType.equals(KMLTrackExporter.EXTENDED_DATA_TYPE_TRACKPOINT)) {
-            trackpointTypeList.add(content != null ? content.trim() : null);
+            trackpointTypeList.add(content.toString());
             return;
         }
         Float value = null;
-        if (content != null) {
-            content = content.trim();
-            if (!content.isEmpty()) {
-                try {
-                    value = Float.parseFloat(content);
-                } catch (NumberFormatException e) {
-                    throw new SAXException(createErrorMessage("Unable to parse value:" + content), e);
-                }
+        if (!content.isEmpty()) {
+            try {
+                value = content.parseFloat();
+            } catch (NumberFormatException e) {
+                throw new SAXException(createErrorMessage("Unable to parse value:" + content), e);
             }
         }
         switch (dataType) {
@@ -19,18 +19,33 @@ package de.dennisguse.opentracks.io.file.importer;
 import android.content.Context;
 import android.net.Uri;
 import android.os.Build;
+import android.os.ParcelFileDescriptor;
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.OsConstants;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
 import de.dennisguse.opentracks.R;
@@ -60,49 +75,148 @@ public class KMZTrackImporter {
         this.trackImporter = trackImporter;
     }
 
+    /**
+     * Reads the archive once: via {@link ZipFile} if the file is seekable, otherwise as a stream (images are spooled until the tracks are stored).
+     * Only images referenced by a marker are stored.
+     */
     @NonNull
     public List<Track.Id> importFile(Uri fileUri) throws IOException {
-        List<Track.Id> trackIds = findAndParseKmlFile(fileUri);
-
-        List<Track.Id> trackIdsWithImages = new ArrayList<>();
-
-        for (Track.Id trackId : trackIds) {
-            if (copyKmzImages(fileUri, trackId)) {
-                trackIdsWithImages.add(trackId);
-                deleteOrphanImages(trackId);
-            } else {
-                return new ArrayList<>();
+        try {
+            ZipFile zipFile = openZipFile(fileUri);
+            if (zipFile != null) {
+                try (zipFile) {
+                    return importZipFile(zipFile);
+                }
             }
+            return importZipInputStream(fileUri);
+        } catch (IOException | RuntimeException e) {
+            // Also removes the tracks if storing their images failed.
+            trackImporter.cleanImport();
+            throw e;
         }
-
-        return trackIdsWithImages;
     }
 
     /**
-     * Copies all images that are inside KMZ to OpenTracks external storage.
-     *
-     * @return false if there are errors or true otherwise.
+     * @return null if the file is not seekable (e.g., a pipe).
      */
-    private boolean copyKmzImages(Uri uri, Track.Id trackId) throws IOException {
+    @Nullable
+    private ZipFile openZipFile(Uri uri) {
+        try (ParcelFileDescriptor parcelFileDescriptor = context.getContentResolver().openFileDescriptor(uri, "r")) {
+            if (parcelFileDescriptor == null) {
+                return null;
+            }
+            Os.lseek(parcelFileDescriptor.getFileDescriptor(), 0, OsConstants.SEEK_CUR);
+            // Opens its own file descriptor.
+            return new ZipFile(new File("/proc/self/fd/" + parcelFileDescriptor.getFd()));
+        } catch (ErrnoException | IOException | SecurityException e) {
+            Log.d(TAG, "No random access; reading as stream: " + uri, e);
+            return null;
+        }
+    }
+
+    private List<Track.Id> importZipFile(ZipFile zipFile) throws IOException {
+        Set<Track.Id> trackIds = new LinkedHashSet<>();
+        Map<String, ZipEntry> images = new HashMap<>();
+
+        Enumeration<? extends ZipEntry> zipEntries = zipFile.entries();
+        while (zipEntries.hasMoreElements()) {
+            checkInterrupted();
+            ZipEntry zipEntry = zipEntries.nextElement();
+            String fileName = zipEntry.getName();
+            if (fileName.endsWith(KML_FILE_EXTENSION)) {
+                trackIds.addAll(parseKml(zipFile.getInputStream(zipEntry), fileName));
+            } else if (hasImageExtension(fileName)) {
+                images.put(importNameForFilename(fileName), zipEntry);
+            }
+        }
+        checkTrackIds(trackIds);
+
+        for (Map.Entry<Track.Id, Set<String>> photos : getPhotoNames(trackIds).entrySet()) {
+            for (String photoName : photos.getValue()) {
+                checkInterrupted();
+                ZipEntry zipEntry = images.get(photoName);
+                if (zipEntry != null) {
+                    try (InputStream inputStream = zipFile.getInputStream(zipEntry)) {
+                        saveImageFile(inputStream, photos.getKey(), photoName);
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(trackIds);
+    }
+
+    private List<Track.Id> importZipInputStream(Uri uri) throws IOException {
+        File spoolDir = new File(FileUtils.getPhotoDir(context), ".import-" + UUID.randomUUID());
         try (InputStream inputStream = context.getContentResolver().openInputStream(uri);
              ZipInputStream zipInputStream = new ZipInputStream(inputStream)) {
-            ZipEntry zipEntry;
+            Set<Track.Id> trackIds = new LinkedHashSet<>();
+            Map<String, File> images = new HashMap<>();
 
+            ZipEntry zipEntry;
             while ((zipEntry = zipInputStream.getNextEntry()) != null) {
-                if (Thread.interrupted()) {
-                    Log.d(TAG, "Thread interrupted");
-                    return false;
-                }
-
+                checkInterrupted();
                 String fileName = zipEntry.getName();
-                if (hasImageExtension(fileName)) {
-                    readAndSaveImageFile(zipInputStream, trackId, importNameForFilename(fileName));
+                if (fileName.endsWith(KML_FILE_EXTENSION)) {
+                    trackIds.addAll(parseKml(new FilterInputStream(zipInputStream) {
+                        @Override
+                        public void close() {
+                            // SAX2 always tries close InputStreams; but that would also close our ZIP file.
+                        }
+                    }, fileName));
+                } else if (hasImageExtension(fileName)) {
+                    String importName = importNameForFilename(fileName);
+                    if (!"".equals(importName)) {
+                        if (!spoolDir.exists() && !spoolDir.mkdirs()) {
+                            throw new IOException("Could not create " + spoolDir);
+                        }
+                        File file = new File(spoolDir, importName);
+                        try (OutputStream outputStream = new FileOutputStream(file)) {
+                            copy(zipInputStream, outputStream);
+                        }
+                        images.put(importName, file);
+                    }
                 }
 
                 zipInputStream.closeEntry();
             }
+            checkTrackIds(trackIds);
+
+            // Spooled images are moved; only images referenced by several tracks are copied.
+            Map<String, Integer> remainingReferences = new HashMap<>();
+            Map<Track.Id, Set<String>> photoNames = getPhotoNames(trackIds);
+            photoNames.values().forEach(names -> names.forEach(name -> remainingReferences.merge(name, 1, Integer::sum)));
+            for (Map.Entry<Track.Id, Set<String>> photos : photoNames.entrySet()) {
+                for (String photoName : photos.getValue()) {
+                    checkInterrupted();
+                    File file = images.get(photoName);
+                    if (file == null) {
+                        continue;
+                    }
+                    File target = new File(FileUtils.getPhotoDir(context, photos.getKey()), photoName);
+                    if (remainingReferences.merge(photoName, -1, Integer::sum) > 0 || !file.renameTo(target)) {
+                        try (InputStream fileInputStream = new FileInputStream(file)) {
+                            saveImageFile(fileInputStream, photos.getKey(), photoName);
+                        }
+                    }
+                }
+            }
+            return new ArrayList<>(trackIds);
+        } finally {
+            FileUtils.deleteDirectoryRecurse(spoolDir);
+        }
+    }
+
+    private void checkInterrupted() {
+        if (Thread.interrupted()) {
+            Log.d(TAG, "Thread interrupted");
+            throw new RuntimeException(context.getString(R.string.import_thread_interrupted));
+        }
+    }
 
-            return true;
+    private void checkTrackIds(Set<Track.Id> trackIds) {
+        if (trackIds.isEmpty()) {
+            Log.d(TAG, "Unable to find doc.kml in kmz");
+            throw new ImportParserException(context.getString(R.string.import_no_kml_file_found));
         }
     }
 
@@ -144,109 +258,73 @@ public class KMZTrackImporter {
         return KMZ_IMAGES_EXT.contains(fileExt);
     }
 
-    private List<Track.Id> findAndParseKmlFile(Uri uri) throws IOException {
-        try (InputStream inputStream = context.getContentResolver().openInputStream(uri);
-             ZipInputStream zipInputStream = new ZipInputStream(inputStream)) {
-            ZipEntry zipEntry;
-            ArrayList<Track.Id> trackIds = new ArrayList<>();
-
-            while ((zipEntry = zipInputStream.getNextEntry()) != null) {
-                if (Thread.interrupted()) {
-                    Log.d(TAG, "Thread interrupted");
-                    throw new RuntimeException(context.getString(R.string.import_thread_interrupted));
-                }
-
-                String fileName = zipEntry.getName();
-                if (fileName.endsWith(KML_FILE_EXTENSION)) {
-                    List<Track.Id> trackId = parseKml(zipInputStream);
-                    if (trackId.isEmpty()) {
-                        Log.d(TAG, "Unable to parse kml in kmz");
-                        throw new ImportParserException(context.getString(R.string.import_unable_to_import_file, fileName));
-                    }
-                    trackIds.addAll(trackId);
-                }
-
-                zipInputStream.closeEntry();
-            }
-            if (trackIds.isEmpty()) {
-                Log.d(TAG, "Unable to find doc.kml in kmz");
-                throw new ImportParserException(context.getString(R.string.import_no_kml_file_found));
-            }
-            return trackIds;
-        } catch (ImportParserException | ImportAlreadyExistsException e) {
-            Log.e(TAG, "Unable to import file", e);
-            throw e;
-        }
-    }
-
     /**
-     * Deletes all images that remained in external storage that doesn't have a marker associated.
-     *
-     * @param trackId the id of the Track.
+     * @return the names of the photos in the photo directory that are referenced by the markers of each track.
      */
-    private void deleteOrphanImages(Track.Id trackId) {
-        // 1.- Gets all photo names in the markers of the track identified by id.
+    private Map<Track.Id, Set<String>> getPhotoNames(Set<Track.Id> trackIds) {
         ContentProviderUtils contentProviderUtils = new ContentProviderUtils(context);
-        List<Marker> markers = contentProviderUtils.getMarkers(trackId);
-        List<String> photosName = new ArrayList<>();
-        for (Marker marker : markers) {
-            if (marker.hasPhoto()) {
-                String photoUrl = Uri.decode(marker.getPhotoUrl().toString()); //TODO Why Uri.decode()?
-                photosName.add(photoUrl.substring(photoUrl.lastIndexOf(File.separatorChar) + 1));
-            }
-        }
-
-        // 2.- Deletes all orphan photos from external storage.
-        File dir = FileUtils.getPhotoDir(context, trackId);
-        if (dir.exists() && dir.isDirectory()) {
-            for (File file : dir.listFiles()) {
-                if (!photosName.contains(file.getName())) {
-                    file.delete();
+        Map<Track.Id, Set<String>> photoNames = new LinkedHashMap<>();
+        for (Track.Id trackId : trackIds) {
+            Set<String> names = new LinkedHashSet<>();
+            for (Marker marker : contentProviderUtils.getMarkers(trackId)) {
+                if (marker.hasPhoto()) {
+                    String photoUrl = Uri.decode(marker.getPhotoUrl().toString()); //TODO Why Uri.decode()?
+                    names.add(photoUrl.substring(photoUrl.lastIndexOf(File.separatorChar) + 1));
                 }
             }
-            if (dir.listFiles().length == 0) {
-                dir.delete();
-            }
+            photoNames.put(trackId, names);
         }
+        return photoNames;
     }
 
-    private List<Track.Id> parseKml(ZipInputStream zipInputStream) throws IOException {
+    private List<Track.Id> parseKml(InputStream inputStream, String fileName) throws IOException {
         XMLImporter kmlFileTrackImporter = new XMLImporter(new KMLTrackImporter(context, trackImporter));
-
-        InputStream nonClosableInputStream = new FilterInputStream(zipInputStream) {
-            @Override
-            public void close() {
-                // SAX2 always tries close InputStreams; but that would also close our ZIP file.
-            }
-        };
-
-        return kmlFileTrackImporter.importFile(nonClosableInputStream);
+        List<Track.Id> trackIds = kmlFileTrackImporter.importFile(inputStream);
+        if (trackIds.isEmpty()) {
+            Log.d(TAG, "Unable to parse kml in kmz");
+            throw new ImportParserException(context.getString(R.string.import_unable_to_import_file, fileName));
+        }
+        return trackIds;
     }
 
     /**
-     * Reads an image file (zipInputStream) and save it in a file called fileName inside photo folder.
+     * Saves an image into the photo folder of a track.
+     * It is written into a temporary file first; so, an image is either complete or missing.
      *
-     * @param zipInputStream the zip input stream
-     * @param trackId        the track's id which image belongs to.
-     * @param fileName       the file name
+     * @param inputStream the image
+     * @param trackId     the track's id which image belongs to.
+     * @param fileName    the file name
      */
-    private void readAndSaveImageFile(ZipInputStream zipInputStream, Track.Id trackId, String fileName) throws IOException {
+    private void saveImageFile(InputStream inputStream, Track.Id trackId, String fileName) throws IOException {
         if (trackId == null || "".equals(fileName)) {
             return;
         }
 
         File dir = FileUtils.getPhotoDir(context, trackId);
         File file = new File(dir, fileName);
+        File tempFile = File.createTempFile(fileName, ".tmp", dir);
+        try {
+            try (FileOutputStream fileOutputStream = new FileOutputStream(tempFile)) {
+                copy(inputStream, fileOutputStream);
+            }
+            if (!tempFile.renameTo(file)) {
+                throw new IOException("Could not rename " + tempFile + " to " + file);
+            }
+        } finally {
+            if (tempFile.exists() && !tempFile.delete()) {
+                Log.w(TAG, "Could not delete " + tempFile);
+            }
+        }
+    }
 
-        try (FileOutputStream fileOutputStream = new FileOutputStream(file)) {
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
-                zipInputStream.transferTo(fileOutputStream);
-            } else {
-                byte[] buffer = new byte[4096];
-                int count;
-                while ((count = zipInputStream.read(buffer)) != -1) {
-                    fileOutputStream.write(buffer, 0, count);
-                }
+    private static void copy(InputStream inputStream, OutputStream outputStream) throws IOException {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            inputStream.transferTo(outputStream);
+        } else {
+            byte[] buffer = new byte[4096];
+            int count;
+            while ((count = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, count);
             }
         }
     }
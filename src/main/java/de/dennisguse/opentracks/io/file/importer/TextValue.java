@@ -0,0 +1,263 @@
+package de.dennisguse.opentracks.io.file.importer;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.xml.sax.Attributes;
+
+/**
+ * Reusable text of an XML element or attribute; allows parsing numbers (and other values via a {@link CharParser}) without creating a String per value.
+ * Leading and trailing whitespace is ignored (like {@link String#trim()}).
+ * <p>
+ * Plain decimals (e.g., 47.123456) are parsed directly from the characters; all other values via the JDK.
+ * The results are the same.
+ */
+class TextValue {
+
+    interface CharParser<T> {
+        /**
+         * @param chars must not be modified or kept.
+         */
+        T parse(@NonNull char[] chars, int start, int end);
+    }
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final float[] POWERS_OF_TEN_FLOAT = {
+            1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+    };
+
+    // Integers up to this value are exact as double / float.
+    private static final long MAX_EXACT_DOUBLE = 1L << 53;
+    private static final long MAX_EXACT_FLOAT = 1L << 24;
+
+    private char[] chars = new char[32];
+    private int length = 0;
+    private boolean present = false;
+
+    /**
+     * @return true if set (even if empty).
+     */
+    boolean isPresent() {
+        return present;
+    }
+
+    boolean isEmpty() {
+        return start() == end();
+    }
+
+    void clear() {
+        length = 0;
+        present = false;
+    }
+
+    void append(char[] ch, int start, int length) {
+        ensureCapacity(this.length + length);
+        System.arraycopy(ch, start, chars, this.length, length);
+        this.length += length;
+        present = true;
+    }
+
+    void set(@NonNull TextValue value) {
+        length = 0;
+        append(value.chars, 0, value.length);
+    }
+
+    void set(@Nullable String value) {
+        clear();
+        if (value != null) {
+            ensureCapacity(value.length());
+            value.getChars(0, value.length(), chars, 0);
+            length = value.length();
+            present = true;
+        }
+    }
+
+    /**
+     * Sets the value of an attribute (or clears if not present).
+     */
+    void set(@NonNull Attributes attributes, @NonNull String qName) {
+        if (attributes instanceof XmlPullTokenizer.AttributeList attributeList) {
+            clear();
+            attributeList.copyValue(qName, this);
+        } else {
+            set(attributes.getValue(qName));
+        }
+    }
+
+    /**
+     * Splits the value like {@link String#split(String)} with a single character (trailing empty parts are removed).
+     * The parts are only set if there are two or three.
+     *
+     * @return number of parts.
+     */
+    int split(char separator, @NonNull TextValue first, @NonNull TextValue second, @NonNull TextValue third) {
+        int start = start();
+        int end = end();
+        while (end > start && chars[end - 1] == separator) {
+            end--;
+        }
+
+        int count = 1;
+        for (int i = start; i < end; i++) {
+            if (chars[i] == separator) {
+                count++;
+            }
+        }
+        if (count != 2 && count != 3) {
+            return count;
+        }
+
+        int partStart = start;
+        int part = 0;
+        for (int i = start; i <= end; i++) {
+            if (i == end || chars[i] == separator) {
+                TextValue target = part == 0 ? first : part == 1 ? second : third;
+                target.length = 0;
+                target.append(chars, partStart, i - partStart);
+                partStart = i + 1;
+                part++;
+            }
+        }
+        if (count == 2) {
+            third.clear();
+        }
+        return count;
+    }
+
+    /**
+     * @see Double#parseDouble(String)
+     */
+    double parseDouble() {
+        int start = start();
+        int end = end();
+
+        int i = start;
+        boolean negative = false;
+        if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+            negative = chars[i] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int significantDigits = 0;
+        int fractionDigits = -1;
+        boolean hasDigits = false;
+        for (; i < end; i++) {
+            char c = chars[i];
+            if (c >= '0' && c <= '9') {
+                hasDigits = true;
+                if (mantissa != 0 || c != '0') {
+                    if (++significantDigits > 18) {
+                        return Double.parseDouble(toString());
+                    }
+                    mantissa = mantissa * 10 + (c - '0');
+                }
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else {
+                // Exponent, NaN, Infinity, hexadecimal, or invalid.
+                return Double.parseDouble(toString());
+            }
+        }
+
+        if (!hasDigits || mantissa > MAX_EXACT_DOUBLE || fractionDigits >= POWERS_OF_TEN.length) {
+            // Invalid or not exact.
+            return Double.parseDouble(toString());
+        }
+
+        // Both operands are exact; so, the division is rounded correctly.
+        double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+        return negative ? -value : value;
+    }
+
+    /**
+     * @see Float#parseFloat(String)
+     */
+    float parseFloat() {
+        int start = start();
+        int end = end();
+
+        int i = start;
+        boolean negative = false;
+        if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+            negative = chars[i] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int fractionDigits = -1;
+        boolean hasDigits = false;
+        for (; i < end; i++) {
+            char c = chars[i];
+            if (c >= '0' && c <= '9') {
+                hasDigits = true;
+                mantissa = mantissa * 10 + (c - '0');
+                if (mantissa > MAX_EXACT_FLOAT) {
+                    return Float.parseFloat(toString());
+                }
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else {
+                return Float.parseFloat(toString());
+            }
+        }
+
+        if (!hasDigits || fractionDigits >= POWERS_OF_TEN_FLOAT.length) {
+            return Float.parseFloat(toString());
+        }
+
+        // Both operands are exact; so, the division is rounded correctly.
+        float value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN_FLOAT[fractionDigits] : mantissa;
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses the trimmed value (e.g., a timestamp via TimestampCodec).
+     */
+    <T> T parse(@NonNull CharParser<T> parser) {
+        return parser.parse(chars, start(), end());
+    }
+
+    /**
+     * @return the trimmed value.
+     */
+    @NonNull
+    @Override
+    public String toString() {
+        int start = start();
+        return new String(chars, start, end() - start);
+    }
+
+    private int start() {
+        int start = 0;
+        while (start < length && chars[start] <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private int end() {
+        int end = length;
+        while (end > 0 && chars[end - 1] <= ' ') {
+            end--;
+        }
+        return Math.max(end, start());
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > chars.length) {
+            char[] newChars = new char[Math.max(capacity, chars.length * 2)];
+            System.arraycopy(chars, 0, newChars, 0, length);
+            chars = newChars;
+        }
+    }
+}
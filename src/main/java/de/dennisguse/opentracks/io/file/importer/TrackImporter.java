@@ -1,11 +1,13 @@
 package de.dennisguse.opentracks.io.file.importer;
 
 import android.content.Context;
+import android.database.Cursor;
 import android.net.Uri;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 
 import java.io.File;
 import java.time.Duration;
@@ -13,6 +15,7 @@ import java.time.Instant;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.UUID;
@@ -25,6 +28,7 @@ import de.dennisguse.opentracks.data.models.Marker;
 import de.dennisguse.opentracks.data.models.Speed;
 import de.dennisguse.opentracks.data.models.Track;
 import de.dennisguse.opentracks.data.models.TrackPoint;
+import de.dennisguse.opentracks.stats.TrackStatistics;
 import de.dennisguse.opentracks.stats.TrackStatisticsUpdater;
 import de.dennisguse.opentracks.ui.markers.MarkerUtils;
 import de.dennisguse.opentracks.util.FileUtils;
@@ -38,6 +42,13 @@ import de.dennisguse.opentracks.util.FileUtils;
  * 5. if needed go to 1.
  * 6. finish()
  * <p>
+ * TrackPoints are stored while importing in chunks of {@link #CHUNK_SIZE} (sorted by time within a chunk); so, heap usage does not depend on the file size.
+ * Each chunk is stored in a short transaction of its own; so, the database is not locked while the file is parsed.
+ * If the import fails, cleanImport() deletes the tracks stored so far.
+ * The database writes are executed via an {@link ImportWriter} (i.e., maybe on another thread); so, parsing continues while the previous chunk is stored.
+ * <p>
+ * If TrackPoints are not sorted by time across chunks, they are sorted afterwards in the database and the derived data (speed, bearing, and segment start) is computed again; data that was derived from a previous TrackPoint before sorting is kept though.
+ * <p>
  * NOTE: This class modifies the parameter.
  * Do not re-use these objects anywhere else.
  */
@@ -45,22 +56,51 @@ public class TrackImporter {
 
     private static final String TAG = TrackImporter.class.getSimpleName();
 
+    @VisibleForTesting
+    static final int CHUNK_SIZE = 1000;
+
     private final Context context;
     private final ContentProviderUtils contentProviderUtils;
 
+    private final ImportWriter importWriter;
     private final Distance maxRecordingDistance;
     private final boolean preventReimport;
 
     private final List<Track.Id> trackIds = new ArrayList<>();
 
+    private ImportWriter.Session session;
+    // Tracks stored by the session (maybe incomplete); deleted if the import fails.
+    private final List<Track.Id> sessionTrackIds = Collections.synchronizedList(new ArrayList<>());
+    // Filled by the session; only valid after commit.
+    private List<Track> storedTracks = new ArrayList<>();
+
     // Current track
     private Track track;
-    private final List<TrackPoint> trackPoints = new LinkedList<>();
+    private List<TrackPoint> trackPoints = new ArrayList<>(CHUNK_SIZE);
     private final List<Marker> markers = new LinkedList<>();
 
+    // Stored TrackPoints of the current track
+    private StoredTrack storedTrack;
+    private TrackPoint lastStoredTrackPoint;
+    private boolean storedTrackPointsUnsorted;
+    private TrackStatisticsUpdater trackStatisticsUpdater = new TrackStatisticsUpdater();
+
+    /**
+     * Only modified by the session.
+     */
+    private static class StoredTrack {
+        private Track.Id trackId;
+        private TrackPoint.Id lastTrackPointId;
+    }
+
     public TrackImporter(Context context, ContentProviderUtils contentProviderUtils, Distance maxRecordingDistance, boolean preventReimport) {
+        this(context, contentProviderUtils, ImportWriter.sameThread(contentProviderUtils), maxRecordingDistance, preventReimport);
+    }
+
+    TrackImporter(Context context, ContentProviderUtils contentProviderUtils, ImportWriter importWriter, Distance maxRecordingDistance, boolean preventReimport) {
         this.context = context;
         this.contentProviderUtils = contentProviderUtils;
+        this.importWriter = importWriter;
         this.maxRecordingDistance = maxRecordingDistance;
         this.preventReimport = preventReimport;
     }
@@ -68,19 +108,22 @@ public class TrackImporter {
     void newTrack() {
         if (track != null) {
             finishTrack();
+        } else {
+            discardTrack();
         }
 
         track = null;
-        trackPoints.clear();
-        markers.clear();
     }
 
     void addTrackPoint(TrackPoint trackPoint) {
         this.trackPoints.add(trackPoint);
+        if (trackPoints.size() >= CHUNK_SIZE) {
+            storeTrackPoints();
+        }
     }
 
     void addTrackPoints(List<TrackPoint> trackPoints) {
-        this.trackPoints.addAll(trackPoints);
+        trackPoints.forEach(this::addTrackPoint);
     }
 
     void addMarkers(List<Marker> markers) {
@@ -112,67 +155,199 @@ public class TrackImporter {
         track.setActivityType(activityType);
     }
 
+    /**
+     * Fails early if a track with this UUID was already imported and re-imports are prevented; so, the remainder of the file is not parsed.
+     * Optional: the UUID is checked again when the track is stored.
+     */
+    void checkReimport(@Nullable String uuid) {
+        if (!preventReimport || uuid == null) {
+            return;
+        }
+        UUID trackUuid;
+        try {
+            trackUuid = UUID.fromString(uuid);
+        } catch (IllegalArgumentException e) {
+            // Replaced by setTrack().
+            return;
+        }
+        if (importWriter.isKnownUuid(trackUuid)) {
+            throw new ImportAlreadyExistsException(context.getString(R.string.import_prevent_reimport));
+        }
+    }
+
     void finish() {
         if (track != null) {
             finishTrack();
+        } else {
+            discardTrack();
+        }
+
+        if (session != null) {
+            session.commit();
+            session = null;
+            sessionTrackIds.clear();
+
+            for (Track storedTrack : storedTracks) {
+                trackIds.add(storedTrack.getId());
+                importWriter.addKnownUuid(storedTrack.getUuid());
+            }
+            storedTracks = new ArrayList<>();
         }
     }
 
+    private void write(ImportWriter.Task task) {
+        if (session == null) {
+            session = importWriter.openSession();
+        }
+        session.write(task);
+    }
+
     private void finishTrack() {
-        if (trackPoints.isEmpty()) {
+        storeTrackPoints();
+        if (storedTrack == null) {
             throw new ImportParserException("Cannot import track without any locations.");
         }
 
-        // Store Track
-        if (contentProviderUtils.getTrack(track.getUuid()) != null) {
-            if (preventReimport) {
-                throw new ImportAlreadyExistsException(context.getString(R.string.import_prevent_reimport));
+        Track track = this.track;
+        List<Marker> markers = new ArrayList<>(this.markers);
+        StoredTrack storedTrack = this.storedTrack;
+        TrackStatistics trackStatistics = storedTrackPointsUnsorted ? null : trackStatisticsUpdater.getTrackStatistics();
+        List<Track> storedTracks = this.storedTracks;
+        write(() -> {
+            Track.Id trackId = storedTrack.trackId;
+            if (trackStatistics != null) {
+                track.setTrackStatistics(trackStatistics);
+            } else {
+                track.setTrackStatistics(sortStoredTrackPoints(storedTrack));
             }
 
-            //TODO This is a workaround until we have proper UI.
-            track.setUuid(UUID.randomUUID());
-        }
+            // Store Track
+            if (contentProviderUtils.getTrack(track.getUuid()) != null) {
+                if (preventReimport) {
+                    throw new ImportAlreadyExistsException(context.getString(R.string.import_prevent_reimport));
+                }
 
-        trackPoints.sort((o1, o2) -> {
-            if (o1.getTime().isBefore(o2.getTime())) {
-                return -1;
+                //TODO This is a workaround until we have proper UI.
+                track.setUuid(UUID.randomUUID());
             }
-            if (o1.getTime().isAfter(o2.getTime())) {
-                return 1;
-            }
-            return 0;
-        });
 
-        adjustTrackPoints();
+            track.setId(trackId);
+            contentProviderUtils.updateImportedTrack(track);
 
-        TrackStatisticsUpdater updater = new TrackStatisticsUpdater();
-        updater.addTrackPoints(trackPoints);
-        track.setTrackStatistics(updater.getTrackStatistics());
+            // Store Markers
+            updateMarkers(trackId, markers);
+            for (Marker marker : markers)
+                marker.setTrackId(trackId); //TODO Should happen in bulkInsertMarkers
 
-        Track.Id trackId = contentProviderUtils.insertTrack(track);
+            contentProviderUtils.bulkInsertMarkers(markers, trackId);
 
-        // Store TrackPoints
-        contentProviderUtils.bulkInsertTrackPoint(trackPoints, trackId);
+            storedTracks.add(track);
+        });
 
-        // Store Markers
-        updateMarkers(trackId);
-        for (Marker marker : markers)
-            marker.setTrackId(trackId); //TODO Should happen in bulkInsertMarkers
+        //Clear up.
+        resetTrack();
+    }
 
-        contentProviderUtils.bulkInsertMarkers(markers, trackId);
+    /**
+     * Removes the current track (e.g., as no track data was provided).
+     */
+    private void discardTrack() {
+        if (storedTrack != null) {
+            StoredTrack storedTrack = this.storedTrack;
+            write(() -> {
+                contentProviderUtils.deleteTrack(context, storedTrack.trackId);
+                sessionTrackIds.remove(storedTrack.trackId);
+            });
+        }
+        resetTrack();
+    }
 
-        //Clear up.
-        trackPoints.clear();
+    private void resetTrack() {
+        trackPoints = new ArrayList<>(CHUNK_SIZE);
         markers.clear();
 
-        trackIds.add(trackId);
+        storedTrack = null;
+        lastStoredTrackPoint = null;
+        storedTrackPointsUnsorted = false;
+        trackStatisticsUpdater = new TrackStatisticsUpdater();
+    }
+
+    /**
+     * Stores the buffered TrackPoints (sorted by time); the track is stored with preliminary data if not yet stored.
+     * The metadata is only known at the end of the track; so, the track is hidden until then (see {@link ContentProviderUtils#insertImportingTrack(Track)}).
+     */
+    private void storeTrackPoints() {
+        if (trackPoints.isEmpty()) {
+            return;
+        }
+
+        trackPoints.sort(Comparator.comparing(TrackPoint::getTime));
+
+        if (lastStoredTrackPoint != null && trackPoints.get(0).getTime().isBefore(lastStoredTrackPoint.getTime())) {
+            storedTrackPointsUnsorted = true;
+        }
+
+        adjustTrackPoints(trackPoints, lastStoredTrackPoint);
+
+        if (!storedTrackPointsUnsorted) {
+            trackStatisticsUpdater.addTrackPoints(trackPoints);
+        }
+
+        if (storedTrack == null) {
+            StoredTrack storedTrack = new StoredTrack();
+            this.storedTrack = storedTrack;
+            write(() -> {
+                storedTrack.trackId = contentProviderUtils.insertImportingTrack(new Track(ZoneOffset.UTC));
+                sessionTrackIds.add(storedTrack.trackId);
+            });
+        }
+        StoredTrack storedTrack = this.storedTrack;
+        List<TrackPoint> chunk = trackPoints;
+        write(() -> storedTrack.lastTrackPointId = contentProviderUtils.insertTrackPoints(chunk, storedTrack.trackId));
+
+        // The chunk is owned by the session now.
+        lastStoredTrackPoint = chunk.get(chunk.size() - 1);
+        trackPoints = new ArrayList<>(CHUNK_SIZE);
+    }
+
+    /**
+     * Stores the TrackPoints of a track again (sorted by time) and deletes the unsorted ones.
+     * Called by the session.
+     *
+     * @return the statistics of the sorted TrackPoints.
+     */
+    private TrackStatistics sortStoredTrackPoints(StoredTrack storedTrack) {
+        Log.i(TAG, "TrackPoints are not sorted by time; sorting them.");
+        TrackPoint.Id lastUnsortedTrackPointId = storedTrack.lastTrackPointId;
+
+        TrackStatisticsUpdater trackStatisticsUpdater = new TrackStatisticsUpdater();
+        TrackPoint previousTrackPoint = null;
+        List<TrackPoint> chunk = new ArrayList<>(CHUNK_SIZE);
+        try (Cursor cursor = contentProviderUtils.getTrackPointCursorSortedByTime(storedTrack.trackId, lastUnsortedTrackPointId)) {
+            while (cursor.moveToNext()) {
+                chunk.add(contentProviderUtils.createTrackPoint(cursor));
+                if (chunk.size() >= CHUNK_SIZE || cursor.isLast()) {
+                    adjustTrackPoints(chunk, previousTrackPoint);
+                    trackStatisticsUpdater.addTrackPoints(chunk);
+                    storedTrack.lastTrackPointId = contentProviderUtils.insertTrackPoints(chunk, storedTrack.trackId);
+                    previousTrackPoint = chunk.get(chunk.size() - 1);
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                }
+            }
+        }
+
+        contentProviderUtils.deleteTrackPoints(storedTrack.trackId, lastUnsortedTrackPointId);
+        return trackStatisticsUpdater.getTrackStatistics();
     }
 
     /**
      * If not present: calculate data from the previous trackPoint (if present)
      * NOTE: Modifies content of trackPoints.
+     * Thread-safe (called by the session while sorting).
+     *
+     * @param previousTrackPoint the last stored TrackPoint (if any)
      */
-    private void adjustTrackPoints() {
+    private void adjustTrackPoints(List<TrackPoint> trackPoints, @Nullable TrackPoint previousTrackPoint) {
         for (int i = 0; i < trackPoints.size(); i++) {
             TrackPoint current = trackPoints.get(i);
 
@@ -191,9 +366,12 @@ public class TrackImporter {
             }
         }
 
-        for (int i = 1; i < trackPoints.size(); i++) {
-            TrackPoint previous = trackPoints.get(i - 1);
+        for (int i = 0; i < trackPoints.size(); i++) {
+            TrackPoint previous = i > 0 ? trackPoints.get(i - 1) : previousTrackPoint;
             TrackPoint current = trackPoints.get(i);
+            if (previous == null) {
+                continue;
+            }
 
             if (current.hasSensorDistance() || (previous.hasLocation() && current.hasLocation())) {
                 Distance distanceToPrevious = current.distanceToPrevious(previous);
@@ -217,7 +395,7 @@ public class TrackImporter {
     /**
      * NOTE: Modifies content of markers.
      */
-    private void updateMarkers(Track.Id trackId) {
+    private void updateMarkers(Track.Id trackId, List<Marker> markers) {
         markers.forEach(marker -> {
             if (marker.hasPhoto()) {
                 marker.setPhotoUrl(getInternalPhotoUrl(trackId, marker.getPhotoUrl()));
@@ -246,8 +424,34 @@ public class TrackImporter {
         return Collections.unmodifiableList(trackIds);
     }
 
+    /**
+     * Removes everything that was imported: aborts the running import and deletes the already finished tracks (e.g., previous KML files of a KMZ).
+     */
     public void cleanImport() {
-        contentProviderUtils.deleteTracks(context, trackIds);
+        abortImport();
+        if (!trackIds.isEmpty()) {
+            contentProviderUtils.deleteTracks(context, trackIds);
+            trackIds.clear();
+        }
+        track = null;
+        resetTrack();
+    }
+
+    /**
+     * Aborts the running import (if any) and deletes its tracks; already finished tracks are kept.
+     */
+    void abortImport() {
+        if (session != null) {
+            session.rollback();
+            session = null;
+            storedTracks = new ArrayList<>();
+        }
+
+        List<Track.Id> incompleteTrackIds = List.copyOf(sessionTrackIds);
+        if (!incompleteTrackIds.isEmpty()) {
+            contentProviderUtils.deleteTracks(context, incompleteTrackIds);
+            sessionTrackIds.clear();
+        }
     }
 
 }
@@ -6,10 +6,12 @@ import android.net.Uri;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
 
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
@@ -20,7 +22,8 @@ import javax.xml.parsers.SAXParserFactory;
 import de.dennisguse.opentracks.data.models.Track;
 
 /**
- * Uses SAX2 to parse XML files.
+ * Parses XML files with {@link XmlPullTokenizer} if supported and otherwise with SAX2.
+ * Both report to the parser's SAX2 handler.
  * <p>
  * NOTE: SAX2 always closes InputStreams after processing.
  */
@@ -29,9 +32,19 @@ public class XMLImporter {
     private static final String TAG = XMLImporter.class.getSimpleName();
 
     private final TrackParser parser;
+    private final boolean useTokenizer;
 
     public XMLImporter(TrackParser parser) {
+        this(parser, true);
+    }
+
+    /**
+     * @param useTokenizer false to always use SAX2 (e.g., for comparison).
+     */
+    @VisibleForTesting
+    XMLImporter(TrackParser parser, boolean useTokenizer) {
         this.parser = parser;
+        this.useTokenizer = useTokenizer;
     }
 
     @NonNull
@@ -43,17 +56,25 @@ public class XMLImporter {
 
     public List<Track.Id> importFile(InputStream inputStream) throws ImportParserException, ImportAlreadyExistsException, IOException {
         try {
-            SAXParserFactory.newInstance().newSAXParser().parse(inputStream, parser.getHandler());
+            BufferedInputStream bufferedInputStream = new BufferedInputStream(inputStream);
+            if (useTokenizer && XmlPullTokenizer.isSupported(bufferedInputStream)) {
+                new XmlPullTokenizer(bufferedInputStream).parse(parser.getHandler());
+            } else {
+                SAXParserFactory.newInstance().newSAXParser().parse(bufferedInputStream, parser.getHandler());
+            }
             return parser.getImportTrackIds();
         } catch (SAXException | ParserConfigurationException | ParsingException e) {
             Log.e(TAG, "Unable to import file", e);
-            if (!parser.getImportTrackIds().isEmpty()) {
-                parser.cleanImport();
-            }
+            parser.cleanImport();
             throw new ImportParserException(e);
         } catch (SQLiteConstraintException e) {
             Log.e(TAG, "Unable to import file", e);
+            parser.cleanImport();
             throw new ImportAlreadyExistsException(e);
+        } catch (IOException | RuntimeException e) {
+            // Also rolls back the running import transaction.
+            parser.cleanImport();
+            throw e;
         }
     }
 
@@ -0,0 +1,653 @@
+package de.dennisguse.opentracks.io.file.importer;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parses the XML subset of GPX and KML files (as exported by OpenTracks and most other apps) and reports it to a SAX {@link DefaultHandler}.
+ * <p>
+ * Supported: UTF-8, elements, attributes, text, CDATA, comments, processing instructions, the predefined entities and character references.
+ * Not supported: DTDs (and thus custom entities) and other encodings; {@link #isSupported(BufferedInputStream)} checks this before parsing, so such files can be parsed by SAX instead.
+ * <p>
+ * In contrast to SAX, text and attribute values are passed from reused buffers and element names are reused.
+ * So, almost no objects are created per element (see {@link TextValue}).
+ * Namespaces are not processed (like SAX without namespace awareness): qualified names are passed as is.
+ */
+class XmlPullTokenizer implements Locator {
+
+    @VisibleForTesting
+    static final int PROLOG_LIMIT = 8 * 1024;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final Pattern ENCODING = Pattern.compile("encoding\\s*=\\s*[\"']([^\"']*)[\"']");
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position = 0;
+    private int limit = 0;
+
+    private int lineNumber = 1;
+    private int columnNumber = 1;
+
+    private final NameTable names = new NameTable();
+    private final ArrayList<String> openElements = new ArrayList<>();
+    private final AttributeList attributes = new AttributeList();
+
+    private char[] text = new char[256];
+    private int textLength = 0;
+
+    XmlPullTokenizer(@NonNull InputStream inputStream) {
+        // Reports malformed input instead of replacing it.
+        this.reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8.newDecoder());
+    }
+
+    /**
+     * Checks the prolog (i.e., everything before the root element) without consuming it.
+     *
+     * @return true if the file can be parsed by {@link XmlPullTokenizer}.
+     */
+    static boolean isSupported(@NonNull BufferedInputStream inputStream) throws IOException {
+        inputStream.mark(PROLOG_LIMIT);
+        try {
+            byte[] bytes = new byte[PROLOG_LIMIT];
+            int length = 0;
+            int read;
+            while (length < bytes.length && (read = inputStream.read(bytes, length, bytes.length - length)) != -1) {
+                length += read;
+            }
+            return isSupportedProlog(bytes, length);
+        } finally {
+            inputStream.reset();
+        }
+    }
+
+    private static boolean isSupportedProlog(byte[] bytes, int length) {
+        int offset = 0;
+        if (length >= 3 && bytes[0] == (byte) 0xEF && bytes[1] == (byte) 0xBB && bytes[2] == (byte) 0xBF) {
+            offset = 3;
+        } else if (length >= 2 && (bytes[0] == 0 || bytes[1] == 0 || bytes[0] == (byte) 0xFE || bytes[0] == (byte) 0xFF)) {
+            // UTF-16 or UTF-32
+            return false;
+        }
+
+        // Markup of the prolog is ASCII.
+        String prolog = new String(bytes, offset, length - offset, StandardCharsets.ISO_8859_1);
+        int i = 0;
+        while (true) {
+            while (i < prolog.length() && isWhitespace(prolog.charAt(i))) {
+                i++;
+            }
+            if (!prolog.startsWith("<", i)) {
+                // Text or root element not within limit.
+                return false;
+            }
+
+            if (prolog.startsWith("<?xml", i) && i + 5 < prolog.length() && isWhitespace(prolog.charAt(i + 5))) {
+                int end = prolog.indexOf("?>", i);
+                if (end < 0) {
+                    return false;
+                }
+                Matcher matcher = ENCODING.matcher(prolog.substring(i, end));
+                if (matcher.find() && !matcher.group(1).equalsIgnoreCase("UTF-8") && !matcher.group(1).equalsIgnoreCase("US-ASCII")) {
+                    return false;
+                }
+                i = end + 2;
+            } else if (prolog.startsWith("<?", i)) {
+                int end = prolog.indexOf("?>", i);
+                if (end < 0) {
+                    return false;
+                }
+                i = end + 2;
+            } else if (prolog.startsWith("<!--", i)) {
+                int end = prolog.indexOf("-->", i + 4);
+                if (end < 0) {
+                    return false;
+                }
+                i = end + 3;
+            } else {
+                // DOCTYPE or root element.
+                return !prolog.startsWith("<!", i);
+            }
+        }
+    }
+
+    /**
+     * Parses the whole document and closes the stream.
+     *
+     * @throws SAXParseException if the document is malformed or not supported.
+     */
+    void parse(@NonNull DefaultHandler handler) throws IOException, SAXException {
+        try {
+            handler.setDocumentLocator(this);
+            handler.startDocument();
+
+            if (peek() == '\uFEFF') {
+                next();
+            }
+
+            boolean rootParsed = false;
+            int c;
+            while ((c = next()) != -1) {
+                if (c == '<') {
+                    c = next();
+                    if (c == '/') {
+                        flushText(handler);
+                        parseEndTag(handler);
+                        rootParsed = openElements.isEmpty();
+                    } else if (c == '?') {
+                        skipUntil('?', '>');
+                    } else if (c == '!') {
+                        parseMarkupDeclaration();
+                    } else {
+                        flushText(handler);
+                        if (rootParsed) {
+                            throw error("Content is not allowed after the root element.");
+                        }
+                        parseStartTag(handler, c);
+                        rootParsed = openElements.isEmpty();
+                    }
+                } else if (!openElements.isEmpty()) {
+                    if (c == '&') {
+                        appendText(parseReference());
+                    } else {
+                        appendText((char) c);
+                    }
+                } else if (!isWhitespace(c)) {
+                    throw error("Content is not allowed outside of the root element.");
+                }
+            }
+
+            if (!rootParsed) {
+                throw error("Unexpected end of document.");
+            }
+            handler.endDocument();
+        } finally {
+            reader.close();
+        }
+    }
+
+    private void parseStartTag(DefaultHandler handler, int first) throws IOException, SAXException {
+        String name = parseName(first);
+        attributes.clear();
+
+        while (true) {
+            int c = skipWhitespace();
+            if (c == '>') {
+                openElements.add(name);
+                handler.startElement("", "", name, attributes);
+                return;
+            }
+            if (c == '/') {
+                if (next() != '>') {
+                    throw error("Expected '>' after '/' in element " + name + ".");
+                }
+                handler.startElement("", "", name, attributes);
+                handler.endElement("", "", name);
+                return;
+            }
+
+            String attributeName = parseName(c);
+            if (attributes.getIndex(attributeName) >= 0) {
+                throw error("Attribute " + attributeName + " was already specified for element " + name + ".");
+            }
+            if (skipWhitespace() != '=') {
+                throw error("Expected '=' after attribute " + attributeName + ".");
+            }
+            int quote = skipWhitespace();
+            if (quote != '"' && quote != '\'') {
+                throw error("Expected quoted value for attribute " + attributeName + ".");
+            }
+            attributes.startValue(attributeName);
+            while ((c = next()) != quote) {
+                switch (c) {
+                    case -1 -> throw error("Unexpected end of document in attribute " + attributeName + ".");
+                    case '<' -> throw error("'<' is not allowed in attribute values.");
+                    case '&' -> attributes.appendValue(parseReference());
+                    case '\t', '\n' -> attributes.appendValue(' ');
+                    default -> attributes.appendValue((char) c);
+                }
+            }
+        }
+    }
+
+    private void parseEndTag(DefaultHandler handler) throws IOException, SAXException {
+        String name = parseName(next());
+        if (skipWhitespace() != '>') {
+            throw error("Expected '>' after end tag " + name + ".");
+        }
+        if (openElements.isEmpty() || openElements.get(openElements.size() - 1) != name) {
+            throw error("End tag " + name + " does not match the start tag.");
+        }
+        openElements.remove(openElements.size() - 1);
+        handler.endElement("", "", name);
+    }
+
+    /**
+     * After "&lt;!": comment or CDATA; DTDs are not supported.
+     */
+    private void parseMarkupDeclaration() throws IOException, SAXException {
+        int c = next();
+        if (c == '-') {
+            if (next() != '-') {
+                throw error("Invalid comment.");
+            }
+            skipUntil('-', '-');
+            if (next() != '>') {
+                throw error("'--' is not allowed in comments.");
+            }
+            return;
+        }
+
+        if (c == '[' && next() == 'C' && next() == 'D' && next() == 'A' && next() == 'T' && next() == 'A' && next() == '[') {
+            if (openElements.isEmpty()) {
+                throw error("CDATA is not allowed outside of the root element.");
+            }
+            int start = textLength;
+            while (true) {
+                c = next();
+                if (c == -1) {
+                    throw error("Unexpected end of document in CDATA.");
+                }
+                appendText((char) c);
+                if (c == '>' && textLength - start >= 3 && text[textLength - 2] == ']' && text[textLength - 3] == ']') {
+                    textLength -= 3;
+                    return;
+                }
+            }
+        }
+
+        throw error("Markup declarations (e.g., DOCTYPE) are not supported.");
+    }
+
+    /**
+     * After '&amp;': predefined entity or character reference.
+     */
+    private int parseReference() throws IOException, SAXException {
+        int codePoint;
+        int c = next();
+        if (c == '#') {
+            int radix = 10;
+            c = next();
+            if (c == 'x') {
+                radix = 16;
+                c = next();
+            }
+            codePoint = 0;
+            int digits = 0;
+            while (c != ';') {
+                int digit = c == -1 ? -1 : Character.digit(c, radix);
+                if (digit < 0 || ++digits > 8) {
+                    throw error("Invalid character reference.");
+                }
+                codePoint = codePoint * radix + digit;
+                c = next();
+            }
+            if (digits == 0 || !Character.isValidCodePoint(codePoint)) {
+                throw error("Invalid character reference.");
+            }
+            return codePoint;
+        }
+
+        String name = parseName(c);
+        if (next() != ';') {
+            throw error("Expected ';' after entity " + name + ".");
+        }
+        return switch (name) {
+            case "amp" -> '&';
+            case "lt" -> '<';
+            case "gt" -> '>';
+            case "quot" -> '"';
+            case "apos" -> '\'';
+            default -> throw error("The entity " + name + " was referenced, but not declared.");
+        };
+    }
+
+    private String parseName(int first) throws IOException, SAXException {
+        if (!isNameStart(first)) {
+            throw error(first == -1 ? "Unexpected end of document." : "Invalid name start character '" + (char) first + "'.");
+        }
+        names.start((char) first);
+        while (isNameChar(peek())) {
+            names.append((char) next());
+        }
+        return names.get();
+    }
+
+    private void skipUntil(char first, char second) throws IOException, SAXException {
+        int previous = -1;
+        int c;
+        while ((c = next()) != -1) {
+            if (previous == first && c == second) {
+                return;
+            }
+            previous = c;
+        }
+        throw error("Unexpected end of document.");
+    }
+
+    private int skipWhitespace() throws IOException {
+        int c;
+        do {
+            c = next();
+        } while (isWhitespace(c));
+        return c;
+    }
+
+    private void appendText(char c) {
+        if (textLength == text.length) {
+            text = Arrays.copyOf(text, text.length * 2);
+        }
+        text[textLength++] = c;
+    }
+
+    private void appendText(int codePoint) {
+        if (Character.isBmpCodePoint(codePoint)) {
+            appendText((char) codePoint);
+        } else {
+            appendText(Character.highSurrogate(codePoint));
+            appendText(Character.lowSurrogate(codePoint));
+        }
+    }
+
+    private void flushText(DefaultHandler handler) throws SAXException {
+        if (textLength > 0) {
+            handler.characters(text, 0, textLength);
+            textLength = 0;
+        }
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position];
+    }
+
+    /**
+     * Line breaks are normalized to '\n'.
+     */
+    private int next() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        char c = buffer[position++];
+        if (c == '\n') {
+            lineNumber++;
+            columnNumber = 1;
+        } else if (c == '\r') {
+            if (peek() == '\n') {
+                position++;
+            }
+            lineNumber++;
+            columnNumber = 1;
+            return '\n';
+        } else {
+            columnNumber++;
+        }
+        return c;
+    }
+
+    private boolean fill() throws IOException {
+        int read = reader.read(buffer, 0, buffer.length);
+        if (read <= 0) {
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+
+    private SAXParseException error(String message) {
+        return new SAXParseException(message, this);
+    }
+
+    private static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\n' || c == '\t' || c == '\r';
+    }
+
+    private static boolean isNameStart(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == ':' || c >= 0x80;
+    }
+
+    private static boolean isNameChar(int c) {
+        return isNameStart(c) || (c >= '0' && c <= '9') || c == '-' || c == '.';
+    }
+
+    @Override
+    public String getPublicId() {
+        return null;
+    }
+
+    @Override
+    public String getSystemId() {
+        return null;
+    }
+
+    @Override
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public int getColumnNumber() {
+        return columnNumber;
+    }
+
+    /**
+     * Returns the same String for the same name; so, names are only created once per document.
+     */
+    private static class NameTable {
+
+        private String[] table = new String[64];
+        private int size = 0;
+
+        private char[] chars = new char[32];
+        private int length;
+
+        void start(char c) {
+            chars[0] = c;
+            length = 1;
+        }
+
+        void append(char c) {
+            if (length == chars.length) {
+                chars = Arrays.copyOf(chars, chars.length * 2);
+            }
+            chars[length++] = c;
+        }
+
+        String get() {
+            int hash = 0;
+            for (int i = 0; i < length; i++) {
+                hash = 31 * hash + chars[i];
+            }
+
+            int mask = table.length - 1;
+            int index = hash & mask;
+            String name;
+            while ((name = table[index]) != null) {
+                if (matches(name)) {
+                    return name;
+                }
+                index = (index + 1) & mask;
+            }
+
+            name = new String(chars, 0, length);
+            table[index] = name;
+            if (++size * 2 > table.length) {
+                rehash();
+            }
+            return name;
+        }
+
+        private boolean matches(String name) {
+            if (name.length() != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (name.charAt(i) != chars[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void rehash() {
+            String[] oldTable = table;
+            table = new String[oldTable.length * 2];
+            int mask = table.length - 1;
+            for (String name : oldTable) {
+                if (name != null) {
+                    // Same hash as in get().
+                    int index = name.hashCode() & mask;
+                    while (table[index] != null) {
+                        index = (index + 1) & mask;
+                    }
+                    table[index] = name;
+                }
+            }
+        }
+    }
+
+    /**
+     * The attributes of the current start tag; only valid during {@link DefaultHandler#startElement(String, String, String, Attributes)}.
+     */
+    static class AttributeList implements Attributes {
+
+        private String[] names = new String[8];
+        private int[] starts = new int[8];
+        private int[] ends = new int[8];
+        private int size = 0;
+
+        private char[] values = new char[256];
+        private int valuesLength = 0;
+
+        private void clear() {
+            size = 0;
+            valuesLength = 0;
+        }
+
+        private void startValue(String name) {
+            if (size == names.length) {
+                names = Arrays.copyOf(names, size * 2);
+                starts = Arrays.copyOf(starts, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+            }
+            names[size] = name;
+            starts[size] = valuesLength;
+            ends[size] = valuesLength;
+            size++;
+        }
+
+        private void appendValue(char c) {
+            if (valuesLength == values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+            }
+            values[valuesLength++] = c;
+            ends[size - 1] = valuesLength;
+        }
+
+        private void appendValue(int codePoint) {
+            if (Character.isBmpCodePoint(codePoint)) {
+                appendValue((char) codePoint);
+            } else {
+                appendValue(Character.highSurrogate(codePoint));
+                appendValue(Character.lowSurrogate(codePoint));
+            }
+        }
+
+        /**
+         * Appends the value of the attribute (if present) without creating a String.
+         */
+        void copyValue(@NonNull String qName, @NonNull TextValue target) {
+            int index = getIndex(qName);
+            if (index >= 0) {
+                target.append(values, starts[index], ends[index] - starts[index]);
+            }
+        }
+
+        @Override
+        public int getLength() {
+            return size;
+        }
+
+        @Override
+        public String getURI(int index) {
+            return index >= 0 && index < size ? "" : null;
+        }
+
+        @Override
+        public String getLocalName(int index) {
+            return index >= 0 && index < size ? "" : null;
+        }
+
+        @Override
+        public String getQName(int index) {
+            return index >= 0 && index < size ? names[index] : null;
+        }
+
+        @Override
+        public String getType(int index) {
+            return index >= 0 && index < size ? "CDATA" : null;
+        }
+
+        @Override
+        public String getValue(int index) {
+            return index >= 0 && index < size ? new String(values, starts[index], ends[index] - starts[index]) : null;
+        }
+
+        @Override
+        public int getIndex(String uri, String localName) {
+            // Namespaces are not processed.
+            return -1;
+        }
+
+        @Override
+        public int getIndex(String qName) {
+            for (int i = 0; i < size; i++) {
+                if (names[i].equals(qName)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public String getType(String uri, String localName) {
+            return null;
+        }
+
+        @Override
+        public String getType(String qName) {
+            return getType(getIndex(qName));
+        }
+
+        @Override
+        public String getValue(String uri, String localName) {
+            return null;
+        }
+
+        @Override
+        public String getValue(String qName) {
+            return getValue(getIndex(qName));
+        }
+    }
+}
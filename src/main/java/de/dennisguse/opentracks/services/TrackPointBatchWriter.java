@@ -0,0 +1,234 @@
+package de.dennisguse.opentracks.services;
+
+import android.database.sqlite.SQLiteException;
+import android.os.Handler;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import de.dennisguse.opentracks.data.ContentProviderUtils;
+import de.dennisguse.opentracks.data.models.Track;
+import de.dennisguse.opentracks.data.models.TrackPoint;
+import de.dennisguse.opentracks.stats.TrackStatistics;
+import de.dennisguse.opentracks.stats.TrackStatisticsCheckpoint;
+import de.dennisguse.opentracks.stats.TrackStatisticsUpdater;
+
+/**
+ * Write-behind buffer for recorded {@link TrackPoint}s.
+ * <p>
+ * Instead of one insert (and one statistics update) per {@link TrackPoint}, the {@link TrackPoint}s are collected and stored in one transaction.
+ * With each batch, the {@link TrackStatistics} and a {@link TrackStatisticsCheckpoint} are stored.
+ * A batch is committed if
+ * - it contains {@link #maxBatchSize} {@link TrackPoint}s,
+ * - the oldest buffered {@link TrackPoint} was added {@link #MAX_BATCH_AGE} ago,
+ * - a {@link TrackPoint} is not a {@link TrackPoint.Type#TRACKPOINT} (i.e., segment start/end or idle), or
+ * - {@link #flush()} is called (e.g., when the recording ends).
+ * If a batch cannot be stored, it is kept and retried with the next commit; the {@link TrackStatisticsUpdater} already includes its {@link TrackPoint}s.
+ * If the next {@link TrackPoint} belongs to another track, the failed batch is retried immediately and (if this fails again) kept until a later commit succeeds; so, it is never dropped.
+ */
+class TrackPointBatchWriter {
+
+    private static final String TAG = TrackPointBatchWriter.class.getSimpleName();
+
+    @VisibleForTesting
+    static final int DEFAULT_MAX_BATCH_SIZE = 10;
+
+    private static final Duration MAX_BATCH_AGE = Duration.ofSeconds(10);
+
+    private final Runnable ON_MAX_BATCH_AGE = this::flush;
+
+    private final ContentProviderUtils contentProviderUtils;
+    private final Handler handler;
+    private final Supplier<TrackStatisticsUpdater> trackStatisticsUpdaterSupplier;
+    private final TrackUpdateListener trackUpdateListener;
+
+    private final List<TrackPoint> buffer = new ArrayList<>();
+    private Track.Id bufferTrackId;
+    /**
+     * State including the buffered {@link TrackPoint}s as of a failed commit; in case the recording ended before the retry.
+     */
+    private TrackStatisticsUpdater retryTrackStatisticsUpdater;
+
+    /**
+     * Failed batches of previous tracks; stored (in order) before the buffer.
+     */
+    private final List<PendingBatch> pendingBatches = new ArrayList<>();
+
+    private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+
+    private long committedBatches;
+    private long committedTrackPoints;
+    private int largestBatchSize;
+    private Duration totalCommitDuration = Duration.ZERO;
+    private Duration maxCommitDuration = Duration.ZERO;
+
+    /**
+     * @param trackStatisticsUpdaterSupplier provides the {@link TrackStatisticsUpdater} including all buffered {@link TrackPoint}s; its state is stored with each batch.
+     * @param trackUpdateListener            is informed about the writer's own updates of the track.
+     */
+    TrackPointBatchWriter(@NonNull ContentProviderUtils contentProviderUtils, @NonNull Handler handler, @NonNull Supplier<TrackStatisticsUpdater> trackStatisticsUpdaterSupplier, @NonNull TrackUpdateListener trackUpdateListener) {
+        this.contentProviderUtils = contentProviderUtils;
+        this.handler = handler;
+        this.trackStatisticsUpdaterSupplier = trackStatisticsUpdaterSupplier;
+        this.trackUpdateListener = trackUpdateListener;
+    }
+
+    synchronized void add(@NonNull Track.Id trackId, @NonNull TrackPoint trackPoint) {
+        if (bufferTrackId != null && !bufferTrackId.equals(trackId)) {
+            Log.w(TAG, "TrackPoint for another track; committing pending TrackPoints first.");
+            // The TrackStatisticsUpdater is already the one of the new track; so, only the state of a failed commit belongs to the buffer.
+            pendingBatches.add(new PendingBatch(bufferTrackId, new ArrayList<>(buffer), retryTrackStatisticsUpdater));
+            buffer.clear();
+            bufferTrackId = null;
+            retryTrackStatisticsUpdater = null;
+            flush();
+        }
+
+        bufferTrackId = trackId;
+        buffer.add(trackPoint);
+
+        if (buffer.size() >= maxBatchSize || trackPoint.getType() != TrackPoint.Type.TRACKPOINT) {
+            flush();
+            return;
+        }
+
+        if (buffer.size() == 1) {
+            handler.postDelayed(ON_MAX_BATCH_AGE, MAX_BATCH_AGE.toMillis());
+        }
+    }
+
+    /**
+     * Commits all buffered {@link TrackPoint}s and the current {@link TrackStatistics}.
+     */
+    synchronized void flush() {
+        handler.removeCallbacks(ON_MAX_BATCH_AGE);
+
+        while (!pendingBatches.isEmpty()) {
+            PendingBatch pendingBatch = pendingBatches.get(0);
+            if (!commit(pendingBatch.trackId(), pendingBatch.trackPoints(), pendingBatch.trackStatisticsUpdater())) {
+                handler.postDelayed(ON_MAX_BATCH_AGE, MAX_BATCH_AGE.toMillis());
+                return;
+            }
+            pendingBatches.remove(0);
+        }
+
+        if (buffer.isEmpty()) {
+            return;
+        }
+
+        TrackStatisticsUpdater trackStatisticsUpdater = trackStatisticsUpdaterSupplier.get();
+        if (!commit(bufferTrackId, buffer, trackStatisticsUpdater != null ? trackStatisticsUpdater : retryTrackStatisticsUpdater)) {
+            if (trackStatisticsUpdater != null) {
+                retryTrackStatisticsUpdater = new TrackStatisticsUpdater(trackStatisticsUpdater);
+            }
+            handler.postDelayed(ON_MAX_BATCH_AGE, MAX_BATCH_AGE.toMillis());
+            return;
+        }
+        buffer.clear();
+        bufferTrackId = null;
+        retryTrackStatisticsUpdater = null;
+    }
+
+    /**
+     * @param trackStatisticsUpdater includes the trackPoints; if null, the {@link TrackStatistics} are not updated.
+     * @return false if the trackPoints could not be stored.
+     */
+    private boolean commit(@NonNull Track.Id trackId, @NonNull List<TrackPoint> trackPoints, @Nullable TrackStatisticsUpdater trackStatisticsUpdater) {
+        long startNanos = System.nanoTime();
+        int batchSize = trackPoints.size();
+        TrackPoint.Id lastTrackPointId;
+        try {
+            lastTrackPointId = contentProviderUtils.insertTrackPoints(trackPoints, trackId);
+        } catch (SQLiteException e) {
+            /*
+             * Insert failed, most likely because of SqlLite error code 5 (SQLite_BUSY).
+             * This is expected to happen extremely rarely; the batch is kept and retried.
+             */
+            Log.w(TAG, "SQLiteException; retrying " + batchSize + " TrackPoints of track " + trackId.id() + " later.", e);
+            return false;
+        }
+
+        if (trackStatisticsUpdater != null) {
+            TrackStatisticsCheckpoint checkpoint = lastTrackPointId != null ? new TrackStatisticsCheckpoint(lastTrackPointId, trackStatisticsUpdater.toCheckpoint()) : null;
+            trackUpdateListener.beforeTrackUpdate(trackId);
+            try {
+                contentProviderUtils.updateTrackStatistics(trackId, trackStatisticsUpdater.getTrackStatistics(), checkpoint);
+            } catch (SQLiteException e) {
+                // Stored with the next batch.
+                Log.w(TAG, "SQLiteException; could not store TrackStatistics.", e);
+                trackUpdateListener.onTrackUpdateFailed(trackId);
+            }
+        }
+
+        Duration commitDuration = Duration.ofNanos(System.nanoTime() - startNanos);
+        committedBatches++;
+        committedTrackPoints += batchSize;
+        largestBatchSize = Math.max(largestBatchSize, batchSize);
+        totalCommitDuration = totalCommitDuration.plus(commitDuration);
+        if (commitDuration.compareTo(maxCommitDuration) > 0) {
+            maxCommitDuration = commitDuration;
+        }
+        Log.d(TAG, "Committed " + batchSize + " TrackPoints in " + commitDuration.toMillis() + "ms.");
+        return true;
+    }
+
+    synchronized boolean isEmpty() {
+        return buffer.isEmpty() && pendingBatches.isEmpty();
+    }
+
+    /**
+     * @param maxBatchSize 1 stores every {@link TrackPoint} immediately.
+     */
+    @VisibleForTesting
+    synchronized void setMaxBatchSize(int maxBatchSize) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be at least 1.");
+        }
+        this.maxBatchSize = maxBatchSize;
+        if (buffer.size() >= maxBatchSize) {
+            flush();
+        }
+    }
+
+    synchronized Counters getCounters() {
+        return new Counters(committedBatches, committedTrackPoints, largestBatchSize, totalCommitDuration, maxCommitDuration);
+    }
+
+    /**
+     * Each update of the track (i.e., its {@link TrackStatistics}) notifies the track's URI once.
+     */
+    interface TrackUpdateListener {
+
+        void beforeTrackUpdate(@NonNull Track.Id trackId);
+
+        /**
+         * The track was not updated (and its URI is not notified).
+         */
+        void onTrackUpdateFailed(@NonNull Track.Id trackId);
+    }
+
+    private record PendingBatch(@NonNull Track.Id trackId, @NonNull List<TrackPoint> trackPoints, @Nullable TrackStatisticsUpdater trackStatisticsUpdater) {
+    }
+
+    /**
+     * Batch size and commit latency since creation.
+     */
+    record Counters(long batches, long trackPoints, int largestBatchSize, Duration totalCommitDuration, Duration maxCommitDuration) {
+
+        double averageBatchSize() {
+            return batches == 0 ? 0 : (double) trackPoints / batches;
+        }
+
+        @Nullable
+        Duration averageCommitDuration() {
+            return batches == 0 ? null : totalCommitDuration.dividedBy(batches);
+        }
+    }
+}
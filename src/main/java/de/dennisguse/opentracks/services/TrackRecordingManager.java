@@ -1,8 +1,9 @@
 package de.dennisguse.opentracks.services;
 
+import android.content.ContentUris;
 import android.content.Context;
 import android.content.SharedPreferences;
-import android.database.sqlite.SQLiteException;
+import android.database.ContentObserver;
 import android.os.Handler;
 import android.util.Log;
 import android.util.Pair;
@@ -12,18 +13,23 @@ import androidx.annotation.VisibleForTesting;
 
 import java.time.Duration;
 import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import de.dennisguse.opentracks.R;
 import de.dennisguse.opentracks.data.ContentProviderUtils;
+import de.dennisguse.opentracks.data.TrackPointIterator;
 import de.dennisguse.opentracks.data.models.ActivityType;
 import de.dennisguse.opentracks.data.models.Distance;
 import de.dennisguse.opentracks.data.models.Track;
 import de.dennisguse.opentracks.data.models.TrackPoint;
+import de.dennisguse.opentracks.data.tables.TracksColumns;
 import de.dennisguse.opentracks.sensors.sensorData.SensorDataSet;
 import de.dennisguse.opentracks.services.handlers.AltitudeCorrectionManager;
 import de.dennisguse.opentracks.services.handlers.TrackPointCreator;
 import de.dennisguse.opentracks.settings.PreferencesUtils;
 import de.dennisguse.opentracks.stats.TrackStatistics;
+import de.dennisguse.opentracks.stats.TrackStatisticsCheckpoint;
 import de.dennisguse.opentracks.stats.TrackStatisticsUpdater;
 import de.dennisguse.opentracks.util.TrackNameUtils;
 
@@ -43,6 +49,21 @@ public class TrackRecordingManager implements SharedPreferences.OnSharedPreferen
 
     private final TrackPointCreator trackPointCreator;
 
+    private final TrackPointBatchWriter trackPointBatchWriter;
+
+    private final ContentObserver trackObserver;
+
+    /**
+     * The recording as of the last stored {@link TrackPoint} (incl. buffered ones).
+     * Never modified, but replaced; so {@link #getDataForUI()} can read it from any thread without locking or database access.
+     */
+    private final AtomicReference<LiveTrack> liveTrack = new AtomicReference<>();
+
+    /**
+     * Notifications of the live track caused by our own updates (i.e., {@link TrackStatistics}); these do not require a reload.
+     */
+    private final AtomicInteger pendingOwnTrackUpdates = new AtomicInteger();
+
     private Distance recordingDistanceInterval;
     private Distance maxRecordingDistance;
     private Duration idleDuration;
@@ -63,6 +84,31 @@ public class TrackRecordingManager implements SharedPreferences.OnSharedPreferen
         this.trackPointCreator = trackPointCreator;
         this.handler = handler;
         contentProviderUtils = new ContentProviderUtils(context);
+        trackPointBatchWriter = new TrackPointBatchWriter(contentProviderUtils, handler, () -> trackStatisticsUpdater, new TrackPointBatchWriter.TrackUpdateListener() {
+            @Override
+            public void beforeTrackUpdate(@NonNull Track.Id trackId) {
+                if (isLiveTrack(trackId)) {
+                    pendingOwnTrackUpdates.incrementAndGet();
+                }
+            }
+
+            @Override
+            public void onTrackUpdateFailed(@NonNull Track.Id trackId) {
+                if (isLiveTrack(trackId)) {
+                    pendingOwnTrackUpdates.updateAndGet(count -> Math.max(0, count - 1));
+                }
+            }
+        });
+        trackObserver = new ContentObserver(handler) {
+            @Override
+            public void onChange(boolean selfChange) {
+                if (pendingOwnTrackUpdates.getAndUpdate(count -> Math.max(0, count - 1)) > 0) {
+                    // Our own update: the live track's metadata is unchanged.
+                    return;
+                }
+                reloadLiveTrack();
+            }
+        };
     }
 
     Track.Id startNewTrack() {
@@ -72,6 +118,7 @@ public class TrackRecordingManager implements SharedPreferences.OnSharedPreferen
         Track track = new Track(zoneOffset);
         trackId = contentProviderUtils.insertTrack(track);
         track.setId(trackId);
+        contentProviderUtils.setRecordingTrack(trackId);
 
         trackStatisticsUpdater = new TrackStatisticsUpdater();
 
@@ -84,6 +131,8 @@ public class TrackRecordingManager implements SharedPreferences.OnSharedPreferen
         track.setName(TrackNameUtils.getTrackName(context, trackId, track.getStartTime()));
         contentProviderUtils.updateTrack(track);
 
+        startLiveTrack(track);
+
         return trackId;
     }
 
@@ -98,38 +147,113 @@ public class TrackRecordingManager implements SharedPreferences.OnSharedPreferen
             return false;
         }
 
-        trackStatisticsUpdater = new TrackStatisticsUpdater(track.getTrackStatistics());
+        contentProviderUtils.setRecordingTrack(trackId);
+        trackStatisticsUpdater = restoreTrackStatisticsUpdater(track);
         onNewTrackPoint(trackPointCreator.createSegmentStartManual());
 
         reset();
 
+        startLiveTrack(track);
+
         return true;
     }
 
+    /**
+     * Restores the {@link TrackStatisticsUpdater} from the stored checkpoint and only adds the {@link TrackPoint}s stored afterwards.
+     * Without a (readable) checkpoint, continues from the stored {@link TrackStatistics}.
+     */
+    private TrackStatisticsUpdater restoreTrackStatisticsUpdater(@NonNull Track track) {
+        TrackStatisticsCheckpoint checkpoint = contentProviderUtils.getTrackStatisticsCheckpoint(track.getId());
+        TrackStatisticsUpdater updater = checkpoint != null ? TrackStatisticsUpdater.fromCheckpoint(checkpoint.data()) : null;
+        if (updater == null) {
+            return new TrackStatisticsUpdater(track.getTrackStatistics());
+        }
+
+        int addedTrackPoints = 0;
+        TrackPoint.Id next = new TrackPoint.Id(checkpoint.trackPointId().id() + 1);
+        try (TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointStatisticsIterator(track.getId(), next)) {
+            while (trackPointIterator.hasNext()) {
+                updater.addTrackPoint(trackPointIterator.next());
+                addedTrackPoints++;
+            }
+        }
+        Log.i(TAG, "Restored TrackStatistics from checkpoint; added " + addedTrackPoints + " TrackPoints.");
+        return updater;
+    }
+
     void endCurrentTrack() {
         TrackPoint segmentEnd = trackPointCreator.createSegmentEnd();
         insertTrackPoint(segmentEnd, true);
+        flush();
+        Log.i(TAG, "TrackPoint batches: " + trackPointBatchWriter.getCounters());
+        contentProviderUtils.clearRecordingTrack();
 
         trackId = null;
         trackStatisticsUpdater = null;
 
+        stopLiveTrack();
+
         reset();
     }
 
-    Pair<Track, Pair<TrackPoint, SensorDataSet>> getDataForUI() {
-        TrackStatisticsUpdater tmpTrackStatisticsUpdater = new TrackStatisticsUpdater(trackStatisticsUpdater);
-        Pair<TrackPoint, SensorDataSet> current = trackPointCreator.createCurrentTrackPoint(lastTrackPointUIWithSpeed, lastTrackPointUIWithAltitude, lastStoredTrackPointWithLocation);
+    /**
+     * @param track must not be modified afterwards.
+     */
+    private void startLiveTrack(@NonNull Track track) {
+        pendingOwnTrackUpdates.set(0);
+        liveTrack.set(new LiveTrack(track, new TrackStatisticsUpdater(trackStatisticsUpdater)));
+        context.getContentResolver().registerContentObserver(ContentUris.withAppendedId(TracksColumns.CONTENT_URI, track.getId().id()), false, trackObserver);
+    }
 
-        tmpTrackStatisticsUpdater.addTrackPoint(current.first);
+    private void stopLiveTrack() {
+        context.getContentResolver().unregisterContentObserver(trackObserver);
+        liveTrack.set(null);
+    }
 
-        ALTITUDE_CORRECTION_MANAGER.correctAltitude(context, current.first);
+    private boolean isLiveTrack(@NonNull Track.Id trackId) {
+        LiveTrack current = liveTrack.get();
+        return current != null && current.track().getId().equals(trackId);
+    }
 
-        Track track = contentProviderUtils.getTrack(trackId); //Get copy
+    private void publishLiveTrack() {
+        TrackStatisticsUpdater snapshot = new TrackStatisticsUpdater(trackStatisticsUpdater);
+        liveTrack.updateAndGet(current -> current == null ? null : new LiveTrack(current.track(), snapshot));
+    }
+
+    /**
+     * The track's metadata (e.g., name or activity type) might be edited while recording.
+     */
+    private void reloadLiveTrack() {
+        LiveTrack current = liveTrack.get();
+        if (current == null) {
+            return;
+        }
+        Track track = contentProviderUtils.getTrack(current.track().getId());
         if (track == null) {
+            Log.w(TAG, "Recorded track " + current.track().getId().id() + " does not exist anymore.");
+            return;
+        }
+        liveTrack.updateAndGet(latest -> latest == null || !latest.track().getId().equals(track.getId()) ? latest : new LiveTrack(track, latest.trackStatisticsUpdater()));
+    }
+
+    /**
+     * Does not access the database; only allocates the returned data.
+     */
+    Pair<Track, Pair<TrackPoint, SensorDataSet>> getDataForUI() {
+        LiveTrack live = liveTrack.get();
+        if (live == null) {
             Log.w(TAG, "Requesting data if not recording is taking place, should not be done.");
             return null;
         }
 
+        TrackStatisticsUpdater tmpTrackStatisticsUpdater = new TrackStatisticsUpdater(live.trackStatisticsUpdater());
+        Pair<TrackPoint, SensorDataSet> current = trackPointCreator.createCurrentTrackPoint(lastTrackPointUIWithSpeed, lastTrackPointUIWithAltitude, lastStoredTrackPointWithLocation);
+
+        tmpTrackStatisticsUpdater.addTrackPoint(current.first);
+
+        ALTITUDE_CORRECTION_MANAGER.correctAltitude(context, current.first);
+
+        Track track = new Track(live.track());
         track.setTrackStatistics(tmpTrackStatisticsUpdater.getTrackStatistics());
 
         return new Pair<>(track, current);
@@ -139,6 +263,7 @@ public class TrackRecordingManager implements SharedPreferences.OnSharedPreferen
     public void onIdle() {
         Log.d(TAG, "Becoming idle");
         onNewTrackPoint(trackPointCreator.createIdle());
+        flush();
 
         idleObserver.onIdle();
     }
@@ -245,25 +370,28 @@ public class TrackRecordingManager implements SharedPreferences.OnSharedPreferen
     }
 
     private void insertTrackPointHelper(@NonNull TrackPoint trackPoint) {
-        try {
-            contentProviderUtils.insertTrackPoint(trackPoint, trackId);
-            trackStatisticsUpdater.addTrackPoint(trackPoint);
-
-            contentProviderUtils.updateTrackStatistics(trackId, trackStatisticsUpdater.getTrackStatistics());
-            lastStoredTrackPoint = trackPoint;
-            if (trackPoint.hasLocation()) {
-                lastStoredTrackPointWithLocation = lastStoredTrackPoint;
-            }
-        } catch (SQLiteException e) {
-            // TODO Remove; if this is a problem; use a synchronized method.
-            /*
-             * Insert failed, most likely because of SqlLite error code 5 (SQLite_BUSY).
-             * This is expected to happen extremely rarely (if our listener gets invoked twice at about the same time).
-             */
-            Log.w(TAG, "SQLiteException", e);
+        trackStatisticsUpdater.addTrackPoint(trackPoint);
+        publishLiveTrack();
+        trackPointBatchWriter.add(trackId, trackPoint);
+
+        lastStoredTrackPoint = trackPoint;
+        if (trackPoint.hasLocation()) {
+            lastStoredTrackPointWithLocation = lastStoredTrackPoint;
         }
     }
 
+    /**
+     * Stores all TrackPoints that are not yet stored (see {@link TrackPointBatchWriter}).
+     */
+    synchronized void flush() {
+        trackPointBatchWriter.flush();
+    }
+
+    @VisibleForTesting
+    public void setMaxBatchSize(int maxBatchSize) {
+        trackPointBatchWriter.setMaxBatchSize(maxBatchSize);
+    }
+
     private void reset() {
         lastTrackPoint = null;
         lastTrackPointUIWithSpeed = null;
@@ -293,4 +421,10 @@ public class TrackRecordingManager implements SharedPreferences.OnSharedPreferen
     public interface IdleObserver {
         void onIdle();
     }
+
+    /**
+     * Immutable snapshot of the recording: both the {@link Track} and the {@link TrackStatisticsUpdater} must not be modified.
+     */
+    private record LiveTrack(@NonNull Track track, @NonNull TrackStatisticsUpdater trackStatisticsUpdater) {
+    }
 }
@@ -36,6 +36,7 @@ import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.time.Duration;
 
+import de.dennisguse.opentracks.data.AltitudeMslMigration;
 import de.dennisguse.opentracks.data.ContentProviderUtils;
 import de.dennisguse.opentracks.data.models.Distance;
 import de.dennisguse.opentracks.data.models.Marker;
@@ -127,6 +128,7 @@ public class TrackRecordingService extends Service implements TrackPointCreator.
         if (isRecording()) {
             endCurrentTrack();
         }
+        trackRecordingManager.flush();
         if (isSensorStarted()) {
             stopSensors();
         }
@@ -229,6 +231,8 @@ public class TrackRecordingService extends Service implements TrackPointCreator.
         updateRecordingStatus(STATUS_DEFAULT);
 
         trackRecordingManager.endCurrentTrack();
+        // Recorded TrackPoints are stored without altitude_msl.
+        AltitudeMslMigration.start(this);
 
         stopUpdateRecordingData();
 
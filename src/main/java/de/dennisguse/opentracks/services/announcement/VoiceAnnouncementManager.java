@@ -148,8 +148,9 @@ public class VoiceAnnouncementManager implements SharedPreferences.OnSharedPrefe
             startTrackPointId = null;
         }
 
-        TrackPointIterator trackPointIterator = new TrackPointIterator(contentProviderUtils, track.getId(), startTrackPointId);
-        startTrackPointId = intervalStatistics.addTrackPoints(trackPointIterator);
+        try (TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointStatisticsIterator(track.getId(), startTrackPointId)) {
+            startTrackPointId = intervalStatistics.addTrackPoints(trackPointIterator);
+        }
         IntervalStatistics.Interval lastInterval = intervalStatistics.getLastInterval();
         SensorStatistics sensorStatistics = null;
         if (track.getId() != null) {
@@ -4,43 +4,106 @@ import android.content.Context;
 import android.location.Location;
 import android.util.Log;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
 import androidx.core.location.LocationCompat;
 import androidx.core.location.altitude.AltitudeConverterCompat;
 
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import de.dennisguse.opentracks.data.models.Altitude;
 import de.dennisguse.opentracks.data.models.TrackPoint;
 
 /**
+ * Converts WGS84 altitudes to EGM2008 (i.e., above mean sea level).
+ * <p>
+ * All conversions are done by one long-lived worker thread as AltitudeConverterCompat uses internally a RoomDatabase that cannot be accessed from main thread (fails on version <= 34).
+ * The geoid offset (EGM2008 - WGS84) changes only slowly with the position; so it is cached per grid cell of {@link #GRID_CELLS_PER_DEGREE}.
+ * <p>
  * More infos regarding Android 34's <a href="https://issuetracker.google.com/issues/195660815#comment1">AltitudeConverter</a>.
  */
 public class AltitudeCorrectionManager {
 
     private static final String TAG = AltitudeCorrectionManager.class.getSimpleName();
 
+    /**
+     * 0.01 degree is about 1.1km; the geoid offset changes less than a few decimeters within that distance.
+     */
+    @VisibleForTesting
+    static final int GRID_CELLS_PER_DEGREE = 100;
+
+    private static final int MAX_CACHED_GRID_CELLS = 4096;
+
+    private static final ExecutorService WORKER = Executors.newSingleThreadExecutor(r -> new Thread(r, TAG));
+
+    // Only accessed by WORKER.
+    private static final Map<Long, Double> GEOID_OFFSET_CACHE = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Double> eldest) {
+            return size() > MAX_CACHED_GRID_CELLS;
+        }
+    };
+
     public void correctAltitude(Context context, TrackPoint trackPoint) {
-        if (!trackPoint.hasLocation() || !trackPoint.hasAltitude()) {
+        correctAltitudes(context, List.of(trackPoint));
+    }
+
+    /**
+     * Converts the altitude of all {@link TrackPoint}s with location and WGS84 altitude; blocks until done.
+     */
+    public void correctAltitudes(Context context, @NonNull List<TrackPoint> trackPoints) {
+        if (trackPoints.stream().noneMatch(AltitudeCorrectionManager::needsCorrection)) {
             return;
         }
 
-        // TODO The following is doing IO and should not be done in main thread.
-        // AltitudeConverterCompat uses internally a RoomDatabase that cannot be access from main thread and thus fails on version <= 34.
-        Thread t = new Thread(() -> {
+        try {
+            WORKER.submit(() -> {
+                for (TrackPoint trackPoint : trackPoints) {
+                    if (needsCorrection(trackPoint)) {
+                        correct(context, trackPoint);
+                    }
+                }
+            }).get();
+        } catch (ExecutionException | InterruptedException e) {
+            Log.w(TAG, "Android's AltitudeConverterCompat failed with " + e.getMessage());
+        }
+    }
+
+    private static boolean needsCorrection(TrackPoint trackPoint) {
+        return trackPoint.hasLocation() && trackPoint.hasAltitude() && trackPoint.getAltitude() instanceof Altitude.WGS84;
+    }
+
+    private static void correct(Context context, TrackPoint trackPoint) {
+        long gridCell = toGridCell(trackPoint.getPosition().latitude(), trackPoint.getPosition().longitude());
+        Double geoidOffset = GEOID_OFFSET_CACHE.get(gridCell);
+        if (geoidOffset == null) {
             try {
                 Location loc = trackPoint.getLocation();
                 AltitudeConverterCompat.addMslAltitudeToLocation(context, loc);
-                trackPoint.setAltitude(Altitude.EGM2008.of(LocationCompat.getMslAltitudeMeters(loc)));
+                geoidOffset = LocationCompat.getMslAltitudeMeters(loc) - loc.getAltitude();
+                GEOID_OFFSET_CACHE.put(gridCell, geoidOffset);
             } catch (IOException e) {
                 Log.w(TAG, "Android's AltitudeConverterCompat failed with " + e.getMessage());
+                return;
             }
-        });
-        t.start();
-
-        try {
-            t.join();  // wait for thread to finish
-        } catch (InterruptedException e) {
-            Log.w(TAG, "Android's AltitudeConverterCompat failed with " + e.getMessage());
         }
+
+        trackPoint.setAltitude(Altitude.EGM2008.of(trackPoint.getAltitude().toM() + geoidOffset));
+    }
+
+    /**
+     * Cells are aligned to whole degrees; longitudes are wrapped, so 180 and -180 are in the same cell.
+     */
+    @VisibleForTesting
+    static long toGridCell(double latitude, double longitude) {
+        long latitudeCell = (long) Math.floor(latitude * GRID_CELLS_PER_DEGREE);
+        long longitudeCell = Math.floorMod((long) Math.floor(longitude * GRID_CELLS_PER_DEGREE), 360L * GRID_CELLS_PER_DEGREE);
+        return (latitudeCell << 32) | longitudeCell;
     }
-}
\ No newline at end of file
+}
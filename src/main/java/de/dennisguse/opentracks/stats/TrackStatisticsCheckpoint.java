@@ -0,0 +1,11 @@
+package de.dennisguse.opentracks.stats;
+
+import androidx.annotation.NonNull;
+
+import de.dennisguse.opentracks.data.models.TrackPoint;
+
+/**
+ * Serialized {@link TrackStatisticsUpdater} (see {@link TrackStatisticsUpdater#toCheckpoint()}) including all {@link TrackPoint}s up to trackPointId.
+ */
+public record TrackStatisticsCheckpoint(@NonNull TrackPoint.Id trackPointId, @NonNull byte[] data) {
+}
@@ -16,13 +16,23 @@
 
 package de.dennisguse.opentracks.stats;
 
+import android.util.Log;
+
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
 
 import de.dennisguse.opentracks.data.models.Distance;
 import de.dennisguse.opentracks.data.models.HeartRate;
+import de.dennisguse.opentracks.data.models.Position;
 import de.dennisguse.opentracks.data.models.Power;
 import de.dennisguse.opentracks.data.models.Speed;
 import de.dennisguse.opentracks.data.models.TrackPoint;
@@ -41,6 +51,8 @@ public class TrackStatisticsUpdater {
 
     private static final String TAG = TrackStatisticsUpdater.class.getSimpleName();
 
+    private static final byte CHECKPOINT_VERSION = 1;
+
     private final TrackStatistics trackStatistics;
 
     private float averageHeartRateBPM;
@@ -53,6 +65,10 @@ public class TrackStatisticsUpdater {
     // Current segment's last trackPoint
     private TrackPoint lastTrackPoint;
 
+    // Incremented on every change; used by TrackStatisticsView.
+    private long version;
+    private TrackStatisticsView trackStatisticsView;
+
     public TrackStatisticsUpdater() {
         this(new TrackStatistics());
     }
@@ -64,12 +80,21 @@ public class TrackStatisticsUpdater {
         resetAverageHeartRate();
     }
 
+    private TrackStatisticsUpdater(TrackStatistics trackStatistics, TrackStatistics currentSegment) {
+        this.trackStatistics = trackStatistics;
+        this.currentSegment = currentSegment;
+    }
+
     public TrackStatisticsUpdater(TrackStatisticsUpdater toCopy) {
         this.currentSegment = new TrackStatistics(toCopy.currentSegment);
         this.trackStatistics = new TrackStatistics(toCopy.trackStatistics);
 
         this.lastTrackPoint = toCopy.lastTrackPoint;
-        resetAverageHeartRate();
+
+        this.averageHeartRateBPM = toCopy.averageHeartRateBPM;
+        this.totalHeartRateDuration = toCopy.totalHeartRateDuration;
+        this.averagePowerW = toCopy.averagePowerW;
+        this.totalPowerDuration = toCopy.totalPowerDuration;
     }
 
     public TrackStatistics getTrackStatistics() {
@@ -79,11 +104,36 @@ public class TrackStatisticsUpdater {
         return stats;
     }
 
+    /**
+     * Use for accessing the statistics after each {@link TrackPoint} (does not copy {@link TrackStatistics} per call).
+     */
+    @NonNull
+    public TrackStatisticsView getTrackStatisticsView() {
+        if (trackStatisticsView == null) {
+            trackStatisticsView = new TrackStatisticsView(this);
+        }
+        return trackStatisticsView;
+    }
+
+    TrackStatistics getCompletedSegments() {
+        return trackStatistics;
+    }
+
+    TrackStatistics getCurrentSegment() {
+        return currentSegment;
+    }
+
+    long getVersion() {
+        return version;
+    }
+
     public void addTrackPoints(List<TrackPoint> trackPoints) {
         trackPoints.stream().forEachOrdered(this::addTrackPoint);
     }
 
     public void addTrackPoint(TrackPoint trackPoint) {
+        version++;
+
         if (trackPoint.isSegmentManualStart()) {
             reset(trackPoint);
         }
@@ -201,6 +251,117 @@ public class TrackStatisticsUpdater {
         }
     }
 
+    /**
+     * Serializes the complete state (incl. the current segment) into a compact checkpoint.
+     * Using {@link #fromCheckpoint(byte[])} and adding the following {@link TrackPoint}s yields the same {@link TrackStatistics} as adding all {@link TrackPoint}s.
+     */
+    @NonNull
+    public byte[] toCheckpoint() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(CHECKPOINT_VERSION);
+            writeTrackStatistics(out, trackStatistics);
+            writeTrackStatistics(out, currentSegment);
+
+            out.writeFloat(averageHeartRateBPM);
+            out.writeLong(totalHeartRateDuration.toMillis());
+            out.writeFloat(averagePowerW);
+            out.writeLong(totalPowerDuration.toMillis());
+
+            // Only time and location of the lastTrackPoint are needed.
+            out.writeBoolean(lastTrackPoint != null);
+            if (lastTrackPoint != null) {
+                out.writeLong(lastTrackPoint.getTime().toEpochMilli());
+                out.writeBoolean(lastTrackPoint.hasLocation());
+                if (lastTrackPoint.hasLocation()) {
+                    out.writeDouble(lastTrackPoint.getPosition().latitude());
+                    out.writeDouble(lastTrackPoint.getPosition().longitude());
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @return null if the checkpoint cannot be read (e.g., written by another version).
+     */
+    @Nullable
+    public static TrackStatisticsUpdater fromCheckpoint(@NonNull byte[] checkpoint) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(checkpoint))) {
+            if (in.readByte() != CHECKPOINT_VERSION) {
+                Log.w(TAG, "Ignoring checkpoint of unknown version.");
+                return null;
+            }
+            TrackStatisticsUpdater updater = new TrackStatisticsUpdater(readTrackStatistics(in), readTrackStatistics(in));
+
+            updater.averageHeartRateBPM = in.readFloat();
+            updater.totalHeartRateDuration = Duration.ofMillis(in.readLong());
+            updater.averagePowerW = in.readFloat();
+            updater.totalPowerDuration = Duration.ofMillis(in.readLong());
+
+            if (in.readBoolean()) {
+                Instant time = Instant.ofEpochMilli(in.readLong());
+                Position position = Position.of(time);
+                if (in.readBoolean()) {
+                    position = new Position(time, in.readDouble(), in.readDouble(), null, null, null, null, null);
+                }
+                updater.lastTrackPoint = new TrackPoint(TrackPoint.Type.TRACKPOINT, position);
+            }
+            return updater;
+        } catch (IOException e) {
+            Log.w(TAG, "Ignoring corrupt checkpoint.", e);
+            return null;
+        }
+    }
+
+    private static void writeTrackStatistics(DataOutputStream out, TrackStatistics statistics) throws IOException {
+        out.writeLong(statistics.getStartTime() != null ? statistics.getStartTime().toEpochMilli() : Long.MIN_VALUE);
+        out.writeLong(statistics.getStopTime() != null ? statistics.getStopTime().toEpochMilli() : Long.MIN_VALUE);
+        out.writeDouble(statistics.getTotalDistance().toM());
+        out.writeLong(statistics.getTotalTime().toMillis());
+        out.writeLong(statistics.getMovingTime().toMillis());
+        out.writeDouble(statistics.getMaxSpeed().toMPS());
+        out.writeDouble(statistics.getMinAltitude());
+        out.writeDouble(statistics.getMaxAltitude());
+        out.writeFloat(statistics.hasTotalAltitudeGain() ? statistics.getTotalAltitudeGain() : Float.NaN);
+        out.writeFloat(statistics.hasTotalAltitudeLoss() ? statistics.getTotalAltitudeLoss() : Float.NaN);
+        out.writeFloat(statistics.hasAverageHeartRate() ? statistics.getAverageHeartRate().getBPM() : Float.NaN);
+        out.writeFloat(statistics.hasPower() ? statistics.getAveragePower().getW() : Float.NaN);
+        out.writeBoolean(statistics.isIdle());
+    }
+
+    private static TrackStatistics readTrackStatistics(DataInputStream in) throws IOException {
+        TrackStatistics statistics = new TrackStatistics();
+        long startTime = in.readLong();
+        long stopTime = in.readLong();
+        if (startTime != Long.MIN_VALUE) {
+            statistics.setStartTime(Instant.ofEpochMilli(startTime));
+            statistics.setStopTime(Instant.ofEpochMilli(stopTime));
+        }
+        statistics.setTotalDistance(Distance.of(in.readDouble()));
+        statistics.setTotalTime(Duration.ofMillis(in.readLong()));
+        statistics.setMovingTime(Duration.ofMillis(in.readLong()));
+        statistics.setMaxSpeed(Speed.of(in.readDouble()));
+        statistics.setMinAltitude(in.readDouble());
+        statistics.setMaxAltitude(in.readDouble());
+        float altitudeGain = in.readFloat();
+        float altitudeLoss = in.readFloat();
+        float averageHeartRate = in.readFloat();
+        float averagePower = in.readFloat();
+        statistics.setTotalAltitudeGain(Float.isNaN(altitudeGain) ? null : altitudeGain);
+        statistics.setTotalAltitudeLoss(Float.isNaN(altitudeLoss) ? null : altitudeLoss);
+        if (!Float.isNaN(averageHeartRate)) {
+            statistics.setAverageHeartRate(HeartRate.of(averageHeartRate));
+        }
+        if (!Float.isNaN(averagePower)) {
+            statistics.setAveragePower(Power.of(averagePower));
+        }
+        statistics.setIdle(in.readBoolean());
+        return statistics;
+    }
+
     @NonNull
     @Override
     public String toString() {
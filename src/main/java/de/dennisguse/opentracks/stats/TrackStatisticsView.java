@@ -0,0 +1,53 @@
+package de.dennisguse.opentracks.stats;
+
+import androidx.annotation.NonNull;
+
+import java.time.Duration;
+
+import de.dennisguse.opentracks.data.models.Distance;
+import de.dennisguse.opentracks.data.models.TrackPoint;
+
+/**
+ * Read-only view on the current state of a {@link TrackStatisticsUpdater}; reflects all later changes.
+ * <p>
+ * In contrast to {@link TrackStatisticsUpdater#getTrackStatistics()}, the frequently needed values are computed without copying {@link TrackStatistics}.
+ * {@link #getTrackStatistics()} is only rebuilt if {@link TrackPoint}s were added since the last call.
+ */
+public final class TrackStatisticsView {
+
+    private final TrackStatisticsUpdater updater;
+
+    private TrackStatistics snapshot;
+    private long snapshotVersion = -1;
+
+    TrackStatisticsView(@NonNull TrackStatisticsUpdater updater) {
+        this.updater = updater;
+    }
+
+    @NonNull
+    public Distance getTotalDistance() {
+        return updater.getCompletedSegments().getTotalDistance().plus(updater.getCurrentSegment().getTotalDistance());
+    }
+
+    @NonNull
+    public Duration getTotalTime() {
+        return updater.getCompletedSegments().getTotalTime().plus(updater.getCurrentSegment().getTotalTime());
+    }
+
+    @NonNull
+    public Duration getMovingTime() {
+        return updater.getCompletedSegments().getMovingTime().plus(updater.getCurrentSegment().getMovingTime());
+    }
+
+    /**
+     * @return shared snapshot; must not be modified (use {@link TrackStatisticsUpdater#getTrackStatistics()} for a modifiable copy).
+     */
+    @NonNull
+    public TrackStatistics getTrackStatistics() {
+        if (snapshot == null || snapshotVersion != updater.getVersion()) {
+            snapshot = updater.getTrackStatistics();
+            snapshotVersion = updater.getVersion();
+        }
+        return snapshot;
+    }
+}
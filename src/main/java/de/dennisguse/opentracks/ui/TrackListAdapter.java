@@ -2,7 +2,6 @@ package de.dennisguse.opentracks.ui;
 
 import android.app.ActivityOptions;
 import android.content.Intent;
-import android.database.Cursor;
 import android.util.Pair;
 import android.util.SparseBooleanArray;
 import android.view.LayoutInflater;
@@ -14,11 +13,10 @@ import android.view.ViewGroup;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.view.ActionMode;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.time.Duration;
-import java.time.Instant;
-import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -26,9 +24,8 @@ import de.dennisguse.opentracks.R;
 import de.dennisguse.opentracks.TrackRecordedActivity;
 import de.dennisguse.opentracks.TrackRecordingActivity;
 import de.dennisguse.opentracks.data.models.ActivityType;
-import de.dennisguse.opentracks.data.models.Distance;
 import de.dennisguse.opentracks.data.models.Track;
-import de.dennisguse.opentracks.data.tables.TracksColumns;
+import de.dennisguse.opentracks.data.models.TrackListItem;
 import de.dennisguse.opentracks.databinding.TrackListItemBinding;
 import de.dennisguse.opentracks.services.RecordingStatus;
 import de.dennisguse.opentracks.settings.UnitSystem;
@@ -37,21 +34,37 @@ import de.dennisguse.opentracks.ui.util.ListItemUtils;
 import de.dennisguse.opentracks.util.IntentUtils;
 import de.dennisguse.opentracks.util.StringUtils;
 
-public class TrackListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> implements ActionMode.Callback {
+/**
+ * Shows the {@link TrackListItem}s loaded by {@link TrackListModel}; new lists are diffed in the background, so only changed items are rebound.
+ */
+public class TrackListAdapter extends ListAdapter<TrackListItem, RecyclerView.ViewHolder> implements ActionMode.Callback {
 
     private static final String TAG = TrackListAdapter.class.getSimpleName();
 
+    private static final DiffUtil.ItemCallback<TrackListItem> DIFF_CALLBACK = new DiffUtil.ItemCallback<>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull TrackListItem oldItem, @NonNull TrackListItem newItem) {
+            return oldItem.id().equals(newItem.id());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull TrackListItem oldItem, @NonNull TrackListItem newItem) {
+            return oldItem.equals(newItem);
+        }
+    };
+
     private final AppCompatActivity context;
     private final RecyclerView recyclerView;
     private final SparseBooleanArray selection = new SparseBooleanArray();
     private RecordingStatus recordingStatus;
     private UnitSystem unitSystem;
-    private Cursor cursor;
     private boolean selectionMode = false;
     private ActivityUtils.ContextualActionModeCallback actionModeCallback;
     private ActionMode actionMode;
 
     public TrackListAdapter(AppCompatActivity context, RecyclerView recyclerView, RecordingStatus recordingStatus, UnitSystem unitSystem) {
+        super(DIFF_CALLBACK);
+        setHasStableIds(true);
         this.context = context;
         this.recyclerView = recyclerView;
         this.recordingStatus = recordingStatus;
@@ -73,31 +86,22 @@ public class TrackListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHold
     public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
         ViewHolder viewHolder = (ViewHolder) holder;
 
-        cursor.moveToPosition(position);
-        viewHolder.bind(cursor);
+        viewHolder.bind(getItem(position));
     }
 
     @Override
-    public int getItemCount() {
-        if (cursor == null) {
-            return 0;
-        }
-        return cursor.getCount();
-    }
-
-    public void swapData(Cursor cursor) {
-        this.cursor = cursor;
-        this.notifyDataSetChanged();
+    public long getItemId(int position) {
+        return getItem(position).id().id();
     }
 
     public void updateRecordingStatus(RecordingStatus recordingStatus) {
         this.recordingStatus = recordingStatus;
-        this.notifyDataSetChanged();
+        notifyItemRangeChanged(0, getItemCount());
     }
 
     public void updateUnitSystem(UnitSystem unitSystem) {
         this.unitSystem = unitSystem;
-        this.notifyDataSetChanged();
+        notifyItemRangeChanged(0, getItemCount());
     }
 
     @Override
@@ -133,12 +137,9 @@ public class TrackListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHold
 
     public void setAllSelected(boolean isSelected) {
         if (isSelected) {
-            final int idIndex = cursor.getColumnIndexOrThrow(TracksColumns._ID);
-
-            cursor.moveToFirst();
-            do {
-                selection.put((int) cursor.getLong(idIndex), true);
-            } while (cursor.moveToNext());
+            for (TrackListItem item : getCurrentList()) {
+                selection.put((int) item.id().id(), true);
+            }
         } else {
             selection.clear();
         }
@@ -179,28 +180,10 @@ public class TrackListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHold
         }
 
 
-        public void bind(Cursor cursor) {
-            final int idIndex = cursor.getColumnIndexOrThrow(TracksColumns._ID);
-            final int nameIndex = cursor.getColumnIndexOrThrow(TracksColumns.NAME);
-            final int descriptionIndex = cursor.getColumnIndexOrThrow(TracksColumns.DESCRIPTION);
-            final int activityTypeIndex = cursor.getColumnIndexOrThrow(TracksColumns.ACTIVITY_TYPE);
-            final int activityTypeLocalizedIndex = cursor.getColumnIndexOrThrow(TracksColumns.ACTIVITY_TYPE_LOCALIZED);
-            final int startTimeIndex = cursor.getColumnIndexOrThrow(TracksColumns.STARTTIME);
-            final int startTimeOffsetIndex = cursor.getColumnIndexOrThrow(TracksColumns.STARTTIME_OFFSET);
-            final int totalDistanceIndex = cursor.getColumnIndexOrThrow(TracksColumns.TOTALDISTANCE);
-            final int totalTimeIndex = cursor.getColumnIndexOrThrow(TracksColumns.TOTALTIME);
-            final int markerCountIndex = cursor.getColumnIndexOrThrow(TracksColumns.MARKER_COUNT);
-
-            ActivityType activityType = ActivityType.findBy(cursor.getString(activityTypeIndex));
-            String name = cursor.getString(nameIndex);
-            int markerCount = cursor.getInt(markerCountIndex);
-            Duration totalTime = Duration.ofMillis(cursor.getLong(totalTimeIndex));
-            Distance totalDistance = Distance.of(cursor.getFloat(totalDistanceIndex));
-            Instant startTime = Instant.ofEpochMilli(cursor.getLong(startTimeIndex));
-            ZoneOffset zoneOffset = ZoneOffset.ofTotalSeconds(cursor.getInt(startTimeOffsetIndex));
-            String activityTypeLocalized = cursor.getString(activityTypeLocalizedIndex);
-            String description = cursor.getString(descriptionIndex);
-            trackId = new Track.Id(cursor.getLong(idIndex));
+        public void bind(TrackListItem item) {
+            ActivityType activityType = item.activityType();
+            int markerCount = item.markerCount();
+            trackId = item.id();
 
             int iconId = activityType.getIconDrawableId();
             int iconDesc = R.string.image_track;
@@ -214,24 +197,24 @@ public class TrackListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHold
             viewBinding.trackListItemIcon.setImageResource(iconId);
             viewBinding.trackListItemIcon.setContentDescription(context.getString(iconDesc));
 
-            viewBinding.trackListItemName.setText(name);
+            viewBinding.trackListItemName.setText(item.name());
 
-            String timeDistanceText = ListItemUtils.getTimeDistanceText(context, unitSystem, isRecordingThisTrackRecording, totalTime, totalDistance, markerCount);
+            String timeDistanceText = ListItemUtils.getTimeDistanceText(context, unitSystem, isRecordingThisTrackRecording, item.totalTime(), item.totalDistance(), markerCount);
             viewBinding.trackListItemTimeDistance.setText(timeDistanceText);
 
             viewBinding.trackListItemMarkerCountIcon.setVisibility(markerCount > 0 ? View.VISIBLE : View.GONE);
             viewBinding.trackListItemMarkerCount.setText(markerCount > 0 ? Integer.toString(markerCount) : null);
 
-            if (!recordingStatus.isRecording()) {
-                ListItemUtils.setDateAndTime(context, viewBinding.trackListItemDate, viewBinding.trackListItemTime, startTime, zoneOffset);
+            if (!recordingStatus.isRecording() && item.startTime() != null) {
+                ListItemUtils.setDateAndTime(context, viewBinding.trackListItemDate, viewBinding.trackListItemTime, item.startTime(), item.startTimeOffset());
             } else {
                 viewBinding.trackListItemDate.setText(null);
                 viewBinding.trackListItemTime.setText(null);
             }
 
             //TODO Check if this is needed or a leftover from the MarkerList migration
-            String category = activityType == null ? activityTypeLocalized : null;
-            String categoryDescription = StringUtils.getCategoryDescription(category, description);
+            String category = activityType == null ? item.activityTypeLocalized() : null;
+            String categoryDescription = StringUtils.getCategoryDescription(category, item.description());
             viewBinding.trackListItemCategoryDescription.setText(categoryDescription);
             viewBinding.trackListItemCategoryDescription.setVisibility("".equals(categoryDescription) ? View.GONE : View.VISIBLE);
 
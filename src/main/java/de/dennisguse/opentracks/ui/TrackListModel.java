@@ -0,0 +1,182 @@
+package de.dennisguse.opentracks.ui;
+
+import android.app.Application;
+import android.content.ContentResolver;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.HandlerThread;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import de.dennisguse.opentracks.data.ContentProviderUtils;
+import de.dennisguse.opentracks.data.DebouncedContentObserver;
+import de.dennisguse.opentracks.data.models.Track;
+import de.dennisguse.opentracks.data.models.TrackListItem;
+import de.dennisguse.opentracks.data.tables.MarkerColumns;
+import de.dennisguse.opentracks.data.tables.TracksColumns;
+
+/**
+ * Loads the track list page by page in the background.
+ * If searching, the ranked ids of all matching tracks are loaded first (from the full-text search index) and their items page by page.
+ * While active (see {@link #onResume()}), changes of tracks or markers reload the pages loaded so far; the list is diffed by {@link TrackListAdapter}.
+ */
+public class TrackListModel extends AndroidViewModel {
+
+    private static final String TAG = TrackListModel.class.getSimpleName();
+
+    public static final int PAGE_SIZE = 100;
+
+    private static final Duration TRACKS_NOTIFICATION_DELAY = Duration.ofMillis(500);
+
+    private final MutableLiveData<List<TrackListItem>> tracksLiveData = new MutableLiveData<>();
+    private final ContentResolver contentResolver;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, TAG));
+    private final AtomicBoolean loadNextPagePending = new AtomicBoolean(false);
+    private HandlerThread handlerThread;
+    private Handler handler;
+    private DebouncedContentObserver tracksObserver;
+
+    // Only accessed by executor
+    private String searchQuery;
+    private List<Track.Id> searchResults;
+    private int loadedSearchResultCount = 0;
+    private List<TrackListItem> items = Collections.emptyList();
+    private boolean complete = false;
+
+    public TrackListModel(@NonNull Application application) {
+        super(application);
+        contentResolver = getApplication().getContentResolver();
+        handlerThread = new HandlerThread(TAG);
+        handlerThread.start();
+        handler = new Handler(handlerThread.getLooper());
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        unregisterContentObserver();
+        executor.shutdownNow();
+        if (handlerThread != null) {
+            handlerThread.getLooper().quit();
+            handlerThread = null;
+        }
+        handler = null;
+    }
+
+    public LiveData<List<TrackListItem>> getTracks() {
+        return tracksLiveData;
+    }
+
+    /**
+     * Starts observing changes of tracks and markers.
+     */
+    public void onResume() {
+        unregisterContentObserver();
+        tracksObserver = new DebouncedContentObserver(handler, TRACKS_NOTIFICATION_DELAY) {
+            @Override
+            protected void onDebouncedChange(@NonNull List<Uri> uris) {
+                executor.execute(TrackListModel.this::reload);
+            }
+        };
+        contentResolver.registerContentObserver(TracksColumns.CONTENT_URI, true, tracksObserver);
+        contentResolver.registerContentObserver(MarkerColumns.CONTENT_URI, true, tracksObserver);
+    }
+
+    public void onPause() {
+        unregisterContentObserver();
+    }
+
+    /**
+     * Reloads the pages loaded so far; if the search query changed, starts again with the first page.
+     */
+    public void load(@Nullable String searchQuery) {
+        executor.execute(() -> {
+            if (!Objects.equals(this.searchQuery, searchQuery)) {
+                this.searchQuery = searchQuery;
+                items = Collections.emptyList();
+                loadedSearchResultCount = 0;
+            }
+            reload();
+        });
+    }
+
+    /**
+     * Loads the next page unless all tracks are loaded already; can be called often (e.g., while scrolling).
+     */
+    public void loadNextPage() {
+        if (!loadNextPagePending.compareAndSet(false, true)) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                if (complete || items.isEmpty()) {
+                    return;
+                }
+
+                ContentProviderUtils contentProviderUtils = new ContentProviderUtils(getApplication());
+                List<TrackListItem> nextPage;
+                if (searchResults != null) {
+                    int end = Math.min(searchResults.size(), loadedSearchResultCount + PAGE_SIZE);
+                    nextPage = contentProviderUtils.getTrackListItems(searchResults.subList(loadedSearchResultCount, end));
+                    loadedSearchResultCount = end;
+                    complete = end == searchResults.size();
+                } else {
+                    nextPage = contentProviderUtils.getTrackListItems(items.get(items.size() - 1), PAGE_SIZE);
+                    complete = nextPage.size() < PAGE_SIZE;
+                }
+
+                List<TrackListItem> newItems = new ArrayList<>(items.size() + nextPage.size());
+                newItems.addAll(items);
+                newItems.addAll(nextPage);
+                publish(newItems);
+            } finally {
+                loadNextPagePending.set(false);
+            }
+        });
+    }
+
+    private void reload() {
+        ContentProviderUtils contentProviderUtils = new ContentProviderUtils(getApplication());
+        if (searchQuery != null && !searchQuery.isBlank()) {
+            // Search results are ranked: loaded completely (only ids) as any change may reorder them.
+            searchResults = contentProviderUtils.searchTracks(searchQuery);
+            loadedSearchResultCount = Math.min(searchResults.size(), Math.max(PAGE_SIZE, loadedSearchResultCount));
+            complete = loadedSearchResultCount == searchResults.size();
+            publish(contentProviderUtils.getTrackListItems(searchResults.subList(0, loadedSearchResultCount)));
+            return;
+        }
+
+        searchResults = null;
+        int maxItemCount = Math.max(PAGE_SIZE, items.size());
+        List<TrackListItem> newItems = contentProviderUtils.getTrackListItems(null, maxItemCount);
+        complete = newItems.size() < maxItemCount;
+        publish(newItems);
+    }
+
+    private void publish(List<TrackListItem> newItems) {
+        items = Collections.unmodifiableList(newItems);
+        tracksLiveData.postValue(items);
+    }
+
+    private void unregisterContentObserver() {
+        if (tracksObserver != null) {
+            contentResolver.unregisterContentObserver(tracksObserver);
+            tracksObserver.cancel();
+            tracksObserver = null;
+        }
+    }
+}
@@ -9,6 +9,7 @@ import java.util.List;
 import java.util.Map;
 
 import de.dennisguse.opentracks.data.models.Track;
+import de.dennisguse.opentracks.data.models.TrackRollup;
 import de.dennisguse.opentracks.stats.TrackStatistics;
 
 public class AggregatedStatistics {
@@ -22,6 +23,26 @@ public class AggregatedStatistics {
             aggregate(track);
         }
 
+        sort();
+    }
+
+    private AggregatedStatistics() {
+    }
+
+    /**
+     * Combines rollups (e.g., from {@link de.dennisguse.opentracks.data.ContentProviderUtils#getTrackRollups}) instead of tracks.
+     */
+    public static AggregatedStatistics fromRollups(@NonNull List<TrackRollup> rollups) {
+        AggregatedStatistics aggregatedStatistics = new AggregatedStatistics();
+        for (TrackRollup rollup : rollups) {
+            aggregatedStatistics.aggregate(rollup.activityTypeLocalized(), rollup.trackStatistics(), rollup.trackCount());
+        }
+
+        aggregatedStatistics.sort();
+        return aggregatedStatistics;
+    }
+
+    private void sort() {
         dataList.addAll(dataMap.values());
         dataList.sort((o1, o2) -> {
             if (o1.getCountTracks() == o2.getCountTracks()) {
@@ -33,11 +54,14 @@ public class AggregatedStatistics {
 
     @VisibleForTesting
     public void aggregate(@NonNull Track track) {
-        String activityTypeLocalized = track.getActivityTypeLocalized();
+        aggregate(track.getActivityTypeLocalized(), track.getTrackStatistics(), 1);
+    }
+
+    private void aggregate(String activityTypeLocalized, TrackStatistics trackStatistics, int countTracks) {
         if (dataMap.containsKey(activityTypeLocalized)) {
-            dataMap.get(activityTypeLocalized).add(track.getTrackStatistics());
+            dataMap.get(activityTypeLocalized).add(trackStatistics, countTracks);
         } else {
-            dataMap.put(activityTypeLocalized, new AggregatedStatistic(activityTypeLocalized, track.getTrackStatistics()));
+            dataMap.put(activityTypeLocalized, new AggregatedStatistic(activityTypeLocalized, trackStatistics, countTracks));
         }
     }
 
@@ -56,11 +80,16 @@ public class AggregatedStatistics {
     public static class AggregatedStatistic {
         private final String activityTypeLocalized;
         private final TrackStatistics trackStatistics;
-        private int countTracks = 1;
+        private int countTracks;
 
         public AggregatedStatistic(String activityTypeLocalized, TrackStatistics trackStatistics) {
+            this(activityTypeLocalized, trackStatistics, 1);
+        }
+
+        AggregatedStatistic(String activityTypeLocalized, TrackStatistics trackStatistics, int countTracks) {
             this.activityTypeLocalized = activityTypeLocalized;
             this.trackStatistics = trackStatistics;
+            this.countTracks = countTracks;
         }
 
         public String getActivityTypeLocalized() {
@@ -75,9 +104,9 @@ public class AggregatedStatistics {
             return countTracks;
         }
 
-        void add(TrackStatistics statistics) {
+        void add(TrackStatistics statistics, int countTracks) {
             trackStatistics.merge(statistics);
-            countTracks++;
+            this.countTracks += countTracks;
         }
     }
 }
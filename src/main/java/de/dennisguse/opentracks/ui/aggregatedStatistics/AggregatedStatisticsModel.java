@@ -9,13 +9,22 @@ import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import de.dennisguse.opentracks.data.ContentProviderUtils;
 import de.dennisguse.opentracks.data.TrackSelection;
-import de.dennisguse.opentracks.data.models.Track;
+import de.dennisguse.opentracks.data.models.TrackRollup;
 
+/**
+ * Loads the aggregated statistics in the background from the track rollups (see {@link ContentProviderUtils#getTrackRollups(TrackSelection)}); selections are loaded in order.
+ */
 public class AggregatedStatisticsModel extends AndroidViewModel {
 
+    private static final String TAG = AggregatedStatisticsModel.class.getSimpleName();
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, TAG));
+
     private MutableLiveData<AggregatedStatistics> aggregatedStats;
 
     public AggregatedStatisticsModel(@NonNull Application application) {
@@ -38,14 +47,20 @@ public class AggregatedStatisticsModel extends AndroidViewModel {
         loadAggregatedStats(new TrackSelection());
     }
 
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        executor.shutdownNow();
+    }
+
     private void loadAggregatedStats(TrackSelection selection) {
-        new Thread(() -> {
+        executor.execute(() -> {
             ContentProviderUtils contentProviderUtils = new ContentProviderUtils(getApplication().getApplicationContext());
-            List<Track> tracks = selection != null ? contentProviderUtils.getTracks(selection) : contentProviderUtils.getTracks();
+            List<TrackRollup> rollups = contentProviderUtils.getTrackRollups(selection != null ? selection : new TrackSelection());
 
-            AggregatedStatistics aggregatedStatistics = new AggregatedStatistics(tracks);
+            AggregatedStatistics aggregatedStatistics = AggregatedStatistics.fromRollups(rollups);
 
             aggregatedStats.postValue(aggregatedStatistics);
-        }).start();
+        });
     }
 }
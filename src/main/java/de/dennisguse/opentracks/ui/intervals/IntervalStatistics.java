@@ -46,7 +46,7 @@ public class IntervalStatistics {
             trackPoint = trackPointIterator.next();
             trackStatisticsUpdater.addTrackPoint(trackPoint);
 
-            if (trackStatisticsUpdater.getTrackStatistics().getTotalDistance().plus(interval.distance).greaterOrEqualThan(distanceInterval)) {
+            if (trackStatisticsUpdater.getTrackStatisticsView().getTotalDistance().plus(interval.distance).greaterOrEqualThan(distanceInterval)) {
                 interval.add(trackStatisticsUpdater.getTrackStatistics(), trackPoint);
 
                 double adjustFactor = distanceInterval.dividedBy(interval.distance);
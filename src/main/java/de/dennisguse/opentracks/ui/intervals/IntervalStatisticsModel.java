@@ -2,7 +2,6 @@ package de.dennisguse.opentracks.ui.intervals;
 
 import android.app.Application;
 import android.content.ContentResolver;
-import android.database.ContentObserver;
 import android.net.Uri;
 import android.os.Handler;
 import android.os.HandlerThread;
@@ -12,16 +11,18 @@ import androidx.annotation.Nullable;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.MutableLiveData;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 
 import de.dennisguse.opentracks.data.ContentProviderUtils;
+import de.dennisguse.opentracks.data.DebouncedContentObserver;
 import de.dennisguse.opentracks.data.TrackPointIterator;
+import de.dennisguse.opentracks.data.TrackPointsChange;
 import de.dennisguse.opentracks.data.models.Distance;
 import de.dennisguse.opentracks.data.models.Track;
 import de.dennisguse.opentracks.data.models.TrackPoint;
-import de.dennisguse.opentracks.data.tables.TrackPointsColumns;
 import de.dennisguse.opentracks.settings.UnitSystem;
 
 /**
@@ -32,11 +33,13 @@ public class IntervalStatisticsModel extends AndroidViewModel {
 
     private static final String TAG = IntervalStatisticsModel.class.getSimpleName();
 
+    private static final Duration TRACKPOINTS_NOTIFICATION_DELAY = Duration.ofSeconds(1);
+
     private MutableLiveData<List<IntervalStatistics.Interval>> intervalsLiveData;
     private IntervalStatistics intervalStatistics;
     private Distance distanceInterval;
     private final ContentResolver contentResolver;
-    private ContentObserver trackPointsTableObserver;
+    private DebouncedContentObserver trackPointsTableObserver;
     private TrackPoint.Id lastTrackPointId;
 
     private final Executor executor = Executors.newSingleThreadExecutor();
@@ -54,10 +57,7 @@ public class IntervalStatisticsModel extends AndroidViewModel {
     @Override
     protected void onCleared() {
         super.onCleared();
-        if (trackPointsTableObserver != null) {
-            contentResolver.unregisterContentObserver(trackPointsTableObserver);
-            trackPointsTableObserver = null;
-        }
+        unregisterContentObserver();
         if (handlerThread != null) {
             handlerThread.getLooper().quit();
             handlerThread = null;
@@ -78,13 +78,15 @@ public class IntervalStatisticsModel extends AndroidViewModel {
             loadIntervalStatistics(trackId);
         }
 
-        trackPointsTableObserver = new ContentObserver(handler) {
+        // Only TrackPoints of this track; the new TrackPoints are loaded starting from lastTrackPointId.
+        unregisterContentObserver();
+        trackPointsTableObserver = new DebouncedContentObserver(handler, TRACKPOINTS_NOTIFICATION_DELAY) {
             @Override
-            public void onChange(boolean selfChange, Uri uri) {
+            protected void onDebouncedChange(@NonNull List<Uri> uris) {
                 loadIntervalStatistics(trackId);
             }
         };
-        contentResolver.registerContentObserver(TrackPointsColumns.CONTENT_URI_BY_TRACKID, false, trackPointsTableObserver);
+        contentResolver.registerContentObserver(TrackPointsChange.getUri(trackId), false, trackPointsTableObserver);
 
         return intervalsLiveData;
     }
@@ -92,7 +94,7 @@ public class IntervalStatisticsModel extends AndroidViewModel {
     private void loadIntervalStatistics(Track.Id trackId) {
         executor.execute(() -> {
             ContentProviderUtils contentProviderUtils = new ContentProviderUtils(getApplication());
-            try (TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointLocationIterator(trackId, lastTrackPointId)) {
+            try (TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointStatisticsIterator(trackId, lastTrackPointId)) {
                 lastTrackPointId = intervalStatistics.addTrackPoints(trackPointIterator);
                 intervalsLiveData.postValue(intervalStatistics.getIntervalList());
             }
@@ -100,8 +102,14 @@ public class IntervalStatisticsModel extends AndroidViewModel {
     }
 
     public void onPause() {
+        unregisterContentObserver();
+    }
+
+    private void unregisterContentObserver() {
         if (trackPointsTableObserver != null) {
             contentResolver.unregisterContentObserver(trackPointsTableObserver);
+            trackPointsTableObserver.cancel();
+            trackPointsTableObserver = null;
         }
     }
 
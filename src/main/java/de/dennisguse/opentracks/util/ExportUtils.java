@@ -9,9 +9,11 @@ import android.os.Handler;
 import android.provider.DocumentsContract;
 import android.util.Log;
 
+import androidx.annotation.NonNull;
 import androidx.documentfile.provider.DocumentFile;
 
 import java.io.FileNotFoundException;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
@@ -52,7 +54,10 @@ public class ExportUtils {
         }
     }
 
-    public static void exportTrack(Context context, DocumentFile directory, ExportTask exportTask) {
+    /**
+     * @return number of bytes written.
+     */
+    public static long exportTrack(Context context, DocumentFile directory, ExportTask exportTask) {
         ContentProviderUtils contentProviderUtils = new ContentProviderUtils(context);
         List<Track> tracks = exportTask.getTrackIds().stream().map(contentProviderUtils::getTrack).collect(Collectors.toList());
         Uri exportDocumentFileUri;
@@ -68,13 +73,14 @@ public class ExportUtils {
         }
 
         TrackExporter trackExporter = exportTask.getTrackFileFormat().createTrackExporter(context, contentProviderUtils);
-        try (OutputStream outputStream = context.getContentResolver().openOutputStream(exportDocumentFileUri, "wt")) {
+        try (CountingOutputStream outputStream = new CountingOutputStream(context.getContentResolver().openOutputStream(exportDocumentFileUri, "wt"))) {
             if (!trackExporter.writeTrack(tracks, outputStream)) {
                 if (!DocumentFile.fromSingleUri(context, exportDocumentFileUri).delete()) {
                     throw new RuntimeException("Unable to delete exportDocumentFile");
                 }
                 throw new RuntimeException("Unable to export track");
             }
+            return outputStream.count;
         } catch (FileNotFoundException e) {
             throw new RuntimeException("Unable to open exportDocumentFile " + exportDocumentFileUri, e);
         } catch (IOException e) {
@@ -133,4 +139,28 @@ public class ExportUtils {
 
         return null;
     }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        private long count = 0;
+
+        CountingOutputStream(OutputStream outputStream) throws FileNotFoundException {
+            super(outputStream);
+            if (outputStream == null) {
+                throw new FileNotFoundException();
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(@NonNull byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
 }